@@ -0,0 +1,132 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import generalsgame.BattleMap;
+import generalsgame.Direction;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Creature;
+
+/**
+ * Allocation per tick of the map, meant to be run with -prof gc
+ * (gc.alloc.rate.norm is the bytes allocated per call):
+ * tick() is one BattleMap.update() of the test battle, with the spatial
+ * indexes and the collision phase reading the bounds of every creature,
+ * and cull() is the fog and window test the renderer does for every
+ * creature on each frame. boundsByCorner() and boundsByMinMax() read
+ * the bounds of every creature the old boxed way and the new way,
+ * to show what the accessors save.
+ * @author nikok
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MapAllocationBenchmark {
+
+    private static final double WINDOW_WIDTH = 1280;
+    private static final double WINDOW_HEIGHT = 720;
+
+    @Param({"500", "2000"})
+    private int units;
+
+    private Simulation simulation;
+    private BattleMap map;
+    private long commandLength;
+    private long nextOrders;
+    private double windowX;
+    private double windowY;
+
+    @Setup
+    public void setup() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.simulation = Simulation.createTestBattle(this.units, 1);
+        this.map = this.simulation.getMap();
+        this.commandLength = this.simulation.getClock().secondsToTicks(10);
+        this.nextOrders = 0;
+        this.windowX = 0;
+        this.windowY = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.simulation.shutdown();
+    }
+
+    @Benchmark
+    public long tick() {
+        if (this.simulation.getTick() >= this.nextOrders) {
+            this.simulation.orderMarchAcross(this.commandLength);
+            this.nextOrders = this.simulation.getTick() + this.commandLength;
+        }
+        return this.simulation.step();
+    }
+
+    @Benchmark
+    public int cull() {
+        //The window pans across the map, a bit every frame
+        this.windowX = (this.windowX + 7) % (this.map.getWidth() - WINDOW_WIDTH);
+        this.windowY = (this.windowY + 3) % (this.map.getHeight() - WINDOW_HEIGHT);
+        double maxX = this.windowX + WINDOW_WIDTH;
+        double maxY = this.windowY + WINDOW_HEIGHT;
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        int shown = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature mob = creatures.get(i);
+            if (!this.map.isVisibleTo(0, mob)) continue;
+            if (mob.getMaxX() < this.windowX || mob.getMinX() > maxX) continue;
+            if (mob.getMaxY() < this.windowY || mob.getMinY() > maxY) continue;
+            shown++;
+        }
+        return shown;
+    }
+
+    @Benchmark
+    public double boundsByCorner() {
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        double sum = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature mob = creatures.get(i);
+            Double[] upLeft = mob.getCorner(Direction.UPLEFT);
+            Double[] downRight = mob.getCorner(Direction.DOWNRIGHT);
+            sum += upLeft[0] + upLeft[1] + downRight[0] + downRight[1];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double boundsByMinMax() {
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        double sum = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature mob = creatures.get(i);
+            sum += mob.getMinX() + mob.getMinY() + mob.getMaxX() + mob.getMaxY();
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+import generalsgame.util.AStarPathfinder;
+import generalsgame.util.ArrayAStarPathfinder;
+import generalsgame.util.CollisionMap;
+import generalsgame.util.PathFinder;
+import generalsgame.util.PathfinderAlgorithm;
+
+/**
+ * Time per path of ArrayAStarPathfinder against the older Node based
+ * AStarPathfinder, on the same map and the same start and goal tiles.
+ * The map is scattered with walls, so the searches have to go around them.
+ * Run with -prof gc to see the allocation per path too.
+ * @author nikok
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PathfinderBenchmark {
+
+    private static final int QUERIES = 64; //Start and goal pairs, gone through in turn
+
+    @Param({"64", "128"})
+    private int tilesAcross;
+
+    @Param({"astar", "array"})
+    private String algorithm;
+
+    private CollisionMap collisionMap;
+    private PathfinderAlgorithm pathfinder;
+    private final List<Integer> crossableTerrain = new ArrayList<>();
+    private final int[] starts = new int[QUERIES * 2];
+    private final int[] goals = new int[QUERIES * 2];
+    private int query;
+
+    @Setup
+    public void setup() {
+        Simulation.logger.setLevel(Level.WARNING);
+        double mapSize = this.tilesAcross * Simulation.TILESIZE;
+        BattleMap map = new BattleMap("Pathfinding", mapSize, mapSize);
+        Random random = new Random(14416884);
+        //Walls on about a fifth of the tiles, in short runs
+        for (int i = 0; i < this.tilesAcross * this.tilesAcross / 20; i++) {
+            int x = random.nextInt(this.tilesAcross);
+            int y = random.nextInt(this.tilesAcross);
+            boolean across = random.nextBoolean();
+            for (int j = 0; j < 4; j++) {
+                Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+                map.addStructure(wall, (across ? x + j : x) * Simulation.TILESIZE, (across ? y : y + j) * Simulation.TILESIZE);
+            }
+        }
+        this.collisionMap = map.getCollisionMap();
+        this.collisionMap.updateCollisionLevels();
+        PathFinder owner = map.getPathFinder();
+        int maxSearchDistance = this.tilesAcross * 4;
+        this.pathfinder = this.algorithm.equals("array")
+            ? new ArrayAStarPathfinder(owner, maxSearchDistance, true)
+            : new AStarPathfinder(owner, maxSearchDistance, true);
+        this.crossableTerrain.add(0);
+        for (int i = 0; i < QUERIES; i++) {
+            this.randomOpenTile(random, this.starts, i);
+            this.randomOpenTile(random, this.goals, i);
+        }
+        this.query = 0;
+    }
+
+    private void randomOpenTile(Random random, int[] tiles, int i) {
+        int x, y;
+        do {
+            x = random.nextInt(this.tilesAcross);
+            y = random.nextInt(this.tilesAcross);
+        } while (this.collisionMap.isBlocked(this.crossableTerrain, x, y));
+        tiles[i * 2] = x;
+        tiles[i * 2 + 1] = y;
+    }
+
+    @Benchmark
+    public int findPath() {
+        int i = this.query;
+        this.query = (i + 1) % QUERIES;
+        return this.pathfinder.findPath(this.collisionMap, 1, this.crossableTerrain,
+            this.starts[i * 2], this.starts[i * 2 + 1], this.goals[i * 2], this.goals[i * 2 + 1]).getLength();
+    }
+
+}
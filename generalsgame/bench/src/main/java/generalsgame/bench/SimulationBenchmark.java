@@ -0,0 +1,77 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import generalsgame.Simulation;
+
+/**
+ * Ticks per second of the headless test battle (see Simulation.createTestBattle()),
+ * the same run as Simulation.main() but with JMH doing the warmup and the statistics.
+ * Units get new orders across the map every 10 simulated seconds,
+ * so pathfinding, movement, collisions and sight are all in the measurement.
+ * @author nikok
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"100", "500"})
+    private int units;
+
+    @Param({"false", "true"})
+    private boolean parallel; //Creatures updated on the common fork/join pool
+
+    private Simulation simulation;
+    private long commandLength;
+    private long nextOrders;
+
+    @Setup
+    public void setup() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.simulation = Simulation.createTestBattle(this.units, 1);
+        if (this.parallel) this.simulation.getMap().setUpdatePool(ForkJoinPool.commonPool());
+        this.commandLength = this.simulation.getClock().secondsToTicks(10);
+        this.nextOrders = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.simulation.shutdown();
+    }
+
+    @Benchmark
+    public long tick() {
+        if (this.simulation.getTick() >= this.nextOrders) {
+            this.simulation.orderMarchAcross(this.commandLength);
+            this.nextOrders = this.simulation.getTick() + this.commandLength;
+        }
+        return this.simulation.step();
+    }
+
+}
@@ -15,23 +15,33 @@ import java.util.logging.Level;
 
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
+import generalsgame.gameobjects.BGZone;
+import generalsgame.gameobjects.Creature;
 import generalsgame.gamestate.BattleState;
 import generalsgame.gamestate.GameState;
 import generalsgame.gamestate.MainMenuState;
+import generalsgame.graphics.BattleMapRenderer;
+import generalsgame.graphics.Sprite;
+import generalsgame.util.SimulationClock;
 
 
 /**
  * GameController is the main workhorse behind GeneralsGame,
  * wrapping the various gamestates (lobby, battle...) together.
  * The GameController is generally called from Generals (the view of the game).
+ * The battle itself is a headless Simulation, the controller feeds it
+ * time and input and draws it with a BattleMapRenderer.
  */
 
  public class GameController {
    public boolean running = false;
-   private int currentGameTime;
-   private BattleMap currentMap;
+   public static final int TICKS_PER_SECOND = 30; //Simulation rate, rendering runs at whatever the display does
+   private static final int MAX_CATCHUP_TICKS = 10; //Most ticks run per frame after a stall
+   private Simulation simulation;
+   private BattleMapRenderer mapRenderer;
 
    private Canvas gameCanvas;
    private Canvas uiCanvas;
@@ -61,10 +71,36 @@ import generalsgame.gamestate.MainMenuState;
 
       this.gameStates = new HashMap<>();
 
-      this.currentMap = new BattleMap();
+      this.buildTestMap();
 
    }
 
+   /**
+    * Set up the test battle: a background and a unit for two players
+    */
+   private void buildTestMap() {
+      BGZone zone = new BGZone(new Image("/images/pocmap.png"));
+      BattleMap map = new BattleMap("TestMap", zone.getWidth(), zone.getHeight());
+      this.simulation = new Simulation(map, TICKS_PER_SECOND, MAX_CATCHUP_TICKS);
+      this.mapRenderer = new BattleMapRenderer(map, zone);
+
+      Creature testUnit = new Creature("TestUnit", new Sprite(new Image("/images/Unit/medievalUnit_10.png")));
+      testUnit.setOwner(0);
+      map.addCreature(testUnit, 200, 200);
+      this.mapRenderer.setScreenFocus(testUnit);
+
+      Creature testUnit2 = new Creature("Also test", new Sprite(new Image("/images/Unit/medievalUnit_03.png")));
+      testUnit2.setOwner(1);
+      map.addCreature(testUnit2, 400, 270);
+   }
+
+   /**
+    * Stop the background work of the battle, when the game closes
+    */
+   public void shutdown() {
+      this.simulation.shutdown();
+   }
+
    public void start() {
       gameStates.put(MAINMENU, new MainMenuState(this));
       //gameStates.put(LOBBY, new LobbyState(this));
@@ -73,7 +109,6 @@ import generalsgame.gamestate.MainMenuState;
       this.moveToState(MAINMENU);
       this.running = true;
       this.loading = false;
-      this.currentGameTime = 0;
       currentState.enter();
       
    }
@@ -114,18 +149,39 @@ import generalsgame.gamestate.MainMenuState;
         
    }
 
+    /**
+    * Advance the game by the time a frame took. The time is run as
+    * fixed length ticks, as many as fit in it (leftovers carry over to
+    * the next frame), so the game runs the same whatever the frame rate.
+    * Released buttons are handled on the first tick and then cleared.
+    * @param frameTime Time passed since the last frame, in seconds
+    * @param pressedButtons Buttons currently pressed down
+    * @param releasedButtons Buttons recently released
+    * @return Number of ticks run
+    */
+    public int advance(double frameTime, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
+       SimulationClock clock = this.simulation.getClock();
+       clock.addTime(frameTime);
+       int ticks = 0;
+       while (clock.nextTick()) {
+           this.tick(clock.getTickLength(), clock.getTick(), pressedButtons, releasedButtons);
+           releasedButtons.clear();
+           ticks++;
+       }
+       return ticks;
+    }
+
     /**
     * Tick checks keybuffer, initiates actions and does just about everything.
-    * Tick needs to know how much time has passed since the last tick, so it can
-    * even out actions and avoid rollercoaster game speed. 
-    * @param time Time passed since last time 
+    * Ticks are all the same length, given by the simulation clock.
+    * @param time Length of the tick in seconds
+    * @param tick Number of the tick
     * @param pressedButtons Buttons currently pressed down
     * @param releasedButtons Buttons recently released
     */
-    public void tick(double time,int elapsedSeconds, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
-    this.currentGameTime = elapsedSeconds;
+    public void tick(double time, long tick, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
       if (currentState == null) return;
-       currentState.tick(time, elapsedSeconds, pressedButtons, releasedButtons);
+       currentState.tick(time, tick, pressedButtons, releasedButtons);
    }
    
    /**
@@ -167,12 +223,27 @@ import generalsgame.gamestate.MainMenuState;
       }
    }
 
-   public int getCurrentTime() {
-       return this.currentGameTime;
+   /**
+    * @return Number of the latest simulation tick
+    */
+   public long getCurrentTick() {
+       return this.simulation.getTick();
+   }
+
+   public SimulationClock getClock() {
+       return this.simulation.getClock();
+   }
+
+   public Simulation getSimulation() {
+       return this.simulation;
    }
 
    public BattleMap getCurrentMap() {
-       return this.currentMap;
+       return this.simulation.getMap();
+   }
+
+   public BattleMapRenderer getMapRenderer() {
+       return this.mapRenderer;
    }
 
    public Canvas getGameCanvas() {
@@ -40,10 +40,9 @@ import javafx.stage.WindowEvent;
 
 public class Generals extends Application {
 	public static final String gameVersion = "Version-0.1-Pandarin_Pomelo";
-    public static final Logger logger = Logger.getLogger(Generals.class.getName());
+    public static final Logger logger = Simulation.logger; //One log for the client and the core
 
     public static GameController game;
-    public static int TILESIZE = 32;
 
     public static GraphicsLibrary graphLibrary;
     public static SoundManager soundManager;
@@ -119,9 +118,7 @@ public class Generals extends Application {
         */
         new AnimationTimer() //Logic loop
         {
-            final double startNanoTime = System.nanoTime();
             double previousNanoTime = 0;
-            int runningTime = 0;
             @Override
             public void handle(long currentNanoTime)
             {
@@ -132,11 +129,9 @@ public class Generals extends Application {
                 
                 double elapsedSeconds = (currentNanoTime - previousNanoTime) / 1000000000.0;
                 previousNanoTime = currentNanoTime;
-                runningTime = (int)Math.floor((currentNanoTime - startNanoTime) / 1000000000.0);
-                //Do things:
+                //Do things: the simulation runs in fixed ticks, rendering interpolates between them
 
-                game.tick(elapsedSeconds, runningTime, pressedButtons, releasedButtons); 
-                releasedButtons.clear();
+                game.advance(elapsedSeconds, pressedButtons, releasedButtons);
                 game.render();
                 //System.out.println("FPS : " + (int)(1/elapsedSeconds));
                 uiCanvas.getGraphicsContext2D().setFill(Color.DARKRED);
@@ -146,6 +141,13 @@ public class Generals extends Application {
         
     }
 
+    @Override
+    public void stop() {
+        //Platform.exit() ends up here, the map has worker threads to stop
+        if (game != null) game.shutdown();
+        logger.info("Generals game stopped");
+    }
+
     public static void main (String[] args) {
         logger.info("Generals game launching...");
         Application.launch();
@@ -11,8 +11,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 
 import generalsgame.Generals;
+import generalsgame.Simulation;
+import generalsgame.graphics.GraphicsToolkit;
 import generalsgame.graphics.Sprite;
-import generalsgame.util.Toolkit;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.image.Image;
@@ -66,13 +67,13 @@ public class Wall extends Structure implements HasNeighbours {
     }
     
     public Wall(String name, Image image, int collisionLevel, ImageView wallparts) {
-        super(name, image, collisionLevel);
+        super(name, new Sprite(image), collisionLevel);
         this.wallparts = wallparts;
         this.useExtrasForWalls = false;
     }
     
     public Wall(String name, Image image, int collisionLevel,  Image[] wallimages) {
-        super(name, image, collisionLevel);
+        super(name, new Sprite(image), collisionLevel);
         this.wallimages = wallimages;
         this.useExtrasForWalls = false;
     }
@@ -145,7 +146,7 @@ public class Wall extends Structure implements HasNeighbours {
             Image base = Generals.graphLibrary.getImage("black");
             Image walls = this.composeImage();
             this.getSprite().setImage(base);
-            this.addExtra(this.composeImage(), 0, walls.getHeight() - base.getHeight());
+            this.addExtra(new Sprite(this.composeImage()), 0, walls.getHeight() - base.getHeight());
             //----OLD stuff ----
             //this.getSprite().setImage(this.composeImage());
             //this.removeExtras();
@@ -299,7 +300,7 @@ public class Wall extends Structure implements HasNeighbours {
                 Image[] trimmedExtraImages = new Image[n];
                 System.arraycopy(extraImages, 0, trimmedExtraImages, 0, n);
                 if (trimmedExtraImages.length == 1) imageToStore = trimmedExtraImages[0];
-                else imageToStore =  Toolkit.mergeImage(false, trimmedExtraImages);
+                else imageToStore =  GraphicsToolkit.mergeImage(false, trimmedExtraImages);
             }
             GENERATED_COMPOSITE_IMAGES.put(wallImagesKey, imageToStore);
             //Generals.logger.info(wallImagesKey+" key placed in GENERATED_COMPOSITE_IMAGES");
@@ -307,6 +308,10 @@ public class Wall extends Structure implements HasNeighbours {
         return GENERATED_COMPOSITE_IMAGES.get(wallImagesKey);
     }
     
+    private Sprite getSprite() {
+        return (Sprite)this.graphics;
+    }
+    
     public void setWallImages(Image[] wallimages) {
         this.wallimages = wallimages;
     }
@@ -361,20 +366,20 @@ public class Wall extends Structure implements HasNeighbours {
         parameters.setFill(Color.TRANSPARENT);
         wallparts.setViewport(new Rectangle2D(0,0,graphics.getWidth(),graphics.getHeight()));            
         WritableImage downWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE,0,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE,0,graphics.getWidth(),graphics.getHeight()));
         WritableImage upWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE*2,0,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE*2,0,graphics.getWidth(),graphics.getHeight()));
         WritableImage rightWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE*3,0,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE*3,0,graphics.getWidth(),graphics.getHeight()));
         WritableImage leftWall = wallparts.snapshot(parameters, snapshot);
         //Diagonal
-        wallparts.setViewport(new Rectangle2D(0,Generals.TILESIZE,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(0,Simulation.TILESIZE,graphics.getWidth(),graphics.getHeight()));
         WritableImage upleftWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE,Generals.TILESIZE,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE,Simulation.TILESIZE,graphics.getWidth(),graphics.getHeight()));
         WritableImage downleftWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE*2,Generals.TILESIZE,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE*2,Simulation.TILESIZE,graphics.getWidth(),graphics.getHeight()));
         WritableImage downrightWall = wallparts.snapshot(parameters, snapshot);
-        wallparts.setViewport(new Rectangle2D(Generals.TILESIZE*3,Generals.TILESIZE,graphics.getWidth(),graphics.getHeight()));
+        wallparts.setViewport(new Rectangle2D(Simulation.TILESIZE*3,Simulation.TILESIZE,graphics.getWidth(),graphics.getHeight()));
         WritableImage uprightWall = wallparts.snapshot(parameters, snapshot);
         wallimages =  new Image[]{upleftWall, upWall, uprightWall, leftWall, rightWall, downleftWall, downWall, downrightWall};
         //Cardinal
@@ -78,16 +78,17 @@ public class BattleState implements GameState {
      * The Tick command parses user input and sends an update(time) command to the
      * location game is currently at. These are both done only if game is not inside a menu.
      * In other words, the Location is paused while in a menu (that goes in the menu-stack).
-     * @param time Time since last update
+     * @param time Length of the tick in seconds
+     * @param tick Number of the tick
      * @param pressedButtons List of buttons pressed down by the user
      * @param releasedButtons  List of buttons released by the user
      */
     @Override
-    public void tick(double time, int elapsedSeconds, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
+    public void tick(double time, long tick, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
         if (game.getCurrentMap() == null) {
             return;
         }
-        game.getCurrentMap().update(time, elapsedSeconds);
+        game.getCurrentMap().update(time, tick);
         this.sct.tick(time);
     }
     
@@ -112,9 +113,9 @@ public class BattleState implements GameState {
        if (!this.paused) {
            gc.clearRect(0, 0, screenWidth, screenHeight);
            if (game.getCurrentMap() != null) {
-               game.getCurrentMap().render(gc);
+               game.getMapRenderer().render(gc, game.getClock().getAlpha());
                //Render Location overlay
-               Overlay.drawAllHPBars(gc, game.getCurrentMap().getLastRenderedObjects());
+               Overlay.drawAllHPBars(gc, game.getMapRenderer().getLastRenderedObjects());
            }
        }
        
@@ -204,17 +205,21 @@ public class BattleState implements GameState {
             //A creature is targetted, so give it the current command in mouse
             if ((me.getEventType() == MouseEvent.MOUSE_CLICKED || me.getEventType() == MouseEvent.MOUSE_PRESSED || me.getEventType() == MouseEvent.MOUSE_RELEASED) && me.getButton() == MouseButton.PRIMARY) {
                 //TODO: Switch cases for various commands
+                double goalX = me.getSceneX()-game.getMapRenderer().getLastxOffset();
+                double goalY = me.getSceneY()-game.getMapRenderer().getLastyOffset();
+                //Flow fields are cached per goal, so everyone sent to the same spot shares one
                 command = new MoveCommand(
                     target,
-                     me.getSceneX()-game.getCurrentMap().getLastxOffset(),
-                      me.getSceneY()-game.getCurrentMap().getLastyOffset(),
-                      game.getCurrentTime(),
-                      game.getCurrentTime() + 3
+                     game.getCurrentMap().getPathFinder().getFlowField(target.getWidth(), target.getCrossableTerrain(), goalX, goalY),
+                     goalX,
+                      goalY,
+                      game.getCurrentTick(),
+                      game.getCurrentTick() + game.getClock().secondsToTicks(3)
                       );
                     
                 target.setCommand(command);
                 Generals.logger.info(target.getName() + " was given command " + command.getName());
-                target.addTextPopup(command.getName() + " command given!");
+                this.addTextFloat(command.getName() + " command given!", target);
                 this.cancelCommandWithMouse();
 
             } else if (me.getButton() == MouseButton.SECONDARY) {
@@ -364,8 +369,8 @@ public class BattleState implements GameState {
             return false;
         double clickX = me.getX();
         double clickY = me.getY();
-        double xOffset = this.game.getCurrentMap().getLastxOffset();
-        double yOffset = this.game.getCurrentMap().getLastyOffset();
+        double xOffset = this.game.getMapRenderer().getLastxOffset();
+        double yOffset = this.game.getMapRenderer().getLastyOffset();
         if (me.getButton() == MouseButton.PRIMARY && me.getEventType() == MouseEvent.MOUSE_RELEASED) {
             // Select a target if possible
             MapObject mob = game.getCurrentMap().getMobAtLocation(xOffset + clickX, yOffset + clickY);
@@ -392,8 +397,8 @@ public class BattleState implements GameState {
      * @return true if a mob was clicked
      */
     private boolean toggleTarget(double clickX, double clickY) {
-        MapObject targetMob = game.getCurrentMap().getMobAtLocation(clickX + game.getCurrentMap().getLastxOffset(),
-                clickY + game.getCurrentMap().getLastyOffset());
+        MapObject targetMob = game.getCurrentMap().getMobAtLocation(clickX + game.getMapRenderer().getLastxOffset(),
+                clickY + game.getMapRenderer().getLastyOffset());
         if (targetMob != null) {
             if (game.getCurrentMap().getTargets().contains(targetMob)) {
                 // There already is the same mob targetted, so reselection should clear the
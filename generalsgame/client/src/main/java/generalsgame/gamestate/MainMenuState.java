@@ -99,7 +99,7 @@ public class MainMenuState implements GameState {
     }
 
     @Override
-    public void tick(double time, int elapsedSeconds, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
+    public void tick(double time, long tick, ArrayList<KeyCode> pressedButtons, ArrayList<KeyCode> releasedButtons) {
         //No game logic to perform in game menu
         //perhaps consider adding in some minigame? :)
     }
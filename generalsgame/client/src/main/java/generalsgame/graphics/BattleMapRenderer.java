@@ -0,0 +1,301 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import generalsgame.BattleMap;
+import generalsgame.gameobjects.Creature;
+import generalsgame.gameobjects.MapObject;
+import generalsgame.gameobjects.Structure;
+import generalsgame.gameobjects.Zone;
+import generalsgame.ui.Overlay;
+import generalsgame.util.Path;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * BattleMapRenderer draws a BattleMap on the game canvas.
+ * The map is part of the headless simulation core and knows
+ * nothing of drawing: the camera (screen focus and offsets),
+ * the background zone, hiding what the viewing player can't see
+ * and the order things are drawn in are all kept here.
+ * Objects are drawn with their graphics if those are Sprites,
+ * graphics without an image are skipped.
+ * @author nikok
+ */
+public class BattleMapRenderer {
+
+    private final BattleMap map;
+    private final Zone zone; //Background of the map
+    private final double[] lastOffsets = new double[2];
+    private final ArrayList<MapObject> lastRenderedMapObjects = new ArrayList<>();
+    private final CoordinateComparator coordinateComparator = new CoordinateComparator(); //Render order
+    private MapObject screenFocus;
+    private int viewingPlayer = MapObject.NO_OWNER; //Player whose sight limits rendering, NO_OWNER shows all
+
+    /**
+     * @param map Map to draw
+     * @param zone Background drawn under the map
+     */
+    public BattleMapRenderer(BattleMap map, Zone zone) {
+        this.map = map;
+        this.zone = zone;
+    }
+
+    public BattleMap getMap() {
+        return this.map;
+    }
+
+    public double getLastxOffset () {
+        return this.lastOffsets[0];
+    }
+
+    public double getLastyOffset () {
+        return this.lastOffsets[1];
+    }
+
+    /**
+     * General render method for the location, called 60 times per second
+     * by default. Render only updates the given GraphicsContext with what's
+     * on the current viewport (dictated by xOffset, yOffset and screen width/height)
+     * All the location logic should be handled under tick()
+     * @param gc GraphicsContext for the location graphics
+     */
+    public void render (GraphicsContext gc) {
+        this.render(gc, 1);
+    }
+
+    /**
+     * Render the location with the creatures drawn between
+     * their positions on the last two simulation ticks
+     * @param gc GraphicsContext for the location graphics
+     * @param alpha How far from the previous tick to the current one, 0 to 1
+     */
+    public void render (GraphicsContext gc, double alpha) {
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        for (int i = 0; i < creatures.size(); i++) {
+            creatures.get(i).interpolate(alpha);
+        }
+        /*
+        * Update Offsets first to know which parts of the location are drawn
+        */
+        double xOffset = 0;
+        double yOffset = 0;
+        if (this.screenFocus != null) {
+            xOffset = getxOffset(gc, this.screenFocus.getRenderXPos());
+            yOffset = getyOffset(gc, this.screenFocus.getRenderYPos());
+        }
+        this.renderMap(gc, xOffset, yOffset);
+        this.renderMobs(gc, xOffset, yOffset);
+        this.renderExtras(gc, xOffset, yOffset);
+    }
+
+    private void renderExtras(GraphicsContext gc, double xOffset, double yOffset) {
+        if (!this.map.getTargets().isEmpty()) {
+            for (MapObject mob : this.map.getTargets()) {
+                Overlay.drawTargettingCircle(gc, mob);
+            }
+        }
+    }
+
+    /**
+     * Render all the MOBs (creature & structure)
+     * on the location that is visible. Returns the list of objects that were rendered
+     * @param gc Graphics context to render on
+     * @param xOffset Offset for rendering (centered on player usually)
+     * @param yOffset Offset for rendering (centered on player usually)
+     */
+    private ArrayList<MapObject> renderMobs(GraphicsContext gc, double xOffset, double yOffset) {
+        //The list is reused every frame, it's only read on the render thread after this
+        ArrayList<MapObject> renderedMOBs = this.lastRenderedMapObjects;
+        renderedMOBs.clear();
+        renderCreatures(gc, xOffset, yOffset, renderedMOBs);
+        return renderedMOBs;
+    }
+
+    private void renderCreatures(GraphicsContext gc, double xOffset, double yOffset, ArrayList<MapObject> renderedMOBs) {
+        double screenMaxX = xOffset + gc.getCanvas().getWidth();
+        double screenMaxY = yOffset + gc.getCanvas().getHeight();
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        //Find the creatures to render
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature mob = creatures.get(i);
+            if (this.viewingPlayer != MapObject.NO_OWNER && !this.map.isVisibleTo(this.viewingPlayer, mob)) continue; //Under the fog
+            /*Always render any creatures with lights on
+            * It's probably cheaper to just render them out of screen than it is to iterate
+            * through the list again to see which creatures have lights
+            * (lights often shine further than creature graphics do)
+            */
+            if (mob.getLightSize() > 0) {
+                renderInterpolated(mob, xOffset, yOffset, gc); //Draw objects on the ground
+                renderedMOBs.add(mob);
+                continue;
+            }
+            if (mob.getMaxX() < xOffset || mob.getMinX() > screenMaxX) {
+                //Mob is not in window
+            } else if (mob.getMaxY() < yOffset || mob.getMinY() > screenMaxY) {
+                //Mob is not in window
+            } else {
+                //Mob is in window
+                renderedMOBs.add(mob);
+            }
+        }
+        renderedMOBs.sort(this.coordinateComparator);
+        for (int i = 0; i < renderedMOBs.size(); i++) {
+            renderInterpolated(renderedMOBs.get(i), xOffset, yOffset, gc); //Draw objects on the ground
+        }
+    }
+
+    private void renderMap(GraphicsContext gc, double xOffset, double yOffset) {
+        if (this.zone != null) this.zone.render(-xOffset, -yOffset, gc);
+    }
+
+    /**
+     * xOffset is calculated from the position of the target in
+     * regards to the current window width. If the target would be
+     * outside viewable area, it's given offset to keep it inside the bounds
+     * @param gc GraphicsContext for window bounds
+     * @param xPos the xCoordinate of the target we're following
+     * @return xOffset for the current screen position
+     */
+    public double getxOffset(GraphicsContext gc, double xPos){
+        double windowWidth = gc.getCanvas().getWidth();
+        //Calculate Offset to ensure Player is centered on the screen
+        double xOffset = xPos - (windowWidth / 2);
+        //Prevent leaving the screen
+        if (xOffset < 0) {
+            xOffset = 0;
+        } else if (xOffset > this.map.getWidth() -(windowWidth)) {
+            xOffset = this.map.getWidth() - (windowWidth);
+        }
+        this.lastOffsets[0] = xOffset;
+        return xOffset;
+    }
+
+    /**
+     * yOffset is calculated from the position of the target in
+     * regards to the current window width. If the target would be
+     * outside viewable area, it's given offset to keep it inside the bounds
+     * @param gc GraphicsContext for window bounds
+     * @param yPos the yCoordinate of the target we're following
+     * @return yOffset for the current screen position
+     */
+    public double getyOffset(GraphicsContext gc, double yPos){
+        double windowHeight = gc.getCanvas().getHeight();
+        //Calculate Offset to ensure Player is centered on the screen
+        double yOffset = yPos - (windowHeight / 2);
+        //Prevent leaving the screen
+        if (yOffset < 0) {
+            yOffset = 0;
+        } else if (yOffset > this.map.getHeight() -(windowHeight)) {
+            yOffset = this.map.getHeight() - (windowHeight);
+        }
+        this.lastOffsets[1] = yOffset;
+        return yOffset;
+    }
+
+    public ArrayList<MapObject> getLastRenderedObjects() {
+        return this.lastRenderedMapObjects;
+    }
+
+    /**
+     * The target of the screen focus is what the camera follows.
+     * The view of the location is centered on this target (normally the player)
+     * @param focus MapObject to focus on
+     */
+    public void setScreenFocus(MapObject focus) {
+        this.screenFocus = focus;
+    }
+
+    public MapObject getScreenFocus() {
+        return this.screenFocus;
+    }
+
+    /**
+     * Only render what the given player sees
+     * @param player Owner number of the player, NO_OWNER to render everything
+     */
+    public void setViewingPlayer(int player) {
+        this.viewingPlayer = player;
+    }
+
+    public int getViewingPlayer() {
+        return this.viewingPlayer;
+    }
+
+    /**
+    * Draw the graphics of a MapObject (and the extras of a Structure)
+    * @param mob MapObject to draw
+    * @param xOffset Used to shift the objects xCoordinate so its drawn where the screen is
+    * @param yOffset Used to shift the objects yCoordinate so its drawn where the screen is
+    * @param gc GraphicsContext where the object is drawn
+    */
+    public static void render(MapObject mob, double xOffset, double yOffset, GraphicsContext gc) {
+        if (!mob.isVisible()) return;
+        render(mob.getGraphics(), xOffset, yOffset, gc);
+        if (mob instanceof Structure) {
+            ArrayList<MovingGraphics> extras = ((Structure)mob).getExtras();
+            for (int i = 0; i < extras.size(); i++) {
+                render(extras.get(i), xOffset, yOffset, gc);
+            }
+        }
+    }
+
+    /**
+     * Draw a MapObject at the position between the last two
+     * simulation ticks that interpolate() was given
+     */
+    public static void renderInterpolated(MapObject mob, double xOffset, double yOffset, GraphicsContext gc) {
+        render(mob, xOffset + mob.getXPos() - mob.getRenderXPos(), yOffset + mob.getYPos() - mob.getRenderYPos(), gc);
+    }
+
+    public static void renderCollisions(MapObject mob, double xOffset, double yOffset, GraphicsContext gc) {
+        if (mob.isVisible() && mob.getGraphics() instanceof Sprite) {
+            ((Sprite)mob.getGraphics()).renderCollisions(xOffset, yOffset, gc);
+        }
+    }
+
+    private static void render(MovingGraphics graphics, double xOffset, double yOffset, GraphicsContext gc) {
+        if (graphics instanceof Sprite) ((Sprite)graphics).render(xOffset, yOffset, gc);
+    }
+
+    /**
+     * Draw the path on a given graphics context
+     * Mainly used for testing and evaluating the pathfinder
+     * algorithm in use
+     * @param path Path to draw
+     * @param gc GraphicContext from the game
+     * @param tilesize Size of tiles the game is rendered on, to position the path
+     * @param xOffset Offset for displayed screen position on the map
+     * @param yOffset Offset for displayed screen position on the map
+     */
+    public static void drawPath(Path path, GraphicsContext gc, int tilesize, double xOffset, double yOffset) {
+        gc.save();
+        for (int i = 0; i < path.getLength(); i++) {
+            double xTile = ((path.getX(i)*tilesize)+tilesize/4) - xOffset;
+            double yTile = ((path.getY(i)*tilesize)+tilesize/4) - yOffset;
+            //Goaltile in a different colour
+            if (i > 0 && i == path.getLength()-1) gc.setStroke(Color.TEAL);
+            else gc.setStroke(Color.ORANGERED);
+            gc.strokeOval(xTile, yTile, tilesize/4, tilesize/4);
+        }
+        gc.restore();
+    }
+
+    private class CoordinateComparator implements Comparator<MapObject> {
+
+        @Override
+        public int compare(MapObject m1, MapObject m2) {
+            return (int)(m1.getCenterYPos() - m2.getCenterYPos());
+        }
+
+    }
+
+}
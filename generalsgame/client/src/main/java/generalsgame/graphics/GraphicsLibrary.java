@@ -9,6 +9,8 @@
 package generalsgame.graphics;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 
 import generalsgame.Generals;
@@ -17,6 +19,8 @@ import javafx.geometry.Rectangle2D;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 
@@ -29,10 +33,13 @@ import javafx.scene.paint.Color;
 public class GraphicsLibrary {
     private final HashMap<String, Image> gallery;
     private final HashMap<String, Image[]> setgallery;
+    //Masks are kept only as long as their image, animation frames aren't all in the gallery
+    private final Map<Image, AlphaMask> alphaMasks;
  
     public GraphicsLibrary() {
         this.gallery = new HashMap<>();
         this.setgallery = new HashMap<>();
+        this.alphaMasks = new WeakHashMap<>();
     }
     
     
@@ -94,6 +101,36 @@ public class GraphicsLibrary {
         return this.setgallery.get(lowercasename);
     }
     
+    /**
+     * Get the AlphaMask of an image for pixel collisions.
+     * The mask is made on the first call and reused after that,
+     * so the pixels of an image are only read once.
+     * @param i Image to get the mask for
+     * @return mask of the opaque pixels, null if the image can't be read
+     */
+    public synchronized AlphaMask getAlphaMask(Image i) {
+        if (i == null) return null;
+        AlphaMask mask = this.alphaMasks.get(i);
+        if (mask == null) {
+            mask = buildAlphaMask(i);
+            if (mask != null) this.alphaMasks.put(i, mask);
+        }
+        return mask;
+    }
+    
+    private static AlphaMask buildAlphaMask(Image i) {
+        PixelReader pr = i.getPixelReader();
+        if (pr == null) {
+            Generals.logger.warning("Couldn't read pixels for an alpha mask");
+            return null;
+        }
+        int width = (int)i.getWidth();
+        int height = (int)i.getHeight();
+        int[] argb = new int[width * height];
+        pr.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return AlphaMask.fromArgb(width, height, argb);
+    }
+    
     public boolean containsImage(String name) {
         String lowercasename = name.toLowerCase();
         return this.gallery.containsKey(lowercasename);
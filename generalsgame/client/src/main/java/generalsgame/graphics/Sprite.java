@@ -7,9 +7,10 @@
  */
 package generalsgame.graphics;
 
+import generalsgame.Generals;
+
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Ellipse;
 import javafx.scene.shape.Line;
@@ -36,54 +37,37 @@ public class Sprite extends MovingGraphics
      */
     private boolean animated;
     
-    private int collisionArea = 1; // 1=Rectangle, 2=Ellipse, 3=Line
-    
 
     public Sprite()
     {
-        positionX = 0;
-        positionY = 0;    
-        velocityX = 0;
-        velocityY = 0;
-        radius = new double[4];
-        angle = new double[4];
+        super();
         animated = false;
-        collisionBox = new CollisionBox(positionX, positionY, 0, 0);
     }
     
     public Sprite(Image i) {
         this();
         image = i;
-        width = i.getWidth();
-        height = i.getHeight();
-        this.rotatePointX = width/2;
-        this.rotatePointY = height/2;
-        collisionBox = new CollisionBox(positionX, positionY, width, height);
+        this.setWidth(i.getWidth());
+        this.setHeight(i.getHeight());
+        this.rotatePointX = i.getWidth()/2;
+        this.rotatePointY = i.getHeight()/2;
+        collisionBox = new CollisionBox(0, 0, i.getWidth(), i.getHeight());
         this.refreshRotationData();
     }
     
     public Sprite(Image i, double xPosition, double yPosition) {
         this(i);
-        positionX = xPosition;
-        positionY = yPosition;    
-        collisionBox = new CollisionBox(positionX, positionY, width, height);
+        this.setXPosition(xPosition);
+        this.setYPosition(yPosition);
+        collisionBox = new CollisionBox(xPosition, yPosition, i.getWidth(), i.getHeight());
         this.refreshRotationData();
     }
 
-    public void setCollisionAreaShape (int ShapeNumber) {
-        // 1=Rectangle, 2=Ellipse
-        this.collisionArea = ShapeNumber;
-    }
-    
-    public int getCollisionAreaType () {
-        return this.collisionArea;
-    }
-    
     public void setImage(Image i)
     {
         image = i;
-        width = i.getWidth();
-        height = i.getHeight();
+        this.setWidth(i.getWidth());
+        this.setHeight(i.getHeight());
         animated = false;
         this.refreshCollisionBox();
         this.refreshRotationData();
@@ -98,7 +82,6 @@ public class Sprite extends MovingGraphics
         this.refreshRotationData();
     }
     
-    @Override
     public Image getImage() {
         if (this.animated) {
            return this.animation.getCurrentFrame();
@@ -118,14 +101,14 @@ public class Sprite extends MovingGraphics
         if (animation == null) return;
         this.animation = animation;
         this.animated = true;
-        this.width = animation.getFrameWidth();
-        this.height = animation.getFrameHeight();
+        this.setWidth(animation.getFrameWidth());
+        this.setHeight(animation.getFrameHeight());
     }
     
     public void removeAnimation () {
         this.animated = false;
-        this.width = this.image.getWidth();
-        this.height = this.image.getHeight();
+        this.setWidth(this.image.getWidth());
+        this.setHeight(this.image.getHeight());
     }
     
     
@@ -141,39 +124,6 @@ public class Sprite extends MovingGraphics
     }
     */
     
-    /**
-     * By default sprites rotate around their center (width/2, height/2)
-     * setting rotationpoint moves this around.
-     * @param x xCoordinate (withing the sprite, from top left corner) to rotate the sprite around
-     * @param y yCoordinate (withing the sprite, from top left corner) to rotate the sprite around
-     */
-    @Override
-    public void setRotationPoint(double x, double y) {
-        this.rotatePointX = x;
-        this.rotatePointY = y;
-        this.refreshRotationData();
-    }
-    
-    /**
-     * Moves the Sprite (opper left corner) to the set position
-     * Also updated the collisionbox to match those coordinates.
-     * @param x desired X position
-     * @param y desired Y position
-     */
-    @Override
-    public void setPosition(double x, double y)
-    {
-        positionX = x;
-        positionY = y;
-        this.refreshCollisionBox();
-    }
-    
-    @Override
-    public void setCenterPosition(double x, double y) {
-        this.setPosition(x-(this.getWidth()/2), y-(this.getHeight()/2));
-        this.refreshCollisionBox();
-    }
-    
     /**
      * getWidth returns the current animation frames width,
      * if the sprite is animated. Otherwise it returns the
@@ -185,7 +135,7 @@ public class Sprite extends MovingGraphics
         if (this.animated) {
             return this.animation.getFrameWidth();
         } else {    
-            return this.width;
+            return super.getWidth();
         }
     }   
     
@@ -200,7 +150,7 @@ public class Sprite extends MovingGraphics
         if (this.animated) {
             return this.animation.getFrameHeight();
         } else {
-            return this.height;
+            return super.getHeight();
         }
     }
 
@@ -213,31 +163,11 @@ public class Sprite extends MovingGraphics
      * @param targetY  Y coordinates to move towards
      */
     public void update(double time, double targetX, double targetY) {
-        if ((positionX + velocityX * time) > targetX) {
-            positionX = targetX;
-        } else {
-            positionX += velocityX * time;
-        }           
-        if ((positionY + velocityY * time) > targetY) {
-            positionY = targetY;
-        } else {
-            positionY += velocityY * time;
-        }                   
-        this.collisionBox.setPosition(positionX, positionY);
-    }
-    /**
-     * Update uses the velocity it has and the time given,
-     * moving the sprite towards the velocity according to the
-     * time it has (velocity * time).     
-     * @param time Time spent since last update
-     */
-    
-    @Override
-    public void update(double time)
-    {
-        super.update(time);
-        this.collisionBox.setPosition(positionX, positionY);
-        if (this.spin!=0) this.refreshCollisionBox();
+        double positionX = this.getXPos() + this.getXVelocity() * time;
+        double positionY = this.getYPos() + this.getYVelocity() * time;
+        this.setXPosition(Math.min(positionX, targetX));
+        this.setYPosition(Math.min(positionY, targetY));
+        this.collisionBox.setPosition(this.getXPos(), this.getYPos());
     }
     
     /**
@@ -251,9 +181,9 @@ public class Sprite extends MovingGraphics
      */
     public void render (double xOffset, double yOffset, double degrees, GraphicsContext gc) {
         gc.save();
-        gc.translate((this.positionX+rotatePointX - xOffset), (this.positionY+rotatePointY - yOffset));
+        gc.translate((this.getXPos()+rotatePointX - xOffset), (this.getYPos()+rotatePointY - yOffset));
         gc.rotate(degrees);
-        gc.translate(-(this.positionX+rotatePointX - xOffset), -(this.positionY+rotatePointY - yOffset));
+        gc.translate(-(this.getXPos()+rotatePointX - xOffset), -(this.getYPos()+rotatePointY - yOffset));
         this.renderOnScreen(xOffset, yOffset, gc);
         gc.restore();
     }
@@ -265,10 +195,9 @@ public class Sprite extends MovingGraphics
      * @param yOffset yOffset for screen position on the (location) map
      * @param gc GraphicsContext to draw the sprite on
      */
-    @Override
     public void render(double xOffset, double yOffset, GraphicsContext gc)
     {
-        if (this.rotation != 0 ) this.render(xOffset, yOffset, rotation, gc);
+        if (this.getRotation() != 0 ) this.render(xOffset, yOffset, this.getRotation(), gc);
         else {
             this.renderOnScreen(xOffset, yOffset, gc);
         }
@@ -282,22 +211,21 @@ public class Sprite extends MovingGraphics
      */
     private void renderOnScreen(double xOffset, double yOffset, GraphicsContext gc) {
         if (this.animated) {
-                gc.drawImage(this.animation.getCurrentFrame(), positionX-xOffset, positionY-yOffset);
-                this.width = this.animation.getCurrentFrame().getWidth();
-                this.height = this.animation.getCurrentFrame().getHeight();
+                gc.drawImage(this.animation.getCurrentFrame(), this.getXPos()-xOffset, this.getYPos()-yOffset);
+                this.setWidth(this.animation.getCurrentFrame().getWidth());
+                this.setHeight(this.animation.getCurrentFrame().getHeight());
             } else if (this.image != null) {
-                gc.drawImage(image, positionX-xOffset, positionY-yOffset);
+                gc.drawImage(image, this.getXPos()-xOffset, this.getYPos()-yOffset);
         }
     }
     
-    @Override
     public void renderCollisions(double xOffset, double yOffset, GraphicsContext gc) {
         gc.setStroke(Color.RED);
         switch (this.collisionArea) {
             case 1:
-                if(this.rotation == 0) {
+                if(this.getRotation() == 0) {
                     gc.strokeRect(this.getXPos()-xOffset, this.getYPos()-yOffset, this.getWidth(), this.getHeight());
-                } else if (this.rotation != 0) {
+                } else if (this.getRotation() != 0) {
                     this.renderRotatedCollision(xOffset, yOffset, gc);
                 } 
                 break;
@@ -314,52 +242,34 @@ public class Sprite extends MovingGraphics
     
     private void renderRotatedCollision(double xOffset, double yOffset, GraphicsContext gc) {
         //Rectangle is four lines
-        
-        double topleftX = (this.positionX+rotatePointX)-xOffset + (radius[0] * Math.cos(Math.toRadians(rotation+angle[0]+180)));
-        double topleftY = (this.positionY+rotatePointY)-yOffset + (radius[0] * Math.sin(Math.toRadians(rotation+angle[0]+180)));
-        
-        double toprightX = (this.positionX+rotatePointX)-xOffset + (radius[1] * Math.cos(Math.toRadians(rotation-angle[1])));
-        double toprightY = (this.positionY+rotatePointY)-yOffset + (radius[1] * Math.sin(Math.toRadians(rotation-angle[1])));
-        
-        double bottomleftX = (this.positionX+rotatePointX)-xOffset + (radius[2] * Math.cos(Math.toRadians(rotation-angle[2]+180)));
-        double bottomleftY = (this.positionY+rotatePointY)-yOffset + (radius[2] * Math.sin(Math.toRadians(rotation-angle[2]+180)));
-        
-        double bottomrightX = (this.positionX+rotatePointX)-xOffset + (radius[3] * Math.cos(Math.toRadians(rotation+angle[3])));
-        double bottomrightY = (this.positionY+rotatePointY)-yOffset + (radius[3] * Math.sin(Math.toRadians(rotation+angle[3])));
+        this.refreshCorners();
         gc.setStroke(Color.RED);
-        /*
-        gc.strokeText("TL", topleftX, topleftY);
-        gc.strokeText("Rotate: "+rotatePointX+","+rotatePointY+" width: "+this.width+" height: "+this.height, this.getCenterXPos()-xOffset, this.getCenterYPos()-yOffset);
-        gc.strokeText("TR", toprightX, toprightY);
-        gc.strokeText("BL", bottomleftX, bottomleftY);
-        gc.strokeText("BR", bottomrightX, bottomrightY);
-        */
-        gc.strokeLine(topleftX, topleftY, toprightX, toprightY);
-        gc.strokeLine(toprightX, toprightY, bottomrightX, bottomrightY);
-        gc.strokeLine(bottomrightX, bottomrightY, bottomleftX, bottomleftY);
-        gc.strokeLine(bottomleftX, bottomleftY, topleftX, topleftY);
-        
+        for (int i = 0; i < 4; i++) {
+            int next = (i + 1) % 4;
+            gc.strokeLine(cornersX[i]-xOffset, cornersY[i]-yOffset, cornersX[next]-xOffset, cornersY[next]-yOffset);
+        }
     }           
     
-    @Override
+    /**
+     * @return JavaFX Shape of the collision area
+     */
     public Shape getBoundary() {
     Shape s;
+    double positionX = this.getXPos();
+    double positionY = this.getYPos();
+    double width = super.getWidth();
+    double height = super.getHeight();
     switch(collisionArea) {
         case 1: s =  new Rectangle(positionX,positionY,width,height); break;
         case 2: s =  new Ellipse((positionX+(width/2)),(positionY+(height/2)),((width)/2),((height)/2)); break;
         case 3: s = new Line(positionX+width/2, positionY+height, positionX+width/2, positionY); break;
         default: s =  new Rectangle(positionX,positionY,width,height); break;
     }
-    Rotate r = new Rotate(0, 0, this.rotation);
-    if (this.rotation != 0) s.setRotate(this.rotation);
+    Rotate r = new Rotate(0, 0, this.getRotation());
+    if (this.getRotation() != 0) s.setRotate(this.getRotation());
     return s;
     }
 
-    @Override
-    public boolean intersects(MovingGraphics m) {
-        return this.intersectsWithShape(m.getBoundary());
-    }
-    
     /**
      * Check the if the CollisionBoxes intersects
      * (sweep and prune?) before going to pixel detection
@@ -368,13 +278,14 @@ public class Sprite extends MovingGraphics
      */    
     private boolean intersectsInPixels(MovingGraphics m) {
         //Rotated objects are happy with intersection, because pixel collision would require rotating the pixel image too...
-        if (this.rotation!=0 || m.rotation != 0) {
-           return this.intersectsWithShape(m.getBoundary());
+        if (this.getRotation()!=0 || m.getRotation() != 0) {
+           return this.intersects(m);
         }
         
-        if (this.collisionBox.intersects(m.collisionBox)) {
+        if (this.getCollisionBox().intersects(m.getCollisionBox())) {
             //Check pixel collsion
-            return pixelCollision(this.getXPos(), this.getYPos(), this.getImage(), m.getXPos(), m.getYPos(), m.getImage());
+            if (!(m instanceof Sprite)) return true; //No pixels to check against
+            return pixelCollision(this.getXPos(), this.getYPos(), this.getImage(), m.getXPos(), m.getYPos(), ((Sprite)m).getImage());
         }
         //No collision with shape or pixels, so return false
         return false;
@@ -382,9 +293,9 @@ public class Sprite extends MovingGraphics
     }
 
     /**
-     * Take the pixelreaders from two images,
-     * and compare them pixel by pixel to see if a collision
-     * happens
+     * Check if two images overlap in pixels.
+     * Uses the cached AlphaMasks of the images from the GraphicsLibrary,
+     * so the pixels are read only the first time an image is checked.
      * @param x1 x position of the first image
      * @param y1 y position of the first image
      * @param image1 the first image
@@ -393,58 +304,37 @@ public class Sprite extends MovingGraphics
      * @param image2 the second image
      * @return true if the images overlap in pixels
      */
-    
     public static boolean pixelCollision(double x1, double y1, Image image1, double x2, double y2, Image image2) {
-        //Generals.logger.log(Level.INFO, "pixel collision detection at {0}x{1} - {2}x{3}", new Object[]{x1, y2, x2, y2});
-    	if (image1 == null || image2 == null) return false;
-        PixelReader pr1 = image1.getPixelReader();
-        PixelReader pr2 = image2.getPixelReader();
-
-        // initialization
-        double width1 = x1 + image1.getWidth() -1,
-               height1 = y1 + image1.getHeight() -1,
-               width2 = x2 + image2.getWidth() -1,
-               height2 = y2 + image2.getHeight() -1;
-
-        int xstart = (int) Math.max(x1, x2),
-            ystart = (int) Math.max(y1, y2),
-            xend   = (int) Math.min(width1, width2),
-            yend   = (int) Math.min(height1, height2);
-
-        // intersection rect
-        int toty = Math.abs(yend - ystart);
-        int totx = Math.abs(xend - xstart);
-        
-        for (int y=1;y < toty-1;y++){
-          int ny = Math.abs(ystart - (int) y1) + y;
-          int ny1 = Math.abs(ystart - (int) y2) + y;
-          for (int x=1;x < totx-1;x++) {
-            int nx = Math.abs(xstart - (int) x1) + x;
-            int nx1 = Math.abs(xstart - (int) x2) + x;
-            try {
-                //if (pr1.getColor(nx, ny).getOpacity() > 0 && pr2.getColor(nx1, ny1).getOpacity() > 0) {
-                if (((pr1.getArgb(nx,ny) & 0xFF000000) != 0x00) &&
-                    ((pr2.getArgb(nx1,ny1) & 0xFF000000) != 0x00)) {
-                   // collide!!
-                   //Generals.logger.info("COLLISION AT "+nx+"x"+ny+" - "+nx1+"x"+ny1);
-                   //Generals.logger.info("Color for mob:"+pr1.getColor(nx, ny)+", Color for collision: "+pr2.getColor(nx1, ny1));
-                   //Generals.GeneralsGame.debugCanvas.getGraphicsContext2D().setFill(pr2.getColor(nx1, ny1));
-                   //Generals.GeneralsGame.debugCanvas.getGraphicsContext2D().fillRect(x2+nx1-Generals.GeneralsGame.getCurrentLocation().getLastxOffset()-1, y2+ny1-Generals.GeneralsGame.getCurrentLocation().getLastyOffset()-1, 3, 3);
-                   return true;
-                }
-            } catch (Exception e) {
-                //System.out.println("s1 = "+nx+","+ny+"  -  s2 = "+nx1+","+ny1);
-            }
-          }
-        }
-        //Generals.logger.info("Returning false from pixel collision");
-        return false;
+        if (image1 == null || image2 == null) return false;
+        return AlphaMask.overlaps(x1, y1, Generals.graphLibrary.getAlphaMask(image1), x2, y2, Generals.graphLibrary.getAlphaMask(image2));
+    }
+    
+    /**
+     * Pixel collision with masks made beforehand.
+     * Doesn't touch JavaFX, so it's fine to call outside the FX thread.
+     * @param x1 x position of the first mask
+     * @param y1 y position of the first mask
+     * @param mask1 the first mask
+     * @param x2 x position of the second mask
+     * @param y2 y position of the second mask
+     * @param mask2 the second mask
+     * @return true if the masks overlap in pixels
+     */
+    public static boolean pixelCollision(double x1, double y1, AlphaMask mask1, double x2, double y2, AlphaMask mask2) {
+        return AlphaMask.overlaps(x1, y1, mask1, x2, y2, mask2);
+    }
+    
+    /**
+     * @return AlphaMask of the current image (or animation frame)
+     */
+    public AlphaMask getAlphaMask() {
+        return Generals.graphLibrary.getAlphaMask(this.getImage());
     }
     
     @Override
     public String toString()
     {
-        return " Position: [" + positionX + "," + positionY + "]" 
-        + " Velocity: [" + velocityX + "," + velocityY + "]";
+        return " Position: [" + this.getXPos() + "," + this.getYPos() + "]" 
+        + " Velocity: [" + this.getXVelocity() + "," + this.getYVelocity() + "]";
     }
 }
\ No newline at end of file
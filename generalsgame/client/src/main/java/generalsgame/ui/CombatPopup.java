@@ -10,6 +10,7 @@ package generalsgame.ui;
 import java.util.ArrayList;
 import java.util.Random;
 
+import generalsgame.Generals;
 import generalsgame.gameobjects.MapObject;
 
 import javafx.scene.canvas.GraphicsContext;
@@ -39,7 +40,7 @@ public class CombatPopup {
     public void addNumberPopup(MapObject mob, int number) {
         String text = Integer.toString(number);
         Color c = Color.RED;
-        ScrollingPopupText sct = new ScrollingPopupText(text, mob.getCenterXPos()-mob.getBattleMap().getLastxOffset(), mob.getCenterYPos()-mob.getBattleMap().getLastyOffset());
+        ScrollingPopupText sct = new ScrollingPopupText(text, mob.getCenterXPos()-Generals.game.getMapRenderer().getLastxOffset(), mob.getCenterYPos()-Generals.game.getMapRenderer().getLastyOffset());
         sct.setColour(c);
         //Randomize the direction of the text floating
         double xDir = (rand.nextInt(200))-100;
@@ -58,8 +59,8 @@ public class CombatPopup {
         if (mob == null || text == null || c == null) return;
         double lifetime = calculateLifetimeFromTextLength(text);
         ScrollingPopupText sct = new ScrollingPopupText(
-                text, mob.getCenterXPos()-mob.getBattleMap().getLastxOffset(), 
-                mob.getYPos()-mob.getBattleMap().getLastyOffset(),
+                text, mob.getCenterXPos()-Generals.game.getMapRenderer().getLastxOffset(), 
+                mob.getYPos()-Generals.game.getMapRenderer().getLastyOffset(),
                 lifetime, c);
         this.currentSCT.add(sct);
         //Generals.logger.info("Added SCT on: "+mob.getName()+" text: "+text);
@@ -10,6 +10,7 @@ package generalsgame.ui;
 import java.util.List;
 
 import generalsgame.Generals;
+import generalsgame.Simulation;
 import generalsgame.gameobjects.Creature;
 import generalsgame.gameobjects.MapObject;
 
@@ -38,7 +39,8 @@ public abstract class Overlay {
      * @param mobs List of mobs to draw the HP bars on
     */
     public static void drawAllHPBars(GraphicsContext gc, List<MapObject> mobs) {
-        for (MapObject mob : mobs) {
+        for (int i = 0; i < mobs.size(); i++) {
+            MapObject mob = mobs.get(i);
             if (mob instanceof Creature) { //Only draw HP bars on Creatures
                 Creature c = (Creature)mob;
                 if (c.getHealth() < c.getMaxHealth()) { //Only draw bar on those missing HPs
@@ -60,8 +62,8 @@ public abstract class Overlay {
         //Generals.logger.info("HP/Max:"+currentHP+"/"+maxHP+" HP bar: "+hpPercentage);
         double barWidth = mob.getWidth();
         double barHeight = 5;
-        double xPosition = mob.getXPos()-mob.getBattleMap().getLastxOffset();
-        double yPosition = mob.getYPos()-mob.getBattleMap().getLastyOffset()-barHeight;
+        double xPosition = mob.getRenderXPos()-Generals.game.getMapRenderer().getLastxOffset();
+        double yPosition = mob.getRenderYPos()-Generals.game.getMapRenderer().getLastyOffset()-barHeight;
         gc.save();
         //gc.setFill(Color.BLACK);
         //drawHPBar(gc, xPosition, yPosition, barWidth, barHeight);
@@ -109,7 +111,7 @@ public abstract class Overlay {
      * @param yCoor (center) yCoor on where to draw the marker on
      */
     public static void drawTargettingCircle (GraphicsContext gc, double xCoor, double yCoor) {
-        drawTargettingCircle(gc, xCoor, yCoor, Generals.TILESIZE, Generals.TILESIZE);
+        drawTargettingCircle(gc, xCoor, yCoor, Simulation.TILESIZE, Simulation.TILESIZE);
     }
     
     /**
@@ -118,7 +120,7 @@ public abstract class Overlay {
      * @param mob MapObject that's being targeted
      */
     public static void drawTargettingCircle(GraphicsContext gc, MapObject mob) {
-        drawTargettingCircle(gc, mob.getXPos()-mob.getBattleMap().getLastxOffset(), mob.getYPos()-mob.getBattleMap().getLastyOffset(), mob.getWidth(), mob.getHeight());
+        drawTargettingCircle(gc, mob.getRenderXPos()-Generals.game.getMapRenderer().getLastxOffset(), mob.getRenderYPos()-Generals.game.getMapRenderer().getLastyOffset(), mob.getWidth(), mob.getHeight());
     }
     
     /**
@@ -139,14 +141,14 @@ public abstract class Overlay {
     }
     
     public static void drawHighlightRectangle(GraphicsContext gc, List<MapObject> mobs) {
-        for (MapObject mob : mobs) {
-            drawHighlightRectangle(gc, mob);
+        for (int i = 0; i < mobs.size(); i++) {
+            drawHighlightRectangle(gc, mobs.get(i));
         }
     }
     
     public static void drawHighlightRectangle(GraphicsContext gc, MapObject mob) {
         if (mob == null) return;
-        drawHighlightRectangle(gc, mob.getXPos()-mob.getBattleMap().getLastxOffset(), mob.getYPos()-mob.getBattleMap().getLastyOffset(), mob.getWidth(), mob.getHeight());
+        drawHighlightRectangle(gc, mob.getRenderXPos()-Generals.game.getMapRenderer().getLastxOffset(), mob.getRenderYPos()-Generals.game.getMapRenderer().getLastyOffset(), mob.getWidth(), mob.getHeight());
     }
     
     private static void drawHighlightRectangle (GraphicsContext gc, double xCoor, double yCoor, double width, double height) {
@@ -158,7 +160,7 @@ public abstract class Overlay {
     }
     
     public static void drawToggleIcon(GraphicsContext gc, MapObject mob) {
-            gc.drawImage(Generals.graphLibrary.getImage("buttonSelectSmallbeige"), mob.getXPos()-mob.getBattleMap().getLastxOffset(), mob.getYPos()-mob.getBattleMap().getLastyOffset());
+            gc.drawImage(Generals.graphLibrary.getImage("buttonSelectSmallbeige"), mob.getRenderXPos()-Generals.game.getMapRenderer().getLastxOffset(), mob.getRenderYPos()-Generals.game.getMapRenderer().getLastyOffset());
     }
         
     public static String generateInfoBoxText(MapObject mob) {
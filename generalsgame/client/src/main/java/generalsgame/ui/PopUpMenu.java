@@ -9,7 +9,7 @@ package generalsgame.ui;
 
 import generalsgame.Generals;
 import generalsgame.gamestate.GameState;
-import generalsgame.util.Toolkit;
+import generalsgame.graphics.GraphicsToolkit;
 
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.MouseButton;
@@ -162,7 +162,7 @@ public class PopUpMenu extends UIComponent{
         
         private void updateFontSize(Font currentFont) {
             double currentFontSize = 16; //currentFont.getSize();
-            Font scaledFont = Toolkit.scaleFont(this.text, this.width, currentFont);
+            Font scaledFont = GraphicsToolkit.scaleFont(this.text, this.width, currentFont);
             this.fontSize = Math.min(currentFontSize, scaledFont.getSize());
         }
         
@@ -0,0 +1,1216 @@
+package generalsgame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.Iterator;
+
+import generalsgame.Direction;
+import generalsgame.gameobjects.*;
+import generalsgame.util.CollisionMap;
+import generalsgame.util.ContactManager;
+import generalsgame.util.FogOfWar;
+import generalsgame.util.LooseQuadTree;
+import generalsgame.util.PathFinder;
+import generalsgame.util.PathRequestService;
+import generalsgame.util.SpatialGrid;
+import generalsgame.util.SweepAndPrune;
+
+/**
+ * BattleMap is where the battle happens: the creatures and structures,
+ * and the collision, pathfinding and sight built on them. It's the
+ * heart of the headless simulation core, and doesn't touch JavaFX.
+ * The client draws it with a BattleMapRenderer.
+ * @author nkoiv
+ */
+public class BattleMap {
+    private String name;
+    private final double width; //Map size in map pixels
+    private final double height;
+
+    private SpatialGrid<Creature> creatureGrid; //Creatures by area, for collision detection and lookups
+    private int creatureGridSize; //Number of creatures the grid cells were sized for
+    private SpatialGrid<Structure> structureIndex; //Structures by tile, kept up to date on add, move and remove
+    private LooseQuadTree<MapObject> mobTree; //Creatures and structures, for area queries
+    private final SweepAndPrune creatureSweep = new SweepAndPrune(); //Broad phase for creature pairs
+    private final ContactManager<MapObject> contactManager = new ContactManager<>(); //Touching pairs kept between ticks
+    private long collisionTick;
+    private MapObject[] contacts = new MapObject[64]; //Touching pairs found this tick, two per pair
+    private int contactCount;
+    private final HashMap<Integer, MapObject> mobs = new HashMap<>();
+    private int nextID = 1;
+    private ArrayList<Creature> creatures;
+    private CreatureStore creatureStore; //Stats and bodies of the creatures, slots in the order of the list above
+    private ArrayList<Structure> structures;
+    private List<MapObject> targets;
+
+    private CollisionMap collisionMap;
+    private PathFinder pathFinder;
+    private PathRequestService pathRequests; //Background path searches for creatures on the move
+    private FogOfWar[] fogs = new FogOfWar[0]; //What each player sees, by owner number
+    private ForkJoinPool updatePool; //Updates the creatures in parallel, null updates them one by one
+    private static final int UPDATE_STRIP = 64; //Creatures per parallel task, smaller runs aren't split
+    private static final Comparator<MapObject> BY_ID = Comparator.comparingInt(MapObject::getID);
+
+    /**
+     * Make an empty map, ready for creatures and structures
+     * @param name Name of the map
+     * @param width Width of the map in map pixels
+     * @param height Height of the map in map pixels
+     */
+    public BattleMap(String name, double width, double height) {
+
+        this.creatures = new ArrayList<>();
+        this.creatureStore = new CreatureStore(64);
+        this.structures = new ArrayList<>();
+
+        this.name = name;
+        this.width = width;
+        this.height = height;
+
+        this.localizeMap();
+    }
+
+    public String getName() {
+        return(this.name);
+    }
+
+    public double getWidth() {
+        return this.width;
+    }
+
+    public double getHeight() {
+        return this.height;
+    }
+    
+    /**
+     * Construct the little things needed to make
+     * the map playable (collisionmaps, lights...)
+     */
+    private void localizeMap() {
+        this.collisionMap = new CollisionMap(this, Simulation.TILESIZE);
+        Simulation.logger.info("Collisionmap generated");
+        this.collisionMap.setStructuresOnly(true);
+        Simulation.logger.info("CollisionMap set to structures only");
+        this.collisionMap.updateCollisionLevels(); //First update is a full rebuild
+        Simulation.logger.info("Collisionlevels updated");
+        if (Simulation.logger.isLoggable(Level.FINE)) {
+            Simulation.logger.fine("Collisionmap:\n" + this.collisionMap.toMapString());
+        }
+        this.pathFinder = new PathFinder(this.collisionMap, 100, true);
+        this.pathRequests = new PathRequestService(this.collisionMap, 100, true);
+        this.targets = new ArrayList<>();
+        this.buildCreatureGrid();
+        this.buildStructureIndex();
+        this.buildMobTree();
+        Simulation.logger.log(Level.INFO, "Map ({0}x{1}) localized", new Object[]{this.width, this.height});
+    }
+
+
+    /**
+     * Update is the main "tick" of the Location.
+     * Movement, combat and triggers should all be handled here
+     * 
+     * @param time Length of the tick in seconds
+     * @param tick Number of the tick, used to sync movement completion
+     * TODO: @param networking Peer network to relay the updates to
+     */
+    public void update (double time, long tick) {
+        //Positions before this tick, for rendering between the ticks
+        this.creatureStore.storePreviousPositions();
+        //Find who's touching who before anyone moves
+        this.collisionPhase();
+        //Update all creatures with movement etc
+        this.updateCreatures(time, tick);
+        //Everyone moves by their velocity in one pass over the store
+        this.creatureStore.integrate(time);
+        //Moves are committed to the spatial indexes here, in creature order
+        this.fullCleanup(true, true, true);
+        //Sight is cast on the cleaned up map
+        this.visibilityPhase();
+        //Paths asked last tick are handed out, the ones asked this tick get in line
+        this.pathRequests.update();
+    }
+
+    /**
+     * Creatures do whatever creatures do. An update only writes to the
+     * creature itself: what it knows of the others are the contacts found
+     * in the collision phase, the map and its structures don't change, and
+     * the spatial indexes get the new positions afterwards in fullCleanup().
+     * So the results are the same whatever order the creatures are updated
+     * in, and with an update pool they're updated in parallel. The work is
+     * split by the sweep order of the collision phase, so each task
+     * gets a strip of the map.
+     */
+    private void updateCreatures(double time, long tick) {
+        int count = this.creatures.size();
+        if (count == 0) return;
+        //Structures added between ticks are patched in now, so nobody writes the map during the updates
+        if (this.collisionMap.isDirty()) this.collisionMap.updateCollisionLevels();
+        if (this.updatePool == null || count <= UPDATE_STRIP) {
+            for (int i = 0; i < count; i++) {
+                this.creatures.get(i).update(time, tick);
+            }
+        } else {
+            this.updatePool.invoke(new CreatureUpdate(time, tick, 0, count));
+        }
+    }
+
+    /**
+     * Update the creatures on a fork/join pool instead of one by one.
+     * The results are the same either way, see updateCreatures().
+     * @param pool Pool to update on (for example ForkJoinPool.commonPool()), null to update on the calling thread
+     */
+    public void setUpdatePool(ForkJoinPool pool) {
+        this.updatePool = pool;
+    }
+
+    public ForkJoinPool getUpdatePool() {
+        return this.updatePool;
+    }
+
+    public void fullCleanup(boolean cleanCreatures, boolean cleanStructures, boolean cleanEffects) {
+        if (cleanCreatures) creatureCleanup();
+        if (cleanStructures) structureCleanup();
+        this.updateCreatureSpatial();
+        this.collisionMap.updateCollisionLevels(); //Only patches the dirty regions, if any
+    }
+
+    /**
+     * structureCleanup cleans all the "removable"
+     * flagged structures.
+     */
+    private Stack<Integer> structureCleanup() {
+        //Structure cleanup
+        Stack<Integer> removedStructureIDs = new Stack<>();
+        if (!this.structures.isEmpty()) {
+            ArrayList<MapObject> removedWalls = new ArrayList<>();
+            Iterator<Structure> structureIterator = structures.iterator(); //Cleanup of mobs
+            while (structureIterator.hasNext()) {
+                MapObject mob = structureIterator.next();
+                if (mob.isRemovable()) {
+                    if (mob instanceof HasNeighbours) {
+                        removedWalls.add(mob);
+                        //Update the surrounding walls as per needed
+                        //this.updateWallsAt(mob.getCenterXPos(), mob.getCenterYPos());   
+                    }
+                    structureIterator.remove();
+                    this.removeFromStructureIndex(mob);
+                    this.removeFromMobTree(mob);
+                    this.mobs.remove(mob.getID());
+                    removedStructureIDs.add(mob.getID());
+                    this.collisionMap.markDirty(mob);
+                    this.pathingOutOfDate(mob.getXPos(), mob.getYPos(), mob.getWidth(), mob.getHeight());
+                    this.visionOutOfDate(mob.getXPos(), mob.getYPos(), mob.getWidth(), mob.getHeight());
+                    if (this.targets.contains(mob)) this.targets.remove(mob);
+                }
+            }  
+            this.restructureWalls(removedWalls);
+        }
+        
+        return removedStructureIDs;
+    }
+    
+    /**
+    * creatureCleanup cleans all the "removable"
+    * flagged creatures. The creatures left move down over the
+    * removed ones in one pass, in the list and in the store alike.
+    */
+    private Stack<Integer> creatureCleanup() {
+        //Creature cleanup
+        Stack<Integer> removedCreatureIDs = new Stack<>();
+        int count = this.creatures.size();
+        int removedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (this.creatures.get(i).isRemovable()) removedCount++;
+        }
+        if (removedCount == 0) return removedCreatureIDs;
+        CreatureStore store = this.creatureStore;
+        //The removed creatures keep their stats and position here, one store for all of them
+        CreatureStore removedStore = new CreatureStore(removedCount);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            Creature mob = this.creatures.get(i);
+            if (mob.isRemovable()) {
+                removedStore.take(mob); //Slot i is moved over or cut off below
+                this.removeFromCreatureGrid(mob);
+                this.removeFromMobTree(mob);
+                int mobID = mob.getID();
+                this.mobs.remove(mobID);
+                removedCreatureIDs.add(mobID);
+                //this.pathFinder.setMapOutOfDate(true); //Creatures are not on pathFindermap atm
+                if (this.targets.contains(mob)) this.targets.remove(mob);
+            } else {
+                if (kept != i) {
+                    this.creatures.set(kept, mob);
+                    store.moveSlot(i, kept);
+                }
+                kept++;
+            }
+        }
+        this.creatures.subList(kept, count).clear();
+        store.truncate(kept);
+        return removedCreatureIDs;
+    }
+
+    /**
+     * Take the creature out of the creature store, after it's left the list.
+     * It keeps its stats and position in a store of its own.
+     */
+    private void removeFromCreatureStore(Creature c) {
+        if (c.getStore() == this.creatureStore) this.creatureStore.remove(c.getSlot());
+    }
+
+    /**
+     * Structures report here when they're moved, so that
+     * only the tiles they left and the tiles they entered
+     * need to be patched on the collisionmap.
+     * @param s Structure that moved
+     * @param oldXPos xCoordinate the structure moved from
+     * @param oldYPos yCoordinate the structure moved from
+     */
+    public void structureMoved(Structure s, double oldXPos, double oldYPos) {
+        if (this.structureIndex != null && this.structureIndex.get(s.getSpatialHandle()) == s) {
+            this.structureIndex.move(s.getSpatialHandle(), s.getMinX(), s.getMinY(), s.getMaxX(), s.getMaxY());
+        }
+        this.mobMoved(s);
+        if (this.collisionMap == null) return;
+        this.collisionMap.markDirty(oldXPos, oldYPos, s.getWidth(), s.getHeight());
+        this.collisionMap.markDirty(s);
+        this.pathingOutOfDate(oldXPos, oldYPos, s.getWidth(), s.getHeight());
+        this.visionOutOfDate(oldXPos, oldYPos, s.getWidth(), s.getHeight());
+        this.pathingOutOfDate(s.getXPos(), s.getYPos(), s.getWidth(), s.getHeight());
+        this.visionOutOfDate(s.getXPos(), s.getYPos(), s.getWidth(), s.getHeight());
+    }
+    
+    /**
+     * Mark the tiles of an added or removed structure dirty
+     * on the collisionmap.
+     * @param mob MapObject that was added or removed
+     */
+    private void markCollisionsDirty(MapObject mob) {
+        if (!(mob instanceof Structure) || this.collisionMap == null) return;
+        this.collisionMap.markDirty(mob);
+        this.pathingOutOfDate(mob.getXPos(), mob.getYPos(), mob.getWidth(), mob.getHeight());
+        this.visionOutOfDate(mob.getXPos(), mob.getYPos(), mob.getWidth(), mob.getHeight());
+    }
+    
+    /**
+     * Tell the PathFinder which tiles changed, so it only
+     * needs to rebuild its data around them.
+     * @param xPos xCoordinate of the changed area (map pixels)
+     * @param yPos yCoordinate of the changed area (map pixels)
+     * @param width width of the changed area
+     * @param height height of the changed area
+     */
+    private void pathingOutOfDate(double xPos, double yPos, double width, double height) {
+        if (this.pathFinder == null) return;
+        int nodeSize = this.collisionMap.getNodeSize();
+        this.pathFinder.setMapOutOfDate((int)xPos / nodeSize, (int)yPos / nodeSize,
+                (int)(xPos+width-1) / nodeSize, (int)(yPos+height-1) / nodeSize);
+    }
+
+    /**
+     * Tell the players FogOfWars which tiles changed, so the
+     * units seeing that far cast their sight again.
+     * @param xPos xCoordinate of the changed area (map pixels)
+     * @param yPos yCoordinate of the changed area (map pixels)
+     * @param width width of the changed area
+     * @param height height of the changed area
+     */
+    private void visionOutOfDate(double xPos, double yPos, double width, double height) {
+        if (this.fogs.length == 0) return;
+        int nodeSize = this.collisionMap.getNodeSize();
+        for (FogOfWar fog : this.fogs) {
+            if (fog == null) continue;
+            fog.markDirty((int)xPos / nodeSize, (int)yPos / nodeSize,
+                    (int)(xPos+width-1) / nodeSize, (int)(yPos+height-1) / nodeSize);
+        }
+    }
+
+    private void restructureWalls (ArrayList<MapObject> removedWalls) {
+        if (removedWalls.isEmpty()) return;
+        for (MapObject w : removedWalls) {
+            updateWallsAt(w.getCenterXPos(), w.getCenterYPos());
+        }
+    }
+
+    /**
+     * If a wall gets added or removed, the walls around it
+     * need to be updated accordingly
+     * TODO: This is probably pointless stuff
+     * @param xCenterPos xCenter of the happening
+     * @param yCenterPos yCenter of the happening
+     */
+    private void updateWallsAt(double xCenterPos, double yCenterPos) {
+        //ArrayList<MapObject> surroundingWalls = new ArrayList();
+        //boolean[] boolwalls = new boolean[8];
+        /*
+         [0][1][2]
+         [3]   [4]   
+         [5][6][7]
+        */
+        
+        //Note: It's okay to add Nulls here (most will be). Instanceof will take care of that
+        //Cardinal directions
+        MapObject mob;
+        mob = (this.getMobAtLocation(xCenterPos-Simulation.TILESIZE, yCenterPos)); //Left
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(4); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos+Simulation.TILESIZE, yCenterPos)); //Right
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(3); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos, yCenterPos-Simulation.TILESIZE)); //Up
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(6); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos, yCenterPos+Simulation.TILESIZE)); //Down
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(1); w.updateGraphicsBasedOnNeighbours();}
+        //Diagonal directions
+        mob = (this.getMobAtLocation(xCenterPos-Simulation.TILESIZE, yCenterPos-Simulation.TILESIZE)); //UpLeft
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(7); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos+Simulation.TILESIZE, yCenterPos-Simulation.TILESIZE)); //UpRight
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(5); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos-Simulation.TILESIZE, yCenterPos+Simulation.TILESIZE)); //DownLeft
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(2); w.updateGraphicsBasedOnNeighbours();}
+        mob = (this.getMobAtLocation(xCenterPos+Simulation.TILESIZE, yCenterPos+Simulation.TILESIZE)); //DownRight
+        if (mob instanceof HasNeighbours) {HasNeighbours w = (HasNeighbours)mob; w.removeNeighbour(0); w.updateGraphicsBasedOnNeighbours();}
+
+    }
+
+    /**
+     * When getting a MapObject by coordinates with mouseclick
+     * or something, it's often needed to substract xOffset and yOffset
+     * from coords. Returns the FIRST creature found at the spot.
+     * If no creature is found, returns the first Structure at location.
+     * 
+     * @param xCoor xCoordinate of the search spot
+     * @param yCoor yCoordinate of the search spot
+     * @return Creature found at the coordinates
+     */
+    public MapObject getMobAtLocation(double xCoor, double yCoor) {
+        //Simulation.logger.info("Trying to find a mob at location " + xCoor + " x " + yCoor);
+        MapObject mobAtLocation = null;
+        int found = this.creatureGrid.query(xCoor, yCoor);
+        for (int i = 0; i < found; i++) {
+            Creature mob = this.creatureGrid.getResult(i);
+            if (xCoor >= mob.getMinX() && xCoor <= mob.getMaxX() &&
+                    yCoor >= mob.getMinY() && yCoor <= mob.getMaxY()) {
+                    //Do a pixelcheck on the mob;
+                    //if (Sprite.pixelCollision(xCoor, yCoor, Generals.pixel, mob.getXPos(), mob.getYPos(), mob.getSprite().getImage())) {
+                    return mob;
+                    //}   
+                }
+        }
+        Structure s = (getStructureAtLocation(xCoor, yCoor));
+        if (s!=null) mobAtLocation = s;
+        return mobAtLocation;
+    }
+    
+    /**
+     * Find the structures that may overlap the given area, ordered by ID.
+     * The order is what the collisionmap uses for overlapping structures,
+     * so patching a region gives the same tiles as a full rebuild.
+     * Before the structure index is built all structures are returned.
+     * @param minX left edge of the area
+     * @param minY top edge of the area
+     * @param maxX right edge of the area
+     * @param maxY bottom edge of the area
+     * @param found list to fill with the structures, cleared first
+     */
+    public void getStructuresInArea(double minX, double minY, double maxX, double maxY, List<Structure> found) {
+        found.clear();
+        if (this.structureIndex == null) {
+            found.addAll(this.structures);
+        } else {
+            int count = this.structureIndex.query(minX, minY, maxX, maxY);
+            for (int i = 0; i < count; i++) {
+                found.add(this.structureIndex.getResult(i));
+            }
+        }
+        found.sort(BY_ID);
+    }
+
+    /**
+     * Find a structure at the given map coordinates.
+     * Only the structures indexed on the tile of the spot are checked.
+     * @param xCoor xCoordinate of the search spot
+     * @param yCoor yCoordinate of the search spot
+     * @return Structure found at the coordinates, null if none
+     */
+    public Structure getStructureAtLocation(double xCoor, double yCoor) {
+        int found = this.structureIndex.query(xCoor, yCoor);
+        for (int i = 0; i < found; i++) {
+            Structure mob = this.structureIndex.getResult(i);
+            if (xCoor >= mob.getMinX() && xCoor <= mob.getMaxX()) {
+                if (yCoor >= mob.getMinY() && yCoor <= mob.getMaxY()) {
+                    return mob;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bring the creature grid up to date with creature positions.
+     * Creatures only change cells when they've crossed a cell boundary,
+     * otherwise this is just a comparison per creature.
+     * If the creature count has grown well past what the grid
+     * was sized for, the grid is rebuilt with smaller cells.
+     */
+    private void updateCreatureSpatial() {
+        if (this.creatures.size() > this.creatureGridSize * 4) {
+            this.buildCreatureGrid();
+        }
+        for (int i = 0; i < this.creatures.size(); i++) {
+            this.creatureMoved(this.creatures.get(i));
+        }
+    }
+    
+    /**
+     * Bring the spatial indexes up to date with where the creature is.
+     * Creatures moved by the map's update are handled in fullCleanup(),
+     * call this for creatures moved some other way between ticks.
+     * @param c Creature that moved
+     */
+    public void creatureMoved(Creature c) {
+        this.mobMoved(c);
+        if (c.getSpatialHandle() < 0 || this.creatureGrid.get(c.getSpatialHandle()) != c) return;
+        this.creatureGrid.move(c.getSpatialHandle(), c.getMinX(), c.getMinY(), c.getMaxX(), c.getMaxY());
+    }
+    
+    /**
+     * (Re)build the creature grid with cells sized for the current creature
+     * count, but never smaller than a few tiles.
+     */
+    private void buildCreatureGrid() {
+        this.creatureGridSize = Math.max(64, this.creatures.size());
+        this.creatureGrid = SpatialGrid.forDensity(this.width, this.height, this.creatureGridSize, Simulation.TILESIZE * 2);
+        for (int i = 0; i < this.creatures.size(); i++) {
+            this.addToCreatureGrid(this.creatures.get(i));
+        }
+    }
+    
+    private void addToCreatureGrid(Creature c) {
+        if (this.creatureGrid == null) return; //Map not localized yet, the grid gets built with everyone in
+        c.setSpatialHandle(this.creatureGrid.add(c, c.getMinX(), c.getMinY(), c.getMaxX(), c.getMaxY()));
+    }
+    
+    private void removeFromCreatureGrid(MapObject mob) {
+        if (this.creatureGrid == null || mob.getSpatialHandle() < 0) return;
+        if (this.creatureGrid.get(mob.getSpatialHandle()) == mob) this.creatureGrid.remove(mob.getSpatialHandle());
+        mob.setSpatialHandle(-1);
+    }
+    
+    /**
+     * Build the quadtree with everything on the map in it.
+     * Nodes go down to about the size of a tile.
+     */
+    private void buildMobTree() {
+        this.mobTree = new LooseQuadTree<>(this.width, this.height, Simulation.TILESIZE);
+        for (int i = 0; i < this.creatures.size(); i++) {
+            this.addToMobTree(this.creatures.get(i));
+        }
+        for (int i = 0; i < this.structures.size(); i++) {
+            this.addToMobTree(this.structures.get(i));
+        }
+    }
+    
+    private void addToMobTree(MapObject mob) {
+        if (this.mobTree == null) return;
+        mob.setTreeHandle(this.mobTree.add(mob, mob.getMinX(), mob.getMinY(), mob.getMaxX(), mob.getMaxY()));
+    }
+    
+    private void removeFromMobTree(MapObject mob) {
+        if (this.mobTree == null || mob.getTreeHandle() < 0) return;
+        if (this.mobTree.get(mob.getTreeHandle()) == mob) this.mobTree.remove(mob.getTreeHandle());
+        mob.setTreeHandle(-1);
+    }
+    
+    private void mobMoved(MapObject mob) {
+        if (this.mobTree == null || this.mobTree.get(mob.getTreeHandle()) != mob) return;
+        this.mobTree.move(mob.getTreeHandle(), mob.getMinX(), mob.getMinY(), mob.getMaxX(), mob.getMaxY());
+    }
+    
+    /**
+     * Find the creatures and structures overlapping the given area.
+     * Nothing is allocated: the results stay in the tree until the next
+     * query, so go through them before asking again.
+     * @param minX Left edge of the area
+     * @param minY Top edge of the area
+     * @param maxX Right edge of the area
+     * @param maxY Bottom edge of the area
+     * @return number of objects found, get them with getQueryResult()
+     */
+    public int queryRect(double minX, double minY, double maxX, double maxY) {
+        return this.mobTree.queryRect(minX, minY, maxX, maxY);
+    }
+    
+    /**
+     * Find the creatures and structures (at least partly) within
+     * the given distance of a point. Results work like with queryRect().
+     * @param xCoor xCoordinate of the center
+     * @param yCoor yCoordinate of the center
+     * @param radius Distance to search to
+     * @return number of objects found, get them with getQueryResult()
+     */
+    public int queryRadius(double xCoor, double yCoor, double radius) {
+        return this.mobTree.queryRadius(xCoor, yCoor, radius);
+    }
+    
+    /**
+     * Find the K creatures and structures with centers nearest to a point.
+     * Results are sorted nearest first, and work like with queryRect().
+     * @param xCoor xCoordinate of the point
+     * @param yCoor yCoordinate of the point
+     * @param k Number of objects wanted
+     * @return number of objects found, get them with getQueryResult()
+     */
+    public int nearestK(double xCoor, double yCoor, int k) {
+        return this.mobTree.nearestK(xCoor, yCoor, k);
+    }
+    
+    /**
+     * @param i Number of the result, from 0 to the count the last query returned
+     * @return object found by the last queryRect(), queryRadius() or nearestK()
+     */
+    public MapObject getQueryResult(int i) {
+        return this.mobTree.getResult(i);
+    }
+    
+    /**
+     * Build the structure index with a cell for every tile.
+     * After this it's only updated when structures are added,
+     * moved or removed.
+     */
+    private void buildStructureIndex() {
+        this.structureIndex = new SpatialGrid<>(this.width, this.height, this.collisionMap.getNodeSize());
+        for (int i = 0; i < this.structures.size(); i++) {
+            this.addToStructureIndex(this.structures.get(i));
+        }
+    }
+    
+    private void addToStructureIndex(Structure s) {
+        if (this.structureIndex == null) return; //Map not localized yet, the index gets built with everything in
+        s.setSpatialHandle(this.structureIndex.add(s, s.getMinX(), s.getMinY(), s.getMaxX(), s.getMaxY()));
+    }
+    
+    private void removeFromStructureIndex(MapObject mob) {
+        if (this.structureIndex == null || mob.getSpatialHandle() < 0) return;
+        if (this.structureIndex.get(mob.getSpatialHandle()) == mob) this.structureIndex.remove(mob.getSpatialHandle());
+        mob.setSpatialHandle(-1);
+    }
+    
+    /**
+     * Collision phase of the tick: find every touching pair once
+     * and hand the contacts to the creatures, who act on them
+     * when they move. Creature pairs are found with sweep and prune,
+     * creature-structure pairs with the structure index.
+     * Pairs where neither side has moved since the last tick aren't
+     * tested again, the contact manager remembers if they were touching.
+     * Blocking contacts follow the same rules as checkCollisions():
+     * creatures ignore what's on terrain they can cross, and only bump
+     * into structures when the collision map says they're on one.
+     * Contact events go out for all touching pairs, blocking or not.
+     * Nothing here allocates once the arrays have grown to size.
+     */
+    private void collisionPhase() {
+        this.contactCount = 0;
+        this.collisionTick++;
+        this.contactManager.beginTick();
+        int count = this.creatures.size();
+        CreatureStore store = this.creatureStore;
+        store.clearContacts();
+        this.creatureSweep.begin(count);
+        for (int i = 0; i < count; i++) {
+            this.creatureSweep.setBounds(i, store.getMinX(i), store.getMinY(i), store.getMaxX(i), store.getMaxY(i));
+        }
+        //Every creature every tick, so unchanged means unchanged since the last tick
+        store.checkCollisionAreas();
+        int pairs = this.creatureSweep.findPairs();
+        for (int i = 0; i < pairs; i++) {
+            int slotA = this.creatureSweep.getPairA(i);
+            int slotB = this.creatureSweep.getPairB(i);
+            Creature a = this.creatures.get(slotA);
+            Creature b = this.creatures.get(slotB);
+            //One narrow phase test per pair, the result goes to both
+            if (!this.isTouching(a, store.isCollisionAreaChanged(slotA), b, store.isCollisionAreaChanged(slotB))) continue;
+            boolean aBlocked = !a.getCrossableTerrain().contains(b.getCollisionLevel());
+            boolean bBlocked = !b.getCrossableTerrain().contains(a.getCollisionLevel());
+            if (aBlocked) a.addContact(b);
+            if (bBlocked) b.addContact(a);
+            if (aBlocked || bBlocked) this.addContact(a, b);
+        }
+        for (int i = 0; i < count; i++) {
+            Creature c = this.creatures.get(i);
+            double minX = store.getMinX(i);
+            double minY = store.getMinY(i);
+            double maxX = store.getMaxX(i);
+            double maxY = store.getMaxY(i);
+            boolean cChanged = store.isCollisionAreaChanged(i);
+            boolean onBlockedTile = this.collidesOnCollisionMap(c.getCrossableTerrain(), minX, minY, maxX, maxY);
+            int found = this.structureIndex.query(minX, minY, maxX, maxY);
+            for (int j = 0; j < found; j++) {
+                Structure s = this.structureIndex.getResult(j);
+                if (!this.isTouching(c, cChanged, s, s.collisionAreaChanged(this.collisionTick))) continue;
+                if (onBlockedTile && !c.getCrossableTerrain().contains(s.getCollisionLevel())) {
+                    c.addContact(s);
+                    this.addContact(c, s);
+                }
+            }
+        }
+        this.contactManager.endTick();
+    }
+    
+    /**
+     * Narrow phase test for a pair, skipped if neither side has
+     * moved since the last tick. Touching pairs are reported to
+     * the contact manager. Shapes other than plain boxes are tested
+     * both ways, so the answer doesn't depend on the order of the pair.
+     * @param aChanged true if the collision area of a has changed since the last tick
+     * @param bChanged true if the collision area of b has changed since the last tick
+     */
+    private boolean isTouching(MapObject a, boolean aChanged, MapObject b, boolean bChanged) {
+        boolean touching;
+        if (aChanged || bChanged) {
+            touching = a.intersects(b);
+            //Unless both are plain boxes, that only tested the shape of a against the box of b
+            if (touching && !(a.getGraphics().isAxisAlignedBox() && b.getGraphics().isAxisAlignedBox())) {
+                touching = b.intersects(a);
+            }
+        } else {
+            touching = this.contactManager.isTouching(a.getID(), b.getID());
+        }
+        if (touching) this.contactManager.touching(a.getID(), a, b.getID(), b);
+        return touching;
+    }
+    
+    private void addContact(MapObject a, MapObject b) {
+        if (this.contactCount * 2 == this.contacts.length) {
+            this.contacts = Arrays.copyOf(this.contacts, this.contacts.length * 2);
+        }
+        this.contacts[this.contactCount * 2] = a;
+        this.contacts[this.contactCount * 2 + 1] = b;
+        this.contactCount++;
+    }
+    
+    /**
+     * @return number of touching pairs found in the collision phase of this tick
+     */
+    public int getContactCount() {
+        return this.contactCount;
+    }
+    
+    /**
+     * @param i Number of the contact, from 0 to getContactCount()
+     * @return the first object of the pair (always a creature)
+     */
+    public MapObject getContactA(int i) {
+        return this.contacts[i * 2];
+    }
+    
+    /**
+     * @param i Number of the contact, from 0 to getContactCount()
+     * @return the second object of the pair (creature or structure)
+     */
+    public MapObject getContactB(int i) {
+        return this.contacts[i * 2 + 1];
+    }
+    
+    /**
+     * Subscribe to contact events: a listener is told when two objects
+     * start touching, on every tick they stay touching, and when they
+     * stop. Events are sent during the collision phase of update().
+     * @param listener ContactListener to add
+     */
+    public void addContactListener(ContactManager.ContactListener<MapObject> listener) {
+        this.contactManager.addListener(listener);
+    }
+    
+    public void removeContactListener(ContactManager.ContactListener<MapObject> listener) {
+        this.contactManager.removeListener(listener);
+    }
+    
+    /** CheckCollisions for a given MapObjects
+    * Returns a List with all the objects that collide with MapObject o
+    * Now with quad tree to check only objects nearby
+    * @param o The MapObject to check collisions with
+    * @return a List with all the objects that collide with MapObject o
+    */
+    public ArrayList<MapObject> checkCollisions (MapObject o) {
+        
+        ArrayList<MapObject> collidingObjects = new ArrayList<>();
+        //Creature grid covers the creature collisions
+        int found = this.creatureGrid.query(o.getMinX(), o.getMinY(), o.getMaxX(), o.getMaxY());
+        for (int i = 0; i < found; i++) {
+            addMapObjectCollision(o, this.creatureGrid.getResult(i), collidingObjects);
+        }
+        
+        //Check collisions for structures too
+        //For creatures, check the collision versus collisionmap first
+        //Note that this returns false on structures the creature is allowed to pass through
+        if (o instanceof Creature) {
+            if (collidesOnCollisionMap((Creature)o)) {
+                this.addStructureCollisions(o, collidingObjects);
+            }
+            Iterator<MapObject> mobIter = collidingObjects.iterator();
+            while (mobIter.hasNext()) {
+                MapObject mob = mobIter.next();
+                if (((Creature)o).getCrossableTerrain().contains(mob.getCollisionLevel())) {
+                    mobIter.remove();
+                }
+            }
+        } else {
+            this.addStructureCollisions(o, collidingObjects);
+        }
+        
+        
+        return collidingObjects;
+        
+    }
+
+    /**
+     * Check if a MapObject hits something on the collision map.
+     * Useful for pruning down the list of objects that needs true
+     * collision detection.
+     * TODO: using this, a HUGE creature could get stuck on certain structures?
+     * @param mob
+     * @return True if collision map had something at mobs coordinates
+     */
+    private boolean collidesOnCollisionMap(Creature mob) {
+        return this.collidesOnCollisionMap(mob.getCrossableTerrain(), mob.getMinX(), mob.getMinY(), mob.getMaxX(), mob.getMaxY());
+    }
+
+    private boolean collidesOnCollisionMap(List<Integer> crossableTerrain, double minX, double minY, double maxX, double maxY) {
+        //Corners straight from the bounds, getCorner() would allocate for each
+        int nodeSize = this.collisionMap.nodeSize;
+        int left = (int)(minX/nodeSize);
+        int top = (int)(minY/nodeSize);
+        int right = (int)(maxX/nodeSize);
+        int bottom = (int)(maxY/nodeSize);
+        if (this.collisionMap.isBlocked(crossableTerrain, left, top)) return true;
+        if (this.collisionMap.isBlocked(crossableTerrain, right, top)) return true;
+        if (this.collisionMap.isBlocked(crossableTerrain, left, bottom)) return true;
+        return (this.collisionMap.isBlocked(crossableTerrain, right, bottom));
+    }
+
+    /**
+     * Check the structures on the tiles the mob covers for collisions
+     */
+    private void addStructureCollisions(MapObject mob, List<MapObject> collidingObjects) {
+        int found = this.structureIndex.query(mob.getMinX(), mob.getMinY(), mob.getMaxX(), mob.getMaxY());
+        for (int i = 0; i < found; i++) {
+            addMapObjectCollision(mob, this.structureIndex.getResult(i), collidingObjects);
+        }
+    }
+    
+    /**
+     * Check a single object for collision with the mob,
+     * and add it to the list if they collide.
+     */
+    private void addMapObjectCollision(MapObject mob, MapObject collidingObject, List<MapObject> collidingObjects) {
+        if (collidingObject.equals(mob)) return;
+        //If the objects are further away than their combined width/height, they cant collide
+        if ((Math.abs(collidingObject.getCenterXPos() - mob.getCenterXPos())
+             > (collidingObject.getWidth() + mob.getWidth()))
+            || (Math.abs(collidingObject.getCenterYPos() - mob.getCenterYPos())
+             > (collidingObject.getHeight() + mob.getHeight()))) {
+            //Objects are far enough from oneanother
+        } else {
+            if (mob.intersects(collidingObject)) { 
+                // Colliding with yourself is not really a collision
+                //Mists.logger.info(mob.getName()+" collided with "+collidingObject.getName());
+                //if (collidingObject instanceof Structure) Mists.logger.info("Collision between "+mob.getName()+" and "+collidingObject.getName()+" ID:"+collidingObject.getID());
+                collidingObjects.add(collidingObject);
+            }
+        }
+    }
+
+    /**
+     * Check Collisions for a line drawn between two points.
+     * This is useful for determining for example line of sight
+     * @param xStart x Coordinate of the starting point
+     * @param yStart y Coordinate of the starting point
+     * @param xGoal x Coordinate of the far end
+     * @param yGoal y Coordinate of the far end
+     * @return list with all the colliding mapObjects(Creatures and Structures)
+     */
+    public ArrayList<MapObject> checkCollisions(double xStart, double yStart, double xGoal, double yGoal) {
+        ArrayList<MapObject> collidingObjects = new ArrayList<>();
+        //Only the objects around the lines bounding box can touch it
+        int found = this.mobTree.queryRect(Math.min(xStart, xGoal), Math.min(yStart, yGoal), Math.max(xStart, xGoal), Math.max(yStart, yGoal));
+        for (int i = 0; i < found; i++) {
+            MapObject collidingObject = this.mobTree.getResult(i);
+            if (collidingObject.intersectsLine(xStart, yStart, xGoal, yGoal)) {
+                collidingObjects.add(collidingObject);
+            }
+        }
+        return collidingObjects;
+    }
+    
+    public EnumSet<Direction> collidedSides (MapObject mob) {
+        ArrayList<MapObject> collidingObjects = this.checkCollisions(mob); //Get the colliding object(s)
+        return collidedSides(mob, collidingObjects, this.width, this.height);
+    }
+    
+    public static EnumSet<Direction> collidedSides (MapObject mob, ArrayList<MapObject> collidingObjects, double mapWidth, double mapHeight) {
+        EnumSet<Direction> collidedDirections = EnumSet.of(Direction.STAY);
+        for (MapObject collidingObject : collidingObjects) {
+            //Mists.logger.log(Level.INFO, "{0} bumped into {1}", new Object[]{this, collidingObject});
+            double collidingX = collidingObject.getCenterXPos();//+(collidingObject.getSprite().getWidth()/2);
+            double collidingY = collidingObject.getCenterYPos();//+(collidingObject.getSprite().getHeight()/2);
+            double thisX = mob.getCenterXPos();//+(this.getSprite().getWidth()/2);
+            double thisY = mob.getCenterYPos();//+(this.getSprite().getHeight()/2);
+            double xDistance = (thisX - collidingX);
+            double yDistance = (thisY - collidingY);
+            if (Math.abs(xDistance) >= Math.abs(yDistance)) {
+                //Collided primary on the X (Left<->Right)
+                if (mob.getCenterXPos() <= collidingObject.getCenterXPos()) {
+                    //CollidingObject is RIGHT of the mob
+                    collidedDirections.add(Direction.RIGHT);
+                } else {
+                    //CollidingObject is LEFT of the mob
+                    collidedDirections.add(Direction.LEFT);
+                }
+            } else {
+                //Collided primary on the Y (Up or Down)
+                if (mob.getCenterYPos() >= collidingObject.getCenterYPos()) {
+                    //CollidingObject is UP of the mob
+                    collidedDirections.add(Direction.UP);
+                } else {
+                    //CollidingObject is DOWN of the mob
+                    collidedDirections.add(Direction.DOWN);
+                }
+            }
+        }
+        if (mob.getXPos() <= 0) collidedDirections.add(Direction.LEFT);
+        if (mob.getYPos() <= 0) collidedDirections.add(Direction.UP);
+        if (mob.getCenterXPos() >= mapWidth) collidedDirections.add(Direction.RIGHT);
+        if (mob.getCenterYPos() >= mapHeight) collidedDirections.add(Direction.DOWN);
+        return collidedDirections;
+    }
+
+    /**
+     * Update what each player sees. Creatures with an owner and a
+     * sight radius are the viewers, and only those that moved to
+     * another tile (or see differently now) cast their sight again.
+     */
+    private void visibilityPhase() {
+        for (FogOfWar fog : this.fogs) {
+            if (fog != null) fog.beginUpdate();
+        }
+        for (int i = 0; i < this.creatures.size(); i++) {
+            Creature c = this.creatures.get(i);
+            int sight = c.getSightRadius();
+            if (c.getOwner() == MapObject.NO_OWNER || sight <= 0) continue;
+            FogOfWar fog = this.getFogOfWar(c.getOwner());
+            c.setVisionHandle(fog.update(c.getVisionHandle(), c, c.getCenterXPos(), c.getCenterYPos(), sight));
+        }
+        //Viewers that died, went blind or changed sides are dropped here
+        for (FogOfWar fog : this.fogs) {
+            if (fog != null) fog.endUpdate();
+        }
+    }
+    
+    /**
+     * Get the visibility of a player, made when first asked for
+     * @param player Owner number of the player
+     * @return FogOfWar of the player
+     */
+    public FogOfWar getFogOfWar(int player) {
+        if (player >= this.fogs.length) this.fogs = Arrays.copyOf(this.fogs, player + 1);
+        if (this.fogs[player] == null) {
+            this.fogs[player] = new FogOfWar(this.collisionMap, 1L); //Only open ground (level 0) doesn't block sight
+        }
+        return this.fogs[player];
+    }
+    
+    /**
+     * Check if a player can see the object. Players always see
+     * their own objects. Objects that can't be seen don't need to
+     * be rendered or sent to the player.
+     * @param player Owner number of the player
+     * @param mob MapObject to check
+     * @return True if some part of the object is on a tile the player sees
+     */
+    public boolean isVisibleTo(int player, MapObject mob) {
+        if (mob.getOwner() == player) return true;
+        if (player < 0 || player >= this.fogs.length || this.fogs[player] == null) return false;
+        return this.fogs[player].isVisible(mob.getMinX(), mob.getMinY(), mob.getMaxX(), mob.getMaxY());
+    }
+    
+    
+    public ArrayList<Structure> getStructures() {
+        return this.structures;
+    }
+    
+    /**
+     * Creatures on the map. Add and remove them through the map,
+     * not the list, so the creature store stays in the same order.
+     * @return creatures in update order
+     */
+    public ArrayList<Creature> getCreatures() {
+        return this.creatures;
+    }
+
+    /**
+     * @return the store holding the stats and bodies of the creatures, slot i is getCreatures().get(i)
+     */
+    public CreatureStore getCreatureStore() {
+        return this.creatureStore;
+    }
+
+    public void setTarget(MapObject mob) {
+        this.targets.clear();
+        if (mob!=null)this.targets.add(mob);
+    }
+
+    public void clearTarget() {
+        this.targets.clear();
+    }
+    
+    public void addTarget(MapObject mob) {
+        this.targets.add(mob);
+    }
+    
+    public List<MapObject> getTargets() {
+        return this.targets;
+    }
+
+    /**
+     * Returns the CollisionMap for this Location
+     * @return The CollisionMap of this location
+     */
+    public CollisionMap getCollisionMap() {
+        return this.collisionMap;
+    }
+    
+    /**
+     * Returns the service for searching paths in the background.
+     * Requested paths are handed out during update()
+     * @return PathRequestService of this location
+     */
+    public PathRequestService getPathRequestService() {
+        return this.pathRequests;
+    }
+
+    /**
+     * Stop the background work of the map (the path search workers).
+     * Call when the map is no longer needed, its worker threads
+     * keep running until then.
+     */
+    public void close() {
+        this.pathRequests.shutdown();
+    }
+    
+       /**
+    * Returns the PathFinder for this Location
+    * @return The PathFinder for this location
+    */
+    public PathFinder getPathFinder() {
+        if (this.pathFinder == null) this.pathFinder = new PathFinder(this.collisionMap, 50, true);
+        return this.pathFinder;
+    }
+    
+    /**
+     * Give the MapObject an unique location-specific ID-number
+     * @param mob MapObject to set the ID to
+     */
+    private void giveID(MapObject mob) {
+        if (mob == null) return;
+        if (nextID == Integer.MAX_VALUE) nextID = Integer.MIN_VALUE;
+        mob.setID(this.nextID);
+        nextID++;
+        if (nextID == 0) {
+            Simulation.logger.warning("Out of MapObject IDs, cleaning up");
+            this.cleanupIDs();
+        } 
+    }
+    
+    /**
+     * If ID's run out, clean up the ID list.
+     */
+    private void cleanupIDs() {
+        this.nextID = 1;
+        if (this.mobs.isEmpty()) return;
+        ArrayList<MapObject> renumbered = new ArrayList<>(this.mobs.values());
+        this.mobs.clear();
+        for (MapObject mob : renumbered) {
+            this.giveID(mob);
+            this.mobs.put(mob.getID(), mob);
+        }
+        //TODO: Inform possible clients that ID's have changed.
+    }
+    
+    public int peekNextID() {
+        return this.nextID;
+    }
+    
+    public void setNextID(int id) {
+        this.nextID = id;
+    }
+
+    public void clearAllMapObjects() {
+        for (int mobID : new ArrayList<>(this.mobs.keySet())) {
+            this.removeMapObject(mobID);
+        }
+    }
+    
+    public void removeMapObject(int mobID) {
+        MapObject mob = this.mobs.get(mobID);
+        if (mob!=null) this.removeMapObject(mob);            
+    }
+    
+    private void removeMapObject(MapObject mob) {
+        Simulation.logger.info("removeMapObject "+mob.getName());
+        if (mob instanceof Structure) {
+            this.structures.remove((Structure)mob);
+            this.removeFromStructureIndex(mob);
+        }
+        if (mob instanceof Creature) {
+            this.creatures.remove((Creature)mob);
+            this.removeFromCreatureStore((Creature)mob);
+            this.removeFromCreatureGrid(mob);
+        }
+        this.removeFromMobTree(mob);
+        this.mobs.remove(mob.getID());
+        this.markCollisionsDirty(mob);
+    }
+    
+    /**
+     * Insert a mob into the Location with given mobID.
+     * If this mobID is already taken by another object,
+     * the previous object is removed to make room for the new one.
+     * @param mob MapObject to add to the Location
+     * @param mobID LocationID to give to the new MapObject
+     */
+    public void addMapObject(MapObject mob, int mobID) {
+    	if (this.getMapObject(mobID) != null) this.removeMapObject(mobID);
+        if (mob == null) return;
+        mob.setID(mobID);
+        if (mob instanceof Structure) {
+            CollisionMap.checkCollisionLevel(mob); //Fail here, not on the next collisionmap update
+            this.structures.add((Structure)mob);
+            this.addToStructureIndex((Structure)mob);
+        }
+        if (mob instanceof Creature) {
+            this.creatureStore.add((Creature)mob); //Slot follows the list, at the end
+            this.creatures.add((Creature)mob);
+            this.addToCreatureGrid((Creature)mob);
+        }
+        this.addToMobTree(mob);
+        this.mobs.put(mob.getID(), mob);
+        mob.setBattleMap(this);
+        this.markCollisionsDirty(mob);
+    }
+        
+    /**
+     * Generic MapObject insertion.
+     * @param mob MapObject to insert in the map
+     */
+    public void addMapObject(MapObject mob) {
+        if (mob == null) {
+            Simulation.logger.warning("Tried to add NULL mob to "+this.getName());
+        }
+        this.giveID(mob);
+        if (mob instanceof Structure) {
+            CollisionMap.checkCollisionLevel(mob); //Fail here, not on the next collisionmap update
+            this.structures.add((Structure)mob);
+            this.addToStructureIndex((Structure)mob);
+        }
+        if (mob instanceof Creature) {
+            this.creatureStore.add((Creature)mob); //Slot follows the list, at the end
+            this.creatures.add((Creature)mob);
+            this.addToCreatureGrid((Creature)mob);
+        }
+        this.addToMobTree(mob);
+        this.mobs.put(mob.getID(), mob); //Without this removeMapObject(ID) can't find it
+        mob.setBattleMap(this);
+        this.markCollisionsDirty(mob);
+    }
+    
+    /**
+     * Pull the creature by ID from the general MOBs table
+     * @param ID Location-specific Identifier for the mob
+     * @return MapObject if it exists in the location
+     */
+    public MapObject getMapObject(int ID) {
+        return this.mobs.get(ID);
+    }
+    
+
+    public void addMapObject(MapObject mob, double xPos, double yPos) {
+        if (mob == null) return;
+        addMapObject(mob);
+        mob.setPosition(xPos, yPos); //Structures report the move themselves
+    }
+    
+    /**
+    * Adds a Structure to the location
+    * @param s The structure to be added
+    * @param xPos Position for the structure on the X-axis
+    * @param yPos Position for the structure on the Y-axis
+    */
+    public void addStructure(Structure s, double xPos, double yPos) {
+        if (!this.structures.contains(s)) {
+            this.addMapObject(s);
+        }
+        s.setBattleMap(this);
+        s.setPosition(xPos, yPos); //Marks the collisionmap dirty via structureMoved
+    }
+    
+    /** Adds a Creature to the location
+    * @param c The creature to be added
+    * @param xPos Position for the creature on the X-axis
+    * @param yPos Position for the creature on the Y-axis
+    */
+    public void addCreature(Creature c, double xPos, double yPos) {
+        if (!this.creatures.contains(c)) {
+            this.addMapObject(c);
+        } else {
+            //No need to re-add the creature if it's already in. Just give it a new ID.
+            this.removeMapObject(c);
+            this.giveID(c);
+            Simulation.logger.log(Level.WARNING, "Tried to add a {3} to {0} but {3} was already in it. Gave the {3} new ID: {1}", new Object[]{this.getName(), c.getID(), c.getName()});
+            this.addMapObject(c);
+        }
+        c.setBattleMap(this);
+        c.setPosition(xPos, yPos);
+    }
+
+    /**
+     * Updates the creatures on a run of the sweep order,
+     * splitting it in halves until the runs are short enough
+     */
+    private class CreatureUpdate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double time;
+        private final long tick;
+        private final int start; //Places in the sweep order, end exclusive
+        private final int end;
+
+        private CreatureUpdate(double time, long tick, int start, int end) {
+            this.time = time;
+            this.tick = tick;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= UPDATE_STRIP) {
+                for (int i = this.start; i < this.end; i++) {
+                    creatures.get(creatureSweep.getSorted(i)).update(this.time, this.tick);
+                }
+                return;
+            }
+            int middle = (this.start + this.end) >>> 1;
+            invokeAll(new CreatureUpdate(this.time, this.tick, this.start, middle),
+                new CreatureUpdate(this.time, this.tick, middle, this.end));
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+
+package generalsgame;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import generalsgame.commands.MoveCommand;
+import generalsgame.gameobjects.Creature;
+import generalsgame.graphics.MovingGraphics;
+import generalsgame.util.SimulationClock;
+
+/**
+ * Simulation is the headless core of the game: a BattleMap advanced
+ * by a SimulationClock. The map, creatures, commands, collisions and
+ * pathfinding don't touch JavaFX, so a Simulation runs in a plain JVM
+ * (servers, load tests, CI). The JavaFX client (Generals) wraps one
+ * and only draws what's in it.
+ * main() runs a test battle as fast as it goes and prints the tick rate.
+ * @author nikok
+ */
+public class Simulation {
+    public static final Logger logger = Logger.getLogger(Simulation.class.getName());
+    public static final int TILESIZE = 32;
+
+    private final BattleMap map;
+    private final SimulationClock clock;
+
+    /**
+     * @param map Map to simulate
+     * @param ticksPerSecond Simulation rate
+     * @param maxCatchUpTicks Most ticks to run for one advance(), see SimulationClock
+     */
+    public Simulation(BattleMap map, int ticksPerSecond, int maxCatchUpTicks) {
+        this.map = map;
+        this.clock = new SimulationClock(ticksPerSecond, maxCatchUpTicks);
+    }
+
+    /**
+     * Advance by the real time passed, running as many
+     * ticks as fit in it. Leftovers carry over to the next call.
+     * @param seconds Time passed since the last advance
+     * @return Number of ticks run
+     */
+    public int advance(double seconds) {
+        this.clock.addTime(seconds);
+        int ticks = 0;
+        while (this.clock.nextTick()) {
+            this.map.update(this.clock.getTickLength(), this.clock.getTick());
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /**
+     * Run one tick right away, whatever the time
+     * @return Number of the tick that was run
+     */
+    public long step() {
+        long tick = this.clock.step();
+        this.map.update(this.clock.getTickLength(), tick);
+        return tick;
+    }
+
+    public BattleMap getMap() {
+        return this.map;
+    }
+
+    public SimulationClock getClock() {
+        return this.clock;
+    }
+
+    public long getTick() {
+        return this.clock.getTick();
+    }
+
+    /**
+     * Stop the background work of the simulation (path requests)
+     */
+    public void shutdown() {
+        this.map.close();
+    }
+
+    /**
+     * Test battle: units of two players spread over an open map.
+     * Used for headless runs and benchmarks until there are real scenarios.
+     * @param units Number of creatures
+     * @param seed Seed for placing the creatures
+     * @return Simulation of the battle, at 30 ticks per second
+     */
+    public static Simulation createTestBattle(int units, long seed) {
+        int tilesAcross = 128;
+        double mapSize = tilesAcross * TILESIZE;
+        BattleMap map = new BattleMap("Test battle", mapSize, mapSize);
+        Simulation simulation = new Simulation(map, 30, 10);
+        Random random = new Random(seed);
+        for (int i = 0; i < units; i++) {
+            Creature c = new Creature("Unit " + i, new MovingGraphics(TILESIZE, TILESIZE));
+            c.setOwner(i % 2);
+            map.addMapObject(c, random.nextDouble() * (mapSize - TILESIZE), random.nextDouble() * (mapSize - TILESIZE));
+        }
+        return simulation;
+    }
+
+    /**
+     * Order every creature on the map straight across it,
+     * to the mirrored xCoordinate on the other side
+     * @param ticks How long the creatures have to get there
+     */
+    public void orderMarchAcross(long ticks) {
+        ArrayList<Creature> creatures = this.map.getCreatures();
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature c = creatures.get(i);
+            double goalX = this.map.getWidth() - c.getWidth() - c.getXPos();
+            c.setCommand(new MoveCommand(c, goalX, c.getYPos(), this.getTick(), this.getTick() + ticks));
+        }
+    }
+
+    /**
+     * Headless test battle: units of two players march back and forth
+     * across an open map. Prints the ticks per second.
+     * @param args [units] [ticks] [parallel], defaults 100, 10000 and false
+     */
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        boolean parallel = args.length > 2 && Boolean.parseBoolean(args[2]);
+        logger.setLevel(Level.WARNING);
+
+        Simulation simulation = createTestBattle(units, 1);
+        if (parallel) simulation.getMap().setUpdatePool(ForkJoinPool.commonPool());
+        long commandLength = simulation.getClock().secondsToTicks(10);
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            if (t % commandLength == 0) simulation.orderMarchAcross(commandLength); //New orders for everyone
+            simulation.step();
+        }
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+        System.out.println(units + " units, " + ticks + " ticks in " + String.format("%.2f", seconds) + "s");
+        System.out.println((int)(ticks / seconds) + " ticks per second");
+        simulation.shutdown();
+    }
+
+}
@@ -16,9 +16,10 @@ public interface Command {
     int getID();
     String getName();
 
-    int getStartTime();
-    int getCompletionTime();
-    boolean isComplete(int currentTime);
+    //Times are simulation tick numbers
+    long getStartTime();
+    long getCompletionTime();
+    boolean isComplete(long currentTick);
 
     boolean tick(double time);
 
@@ -0,0 +1,142 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+
+package generalsgame.commands;
+
+import java.util.concurrent.CompletableFuture;
+
+import generalsgame.BattleMap;
+import generalsgame.gameobjects.Creature;
+import generalsgame.util.FlowField;
+import generalsgame.util.Path;
+
+
+public class MoveCommand implements Command {
+
+    private int id;
+    private String name;
+
+    private Creature target;
+    private double xCoor;
+    private double yCoor;
+    private FlowField flowField; //Shared with the other units sent to the same place, null to follow a path
+    private CompletableFuture<Path> pathRequest; //Path being searched in the background
+    private Path path;
+    private int pathStep; //Next node on the path to head for
+    private long pathVersion; //Collisionmap version the path was found on
+
+    private long startTime; //Tick the command was given on
+    private long endTime; //Tick the command runs out on
+
+    public MoveCommand(Creature target, double xCoor, double yCoor, long startTime, long endTime) {
+        this.id = Command.MOVE;
+        this.name = "Move";
+
+        this.target = target;
+        this.xCoor = xCoor;
+        this.yCoor = yCoor;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    /**
+     * Move command that follows a flow field to the goal.
+     * Give the same field to every unit of a group move.
+     * @param target Creature to move
+     * @param flowField FlowField leading to xCoor, yCoor
+     */
+    public MoveCommand(Creature target, FlowField flowField, double xCoor, double yCoor, long startTime, long endTime) {
+        this(target, xCoor, yCoor, startTime, endTime);
+        this.flowField = flowField;
+    }
+
+
+    @Override
+    public boolean tick(double time) {
+        if (this.flowField != null && this.target.getBattleMap() != null) {
+            if (this.flowField.isOutOfDate(this.target.getBattleMap().getCollisionMap())) {
+                //Map changed, get the fresh field (the first unit to ask regenerates it for all)
+                this.flowField = this.target.getBattleMap().getPathFinder().getFlowField(this.target.getWidth(), this.target.getCrossableTerrain(), xCoor, yCoor);
+            }
+            if (!this.target.moveTowards(this.flowField)) {
+                this.target.moveTowards(xCoor, yCoor); //On the goal tile, or the field doesn't reach us
+            }
+        } else if (!this.followPath()) {
+            //No path yet, or it's used up. Head straight for the goal
+            this.target.moveTowards(xCoor, yCoor);
+        }
+        this.target.applyMovement(time);
+        return true;
+    }
+
+    /**
+     * Move along the path found in the background. A new path is asked
+     * if there's none, if the map has changed since it was found,
+     * or if it was a partial one that ran out.
+     * Until the search is done, the old path (if any) is followed.
+     * @return true if the path moved the creature
+     */
+    private boolean followPath() {
+        BattleMap map = this.target.getBattleMap();
+        if (map == null) return false;
+        if (this.pathRequest != null && this.pathRequest.isDone()) {
+            if (!this.pathRequest.isCompletedExceptionally()) {
+                this.path = this.pathRequest.getNow(null);
+                this.pathStep = 0;
+                //A stale path (the map changed while it was searched) gets asked again below
+                this.pathVersion = this.path.getMapVersion();
+            }
+            this.pathRequest = null;
+        }
+        int tileSize = map.getPathFinder().getTileSize();
+        int tileX = (int)this.target.getXPos() / tileSize;
+        int tileY = (int)this.target.getYPos() / tileSize;
+        if (this.path != null) {
+            //Skip the nodes we're already on
+            while (this.pathStep < this.path.getLength() && this.path.getX(this.pathStep) == tileX && this.path.getY(this.pathStep) == tileY) {
+                this.pathStep++;
+            }
+        }
+        boolean pathUsedUp = this.path == null || this.pathStep >= this.path.getLength();
+        if (this.pathRequest == null && (this.path == null || this.pathVersion != map.getCollisionMap().getVersion() || (pathUsedUp && !this.path.isComplete()))) {
+            //The slot orders the requests of a tick, so the paths come the same whatever thread asked first
+            this.pathRequest = map.getPathRequestService().requestPath(this.target.getSlot(), this.target.getWidth(), this.target.getCrossableTerrain(), this.target.getXPos(), this.target.getYPos(), xCoor, yCoor);
+        }
+        if (pathUsedUp) return false;
+        double margin = Math.max(this.target.getWidth(), tileSize) / 2;
+        return this.target.moveTowards((this.path.getX(this.pathStep) * tileSize) + margin, (this.path.getY(this.pathStep) * tileSize) + margin);
+    }
+
+    @Override
+    public int getID() {
+        return this.id;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    @Override
+    public long getCompletionTime() {
+        return this.endTime;
+    }
+
+    @Override
+    public boolean isComplete(long currentTick) {
+        return this.endTime >= currentTick;
+    }
+
+
+    
+}
\ No newline at end of file
@@ -0,0 +1,464 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+
+package generalsgame.gameobjects;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.logging.Level;
+
+import generalsgame.Direction;
+import generalsgame.Simulation;
+import generalsgame.commands.Command;
+import generalsgame.graphics.MovingGraphics;
+import generalsgame.util.FlowField;
+import generalsgame.util.Toolkit;
+
+/**
+ * Creature is a "living" MapObject
+ * As such, they get (at least some) AI-routines
+ * Health, speed, sight, facing and the per tick state of the creature
+ * (contacts, blocked) are kept in a CreatureStore with its graphics,
+ * the creature reads and writes them through its slot there.
+ * @author nkoiv
+ */
+public class Creature extends MapObject { 
+
+    //Stats a creature starts with
+    static final int DEFAULT_SPEED = 50;
+    static final int DEFAULT_HEALTH = 100;
+    static final int DEFAULT_SIGHT = 8; //In tiles
+
+    private Command activeCommand;
+    
+    //Slot in the store holding the stats and the graphics body of the creature, see store()
+    CreatureStore store;
+    int slot;
+    protected HashMap<String, Integer> attributes; //Attributes without a place in the store, null until one is set
+    protected ArrayList<Integer> crossableTerrain; //List of terrains we can go through;
+
+    /**
+     * Speed, health and sight start at the defaults,
+     * they're set when the creature gets a store.
+     */
+    public Creature (String name, MovingGraphics graphics) {
+        super(name, graphics);
+        this.crossableTerrain = new ArrayList<>();
+        this.crossableTerrain.add(0);
+    }
+
+    /**
+     * The store of the creature. A creature that isn't in one yet
+     * (on a map) gets a store of its own, with the default stats.
+     * @return the store of the creature
+     */
+    final CreatureStore store() {
+        if (this.store == null) new CreatureStore(1).add(this);
+        return this.store;
+    }
+
+
+    public int getHealth() {
+        return this.store().health[this.slot];
+    }
+
+    public int getMaxHealth() {
+        return this.store().maxHealth[this.slot];
+    }
+
+    /**
+     * @return How far the creature sees, in tiles
+     */
+    public int getSightRadius() {
+        return this.store().sight[this.slot];
+    }
+
+    public int getSpeed() {
+        return this.store().speed[this.slot];
+    }
+
+    /**
+     * @return the store holding the stats and the graphics body of the creature
+     */
+    public CreatureStore getStore() {
+        return this.store();
+    }
+
+    /**
+     * @return slot of the creature in its store
+     */
+    public int getSlot() {
+        this.store();
+        return this.slot;
+    }
+
+    /*
+     * Position reads go straight to the store instead of through the
+     * graphics. The size (and so the far edges and the center) still
+     * comes from the graphics: a Sprite reports the size of its frame.
+     */
+    @Override
+    public double getXPos() {
+        return this.store().getMinX(this.slot);
+    }
+
+    @Override
+    public double getYPos() {
+        return this.store().getMinY(this.slot);
+    }
+
+    @Override
+    public double getMinX() {
+        return this.store().getMinX(this.slot);
+    }
+
+    @Override
+    public double getMinY() {
+        return this.store().getMinY(this.slot);
+    }
+
+    public void setAttribute (String attribute, int value) {
+        switch (attribute) {
+            case "Health": this.store().health[this.slot] = value; return;
+            case "MaxHealth": this.store().maxHealth[this.slot] = value; return;
+            case "Speed": this.store().speed[this.slot] = value; return;
+            case "Sight": this.store().sight[this.slot] = value; return;
+            default: break;
+        }
+        if (this.attributes == null) this.attributes = new HashMap<>();
+        if (this.attributes.containsKey(attribute)) {
+            this.attributes.replace(attribute, value);
+        } else {
+            this.attributes.put(attribute, value);
+        }
+    }
+
+    /* GetAttribute returns 0 when attribute is not found.
+    *  If creature has no Armour, "getAttribute("Armour") gives 0.
+    *  Due to this no combat mechanics should ever use division by attributes.
+    */
+    public int getAttribute(String attribute) {
+        switch (attribute) {
+            case "Health": return this.store().health[this.slot];
+            case "MaxHealth": return this.store().maxHealth[this.slot];
+            case "Speed": return this.store().speed[this.slot];
+            case "Sight": return this.store().sight[this.slot];
+            default: break;
+        }
+        if (this.attributes != null && this.attributes.containsKey(attribute)) {
+            return this.attributes.get(attribute);
+        } else {
+            return 0;
+        }
+    }
+
+    public void setCommand(Command command) {
+        this.activeCommand = command;
+    }
+    
+    public Command getCurrentCommand() {
+        return this.activeCommand;
+    }
+
+    public void progressCommand(double time, long tick) {
+        if (this.activeCommand == null) return;
+        //Simulation.logger.info("Progressing Command....");
+        this.activeCommand.tick(time);
+        if (this.activeCommand.getCompletionTime() <= tick) {
+            this.activeCommand = null;
+            this.stopMovement();
+            Simulation.logger.info("Stopped movement");
+        }
+    }
+
+    //-------------movement-----------
+   
+    /**
+     * Apply movement to the creature.
+     * The movement is done by creature sprites x and y velocity,
+     * multiplied by time spent moving.
+     * @param time Time spent moving
+     * @return Return true if movement was possible, false if it was blocked
+     */ 
+    public boolean applyMovement(double time){
+        if (this.map == null) return false;
+        /*
+        * Collisions were checked before anyone moved, in the
+        * collision phase of the map. Contacts are waiting here.
+        * Only this creature is written to: the map catches up with
+        * the new position once everyone has moved (creatures can
+        * be updated in parallel, see BattleMap.updateCreatures()).
+        * TODO: Add in pixel-based collision detection (compare alphamaps?)
+        */
+        //Old position to snap back to when colliding
+        double oldXPos = this.getXPos();
+        double oldYPos = this.getYPos();
+        //Simulation.logger.info("Old positions: "+oldXPos+","+oldYPos);
+        
+        if (this.store().contactCount[this.slot] == 0) {
+            //Collided with nothing, free to move
+            this.store().flags[this.slot] &= ~CreatureStore.BLOCKED; //movement went through fine
+            this.getGraphics().update(time);
+            return true;
+        } else { 
+            //Check which sides we collided on, map edges included
+            boolean up = this.isContactOn(Direction.UP) || this.getYPos() <= 0;
+            boolean down = this.isContactOn(Direction.DOWN) || this.getCenterYPos() >= this.map.getHeight();
+            boolean left = this.isContactOn(Direction.LEFT) || this.getXPos() <= 0;
+            boolean right = this.isContactOn(Direction.RIGHT) || this.getCenterXPos() >= this.map.getWidth();
+            if (up) {
+                //Block movement up
+                if (this.getGraphics().getYVelocity() < 0 ) { 
+                    //this.getGraphics().setYVelocity(0);
+                    this.getGraphics().setYVelocity(-this.getGraphics().getYVelocity()/2);
+                }
+                this.getGraphics().setYPosition(oldYPos);
+            }
+            if (down) {
+                //Block movement down
+                if (this.getGraphics().getYVelocity() > 0 ) {
+                    //this.getGraphics().setYVelocity(0);
+                    this.getGraphics().setYVelocity(-this.getGraphics().getYVelocity()/2);
+                }
+                this.getGraphics().setYPosition(oldYPos);
+            }
+            if (right) {
+                //Block movement right
+                if (this.getGraphics().getXVelocity() > 0 ) {
+                    //this.getGraphics().setXVelocity(0);
+                    this.getGraphics().setXVelocity(-this.getGraphics().getXVelocity()/2);
+                }
+                this.getGraphics().setXPosition(oldXPos);
+            }
+            if (left) {
+                //Block movement left
+                if (this.getGraphics().getXVelocity() < 0 ) {
+                    //this.getGraphics().setXVelocity(0);
+                    this.getGraphics().setXVelocity(-this.getGraphics().getXVelocity()/2);
+                }
+                this.getGraphics().setXPosition(oldXPos);
+                
+            }
+            if (this.getXPos() < 0 || this.getXPos() > this.map.getWidth()) this.graphics.setXPosition(oldXPos);
+            if (this.getYPos() < 0 || this.getYPos() > this.map.getHeight()) this.graphics.setXPosition(oldYPos);
+            this.getGraphics().update(time);
+            this.store().flags[this.slot] |= CreatureStore.BLOCKED; //remember this was a bad way to go to
+            return false;
+        }
+    }
+    
+    /**
+     * Forget the contacts of the last tick. The map clears
+     * the contacts of all its creatures at once in the store.
+     */
+    public void clearContacts() {
+        CreatureStore s = this.store();
+        s.contactCount[this.slot] = 0;
+        s.contactSides[this.slot] = 0;
+    }
+    
+    /**
+     * Note something touching this creature. The side is the one
+     * the other object is mostly towards, by center positions.
+     * Called by the map during its collision phase.
+     * @param other The object touching this creature
+     */
+    public void addContact(MapObject other) {
+        this.store().contactCount[this.slot]++;
+        double xDistance = this.getCenterXPos() - other.getCenterXPos();
+        double yDistance = this.getCenterYPos() - other.getCenterYPos();
+        Direction side;
+        if (Math.abs(xDistance) >= Math.abs(yDistance)) {
+            //Collided primary on the X (Left<->Right)
+            side = (this.getCenterXPos() <= other.getCenterXPos()) ? Direction.RIGHT : Direction.LEFT;
+        } else {
+            //Collided primary on the Y (Up or Down)
+            side = (this.getCenterYPos() >= other.getCenterYPos()) ? Direction.UP : Direction.DOWN;
+        }
+        this.store().contactSides[this.slot] |= (1 << side.ordinal());
+    }
+    
+    /**
+     * @return number of objects touching this creature at the start of the tick
+     */
+    public int getContactCount() {
+        return this.store().contactCount[this.slot];
+    }
+    
+    /**
+     * @return true if the last movement of the creature ran into something
+     */
+    public boolean isBlocked() {
+        return (this.store().flags[this.slot] & CreatureStore.BLOCKED) != 0;
+    }
+    
+    /**
+     * @param side Side to check
+     * @return true if something was touching the creature on that side at the start of the tick
+     */
+    public boolean isContactOn(Direction side) {
+        return (this.store().contactSides[this.slot] & (1 << side.ordinal())) != 0;
+    }
+    
+    
+    public boolean moveTowards (double xCoor, double yCoor) {
+        this.getGraphics().setVelocity(0, 0);
+        double[] direction = Toolkit.getDirectionXY(this.getCenterXPos(), this.getCenterYPos(), xCoor, yCoor);
+        direction[0] = direction[0] * this.getSpeed();
+        direction[1] = direction[1] * this.getSpeed();
+        this.graphics.addVelocity(direction[0], direction[1]);
+        //Update facing
+        this.setFacing(Toolkit.getDirection(0, 0, direction[0], direction[1]));
+        return true;
+    }
+    
+
+    /**
+     * Move along a flow field towards its goal. Units heading for
+     * the same goal share the field, so this needs no pathfinding.
+     * The creature heads for the next tile the field points to
+     * (its top left corner is the position on the field, like with clearance).
+     * @param field FlowField leading to the goal
+     * @return true if the field moved the creature, false if it's already
+     * on the goal tile or the field doesn't reach here
+     */
+    public boolean moveTowards (FlowField field) {
+        if (this.map == null) return false;
+        int tileSize = this.map.getPathFinder().getTileSize();
+        int tileX = (int)this.getXPos() / tileSize;
+        int tileY = (int)this.getYPos() / tileSize;
+        int xOffset = field.getNextXOffset(tileX, tileY);
+        int yOffset = field.getNextYOffset(tileX, tileY);
+        if (xOffset == 0 && yOffset == 0) return false;
+        //Aim to center on the next tile, or for big creatures, to line up with its corner
+        double margin = Math.max(this.getWidth(), tileSize) / 2;
+        return this.moveTowards(((tileX + xOffset) * tileSize) + margin, ((tileY + yOffset) * tileSize) + margin);
+    }
+
+    public boolean moveTowards (Direction direction) {
+        //this.stopMovement(); //clear old movement (velocity)
+        switch(direction) {
+            case UP: {
+                this.setFacing(Direction.UP);
+                this.getGraphics().setVelocity(0, -this.getSpeed());
+                return true;
+            }
+            case DOWN: {
+                this.setFacing(Direction.DOWN);
+                this.getGraphics().setVelocity(0, this.getSpeed());
+                return true;
+            }
+            case LEFT: {
+                this.setFacing(Direction.LEFT);
+                this.getGraphics().setVelocity(-this.getSpeed(), 0);
+                return true;
+            }
+            case RIGHT: {
+                this.setFacing(Direction.RIGHT);
+                this.getGraphics().setVelocity(this.getSpeed(), 0);
+                return true;
+            }
+            case UPRIGHT: { 
+                this.getGraphics().setVelocity(this.getSpeed()/1.41, -this.getSpeed()/1.41);
+                this.setFacing(Direction.UPRIGHT);
+                return true;
+            }
+            case UPLEFT: {
+                this.getGraphics().setVelocity(-this.getSpeed()/1.41, -this.getSpeed()/1.41);
+                this.setFacing(Direction.UPLEFT);
+                return true;
+            }
+            case DOWNRIGHT: {
+                this.getGraphics().setVelocity(this.getSpeed()/1.41, this.getSpeed()/1.41);
+                this.setFacing(Direction.DOWNRIGHT);
+                return true;
+            }
+            case DOWNLEFT: {
+                this.getGraphics().setVelocity(-this.getSpeed()/1.41, this.getSpeed()/1.41);
+                this.setFacing(Direction.DOWNLEFT);
+                return true;
+            }
+            case STAY: {
+                return stopMovement();
+            }
+        default: break;
+        }
+        
+        return false;
+    }
+
+    public boolean stopMovement() {
+        this.getGraphics().setVelocity(0, 0);
+        //this.getGraphics().setImage(this.getGraphics().getImage());
+        return true;
+    }
+
+    public Direction getFacing() {
+        return this.store().facing[this.slot];
+    }
+    
+    public void setFacing(Direction d) {
+        this.store().facing[this.slot] = d;
+    }
+
+    public ArrayList<Integer> getCrossableTerrain() {
+        return this.crossableTerrain;
+    }
+
+    /**
+     * The creature acts on its command. Creatures on a map are then
+     * moved by their velocity all at once, by the map integrating its
+     * creature store (see BattleMap.update()), creatures off a map
+     * move here.
+     */
+    @Override
+    public void update (double time, long tick) {
+        //Simulation.logger.info(this.name + " is acting...");
+        this.progressCommand(time, tick);
+        if (this.map == null) this.graphics.update(time);
+    }
+    
+    /**
+     * New graphics take the place of the old ones in the store
+     * of the creature, the old graphics get a store of their own.
+     * @param graphics Graphics (or Sprite) to be added
+     */
+    @Override
+    public void setGraphics(MovingGraphics graphics) {
+        if (graphics == this.graphics) return;
+        if (this.store != null) this.store.replace(this.slot, graphics);
+        this.graphics = graphics;
+    }
+
+
+    @Override
+    public String[] getInfoText() {
+        String[] s = new String[]{
+            this.name + " - BaseID: "+this.templateID ,
+            "ID "+this.IDinMap+" @ "+this.map.getName(),
+            "X:"+((int)this.getXPos())+" Y:"+((int)this.getYPos()),
+            this.getHealth() + "/"+this.getMaxHealth()+" hp",
+        };
+        return s;
+    }
+    
+    @Override
+    public String toString() {
+        String n = this.name + " @ "+"|"+(int)this.getCenterXPos()+"x"+(int)this.getCenterYPos()+"|";
+        return n;
+    }
+    
+    public String longString() {
+        String n = this.name + " @ "+"|"+(int)this.getCenterXPos()+"x"+(int)this.getCenterYPos()+"|\n";
+        n = n+this.map+"\n";
+        n = n+"Health: "+this.getHealth()+" / "+this.getMaxHealth()+"\n";
+        
+        return n;
+    }
+    
+    }
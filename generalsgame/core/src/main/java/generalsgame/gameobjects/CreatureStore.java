@@ -0,0 +1,255 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.gameobjects;
+
+import java.util.Arrays;
+
+import generalsgame.Direction;
+import generalsgame.graphics.BodyStore;
+
+/**
+ * CreatureStore is a BodyStore for creatures: next to the body of the
+ * graphics, each slot keeps the stats and the per tick state of the
+ * creature in it. A Creature is then mostly a handle to its slot.
+ * The slot of the creature is the slot of its graphics.
+ * The map keeps its creatures in one store, in the order of its
+ * creature list, so the tick can go through them as arrays.
+ * Creatures off the map get a store of their own when they're
+ * first used, with the default stats.
+ * @author nikok
+ */
+public class CreatureStore extends BodyStore {
+
+    //Bits of flags
+    protected static final int BLOCKED = 1; //Last movement ran into something
+
+    protected int[] health;
+    protected int[] maxHealth;
+    protected int[] speed;
+    protected int[] sight; //In tiles
+    protected int[] flags;
+    //Contacts handed out by the collision phase of the map, for this tick
+    protected int[] contactCount;
+    protected int[] contactSides; //Bit (1 << Direction.ordinal()) set for each side something touches
+    protected Direction[] facing; //For sprites that turn when they move
+    //Collision area as it was at the last checkCollisionAreas(), to tell if it has changed since
+    protected double[] lastAreaX;
+    protected double[] lastAreaY;
+    protected double[] lastAreaWidth;
+    protected double[] lastAreaHeight;
+    protected double[] lastAreaRotation;
+    protected boolean[] areaChanged;
+    protected Creature[] creatures;
+
+    public CreatureStore(int capacity) {
+        super(capacity);
+        capacity = Math.max(1, capacity);
+        this.health = new int[capacity];
+        this.maxHealth = new int[capacity];
+        this.speed = new int[capacity];
+        this.sight = new int[capacity];
+        this.flags = new int[capacity];
+        this.contactCount = new int[capacity];
+        this.contactSides = new int[capacity];
+        this.facing = new Direction[capacity];
+        this.lastAreaX = new double[capacity];
+        this.lastAreaY = new double[capacity];
+        this.lastAreaWidth = new double[capacity];
+        this.lastAreaHeight = new double[capacity];
+        this.lastAreaRotation = new double[capacity];
+        this.areaChanged = new boolean[capacity];
+        this.creatures = new Creature[capacity];
+    }
+
+    /**
+     * Move the creature (and its graphics) into this store, after the ones
+     * already in it. Stats and position come along from the store
+     * the creature was in, and its old slot there is freed.
+     * @param c Creature to add, not already in this store
+     * @return slot of the creature in this store
+     */
+    public int add(Creature c) {
+        return this.put(c, true);
+    }
+
+    /**
+     * Like add(), but the slot the creature leaves in its old store
+     * isn't freed, see BodyStore.take()
+     * @param c Creature to take, not already in this store
+     * @return slot of the creature in this store
+     */
+    public int take(Creature c) {
+        return this.put(c, false);
+    }
+
+    private int put(Creature c, boolean freeOldSlot) {
+        if (c.store == this) throw new IllegalArgumentException(c.getName() + " is already in this store");
+        CreatureStore from = c.store;
+        int fromSlot = c.slot;
+        //Stats are read before the body move below frees the old slot
+        int hp = Creature.DEFAULT_HEALTH, maxHp = Creature.DEFAULT_HEALTH, spd = Creature.DEFAULT_SPEED;
+        int sightRadius = Creature.DEFAULT_SIGHT, flag = 0;
+        Direction facingTo = null;
+        if (from != null) {
+            hp = from.health[fromSlot];
+            maxHp = from.maxHealth[fromSlot];
+            spd = from.speed[fromSlot];
+            sightRadius = from.sight[fromSlot];
+            flag = from.flags[fromSlot];
+            facingTo = from.facing[fromSlot];
+        }
+        int slot = freeOldSlot ? this.add(c.getGraphics()) : this.take(c.getGraphics());
+        this.health[slot] = hp;
+        this.maxHealth[slot] = maxHp;
+        this.speed[slot] = spd;
+        this.sight[slot] = sightRadius;
+        this.flags[slot] = flag;
+        this.contactCount[slot] = 0;
+        this.contactSides[slot] = 0;
+        this.facing[slot] = facingTo;
+        //New in this store, so the area counts as changed on the next check
+        this.lastAreaX[slot] = Double.NaN;
+        this.areaChanged[slot] = true;
+        this.creatures[slot] = c;
+        c.store = this;
+        c.slot = slot;
+        return slot;
+    }
+
+    /**
+     * Take the creature in the slot out of this store. It keeps
+     * its stats and position in a store of its own.
+     * The creatures after the slot move down by one.
+     * @param slot Slot to free
+     */
+    @Override
+    public void remove(int slot) {
+        new CreatureStore(1).add(this.creatures[slot]);
+    }
+
+    @Override
+    public void moveSlot(int from, int to) {
+        super.moveSlot(from, to);
+        this.health[to] = this.health[from];
+        this.maxHealth[to] = this.maxHealth[from];
+        this.speed[to] = this.speed[from];
+        this.sight[to] = this.sight[from];
+        this.flags[to] = this.flags[from];
+        this.contactCount[to] = this.contactCount[from];
+        this.contactSides[to] = this.contactSides[from];
+        this.facing[to] = this.facing[from];
+        this.lastAreaX[to] = this.lastAreaX[from];
+        this.lastAreaY[to] = this.lastAreaY[from];
+        this.lastAreaWidth[to] = this.lastAreaWidth[from];
+        this.lastAreaHeight[to] = this.lastAreaHeight[from];
+        this.lastAreaRotation[to] = this.lastAreaRotation[from];
+        this.areaChanged[to] = this.areaChanged[from];
+        this.creatures[to] = this.creatures[from];
+        this.creatures[to].slot = to;
+    }
+
+    @Override
+    public void truncate(int count) {
+        Arrays.fill(this.creatures, count, this.count, null);
+        super.truncate(count);
+    }
+
+    @Override
+    protected void release(int slot) {
+        super.release(slot);
+        this.creatures[this.count] = null;
+        for (int i = slot; i < this.count; i++) {
+            this.creatures[i].slot = i;
+        }
+    }
+
+    @Override
+    protected void moveDown(int slot, int length) {
+        super.moveDown(slot, length);
+        System.arraycopy(this.health, slot + 1, this.health, slot, length);
+        System.arraycopy(this.maxHealth, slot + 1, this.maxHealth, slot, length);
+        System.arraycopy(this.speed, slot + 1, this.speed, slot, length);
+        System.arraycopy(this.sight, slot + 1, this.sight, slot, length);
+        System.arraycopy(this.flags, slot + 1, this.flags, slot, length);
+        System.arraycopy(this.contactCount, slot + 1, this.contactCount, slot, length);
+        System.arraycopy(this.contactSides, slot + 1, this.contactSides, slot, length);
+        System.arraycopy(this.facing, slot + 1, this.facing, slot, length);
+        System.arraycopy(this.lastAreaX, slot + 1, this.lastAreaX, slot, length);
+        System.arraycopy(this.lastAreaY, slot + 1, this.lastAreaY, slot, length);
+        System.arraycopy(this.lastAreaWidth, slot + 1, this.lastAreaWidth, slot, length);
+        System.arraycopy(this.lastAreaHeight, slot + 1, this.lastAreaHeight, slot, length);
+        System.arraycopy(this.lastAreaRotation, slot + 1, this.lastAreaRotation, slot, length);
+        System.arraycopy(this.areaChanged, slot + 1, this.areaChanged, slot, length);
+        System.arraycopy(this.creatures, slot + 1, this.creatures, slot, length);
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        super.grow(capacity);
+        this.health = Arrays.copyOf(this.health, capacity);
+        this.maxHealth = Arrays.copyOf(this.maxHealth, capacity);
+        this.speed = Arrays.copyOf(this.speed, capacity);
+        this.sight = Arrays.copyOf(this.sight, capacity);
+        this.flags = Arrays.copyOf(this.flags, capacity);
+        this.contactCount = Arrays.copyOf(this.contactCount, capacity);
+        this.contactSides = Arrays.copyOf(this.contactSides, capacity);
+        this.facing = Arrays.copyOf(this.facing, capacity);
+        this.lastAreaX = Arrays.copyOf(this.lastAreaX, capacity);
+        this.lastAreaY = Arrays.copyOf(this.lastAreaY, capacity);
+        this.lastAreaWidth = Arrays.copyOf(this.lastAreaWidth, capacity);
+        this.lastAreaHeight = Arrays.copyOf(this.lastAreaHeight, capacity);
+        this.lastAreaRotation = Arrays.copyOf(this.lastAreaRotation, capacity);
+        this.areaChanged = Arrays.copyOf(this.areaChanged, capacity);
+        this.creatures = Arrays.copyOf(this.creatures, capacity);
+    }
+
+    /**
+     * Forget the contacts of the last tick, for every creature in the store.
+     * Called by the map at the start of its collision phase.
+     */
+    public void clearContacts() {
+        Arrays.fill(this.contactCount, 0, this.count, 0);
+        Arrays.fill(this.contactSides, 0, this.count, 0);
+    }
+
+    /**
+     * Check for every creature in the store whether its collision area
+     * (position, size or rotation) has changed since the last check,
+     * and remember the areas for the next one. Creatures new in the
+     * store count as changed. Called by the map once per collision phase.
+     */
+    public void checkCollisionAreas() {
+        for (int i = 0; i < this.count; i++) {
+            double areaX = this.x[i];
+            double areaY = this.y[i];
+            double areaWidth = this.width[i];
+            double areaHeight = this.height[i];
+            double areaRotation = this.rotation[i];
+            this.areaChanged[i] = (areaX != this.lastAreaX[i] || areaY != this.lastAreaY[i] || areaWidth != this.lastAreaWidth[i]
+                || areaHeight != this.lastAreaHeight[i] || areaRotation != this.lastAreaRotation[i]);
+            this.lastAreaX[i] = areaX;
+            this.lastAreaY[i] = areaY;
+            this.lastAreaWidth[i] = areaWidth;
+            this.lastAreaHeight[i] = areaHeight;
+            this.lastAreaRotation[i] = areaRotation;
+        }
+    }
+
+    /**
+     * @param slot Slot of the creature
+     * @return true if the collision area changed before the last checkCollisionAreas()
+     */
+    public boolean isCollisionAreaChanged(int slot) {
+        return this.areaChanged[slot];
+    }
+
+    public Creature getCreature(int slot) {
+        return this.creatures[slot];
+    }
+
+}
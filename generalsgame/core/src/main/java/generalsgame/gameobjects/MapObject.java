@@ -12,18 +12,20 @@ import java.util.HashMap;
 import java.util.Objects;
 
 import generalsgame.Direction;
-import generalsgame.Generals;
-import generalsgame.gamestate.BattleState;
 import generalsgame.BattleMap;
 import generalsgame.graphics.MovingGraphics;
-import generalsgame.graphics.Sprite;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Shape;
 
+/**
+ * MapObject is anything that's on a BattleMap.
+ * MapObjects live in the headless simulation core: the graphics
+ * they hold are the position and collision area, and drawing
+ * them is left to the client (see BattleMapRenderer).
+ * @author nkoiv
+ */
 public class MapObject {
 
+    public static final int NO_OWNER = -1; //Owner of neutral objects
+
     protected int templateID;
     protected String name;
     protected MovingGraphics graphics;
@@ -33,12 +35,24 @@ public class MapObject {
     protected boolean removable;
     protected BattleMap map;
     protected double lightSize;
-    protected Color lightColor;
+    protected int lightColor; //ARGB
     
     protected int IDinMap;
+    protected int spatialHandle = -1; //Handle in the BattleMaps spatial grid, -1 if not in one
+    protected int treeHandle = -1; //Handle in the BattleMaps quadtree, -1 if not in one
+    protected int visionHandle = -1; //Handle in the owners FogOfWar, -1 if not in one
+    protected int owner = NO_OWNER; //Player the object belongs to
+    //Collision area as it was at the last collision phase, to tell if it has changed since
+    private double lastCollisionX = Double.NaN;
+    private double lastCollisionY;
+    private double lastCollisionWidth;
+    private double lastCollisionHeight;
+    private double lastCollisionRotation;
+    private long lastCollisionTick = -1;
+    private boolean collisionAreaChanged;
     
     public MapObject() {
-        this.graphics = new Sprite();
+        this.graphics = new MovingGraphics();
     }
     
     public MapObject (String name) {
@@ -48,23 +62,13 @@ public class MapObject {
     }
 
     
-    public MapObject (String name, Image image) {
-        this(name, new Sprite(image));
-    }
-    
     public MapObject (String name, MovingGraphics graphics) {
-        this(name);
+        //Not through this(name), it would make graphics only to throw them away
+        this.name = name;
+        this.visible = true;
         this.graphics = graphics;
     }
     
-    public boolean addTextPopup(String text) {
-        if (Generals.game.currentState instanceof BattleState) {
-            ((BattleState)Generals.game.currentState).addTextFloat(text, this);
-            return true;
-        }
-        return false;
-    }
-    
     public void setBattleMap(BattleMap map) {
         this.map = map;
     }
@@ -119,6 +123,47 @@ public class MapObject {
         return this.graphics.getHeight();
     }
     
+    public void storePreviousPosition() {
+        this.graphics.storePreviousPosition();
+    }
+    
+    public void interpolate(double alpha) {
+        this.graphics.interpolate(alpha);
+    }
+    
+    public double getRenderXPos() {
+        return this.graphics.getRenderXPos();
+    }
+    
+    public double getRenderYPos() {
+        return this.graphics.getRenderYPos();
+    }
+    
+    public double getMinX() {
+        return this.graphics.getMinX();
+    }
+    
+    public double getMinY() {
+        return this.graphics.getMinY();
+    }
+    
+    public double getMaxX() {
+        return this.graphics.getMaxX();
+    }
+    
+    public double getMaxY() {
+        return this.graphics.getMaxY();
+    }
+    
+    /**
+     * Write the bounds of the object into the array: [minX, minY, maxX, maxY]
+     * @param bounds Array to write to
+     * @param offset Index of minX in the array
+     */
+    public void fillBounds(double[] bounds, int offset) {
+        this.graphics.fillBounds(bounds, offset);
+    }
+    
     public double getLightSize() {
         return this.lightSize;
     }
@@ -127,11 +172,14 @@ public class MapObject {
         this.lightSize = lightsize;
     }
 
-    public Color getLightColor() {
+    /**
+     * @return Color of the light as 0xAARRGGBB
+     */
+    public int getLightColor() {
         return lightColor;
     }
 
-    public void setLightColor(Color lightColor) {
+    public void setLightColor(int lightColor) {
         this.lightColor = lightColor;
     }
     
@@ -146,45 +194,56 @@ public class MapObject {
         return this.graphics.intersects(mob.getGraphics());
     }
     
-    public boolean intersects(Shape s) {
-        return this.graphics.intersectsWithShape(s);
-    }
-    
     /**
-    * Render draws the Sprite of the MapObject on a given GraphicsContext
-    * @param gc GraphicsContext where the object is drawn
-    * @param xOffset Used to shift the objects xCoordinate so its drawn where the screen is
-    * @param yOffset Used to shift the objects yCoordinate so its drawn where the screen is
-    */
-    public void render(double xOffset, double yOffset, GraphicsContext gc) {
-        if (this.isVisible()) {
-            this.graphics.render(xOffset, yOffset, gc);
-        }
+     * Check if the collision area (position, size or rotation) has changed
+     * since the previous collision phase. The first call on each tick compares
+     * and remembers the area, later calls on the same tick give the same answer.
+     * If the area wasn't checked on the previous tick, it counts as changed:
+     * the object may have been elsewhere in between.
+     * @param tick Number of the collision phase
+     * @return true if the object has moved, resized or turned, or is new
+     */
+    public boolean collisionAreaChanged(long tick) {
+        if (tick == this.lastCollisionTick) return this.collisionAreaChanged;
+        boolean checkedLastTick = (this.lastCollisionTick == tick - 1);
+        this.lastCollisionTick = tick;
+        double x = this.graphics.getXPos();
+        double y = this.graphics.getYPos();
+        double w = this.graphics.getWidth();
+        double h = this.graphics.getHeight();
+        double r = this.graphics.getRotation();
+        this.collisionAreaChanged = (!checkedLastTick || x != this.lastCollisionX || y != this.lastCollisionY
+                || w != this.lastCollisionWidth || h != this.lastCollisionHeight || r != this.lastCollisionRotation);
+        this.lastCollisionX = x;
+        this.lastCollisionY = y;
+        this.lastCollisionWidth = w;
+        this.lastCollisionHeight = h;
+        this.lastCollisionRotation = r;
+        return this.collisionAreaChanged;
+    }
+    
+    public boolean intersectsLine(double xStart, double yStart, double xEnd, double yEnd) {
+        return this.graphics.intersectsSegment(xStart, yStart, xEnd, yEnd);
     }
     
-    public void renderCollisions(double xOffset, double yOffset, GraphicsContext gc) {
-        if (this.isVisible()) {
-            this.graphics.renderCollisions(xOffset, yOffset, gc);
-        }
-    }
-   
     /**
-    * Set the MapObject a new Sprite (replacing the old old)
-    * @param sprite Sprite to be added
+    * Set the MapObject new graphics (replacing the old ones)
+    * @param graphics Graphics (or Sprite) to be added
     */
-    public void setSprite(Sprite sprite) {
-        this.graphics = sprite;
+    public void setGraphics(MovingGraphics graphics) {
+        this.graphics = graphics;
     }
     
     /**
     * Update the position of the MapObject
     * @param time Amount of time passed since the last update
+    * @param tick Number of the simulation tick
     */
-    public void update(double time, int elapsedSeconds) {
+    public void update(double time, long tick) {
         this.graphics.update(time);
     }
     
-    protected MovingGraphics getGraphics() {
+    public MovingGraphics getGraphics() {
         return this.graphics;
     }
     
@@ -200,10 +259,6 @@ public class MapObject {
         return this.name;
     }
     
-    public Image getSnapshot() {
-        return this.graphics.getImage();
-    }
-    
     public boolean isVisible() {
     	return this.visible;
     }
@@ -245,6 +300,38 @@ public class MapObject {
         return this.IDinMap;
     }
     
+    public int getSpatialHandle() {
+        return this.spatialHandle;
+    }
+    
+    public void setSpatialHandle(int handle) {
+        this.spatialHandle = handle;
+    }
+    
+    public int getTreeHandle() {
+        return this.treeHandle;
+    }
+    
+    public void setTreeHandle(int handle) {
+        this.treeHandle = handle;
+    }
+    
+    public int getVisionHandle() {
+        return this.visionHandle;
+    }
+    
+    public void setVisionHandle(int handle) {
+        this.visionHandle = handle;
+    }
+    
+    public int getOwner() {
+        return this.owner;
+    }
+    
+    public void setOwner(int player) {
+        this.owner = player;
+    }
+    
     public String[] getInfoText() {
         String[] s = new String[]{
             this.name,
@@ -308,7 +395,7 @@ public class MapObject {
 			if (dummy != null) this.graphics = dummy.graphics;
         }
         */
-		if (this.graphics == null) this.graphics = new Sprite(); //Blank sprite if generation from Library failed
+		if (this.graphics == null) this.graphics = new MovingGraphics(); //Blank graphics if generation from Library failed
 		this.graphics.setPosition(xCoor, yCoor);
 	}
     
@@ -10,9 +10,6 @@ package generalsgame.gameobjects;
 import java.util.ArrayList;
 
 import generalsgame.graphics.MovingGraphics;
-import generalsgame.graphics.Sprite;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
 
 /**
  * Structures are MapObjects with varying collision boxes
@@ -23,36 +20,25 @@ import javafx.scene.image.Image;
 public class Structure extends MapObject {
     
     //Extra sprites are used as a non-collision part of the structure
-    protected ArrayList<Sprite> extraSprites;
+    protected ArrayList<MovingGraphics> extraSprites;
   
     public Structure() {
         super();
         this.extraSprites = new ArrayList<>();
     }
     
-    public Structure(String name, Image image, int collisionLevel) {
-        super(name, image);
-        this.collisionLevel = collisionLevel;
-        this.extraSprites = new ArrayList<>();
-    }
-    
     public Structure(String name, MovingGraphics graphics, int collisionLevel) {
         super(name, graphics);
         this.collisionLevel = collisionLevel;
         this.extraSprites = new ArrayList<>();
     }
     
-    public void addExtra (Sprite sprite, double xOffset, double yOffset) {
+    public void addExtra (MovingGraphics sprite, double xOffset, double yOffset) {
         sprite.setPosition(this.getXPos()+xOffset, this.getYPos()+yOffset);
         this.extraSprites.add(sprite);
     }
     
-    public void addExtra (Image image, double xOffset, double yOffset) {
-        this.extraSprites.add(new Sprite(
-        image, this.getXPos()+xOffset, this.getYPos()+yOffset ));
-    }
-    
-    public ArrayList<Sprite> getExtras() {
+    public ArrayList<MovingGraphics> getExtras() {
         return this.extraSprites;
     }
     
@@ -60,44 +46,26 @@ public class Structure extends MapObject {
         this.extraSprites.clear();
     }
 
-    public void renderExtras (double xOffset, double yOffset, GraphicsContext gc) {
-        if (!this.extraSprites.isEmpty()) {
-            for (Sprite extraSprite : this.extraSprites) {
-                //Generals.logger.info("Rendering extra for " +this.getName());
-                extraSprite.render(xOffset, yOffset, gc);
-            }
-        }
-    }
-    
-    public Sprite getSprite() {
-        return (Sprite)this.graphics;
-    }
-    
-    @Override
-    public void render(double xOffset, double yOffset, GraphicsContext gc) {
-        if (this.isVisible()) {
-            super.render(xOffset, yOffset, gc);
-            this.renderExtras(xOffset, yOffset, gc);
-        }
-        
-    }
-    
     //setPosition is overwritten to move extras along with the main sprite
+    //and to let the map know the structure moved (collisionmap needs patching)
     @Override
     public void setPosition (double xPos, double yPos) {
+        double oldXPos = this.getXPos();
+        double oldYPos = this.getYPos();
         if (!this.extraSprites.isEmpty()) {
-            for (Sprite extraSprite : extraSprites) { //All extras are moved keeping the same relation to the main sprite
-                double xOffset = this.getSprite().getXPos() - extraSprite.getXPos();
-                double yOffset = this.getSprite().getYPos() - extraSprite.getYPos();
+            for (MovingGraphics extraSprite : extraSprites) { //All extras are moved keeping the same relation to the main sprite
+                double xOffset = this.graphics.getXPos() - extraSprite.getXPos();
+                double yOffset = this.graphics.getYPos() - extraSprite.getYPos();
                 extraSprite.setPosition(xPos-xOffset, yPos-yOffset);
             }
         }
-        this.getSprite().setPosition(xPos, yPos);
+        this.graphics.setPosition(xPos, yPos);
+        if (this.map != null) this.map.structureMoved(this, oldXPos, oldYPos);
     }
     
     @Override
     public void setCenterPosition (double xPos, double yPos) {
-        this.setPosition(xPos+(this.getSprite().getWidth()/2), yPos+(this.getSprite().getHeight()/2));
+        this.setPosition(xPos+(this.graphics.getWidth()/2), yPos+(this.graphics.getHeight()/2));
     }
     
     @Override
@@ -0,0 +1,135 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+/**
+ * AlphaMask tells which pixels of an image are opaque (alpha above zero).
+ * Each row is packed into longs, 64 pixels per long, bit 0 of the first
+ * long being the leftmost pixel. Bits past the image width are always zero.
+ * Overlap between two masks is tested a whole long at a time with shifts
+ * and ANDs, so pixel collisions don't need to read the images at all.
+ * Masks don't use JavaFX and never change once made, so they're safe to
+ * use from any thread.
+ * @author nikok
+ */
+public class AlphaMask {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits; //row major, wordsPerRow longs per row
+
+    private AlphaMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[this.wordsPerRow * height];
+    }
+
+    /**
+     * Make a mask out of ARGB pixels
+     * @param width width of the image
+     * @param height height of the image
+     * @param argb pixels in row major order, width*height of them
+     * @return mask with a bit set for every pixel with non-zero alpha
+     */
+    public static AlphaMask fromArgb(int width, int height, int[] argb) {
+        AlphaMask mask = new AlphaMask(width, height);
+        for (int y = 0; y < height; y++) {
+            int row = y * mask.wordsPerRow;
+            int pixel = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((argb[pixel + x] & 0xFF000000) != 0) {
+                    mask.bits[row + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Test if two masks at the given positions have opaque pixels on the same spot.
+     * Positions are rounded down to whole pixels.
+     * @param x1 x position of the first mask
+     * @param y1 y position of the first mask
+     * @param mask1 the first mask
+     * @param x2 x position of the second mask
+     * @param y2 y position of the second mask
+     * @param mask2 the second mask
+     * @return true if the masks overlap in pixels
+     */
+    public static boolean overlaps(double x1, double y1, AlphaMask mask1, double x2, double y2, AlphaMask mask2) {
+        if (mask1 == null || mask2 == null) return false;
+        int dx = (int)Math.floor(x2) - (int)Math.floor(x1);
+        int dy = (int)Math.floor(y2) - (int)Math.floor(y1);
+        return mask1.overlaps(mask2, dx, dy);
+    }
+
+    /**
+     * Test if the other mask, placed at offset (dx, dy) from this one,
+     * has opaque pixels on the same spot as this mask.
+     * @param other mask to test against
+     * @param dx x offset of the other mask from this one
+     * @param dy y offset of the other mask from this one
+     * @return true if the masks overlap in pixels
+     */
+    public boolean overlaps(AlphaMask other, int dx, int dy) {
+        int xStart = Math.max(0, dx);
+        int xEnd = Math.min(this.width, dx + other.width);
+        int yStart = Math.max(0, dy);
+        int yEnd = Math.min(this.height, dy + other.height);
+        if (xStart >= xEnd || yStart >= yEnd) return false;
+        int firstWord = xStart >>> 6;
+        int lastWord = (xEnd - 1) >>> 6;
+        for (int y = yStart; y < yEnd; y++) {
+            int row = y * this.wordsPerRow;
+            int otherRow = (y - dy) * other.wordsPerRow;
+            for (int w = firstWord; w <= lastWord; w++) {
+                long mine = this.bits[row + w];
+                if (mine == 0) continue;
+                //Bits outside either image are zero, so no need to clip to the overlap
+                if ((mine & other.rowBits(otherRow, (w << 6) - dx)) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get 64 pixels of a row, starting from pixel x (which may be
+     * negative or past the width, those pixels read as transparent)
+     * @param row index of the first long of the row
+     * @param x first pixel to get
+     * @return pixels x to x+63 of the row, x in bit 0
+     */
+    private long rowBits(int row, int x) {
+        if (x <= -64 || x >= this.width) return 0;
+        if (x < 0) return this.bits[row] << -x;
+        int w = x >>> 6;
+        int shift = x & 63;
+        long result = this.bits[row + w] >>> shift;
+        if (shift != 0 && w + 1 < this.wordsPerRow) result |= this.bits[row + w + 1] << (64 - shift);
+        return result;
+    }
+
+    /**
+     * @return true if the pixel at (x, y) is opaque, false if transparent or outside the mask
+     */
+    public boolean isOpaque(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return false;
+        return (this.bits[y * this.wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+}
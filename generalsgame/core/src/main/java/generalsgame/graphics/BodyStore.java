@@ -0,0 +1,286 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+import java.util.Arrays;
+
+/**
+ * BodyStore keeps the position, velocity, size and rotation of graphics
+ * in flat arrays, one slot per graphics, instead of in the graphics objects.
+ * Moving everything in a store is then one pass over a few arrays
+ * (see integrate()), with the numbers the tick reads packed together.
+ * Slots are kept dense, from 0 to count-1: removing graphics moves
+ * the ones after them down by one, so the slots can follow the order
+ * of a list (BattleMap keeps them in the order of its creatures).
+ * Removing many at once is done in one pass with take(), moveSlot()
+ * and truncate(), the way BattleMap cleans up its creatures.
+ * Graphics that aren't in a shared store get a store of their own
+ * when they're first used, see MovingGraphics.body().
+ * @author nikok
+ */
+public class BodyStore {
+
+    protected double[] x;
+    protected double[] y;
+    protected double[] xVelocity;
+    protected double[] yVelocity;
+    protected double[] width;
+    protected double[] height;
+    protected double[] rotation;
+    protected double[] spin;
+    //Position on the previous simulation tick, NaN until one is stored
+    protected double[] previousX;
+    protected double[] previousY;
+    protected MovingGraphics[] owners;
+    protected int count;
+
+    public BodyStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.xVelocity = new double[capacity];
+        this.yVelocity = new double[capacity];
+        this.width = new double[capacity];
+        this.height = new double[capacity];
+        this.rotation = new double[capacity];
+        this.spin = new double[capacity];
+        this.previousX = new double[capacity];
+        this.previousY = new double[capacity];
+        this.owners = new MovingGraphics[capacity];
+    }
+
+    /**
+     * Move the graphics into this store, after the ones already in it.
+     * The position and the rest come along from the store the graphics
+     * were in, and their old slot there is freed.
+     * @param g Graphics to add, not already in this store
+     * @return slot of the graphics in this store
+     */
+    public int add(MovingGraphics g) {
+        BodyStore from = g.body;
+        int fromSlot = g.slot;
+        int slot = this.take(g);
+        if (from != null) from.release(fromSlot);
+        return slot;
+    }
+
+    /**
+     * Like add(), but the slot the graphics leave in their old store
+     * isn't freed: whoever owns that store moves something else over it
+     * with moveSlot() or cuts it off with truncate(). For taking many
+     * graphics out of a store in one pass.
+     * @param g Graphics to take, not already in this store
+     * @return slot of the graphics in this store
+     */
+    public int take(MovingGraphics g) {
+        if (g.body == this) throw new IllegalArgumentException("Graphics are already in this store");
+        if (this.count == this.x.length) this.grow(this.count * 2);
+        int slot = this.count++;
+        if (g.body != null) {
+            this.copy(g.body, g.slot, slot);
+        } else {
+            this.initialize(g, slot);
+        }
+        this.owners[slot] = g;
+        g.body = this;
+        g.slot = slot;
+        return slot;
+    }
+
+    //Body for graphics that haven't been in a store before
+    private void initialize(MovingGraphics g, int slot) {
+        this.x[slot] = 0;
+        this.y[slot] = 0;
+        this.xVelocity[slot] = 0;
+        this.yVelocity[slot] = 0;
+        this.width[slot] = g.initialWidth;
+        this.height[slot] = g.initialHeight;
+        this.rotation[slot] = 0;
+        this.spin[slot] = 0;
+        this.previousX[slot] = Double.NaN;
+        this.previousY[slot] = 0;
+    }
+
+    /**
+     * Put other graphics in the slot. The graphics in it now get
+     * their body in a store of their own, and the new graphics
+     * bring theirs along from the store they were in.
+     * @param slot Slot to put the graphics in
+     * @param g Graphics to put there, not already in this store
+     */
+    public void replace(int slot, MovingGraphics g) {
+        if (g.body == this) throw new IllegalArgumentException("Graphics are already in this store");
+        MovingGraphics old = this.owners[slot];
+        BodyStore own = new BodyStore(1);
+        own.copy(this, slot, 0);
+        own.owners[0] = old;
+        own.count = 1;
+        old.body = own;
+        old.slot = 0;
+        BodyStore from = g.body;
+        int fromSlot = g.slot;
+        if (from != null) {
+            this.copy(from, fromSlot, slot);
+        } else {
+            this.initialize(g, slot);
+        }
+        this.owners[slot] = g;
+        g.body = this;
+        g.slot = slot;
+        if (from != null) from.release(fromSlot);
+    }
+
+    //Copy the body in the slot of the other store to the slot in this one
+    private void copy(BodyStore from, int fromSlot, int slot) {
+        this.x[slot] = from.x[fromSlot];
+        this.y[slot] = from.y[fromSlot];
+        this.xVelocity[slot] = from.xVelocity[fromSlot];
+        this.yVelocity[slot] = from.yVelocity[fromSlot];
+        this.width[slot] = from.width[fromSlot];
+        this.height[slot] = from.height[fromSlot];
+        this.rotation[slot] = from.rotation[fromSlot];
+        this.spin[slot] = from.spin[fromSlot];
+        this.previousX[slot] = from.previousX[fromSlot];
+        this.previousY[slot] = from.previousY[fromSlot];
+    }
+
+    /**
+     * Take the graphics in the slot out of this store. They keep
+     * their position and the rest in a store of their own.
+     * The graphics after the slot move down by one.
+     * @param slot Slot to free
+     */
+    public void remove(int slot) {
+        new BodyStore(1).add(this.owners[slot]);
+    }
+
+    /**
+     * Free the slot and move the ones after it down by one
+     * @param slot Slot to free
+     */
+    protected void release(int slot) {
+        this.moveDown(slot, this.count - slot - 1);
+        this.count--;
+        this.owners[this.count] = null;
+        for (int i = slot; i < this.count; i++) {
+            this.owners[i].slot = i;
+        }
+    }
+
+    /**
+     * Move the graphics in a slot to a lower one, over whatever was there.
+     * The slot they leave is left as it is, for the next move or truncate().
+     * @param from Slot to move
+     * @param to Slot to move to, below from
+     */
+    public void moveSlot(int from, int to) {
+        this.copy(this, from, to);
+        this.owners[to] = this.owners[from];
+        this.owners[to].slot = to;
+    }
+
+    /**
+     * Cut the store down to the given number of slots. The graphics
+     * in the slots cut off should have been moved elsewhere already.
+     * @param count Number of slots to keep
+     */
+    public void truncate(int count) {
+        Arrays.fill(this.owners, count, this.count, null);
+        this.count = count;
+    }
+
+    /**
+     * Move the given number of slots after the slot down by one, over it.
+     * Stores with more arrays move those too.
+     */
+    protected void moveDown(int slot, int length) {
+        System.arraycopy(this.x, slot + 1, this.x, slot, length);
+        System.arraycopy(this.y, slot + 1, this.y, slot, length);
+        System.arraycopy(this.xVelocity, slot + 1, this.xVelocity, slot, length);
+        System.arraycopy(this.yVelocity, slot + 1, this.yVelocity, slot, length);
+        System.arraycopy(this.width, slot + 1, this.width, slot, length);
+        System.arraycopy(this.height, slot + 1, this.height, slot, length);
+        System.arraycopy(this.rotation, slot + 1, this.rotation, slot, length);
+        System.arraycopy(this.spin, slot + 1, this.spin, slot, length);
+        System.arraycopy(this.previousX, slot + 1, this.previousX, slot, length);
+        System.arraycopy(this.previousY, slot + 1, this.previousY, slot, length);
+        System.arraycopy(this.owners, slot + 1, this.owners, slot, length);
+    }
+
+    /**
+     * Make room for more slots. Stores with more arrays grow those too.
+     */
+    protected void grow(int capacity) {
+        this.x = Arrays.copyOf(this.x, capacity);
+        this.y = Arrays.copyOf(this.y, capacity);
+        this.xVelocity = Arrays.copyOf(this.xVelocity, capacity);
+        this.yVelocity = Arrays.copyOf(this.yVelocity, capacity);
+        this.width = Arrays.copyOf(this.width, capacity);
+        this.height = Arrays.copyOf(this.height, capacity);
+        this.rotation = Arrays.copyOf(this.rotation, capacity);
+        this.spin = Arrays.copyOf(this.spin, capacity);
+        this.previousX = Arrays.copyOf(this.previousX, capacity);
+        this.previousY = Arrays.copyOf(this.previousY, capacity);
+        this.owners = Arrays.copyOf(this.owners, capacity);
+    }
+
+    /**
+     * Move everything in the store by its velocity and spin,
+     * the same as calling update(time) on each of the graphics
+     * (collision boxes catch up when they're asked for).
+     * @param time Time moved, in seconds
+     */
+    public void integrate(double time) {
+        for (int i = 0; i < this.count; i++) {
+            this.x[i] += this.xVelocity[i] * time;
+            this.y[i] += this.yVelocity[i] * time;
+        }
+        for (int i = 0; i < this.count; i++) {
+            double r = this.rotation[i] + this.spin[i] * time;
+            if (r >= 360 || r <= -360) r = r % 360;
+            this.rotation[i] = r;
+        }
+    }
+
+    /**
+     * Remember the current positions as the previous ones,
+     * the same as storePreviousPosition() on each of the graphics
+     */
+    public void storePreviousPositions() {
+        System.arraycopy(this.x, 0, this.previousX, 0, this.count);
+        System.arraycopy(this.y, 0, this.previousY, 0, this.count);
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public MovingGraphics getGraphics(int slot) {
+        return this.owners[slot];
+    }
+
+    /*
+     * Bounds of the graphics in a slot, for loops over the whole store
+     */
+    public double getMinX(int slot) {
+        return this.x[slot];
+    }
+
+    public double getMinY(int slot) {
+        return this.y[slot];
+    }
+
+    public double getMaxX(int slot) {
+        return this.x[slot] + this.width[slot];
+    }
+
+    public double getMaxY(int slot) {
+        return this.y[slot] + this.height[slot];
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+/**
+ * Intersection has the geometry tests used for collisions:
+ * axis aligned boxes, convex polygons (rotated boxes), ellipses
+ * and line segments, in any pair.
+ * Convex polygons are tested with the separating axis theorem:
+ * two convex shapes don't touch only if there's a line (one of
+ * their edge normals) they can be projected on without overlapping.
+ * Everything is plain math on doubles. Nothing is allocated, and
+ * the JavaFX toolkit isn't needed.
+ * Polygons are given as corner coordinate arrays, corners in order
+ * around the polygon. Edges and corners touching count as intersecting.
+ * @author nikok
+ */
+public final class Intersection {
+
+    private Intersection() {}
+
+    /**
+     * Test two axis aligned boxes
+     */
+    public static boolean boxes(double minX1, double minY1, double maxX1, double maxY1,
+                                double minX2, double minY2, double maxX2, double maxY2) {
+        return maxX1 >= minX2 && minX1 <= maxX2 && maxY1 >= minY2 && minY1 <= maxY2;
+    }
+
+    /**
+     * Test two circles
+     */
+    public static boolean circles(double cx1, double cy1, double r1, double cx2, double cy2, double r2) {
+        double dx = cx2 - cx1;
+        double dy = cy2 - cy1;
+        double r = r1 + r2;
+        return dx*dx + dy*dy <= r*r;
+    }
+
+    /**
+     * Test a circle against an axis aligned box
+     */
+    public static boolean circleBox(double cx, double cy, double r,
+                                    double minX, double minY, double maxX, double maxY) {
+        return ellipseBox(cx, cy, r, r, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Test an axis aligned ellipse against an axis aligned box.
+     * Scaling the y axis by rx/ry turns the ellipse into a circle and
+     * keeps the box a box, so the closest point of the box to the
+     * center is found by clamping like with a circle.
+     * @param cx center of the ellipse
+     * @param cy center of the ellipse
+     * @param rx horizontal radius
+     * @param ry vertical radius
+     */
+    public static boolean ellipseBox(double cx, double cy, double rx, double ry,
+                                     double minX, double minY, double maxX, double maxY) {
+        if (rx <= 0 || ry <= 0) return boxes(cx - rx, cy - ry, cx + rx, cy + ry, minX, minY, maxX, maxY);
+        double dx = (clamp(cx, minX, maxX) - cx) / rx;
+        double dy = (clamp(cy, minY, maxY) - cy) / ry;
+        return dx*dx + dy*dy <= 1;
+    }
+
+    /**
+     * Test a convex polygon against an axis aligned box.
+     * @param xs x coordinates of the corners
+     * @param ys y coordinates of the corners
+     * @param count number of corners to use from the arrays
+     */
+    public static boolean polygonBox(double[] xs, double[] ys, int count,
+                                     double minX, double minY, double maxX, double maxY) {
+        //Box normals are the x and y axes, so first compare the polygons bounds
+        double pMinX = xs[0], pMaxX = xs[0], pMinY = ys[0], pMaxY = ys[0];
+        for (int i = 1; i < count; i++) {
+            pMinX = Math.min(pMinX, xs[i]);
+            pMaxX = Math.max(pMaxX, xs[i]);
+            pMinY = Math.min(pMinY, ys[i]);
+            pMaxY = Math.max(pMaxY, ys[i]);
+        }
+        if (!boxes(pMinX, pMinY, pMaxX, pMaxY, minX, minY, maxX, maxY)) return false;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1 == count) ? 0 : i + 1;
+            double nx = ys[j] - ys[i];
+            double ny = xs[i] - xs[j];
+            if (nx == 0 && ny == 0) continue;
+            double pMin = Double.POSITIVE_INFINITY, pMax = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count; k++) {
+                double p = xs[k]*nx + ys[k]*ny;
+                pMin = Math.min(pMin, p);
+                pMax = Math.max(pMax, p);
+            }
+            //Box projects to its center +- the half extents on the axis
+            double center = ((minX + maxX)*nx + (minY + maxY)*ny) / 2;
+            double extent = (Math.abs((maxX - minX)*nx) + Math.abs((maxY - minY)*ny)) / 2;
+            if (center + extent < pMin || center - extent > pMax) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Test two convex polygons
+     */
+    public static boolean polygons(double[] xs1, double[] ys1, int count1, double[] xs2, double[] ys2, int count2) {
+        return !hasSeparatingEdge(xs1, ys1, count1, xs2, ys2, count2)
+            && !hasSeparatingEdge(xs2, ys2, count2, xs1, ys1, count1);
+    }
+
+    /**
+     * Check the edge normals of the first polygon for an axis
+     * the polygons don't overlap on
+     */
+    private static boolean hasSeparatingEdge(double[] xs1, double[] ys1, int count1, double[] xs2, double[] ys2, int count2) {
+        for (int i = 0; i < count1; i++) {
+            int j = (i + 1 == count1) ? 0 : i + 1;
+            double nx = ys1[j] - ys1[i];
+            double ny = xs1[i] - xs1[j];
+            if (nx == 0 && ny == 0) continue;
+            double min1 = Double.POSITIVE_INFINITY, max1 = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count1; k++) {
+                double p = xs1[k]*nx + ys1[k]*ny;
+                min1 = Math.min(min1, p);
+                max1 = Math.max(max1, p);
+            }
+            double min2 = Double.POSITIVE_INFINITY, max2 = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count2; k++) {
+                double p = xs2[k]*nx + ys2[k]*ny;
+                min2 = Math.min(min2, p);
+                max2 = Math.max(max2, p);
+            }
+            if (max2 < min1 || min2 > max1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Test a line segment against an axis aligned box.
+     * Clips the segment to the box one axis at a time (Liang-Barsky),
+     * if anything is left the segment goes through the box.
+     */
+    public static boolean segmentBox(double x1, double y1, double x2, double y2,
+                                     double minX, double minY, double maxX, double maxY) {
+        double tStart = 0;
+        double tEnd = 1;
+        double dx = x2 - x1;
+        if (dx == 0) {
+            if (x1 < minX || x1 > maxX) return false;
+        } else {
+            double t1 = (minX - x1) / dx;
+            double t2 = (maxX - x1) / dx;
+            tStart = Math.max(tStart, Math.min(t1, t2));
+            tEnd = Math.min(tEnd, Math.max(t1, t2));
+            if (tStart > tEnd) return false;
+        }
+        double dy = y2 - y1;
+        if (dy == 0) {
+            return y1 >= minY && y1 <= maxY;
+        }
+        double t1 = (minY - y1) / dy;
+        double t2 = (maxY - y1) / dy;
+        tStart = Math.max(tStart, Math.min(t1, t2));
+        tEnd = Math.min(tEnd, Math.max(t1, t2));
+        return tStart <= tEnd;
+    }
+
+    /**
+     * Test a line segment against a convex polygon.
+     * The segment is a two cornered polygon, so the separating axis
+     * test works as is with its normal as the one extra axis.
+     */
+    public static boolean segmentPolygon(double x1, double y1, double x2, double y2, double[] xs, double[] ys, int count) {
+        //Segment normal
+        double nx = y2 - y1;
+        double ny = x1 - x2;
+        if (nx != 0 || ny != 0) {
+            double line = x1*nx + y1*ny;
+            boolean above = false, below = false;
+            for (int k = 0; k < count; k++) {
+                double p = xs[k]*nx + ys[k]*ny;
+                if (p >= line) above = true;
+                if (p <= line) below = true;
+            }
+            if (!above || !below) return false;
+        }
+        //Polygon edge normals
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1 == count) ? 0 : i + 1;
+            nx = ys[j] - ys[i];
+            ny = xs[i] - xs[j];
+            if (nx == 0 && ny == 0) continue;
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count; k++) {
+                double p = xs[k]*nx + ys[k]*ny;
+                min = Math.min(min, p);
+                max = Math.max(max, p);
+            }
+            double p1 = x1*nx + y1*ny;
+            double p2 = x2*nx + y2*ny;
+            if (Math.max(p1, p2) < min || Math.min(p1, p2) > max) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Test a line segment against an axis aligned ellipse.
+     * Scaled so that the ellipse becomes a unit circle, the segment
+     * hits if its closest point to the center is within one.
+     */
+    public static boolean segmentEllipse(double x1, double y1, double x2, double y2,
+                                         double cx, double cy, double rx, double ry) {
+        if (rx <= 0 || ry <= 0) return segmentBox(x1, y1, x2, y2, cx - rx, cy - ry, cx + rx, cy + ry);
+        double ax = (x1 - cx) / rx;
+        double ay = (y1 - cy) / ry;
+        double dx = (x2 - x1) / rx;
+        double dy = (y2 - y1) / ry;
+        double length = dx*dx + dy*dy;
+        double t = (length == 0) ? 0 : clamp(-(ax*dx + ay*dy) / length, 0, 1);
+        double px = ax + dx*t;
+        double py = ay + dy*t;
+        return px*px + py*py <= 1;
+    }
+
+    /**
+     * Test a line segment against a circle
+     */
+    public static boolean segmentCircle(double x1, double y1, double x2, double y2, double cx, double cy, double r) {
+        return segmentEllipse(x1, y1, x2, y2, cx, cy, r, r);
+    }
+
+    /**
+     * Test two line segments
+     */
+    public static boolean segments(double ax1, double ay1, double ax2, double ay2,
+                                   double bx1, double by1, double bx2, double by2) {
+        double d1 = cross(bx1, by1, bx2, by2, ax1, ay1);
+        double d2 = cross(bx1, by1, bx2, by2, ax2, ay2);
+        double d3 = cross(ax1, ay1, ax2, ay2, bx1, by1);
+        double d4 = cross(ax1, ay1, ax2, ay2, bx2, by2);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) return true;
+        //Touching or on the same line
+        return (d1 == 0 && onSegment(bx1, by1, bx2, by2, ax1, ay1))
+            || (d2 == 0 && onSegment(bx1, by1, bx2, by2, ax2, ay2))
+            || (d3 == 0 && onSegment(ax1, ay1, ax2, ay2, bx1, by1))
+            || (d4 == 0 && onSegment(ax1, ay1, ax2, ay2, bx2, by2));
+    }
+
+    /**
+     * Which side of the line from (x1, y1) to (x2, y2) the point (px, py) is on
+     */
+    private static double cross(double x1, double y1, double x2, double y2, double px, double py) {
+        return (x2 - x1)*(py - y1) - (y2 - y1)*(px - x1);
+    }
+
+    /**
+     * For a point known to be on the line, check it's between the end points
+     */
+    private static boolean onSegment(double x1, double y1, double x2, double y2, double px, double py) {
+        return px >= Math.min(x1, x2) && px <= Math.max(x1, x2) && py >= Math.min(y1, y2) && py <= Math.max(y1, y2);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return (value < min) ? min : (value > max) ? max : value;
+    }
+
+}
@@ -0,0 +1,579 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+
+package generalsgame.graphics;
+
+import generalsgame.Direction;
+
+/**
+ * MovingGraphics holds all the basic simple tools
+ * Sprites and such need to control their position on the screen.
+ * It has no image and doesn't touch JavaFX, so on its own it's the
+ * position and collision area of objects in a headless simulation.
+ * Sprite adds the image and the drawing on top of it.
+ * @author nikok
+ */
+public class MovingGraphics {
+    /*
+     * Position, velocity, size and rotation are kept in a BodyStore,
+     * so whoever holds the store can move many graphics in one pass.
+     * Graphics start without one: they join a shared store, or get one
+     * of their own when they're first used, see body().
+     */
+    BodyStore body;
+    int slot;
+    //Size the graphics were made with, until they're in a store
+    double initialWidth;
+    double initialHeight;
+    protected double rotatePointX; //point of rotation
+    protected double rotatePointY; //point of rotation
+    //corners: [up left][up right][down right][down left]
+    protected double[] angle; //Angles to the corners from point of rotation
+    protected double[] radius; //Pythagoras is expensive to calc, so do it only once.
+    //Corners of the rotated graphics, in the same order as above. Refreshed by refreshCorners()
+    protected final double[] cornersX = new double[4];
+    protected final double[] cornersY = new double[4];
+    //Axis aligned bounds of the collision area. Refreshed by refreshBounds()
+    protected double boundsMinX;
+    protected double boundsMinY;
+    protected double boundsMaxX;
+    protected double boundsMaxY;
+    //How far between the previous and the current tick the graphics are drawn
+    protected double renderAlpha = 1;
+    
+    protected boolean customCollisionArea;
+    protected CollisionBox collisionBox;
+    protected int collisionArea = 1; // 1=Rectangle, 2=Ellipse, 3=Line
+    
+    public MovingGraphics() {
+        radius = new double[4];
+        angle = new double[4];
+        collisionBox = new CollisionBox(0, 0, 0, 0);
+    }
+    
+    /**
+     * Graphics of the given size with no image,
+     * rotating around their center
+     * @param width width in map pixels
+     * @param height height in map pixels
+     */
+    public MovingGraphics(double width, double height) {
+        this();
+        this.initialWidth = width;
+        this.initialHeight = height;
+        this.rotatePointX = width/2;
+        this.rotatePointY = height/2;
+        collisionBox = new CollisionBox(0, 0, width, height);
+        this.refreshRotationData(width, height);
+    }
+    
+    public void setCollisionAreaShape (int ShapeNumber) {
+        // 1=Rectangle, 2=Ellipse, 3=Line
+        this.collisionArea = ShapeNumber;
+    }
+    
+    public int getCollisionAreaType () {
+        return this.collisionArea;
+    }
+    
+    /**
+     * intersects() tests the own collision area against the bounding box
+     * of the other graphics. For two plain unrotated boxes that's the same
+     * whichever way it's asked, for other shapes it isn't.
+     * @return True if the collision area is an unrotated rectangle
+     */
+    public boolean isAxisAlignedBox() {
+        return this.getRotation() == 0 && this.collisionArea != 2 && this.collisionArea != 3;
+    }
+    
+    /**
+     * By default sprites rotate around their center (width/2, height/2)
+     * setting rotationpoint moves this around.
+     * @param x xCoordinate (withing the sprite, from top left corner) to rotate the sprite around
+     * @param y yCoordinate (withing the sprite, from top left corner) to rotate the sprite around
+     */
+    public void setRotationPoint(double x, double y) {
+        this.rotatePointX = x;
+        this.rotatePointY = y;
+        this.refreshRotationData();
+    }
+    
+    protected void refreshRotationData() {
+        this.refreshRotationData(this.getWidth(), this.getHeight());
+    }
+    
+    private void refreshRotationData(double width, double height) {
+        this.angle[0] = Math.toDegrees(Math.atan2(rotatePointY,rotatePointX));
+        this.angle[1] = Math.toDegrees(Math.atan2(rotatePointY,width-rotatePointX));
+        this.angle[2] = Math.toDegrees(Math.atan2(height-rotatePointY,rotatePointX));
+        this.angle[3] = Math.toDegrees(Math.atan2(height-rotatePointY,width-rotatePointX));
+        
+        this.radius[0] = Math.pow(Math.pow(rotatePointX, 2) + Math.pow(rotatePointY, 2), 0.5);
+        this.radius[1] = Math.pow(Math.pow(width-rotatePointX, 2) + Math.pow(rotatePointY, 2), 0.5);
+        this.radius[2] = Math.pow(Math.pow(rotatePointX, 2) + Math.pow(height-rotatePointY, 2), 0.5);
+        this.radius[3] = Math.pow(Math.pow(width-rotatePointX, 2) + Math.pow(height-rotatePointY, 2), 0.5);
+    }
+    
+    public double getRotationPointX() {
+        return this.rotatePointX;
+    }
+    
+    public double getRotationPointY() {
+        return this.rotatePointY;
+    }
+    
+    public double getRotation() {
+        return this.body().rotation[this.slot];
+    }
+
+    /**
+     * Rotation of the graphics, in degrees clockwise
+     * @param rotation how many degrees to rotate the graphics with
+     */
+    public void setRotation(double rotation) {
+        this.body().rotation[this.slot] = rotation;
+    }
+    
+    /**
+     * @return rotation per second, in degrees
+     */
+    public double getSpin() {
+        return this.body().spin[this.slot];
+    }
+    
+    public void setSpin(double spin) {
+        this.body().spin[this.slot] = spin;
+    }
+    
+    /**
+     * The store holding the position, velocity, size and rotation of the
+     * graphics. Graphics that aren't in one yet get a store of their own.
+     * @return the store of the graphics
+     */
+    protected final BodyStore body() {
+        if (this.body == null) new BodyStore(1).add(this);
+        return this.body;
+    }
+    
+    /**
+     * @return the store holding the position, velocity, size and rotation of the graphics
+     */
+    public BodyStore getBody() {
+        return this.body();
+    }
+    
+    /**
+     * @return slot of the graphics in their BodyStore
+     */
+    public int getSlot() {
+        this.body();
+        return this.slot;
+    }
+    
+    
+    /**
+     * Moves the graphics (upper left corner) to the set position
+     * Also updated the collisionbox to match those coordinates.
+     * @param x desired X position
+     * @param y desired Y position
+     */
+    public void setPosition(double x, double y)
+    {
+        BodyStore b = this.body();
+        b.x[this.slot] = x;
+        b.y[this.slot] = y;
+        this.refreshCollisionBox();
+    }
+    
+    public void setCenterPosition(double x, double y) {
+        this.setPosition(x-(this.getWidth()/2), y-(this.getHeight()/2));
+    }
+
+    public void setVelocity(double x, double y)
+    {
+        BodyStore b = this.body();
+        b.xVelocity[this.slot] = x;
+        b.yVelocity[this.slot] = y;
+    }
+    
+    public void setYVelocity (double y) {
+        this.body().yVelocity[this.slot] = y;
+    }
+    public void setXVelocity (double x) {
+        this.body().xVelocity[this.slot] = x;
+    }
+    
+    public void setXPosition (double x) {
+        this.body().x[this.slot] = x;
+    }
+    public void setYPosition (double y) {
+        this.body().y[this.slot] = y;
+    }
+
+    public void addVelocity(double x, double y)
+    {
+        BodyStore b = this.body();
+        b.xVelocity[this.slot] += x;
+        b.yVelocity[this.slot] += y;
+    }
+    
+    public double getXVelocity() {
+        return this.body().xVelocity[this.slot];
+    }
+    
+    public double getYVelocity() {
+        return this.body().yVelocity[this.slot];
+    }
+    
+    public double getWidth() {
+        return this.body().width[this.slot];
+    }   
+    
+    public double getHeight() {
+        return this.body().height[this.slot];
+    }
+    
+    public void setWidth(double width) {
+        this.body().width[this.slot] = width;
+    }
+    public void setHeight(double height) {
+        this.body().height[this.slot] = height;
+    }
+    
+    /*
+     * Bounds of the graphics as plain doubles. Unlike getCorner() and
+     * getCenter() these don't allocate, so they're the ones to use on
+     * anything that runs every tick or every frame.
+     */
+    public double getMinX() {
+        return this.getXPos();
+    }
+    
+    public double getMinY() {
+        return this.getYPos();
+    }
+    
+    public double getMaxX() {
+        return this.getXPos() + this.getWidth();
+    }
+    
+    public double getMaxY() {
+        return this.getYPos() + this.getHeight();
+    }
+    
+    /**
+     * Write the bounds into the given array, at the given position:
+     * [minX, minY, maxX, maxY]. Handy for filling a flat array
+     * with the bounds of many objects.
+     * @param bounds Array to write to
+     * @param offset Index of minX in the array
+     */
+    public void fillBounds(double[] bounds, int offset) {
+        bounds[offset] = this.getXPos();
+        bounds[offset+1] = this.getYPos();
+        bounds[offset+2] = this.getXPos() + this.getWidth();
+        bounds[offset+3] = this.getYPos() + this.getHeight();
+    }
+    
+    public Double[] getCenter() {
+        double xCenter = this.getCenterXPos();
+        double yCenter = this.getCenterYPos();
+        Double[] center = new Double[2];
+        center[0] = xCenter;
+        center[1] = yCenter;
+        return center;
+    }
+    
+    public double getCenterXPos() {
+        BodyStore b = this.body();
+        return b.x[this.slot] + (b.width[this.slot]/2);
+    }
+    
+    public double getCenterYPos() {
+        BodyStore b = this.body();
+        return b.y[this.slot] + (b.height[this.slot]/2);
+    }
+    
+    public Double[] getCorner(Direction d) {
+        BodyStore b = this.body();
+        double positionX = b.x[this.slot];
+        double positionY = b.y[this.slot];
+        double width = b.width[this.slot];
+        double height = b.height[this.slot];
+        Double[] corner = new Double[2];
+         switch(d) {
+            case UP: corner[0] = (positionX+(width/2));
+                    corner[1] = (positionY);
+                    break;
+            case DOWN: corner[0] = (positionX+(width/2));
+                    corner[1] = (positionY+height);
+                    break;
+            case LEFT: corner[0] = (positionX);
+                    corner[1] = (positionY+(height/2));
+                    break;
+            case RIGHT: corner[0] = (positionX+(width));
+                    corner[1] = (positionY+(height/2));
+                    break;
+            case UPRIGHT: corner[0] = (positionX+(width));
+                    corner[1] = (positionY);
+                    break;
+            case UPLEFT: corner[0] = (positionX);
+                    corner[1] = (positionY);
+                    break;
+            case DOWNRIGHT: corner[0] = (positionX+(width));
+                    corner[1] = (positionY+height);
+                    break;
+            case DOWNLEFT: corner[0] = (positionX);
+                    corner[1] = (positionY+height);
+                    break;
+        default: corner[0] = (positionX);corner[1] = (positionY);break;
+         }
+        
+        return corner;
+    }
+
+    public double getXPos() {
+        return this.body().x[this.slot];
+    }
+    
+    public double getYPos() {
+        return this.body().y[this.slot];
+    }
+    
+    /**
+     * Remember the current position as the previous one,
+     * called at the start of every simulation tick
+     */
+    public void storePreviousPosition() {
+        BodyStore b = this.body();
+        b.previousX[this.slot] = b.x[this.slot];
+        b.previousY[this.slot] = b.y[this.slot];
+    }
+    
+    /**
+     * Set how far between the previous and the current tick
+     * the graphics are drawn
+     * @param alpha 0 for the previous position, 1 for the current one
+     */
+    public void interpolate(double alpha) {
+        this.renderAlpha = alpha;
+    }
+    
+    /**
+     * @return X position to draw at, between the previous and the current tick
+     */
+    public double getRenderXPos() {
+        BodyStore b = this.body();
+        double previousX = b.previousX[this.slot];
+        double positionX = b.x[this.slot];
+        if (Double.isNaN(previousX)) return positionX;
+        return previousX + (positionX - previousX) * this.renderAlpha;
+    }
+    
+    public double getRenderYPos() {
+        BodyStore b = this.body();
+        double previousY = b.previousY[this.slot];
+        double positionY = b.y[this.slot];
+        if (Double.isNaN(b.previousX[this.slot])) return positionY;
+        return previousY + (positionY - previousY) * this.renderAlpha;
+    }
+    
+    /**
+     * Move the graphics by their velocity and spin.
+     * Graphics in a shared store can be moved all at once
+     * with BodyStore.integrate() instead.
+     * @param time Time moved, in seconds
+     */
+    public void update(double time) {
+        BodyStore b = this.body();
+        int i = this.slot;
+        b.x[i] += b.xVelocity[i] * time;
+        b.y[i] += b.yVelocity[i] * time;
+        double rotation = b.rotation[i] + b.spin[i] * time;
+        if (rotation >= 360 || rotation <= -360) rotation = rotation%360;
+        b.rotation[i] = rotation;
+        this.refreshCollisionBox();
+    }
+    
+    /**
+     * Test the collision area of the graphics against the
+     * bounding box of the other graphics
+     * @param m Graphics to check collisions with
+     * @return True if they overlap
+     */
+    public boolean intersects(MovingGraphics m) {
+        m.refreshBounds();
+        return this.intersectsBox(m.boundsMinX, m.boundsMinY, m.boundsMaxX, m.boundsMaxY);
+    }
+    
+    /**
+     * Bring the collision box to the current position (and size,
+     * unless the box is custom). Graphics moved by their BodyStore
+     * don't do this every tick, getCollisionBox() catches up.
+     */
+    protected void refreshCollisionBox() {
+        double positionX = this.getXPos();
+        double positionY = this.getYPos();
+        BodyStore b = this.body();
+        if (this.collisionBox == null) this.collisionBox = new CollisionBox(positionX, positionY, b.width[this.slot], b.height[this.slot]);
+        else if (this.customCollisionArea) {
+            this.collisionBox.setPosition(positionX, positionY);
+        } else {
+            this.collisionBox.refresh(positionX, positionY, b.width[this.slot], b.height[this.slot]);
+        }
+        //Mists.logger.log(Level.INFO, "{0}Refreshed new collisionbox with values {1}x{2}:{3}x{4}", new Object[]{height, positionX, positionY, width, height});
+    }
+    
+    /**
+     * Check whether or not the collision area is locked
+     * to custom.
+     * @return True if custom collisionarea is used
+     */
+    public boolean isCollisionAreaLocked() {
+        return this.customCollisionArea;
+    }
+    
+    /**
+     * Setting a custom collisiobox will lock
+     * it and stop refreshing the box. This is intended
+     * for when the collisionbox doesn't match the
+     * visual graphics
+     * @param width width of the custom collision area
+     * @param height height of the custom collision area
+     * @param xOffset Offset for the collision area, from the sprite position
+     * @param yOffset Offset for the collision area, from the sprite position
+     */
+    public void setCollisionBox(double width, double height, double xOffset, double yOffset) {
+        this.collisionBox = new CollisionBox(this.getXPos(), this.getYPos(), width, height);
+        this.collisionBox.setOffset(xOffset, yOffset);
+        this.customCollisionArea = true;
+    }
+    
+    /**
+     * Setting a custom collisiobox will lock
+     * it and stop refreshing the box. This is intended
+     * for when the collisionbox doesn't match the
+     * visual graphics
+     * @param collisionbox The custom collisionbox to use
+     */
+    public void setCollisionBox(CollisionBox collisionbox) {
+        this.collisionBox = collisionbox;
+        this.customCollisionArea = true;
+    }
+
+    /**
+     * If the area has custom CollisonBox set (collision
+     * area differing from graphics), removing it will refresh
+     * the collision back to graphics
+     */
+    public void removeCollisionBoxLock() {
+        this.customCollisionArea = false;
+        this.refreshCollisionBox();
+    }
+    
+    public CollisionBox getCollisionBox() {
+        this.refreshCollisionBox();
+        return this.collisionBox;
+    }
+    
+    
+    /**
+     * Update cornersX and cornersY to the corners of
+     * the graphics rotated around the rotation point
+     */
+    protected void refreshCorners() {
+        double pivotX = this.getXPos() + this.rotatePointX;
+        double pivotY = this.getYPos() + this.rotatePointY;
+        double rotation = this.getRotation();
+        this.cornersX[0] = pivotX + (radius[0] * Math.cos(Math.toRadians(rotation+angle[0]+180)));
+        this.cornersY[0] = pivotY + (radius[0] * Math.sin(Math.toRadians(rotation+angle[0]+180)));
+        this.cornersX[1] = pivotX + (radius[1] * Math.cos(Math.toRadians(rotation-angle[1])));
+        this.cornersY[1] = pivotY + (radius[1] * Math.sin(Math.toRadians(rotation-angle[1])));
+        this.cornersX[2] = pivotX + (radius[3] * Math.cos(Math.toRadians(rotation+angle[3])));
+        this.cornersY[2] = pivotY + (radius[3] * Math.sin(Math.toRadians(rotation+angle[3])));
+        this.cornersX[3] = pivotX + (radius[2] * Math.cos(Math.toRadians(rotation-angle[2]+180)));
+        this.cornersY[3] = pivotY + (radius[2] * Math.sin(Math.toRadians(rotation-angle[2]+180)));
+    }
+    
+    /**
+     * Update the bounds (boundsMinX etc.) to the axis aligned
+     * box around the collision area, rotation included
+     */
+    protected void refreshBounds() {
+        double positionX = this.getXPos();
+        double positionY = this.getYPos();
+        BodyStore b = this.body();
+        double width = b.width[this.slot];
+        double height = b.height[this.slot];
+        if (this.getRotation() == 0 && this.collisionArea == 3) {
+            this.boundsMinX = positionX+width/2;
+            this.boundsMaxX = positionX+width/2;
+            this.boundsMinY = positionY;
+            this.boundsMaxY = positionY+height;
+        } else if (this.getRotation() != 0) {
+            this.refreshCorners();
+            this.boundsMinX = Math.min(Math.min(cornersX[0], cornersX[1]), Math.min(cornersX[2], cornersX[3]));
+            this.boundsMaxX = Math.max(Math.max(cornersX[0], cornersX[1]), Math.max(cornersX[2], cornersX[3]));
+            this.boundsMinY = Math.min(Math.min(cornersY[0], cornersY[1]), Math.min(cornersY[2], cornersY[3]));
+            this.boundsMaxY = Math.max(Math.max(cornersY[0], cornersY[1]), Math.max(cornersY[2], cornersY[3]));
+        } else {
+            this.boundsMinX = positionX;
+            this.boundsMinY = positionY;
+            this.boundsMaxX = positionX + width;
+            this.boundsMaxY = positionY + height;
+        }
+    }
+    
+    /**
+     * Test the collision area of the graphics against an axis aligned box.
+     * Rotated graphics are tested as rotated rectangles, whatever their shape.
+     * @return True if the box touches the collision area
+     */
+    public boolean intersectsBox(double minX, double minY, double maxX, double maxY) {
+        double positionX = this.getXPos();
+        double positionY = this.getYPos();
+        BodyStore b = this.body();
+        double width = b.width[this.slot];
+        double height = b.height[this.slot];
+        if (this.getRotation() == 0) {
+            switch (collisionArea) {
+                case 2: return Intersection.ellipseBox(positionX+(width/2), positionY+(height/2), width/2, height/2, minX, minY, maxX, maxY);
+                case 3: return Intersection.segmentBox(positionX+width/2, positionY+height, positionX+width/2, positionY, minX, minY, maxX, maxY);
+                default: break;
+            }
+        } else {
+            this.refreshCorners();
+            return Intersection.polygonBox(cornersX, cornersY, 4, minX, minY, maxX, maxY);
+        }
+        return Intersection.boxes(positionX, positionY, positionX+width, positionY+height, minX, minY, maxX, maxY);
+    }
+    
+    /**
+     * Test the collision area of the graphics against a line segment
+     * @return True if the segment touches the collision area
+     */
+    public boolean intersectsSegment(double xStart, double yStart, double xEnd, double yEnd) {
+        double positionX = this.getXPos();
+        double positionY = this.getYPos();
+        BodyStore b = this.body();
+        double width = b.width[this.slot];
+        double height = b.height[this.slot];
+        if (this.getRotation() == 0) {
+            switch (collisionArea) {
+                case 2: return Intersection.segmentEllipse(xStart, yStart, xEnd, yEnd, positionX+(width/2), positionY+(height/2), width/2, height/2);
+                case 3: return Intersection.segments(xStart, yStart, xEnd, yEnd, positionX+width/2, positionY+height, positionX+width/2, positionY);
+                default: break;
+            }
+        } else {
+            this.refreshCorners();
+            return Intersection.segmentPolygon(xStart, yStart, xEnd, yEnd, cornersX, cornersY, 4);
+        }
+        return Intersection.segmentBox(xStart, yStart, xEnd, yEnd, positionX, positionY, positionX+width, positionY+height);
+    }
+    
+}
@@ -14,8 +14,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.logging.Level;
 
-import generalsgame.Generals;
-import generalsgame.util.MinHeap;
+import generalsgame.Simulation;
 
 /**
  * AStarPathfinder with clearance maps for different sized objects.
@@ -25,8 +24,8 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     
     private PathFinder pathfinder; //Pathfinder keeps the collisionmap up to date, we just refer to it.
     
-    private MinHeap<Node> closedNodes = new MinHeap();
-    private MinHeap<Node> openNodes = new MinHeap();
+    //Open nodes are kept in a heap by tile index (y*mapWidth+x). Closed nodes only need the nodeStatus
+    private IndexedMinHeap openNodes = new IndexedMinHeap(0);
     private Node[][] nodeMap;
     private int[][] nodeStatus;
     private static final int CLEAR = 0;
@@ -36,14 +35,12 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     private int maxSearchDistance;
     private boolean allowDiagonalMovement;
    
-    private HashMap<Integer, int[][]> clearanceMaps;
     
     public AStarPathfinder(PathFinder pathfinder, int maxSearchDistance, boolean allowDiagonalMovement) {
         this.pathfinder = pathfinder;
         this.maxSearchDistance = maxSearchDistance;
         this.allowDiagonalMovement = allowDiagonalMovement;
-        this.clearanceMaps = new HashMap<>(); 
-        this.clearanceMaps.put(0, pathfinder.getClearanceMap(0)); //Base clearanceMap for 0-type movement. 
+        //Clearance maps are kept (and repaired) by the pathfinder
     }
     
     
@@ -62,7 +59,7 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     */
     @Override
     public Path findPath(CollisionMap map, int tileSize,List<Integer> crossableTerrain, int startX, int startY, int goalX, int goalY) {
-        //Generals.logger.log(Level.INFO, "Finding path for size {0} unit from [{1},{2}] to [{3},{4}}", new Object[]{tileSize, startX, startY, goalX, goalY});
+        //Simulation.logger.log(Level.INFO, "Finding path for size {0} unit from [{1},{2}] to [{3},{4}}", new Object[]{tileSize, startX, startY, goalX, goalY});
         Path path = new Path();
         //If the goal is blocked, return empty path - it's the AI:s problem to deal with that.
         if (map.isBlocked(crossableTerrain, goalX, goalY)) return path;
@@ -70,67 +67,69 @@ public class AStarPathfinder implements PathfinderAlgorithm {
         Node goal = new Node(goalX, goalY);
         
         Node currentNode = start;
-        //Generals.logger.log(Level.INFO,"Starting a new pathfinding: from {0},{1} to {2}, {3}",new Object[]{currentNode.getX(), currentNode.getY(), goal.getX(), goal.getY()});
+        //Simulation.logger.log(Level.INFO,"Starting a new pathfinding: from {0},{1} to {2}, {3}",new Object[]{currentNode.getX(), currentNode.getY(), goal.getX(), goal.getY()});
         while (openNodes.size() >0) {  //Iterate the list until all open nodes have been dealt with
-            currentNode = getFirstInOpen();
-            //Generals.logger.log(Level.INFO, "Currently at: {0},{1} - Goal at: {2}, {3}", new Object[]{currentNode.getX(), currentNode.getY(), goal.getX(), goal.getY()});
-            //Generals.logger.log(Level.INFO, "Number of open points: {0}. Number of closed points: {1}", new Object[]{openNodes.size(), closedNodes.size()});
+            currentNode = takeFirstInOpen();
+            //Simulation.logger.log(Level.INFO, "Currently at: {0},{1} - Goal at: {2}, {3}", new Object[]{currentNode.getX(), currentNode.getY(), goal.getX(), goal.getY()});
+            //Simulation.logger.log(Level.INFO, "Number of open points: {0}", openNodes.size());
             if (currentNode.getDepth() > this.maxSearchDistance) {
-                //Generals.logger.info("Ran to max search distance ("+maxSearchDistance+")");
+                //Simulation.logger.info("Ran to max search distance ("+maxSearchDistance+")");
                 //Stop searching and return empty path
                 return new Path();
             } else { //not at goal yet, find open neighbours
                 List<Node> neighbours = new ArrayList<>(); //add in all traversable neighbours
                 neighbours.addAll(this.neighbours(map, tileSize,crossableTerrain, currentNode.getX(), currentNode.getY()));
                 if (allowDiagonalMovement) neighbours.addAll(this.diagonalNeighbours(map, tileSize,crossableTerrain, currentNode.getX(), currentNode.getY()));
-                //Generals.logger.log(Level.INFO, "{0} neighbouring tiles found for {1},{2}", new Object[]{neighbours.size(), currentNode.getX(), currentNode.getY()});
+                //Simulation.logger.log(Level.INFO, "{0} neighbouring tiles found for {1},{2}", new Object[]{neighbours.size(), currentNode.getX(), currentNode.getY()});
                 // Check through all the neighbouring tiles
                 for (Node n : neighbours) {
                     Node nn = new Node(n.getX(), n.getY());
-                    //Estimate the total cost to get to end from this node
-                    nn.setCostEstimate(currentNode.getCumulativeCost()+
-                            this.getMovementCost(crossableTerrain, nn.getX(), nn.getY(), goal.getX(), goal.getY()));
                     nn.setPreviousNode(currentNode);
                     nn.setDepth(currentNode.getDepth()+1);
-                    //TODO: Consider setting the cost to 1.41 nn.getMovementCost() when moving diagonally
+                    //TODO: Consider setting the cost to 1.41 times the tile cost when moving diagonally
                     //Because pythagoran
-                    nn.setCumulativeCost(currentNode.getCumulativeCost()+nn.getMovementCost());
-                    //Generals.logger.log(Level.INFO, "Checking neighbour at [{0},{1}]", new Object[]{n.getX(), n.getY()});
+                    //Tile costs come from the collisionmap, new Nodes don't know them
+                    nn.setCumulativeCost(currentNode.getCumulativeCost()+map.getMovementCost(0, nn.getX(), nn.getY()));
+                    //Estimate the total cost to get to end through this node
+                    nn.setCostEstimate(nn.getCumulativeCost()+
+                            this.getMovementCost(crossableTerrain, nn.getX(), nn.getY(), goal.getX(), goal.getY()));
+                    //Simulation.logger.log(Level.INFO, "Checking neighbour at [{0},{1}]", new Object[]{n.getX(), n.getY()});
                     if (inClosedList(n)) {
                         Node cN = nodeMap[n.getX()][n.getY()];
-                        //Generals.logger.info("Node ["+n.getX()+","+n.getY()+"] was found on the Closed list");
+                        //Simulation.logger.info("Node ["+n.getX()+","+n.getY()+"] was found on the Closed list");
                         if (cN.getCostEstimate() <= nn.getCostEstimate()) { //We ran to this node again, and we havent found a shorter route to it
                             //Keep it in the closed list for now and nevermind
                             //continue;
-                        } else { //We've got a new shorter route to this (closed) node
+                        } else { //We've got a new shorter route to this (closed) node, reopen it
                             removeFromClosed(cN);
+                            addToOpen(nn);
                         }
                     } else if (inOpenList(n)) { //This is already on the open lists
                         Node oN = nodeMap[n.getX()][n.getY()];
-                        //Generals.logger.info("Node ["+n.getX()+","+n.getY()+"] was found on the Open list");
+                        //Simulation.logger.info("Node ["+n.getX()+","+n.getY()+"] was found on the Open list");
                         if (oN.getCostEstimate() <= nn.getCostEstimate()) {
                             //We ran to this node again, and we havent found a shorter route to it
                             //Keep it in the open list for now and nevermind
                             //continue;
                         } else { //We've got a new shorter route to this (open) node
-                            oN.setCostEstimate(nn.getCostEstimate());
+                            oN.setPreviousNode(currentNode);
                             oN.setDepth(nn.getDepth());
-                            oN.setCumulativeCost(currentNode.getCostEstimate()+oN.getMovementCost());
+                            oN.setCumulativeCost(nn.getCumulativeCost());
+                            decreaseInOpen(oN, nn.getCostEstimate());
                         }
                     }  else { //We have a new node to visit. Add it to the open list 
-                        //Generals.logger.log(Level.INFO, "Node [{0},{1}] was on neither list. Adding to open.", new Object[]{n.getX(), n.getY()});
+                        //Simulation.logger.log(Level.INFO, "Node [{0},{1}] was on neither list. Adding to open.", new Object[]{n.getX(), n.getY()});
                         addToOpen(nn);
                     }
                 }
-                removeFromOpen(currentNode); //Move the current node to closed
-                addToClosed(currentNode);
+                addToClosed(currentNode); //Current node was taken off the open list, move it to closed
                 //path.addStep(currentNode);
-                //Generals.logger.info(currentNode.getX()+","+currentNode.getY()+" set as current node");
+                //Simulation.logger.info(currentNode.getX()+","+currentNode.getY()+" set as current node");
 
             }
-            //Generals.logger.info("Checked the neighbours. Open nodes size is now "+openNodes.size());
+            //Simulation.logger.info("Checked the neighbours. Open nodes size is now "+openNodes.size());
             if(currentNode.getX() == goal.getX() && currentNode.getY() == goal.getY()) { //we're at the goal
-                //Generals.logger.info("Found goal!");
+                //Simulation.logger.info("Found goal!");
                 openNodes.clear();
                 break;
             }
@@ -140,11 +139,11 @@ public class AStarPathfinder implements PathfinderAlgorithm {
             //We ran out of open nodes and didn't find our goal. Return empty path
             return new Path();
         }
-        //Generals.logger.info("Building back the path from ["+currentNode.getX()+","+currentNode.getY()+"]...");
+        //Simulation.logger.info("Building back the path from ["+currentNode.getX()+","+currentNode.getY()+"]...");
         while (currentNode.getPreviousNode()!=null) { //Build back the path
             path.prependNode(currentNode.getX(), currentNode.getY());
             currentNode = currentNode.getPreviousNode();
-            //Generals.logger.info("Added ["+currentNode.getX()+","+currentNode.getY()+"] to the path");
+            //Simulation.logger.info("Added ["+currentNode.getX()+","+currentNode.getY()+"] to the path");
         }
         return path;
     }
@@ -161,16 +160,10 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     * @return starting node
     */
     private Node initializePathfinding(CollisionMap map, List<Integer> crossableTerrain, int startX, int startY, int goalX, int goalY) {
-        //Generals.logger.log(Level.INFO, "Initializing the path");
-        //Check we have all the clearanceMaps we need.
+        //Simulation.logger.log(Level.INFO, "Initializing the path");
+        //Check we have all the clearanceMaps we need. Pathfinder generates the missing ones.
         for (Integer terrainType : crossableTerrain) {
-            //Generals.logger.info("Checking we have clearance for terrain : "+terrainType);
-            if (!this.clearanceMaps.containsKey(terrainType)) { //if we dont already have the given map, we need to generate it
-                //Generals.logger.info("Clearance generated");
-                this.clearanceMaps.put(terrainType, pathfinder.getClearanceMap(terrainType));
-            } else {
-                //Generals.logger.info("Clearance found");
-            }
+            pathfinder.getClearance(terrainType);
         }
 
         //Initialize the starting node
@@ -181,23 +174,37 @@ public class AStarPathfinder implements PathfinderAlgorithm {
 
         //Clear the nodemap and nodelists
         nodeMap = new Node[map.getMapTileWidth()][map.getMapTileHeight()]; //Reset nodemap
-        nodeStatus = new int[map.getMapTileWidth()][map.getMapTileHeight()]; //Reset node statuses
-        closedNodes.clear(); //Reset the closed nodes
+        nodeStatus = new int[map.getMapTileWidth()][map.getMapTileHeight()]; //Reset node statuses (closed list included)
         openNodes.clear(); //Reset the open nodes
+        openNodes.ensureCapacity(map.getMapTileWidth()*map.getMapTileHeight());
         addToOpen(start);
         
         return start;
     }
     
-    private Node getFirstInOpen() {
-        return openNodes.first();
+    private int openIndex(Node node) {
+        return node.getY() * this.nodeMap.length + node.getX();
+    }
+
+    /**
+     * Pop the cheapest node off the open list.
+     * Its status stays OPEN until it's added to closed.
+     */
+    private Node takeFirstInOpen() {
+        int index = openNodes.pop();
+        return this.nodeMap[index % this.nodeMap.length][index / this.nodeMap.length];
     }
 
     private void addToOpen(Node node) {
-            this.openNodes.add(node);
             if (node.getX() > this.nodeMap.length-1 || node.getX() < 0 || node.getY()> this.nodeMap[0].length-1 || node.getY() < 0) return;
             this.nodeMap[node.getX()][node.getY()] = node;
             this.nodeStatus[node.getX()][node.getY()] = OPEN;
+            this.openNodes.add(this.openIndex(node), node.getCostEstimate());
+    }
+
+    private void decreaseInOpen(Node node, double costEstimate) {
+        node.setCostEstimate(costEstimate);
+        this.openNodes.decreaseKey(this.openIndex(node), costEstimate);
     }
 
     private boolean inOpenList(Node node) {
@@ -205,16 +212,7 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     }
 
 
-    private void removeFromOpen(Node node) {
-        if (node.getX() > this.nodeMap.length-1 || node.getX() < 0 || node.getY()> this.nodeMap[0].length-1 || node.getY() < 0) return;
-        Node n = this.nodeMap[node.getX()][node.getY()];
-        this.openNodes.remove(n);
-        this.nodeMap[node.getX()][node.getY()] = null;
-        this.nodeStatus[node.getX()][node.getY()] = CLEAR;
-    }
-
     private void addToClosed(Node node) {
-        this.closedNodes.add(node);
         this.nodeMap[node.getX()][node.getY()] = node;
         this.nodeStatus[node.getX()][node.getY()] = CLOSED;
     }
@@ -224,8 +222,6 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     }
 
     private void removeFromClosed(Node node) {
-        Node n = this.nodeMap[node.getX()][node.getY()];
-        this.closedNodes.remove(n);
         this.nodeMap[node.getX()][node.getY()] = null;
         this.nodeStatus[node.getX()][node.getY()] = CLEAR;
     }
@@ -351,14 +347,9 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     * @return true if the unit can fit in the node
     */
     private boolean hasClearance (int unitSize, int terrainNumber, int x, int y) {
-        if (!this.clearanceMaps.containsKey(terrainNumber) || this.pathfinder.mapIsOutOfDate()) { //If we dont have the map for this type of terrain, generate it
-            Generals.logger.log(Level.INFO, "Tried to check clearance but no clearance map - generating a new one ({0})", terrainNumber);
-            this.clearanceMaps.put(terrainNumber, pathfinder.getClearanceMap(terrainNumber));
-            this.pathfinder.setMapOutOfDate(false); //TODO: Consider giving maps timestamps, and comparing different clearancelevel-maps to those
-        }
+        //Pathfinder generates the map if we dont have one for this type of terrain, and repairs it if the map changed
         //Check if the unit can fit in the square
-        //Generals.logger.log(Level.INFO, "unitsize {0} going to CL {1}", new Object[]{unitSize, this.clearanceMaps.get(terrainNumber)[x][y]});
-        return this.clearanceMaps.get(terrainNumber)[x][y] >= unitSize;
+        return this.pathfinder.getClearance(terrainNumber)[x][y] >= unitSize;
     }
 
     /**
@@ -379,7 +370,7 @@ public class AStarPathfinder implements PathfinderAlgorithm {
     }
     
     public HashMap<Integer, int[][]> getClearanceMaps() {
-        return this.clearanceMaps;
+        return this.pathfinder.getClearanceMaps();
     }
     
     public double getMovementCost(List<Integer> movementAbilities, int currentX, int currentY, int goalX, int goalY) {
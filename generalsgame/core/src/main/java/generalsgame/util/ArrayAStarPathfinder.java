@@ -0,0 +1,295 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ArrayAStarPathfinder is the same A* as AStarPathfinder, but
+ * without the Node objects. All the search state lives in flat
+ * arrays indexed by tile (y*mapWidth + x) that are kept between
+ * queries, so a search doesn't allocate anything before the
+ * resulting Path is built.
+ * Instead of clearing the arrays for every search, each tile carries
+ * the number of the search (generation) that last touched it.
+ * Anything with an older generation counts as unvisited.
+ * @author nikok
+ */
+public class ArrayAStarPathfinder implements PathfinderAlgorithm {
+
+    private PathFinder pathfinder; //Pathfinder keeps the collisionmap up to date, we just refer to it.
+
+    private static final byte OPEN = 1;
+    private static final byte CLOSED = 2;
+    //Neighbour offsets, cardinals first (N, E, S, W), then diagonals (NE, NW, SE, SW)
+    private static final int[] DX = {0, 1, 0, -1, 1, -1, 1, -1};
+    private static final int[] DY = {-1, 0, 1, 0, -1, -1, 1, 1};
+
+    private int maxSearchDistance;
+    private boolean allowDiagonalMovement;
+
+    //Per tile search state, reused between searches
+    private int mapWidth;
+    private int[] generations;
+    private int generation;
+    private byte[] status;
+    private double[] cumulativeCosts;
+    private int[] previous;
+    private int[] depths;
+    //Open list of tile indexes, ordered by cost estimate
+    private IndexedMinHeap openNodes = new IndexedMinHeap(0);
+    //Clearance maps for the terrains of the current search
+    private int[][][] searchClearance = new int[4][][];
+    private int searchTerrainCount;
+    //Buffer for building back the path
+    private int[] pathBuffer = new int[64];
+
+    public ArrayAStarPathfinder(PathFinder pathfinder, int maxSearchDistance, boolean allowDiagonalMovement) {
+        this.pathfinder = pathfinder;
+        this.maxSearchDistance = maxSearchDistance;
+        this.allowDiagonalMovement = allowDiagonalMovement;
+    }
+
+    /**
+     * Find the path from start to goal.
+     * Works like AStarPathfinder.findPath: the returned path doesn't include
+     * the start, does include the goal, and is empty if the goal is blocked,
+     * unreachable or further than maxSearchDistance steps.
+     * @param map The map we're moving on
+     * @param tileSize Size of the object we're finding a path for (in tiles)
+     * @param crossableTerrain terrains this object can path through
+     * @param startX starting position of the object
+     * @param startY starting position of the object
+     * @param goalX pathfinding goal of the object
+     * @param goalY pathfinding goal of the object
+     * @return Path to goal
+     */
+    @Override
+    public Path findPath(CollisionMap map, int tileSize, List<Integer> crossableTerrain, int startX, int startY, int goalX, int goalY) {
+        //If the goal is blocked, return empty path - it's the AI:s problem to deal with that.
+        if (map.isBlocked(crossableTerrain, goalX, goalY)) return new Path();
+        if (startX < 0 || startY < 0 || startX >= map.getMapTileWidth() || startY >= map.getMapTileHeight()) return new Path();
+        this.initializePathfinding(map, crossableTerrain);
+        int width = this.mapWidth;
+        int gen = this.generation;
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        this.generations[start] = gen;
+        this.cumulativeCosts[start] = 0;
+        this.depths[start] = 0;
+        this.previous[start] = -1;
+        this.status[start] = OPEN;
+        this.openNodes.add(start, this.getMovementCost(crossableTerrain, startX, startY, goalX, goalY));
+
+        int directions = this.allowDiagonalMovement ? 8 : 4;
+        boolean found = false;
+        while (!this.openNodes.isEmpty()) {
+            int current = this.openNodes.pop();
+            if (this.depths[current] > this.maxSearchDistance) {
+                //Ran to max search distance, stop searching and return empty path
+                return new Path();
+            }
+            this.status[current] = CLOSED;
+            if (current == goal) {
+                found = true;
+                break;
+            }
+            int cx = current % width;
+            int cy = current / width;
+            //Cardinal passability is needed for the diagonals, so remember it
+            int cardinalsOpen = 0;
+            for (int d = 0; d < directions; d++) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (d < 4) {
+                    if (!this.isPassable(map, tileSize, crossableTerrain, nx, ny)) continue;
+                    cardinalsOpen |= (1 << d);
+                } else {
+                    //Diagonals need both the neighbouring cardinals open, no squeezing through corners
+                    int vertical = DY[d] < 0 ? 0 : 2;
+                    int horizontal = DX[d] > 0 ? 1 : 3;
+                    if ((cardinalsOpen & (1 << vertical)) == 0 || (cardinalsOpen & (1 << horizontal)) == 0) continue;
+                    if (!this.isPassable(map, tileSize, crossableTerrain, nx, ny)) continue;
+                }
+                int n = ny * width + nx;
+                //TODO: Consider setting the cost to 1.41 when moving diagonally
+                double cumulativeCost = this.cumulativeCosts[current] + map.getMovementCost(0, nx, ny);
+                if (this.generations[n] == gen) {
+                    //Seen this tile already during this search. Only a shorter route matters
+                    if (this.cumulativeCosts[n] <= cumulativeCost) continue;
+                } else {
+                    this.generations[n] = gen;
+                    this.status[n] = 0;
+                }
+                this.cumulativeCosts[n] = cumulativeCost;
+                this.previous[n] = current;
+                this.depths[n] = this.depths[current] + 1;
+                //New, closed and open nodes alike: add() updates the key if n is already open
+                this.status[n] = OPEN;
+                this.openNodes.add(n, cumulativeCost + this.getMovementCost(crossableTerrain, nx, ny, goalX, goalY));
+            }
+        }
+        if (!found) {
+            //We ran out of open nodes and didn't find our goal. Return empty path
+            return new Path();
+        }
+        return this.buildPath(start, goal);
+    }
+
+    /**
+     * Start a new search generation and make sure the arrays
+     * and clearance maps match the map we're searching on.
+     */
+    private void initializePathfinding(CollisionMap map, List<Integer> crossableTerrain) {
+        int tiles = map.getMapTileWidth() * map.getMapTileHeight();
+        if (this.generations == null || this.generations.length != tiles || this.mapWidth != map.getMapTileWidth()) {
+            this.mapWidth = map.getMapTileWidth();
+            this.generations = new int[tiles];
+            this.status = new byte[tiles];
+            this.cumulativeCosts = new double[tiles];
+            this.previous = new int[tiles];
+            this.depths = new int[tiles];
+            this.openNodes = new IndexedMinHeap(tiles);
+            this.generation = 0;
+        }
+        this.generation++;
+        if (this.generation == Integer.MAX_VALUE) {
+            //Wrapped around, old stamps could be mistaken for new ones
+            Arrays.fill(this.generations, 0);
+            this.generation = 1;
+        }
+        this.openNodes.clear();
+        this.prepareClearance(crossableTerrain);
+    }
+
+    /**
+     * Fetch the clearanceMaps the given terrains need. Pathfinder keeps
+     * them up to date with the collisionmap.
+     */
+    private void prepareClearance(List<Integer> crossableTerrain) {
+        if (this.searchClearance.length < crossableTerrain.size()) {
+            this.searchClearance = new int[crossableTerrain.size()][][];
+        }
+        for (int i = 0; i < crossableTerrain.size(); i++) {
+            this.searchClearance[i] = this.pathfinder.getClearance(crossableTerrain.get(i));
+        }
+        this.searchTerrainCount = crossableTerrain.size();
+    }
+
+    /**
+     * Build back the path from goal to start through the previous-links.
+     * Start is left out, goal is included.
+     */
+    private Path buildPath(int start, int goal) {
+        int length = 0;
+        for (int n = goal; n != start; n = this.previous[n]) {
+            if (length == this.pathBuffer.length) this.pathBuffer = Arrays.copyOf(this.pathBuffer, length * 2);
+            this.pathBuffer[length++] = n;
+        }
+        Path path = new Path();
+        for (int i = length - 1; i >= 0; i--) {
+            int n = this.pathBuffer[i];
+            path.addStep(n % this.mapWidth, n / this.mapWidth);
+        }
+        return path;
+    }
+
+    /**
+     * Check if the given tile is on the map, not blocked and large
+     * enough for the mover, using the clearance maps of the current search.
+     */
+    private boolean isPassable(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        if (map.isBlocked(crossableTerrain, x, y)) return false;
+        for (int i = 0; i < this.searchTerrainCount; i++) {
+            if (this.searchClearance[i][x][y] >= clearanceNeed) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Neighbours with the default clearance need of 1
+     * @param crossableTerrain Tilewalking ability
+     * @param x Target nodes X coordinate
+     * @param y Target nodes Y coordinate
+     * @return List of available neighbours
+     */
+    @Override
+    public List<Node> neighbours(CollisionMap map, List<Integer> crossableTerrain, int x, int y) {
+        return neighbours(map, 1, crossableTerrain, x, y);
+    }
+
+    /**
+     * Cardinal direction (Up, Right, Down, Left) neighbours of
+     * the given tile that can be crossed with the given parameters.
+     * Not used by the search itself, which works on indexes.
+     * @param clearanceNeed Size of the unit doing the moving
+     * @param crossableTerrain Tilewalking ability
+     * @param x Target nodes X coordinate
+     * @param y Target nodes Y coordinate
+     * @return List of available neighbours
+     */
+    @Override
+    public List<Node> neighbours(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        this.prepareClearance(crossableTerrain);
+        ArrayList<Node> result = new ArrayList<>();
+        for (int d = 0; d < 4; d++) {
+            if (this.isPassable(map, clearanceNeed, crossableTerrain, x + DX[d], y + DY[d])) {
+                result.add(new Node(x + DX[d], y + DY[d]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * DiagonalNeighbours with default clearance need of 1.
+     * @param crossableTerrain Tilewalking ability
+     * @param x Target nodes X coordinate
+     * @param y Target nodes Y coordinate
+     * @return List of available diagonally neighbouring spots
+     */
+    @Override
+    public List<Node> diagonalNeighbours(CollisionMap map, List<Integer> crossableTerrain, int x, int y) {
+        return diagonalNeighbours(map, 1, crossableTerrain, x, y);
+    }
+
+    /**
+     * Diagonal neighbours (UpRight, UpLeft, DownRight, DownLeft) of the
+     * given tile that are passable without squeezing through corners.
+     * @param clearanceNeed Size of the unit doing the moving
+     * @param crossableTerrain Tilewalking ability
+     * @param x Target nodes X coordinate
+     * @param y Target nodes Y coordinate
+     * @return List of available diagonally neighbouring spots
+     */
+    @Override
+    public List<Node> diagonalNeighbours(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        this.prepareClearance(crossableTerrain);
+        ArrayList<Node> result = new ArrayList<>();
+        for (int d = 4; d < 8; d++) {
+            if (this.isPassable(map, clearanceNeed, crossableTerrain, x, y + DY[d])
+                    && this.isPassable(map, clearanceNeed, crossableTerrain, x + DX[d], y)
+                    && this.isPassable(map, clearanceNeed, crossableTerrain, x + DX[d], y + DY[d])) {
+                result.add(new Node(x + DX[d], y + DY[d]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public HashMap<Integer, int[][]> getClearanceMaps() {
+        return this.pathfinder.getClearanceMaps();
+    }
+
+    public double getMovementCost(List<Integer> movementAbilities, int currentX, int currentY, int goalX, int goalY) {
+            return pathfinder.getMovementCost(movementAbilities, currentX, currentY, goalX, goalY);
+    }
+
+}
@@ -0,0 +1,670 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+
+
+package generalsgame.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import generalsgame.Simulation;
+import generalsgame.gameobjects.MapObject;
+import generalsgame.gameobjects.Structure;
+import generalsgame.BattleMap;
+
+/**
+ * CollisionMap is a location turned simple
+ * This is used for the PathFinding to navigate without having to constantly
+ * call in Locations Colliding-functions
+ * @author daedra
+ */
+public class CollisionMap {
+    /* Location that this CollisionMap is based on */
+    private BattleMap map;
+    /* Collision level of every tile, row by row (index = y*mapTileWidth + x) */
+    private byte[] collisionLevels;
+    /* Movement costs per movement type, fixed point (COST_SCALE = 1.0). 
+     * Arrays are only allocated for movement types that have costs set,
+     * and 0 means the default cost of 1 */
+    public static final int MOVEMENT_TYPES = 10;
+    private static final int COST_SCALE = 100;
+    private final short[][] movementCosts = new short[MOVEMENT_TYPES][];
+    /* Visited is used for pathfinding to determine which nodes have already been visited */
+    //private Boolean[][] visited;
+    public int mapTileWidth;
+    public int mapTileHeight;
+    public int nodeSize;
+    private boolean structuresOnly;
+    /* Dirty regions are tile rectangles [xStart, yStart, xEnd, yEnd] waiting to be patched */
+    private static final int MAX_DIRTY_REGIONS = 64;
+    private final int[] dirtyRegions = new int[MAX_DIRTY_REGIONS * 4];
+    private int dirtyRegionCount;
+    private boolean fullRebuildNeeded;
+    /* Regions changed since the last snapshot, handed to the snapshot so pathfinders
+     * kept on older snapshots can repair around them. -1 regions means all of the map */
+    private int[] changedRegions = new int[MAX_DIRTY_REGIONS * 4];
+    private int changedRegionCount;
+    /* Version goes up on every change, so caches built on the map know when they're stale */
+    private long version;
+    /* Structures around the region being patched, reused between patches */
+    private final ArrayList<Structure> regionStructures = new ArrayList<>();
+    /* Raycast results other than a tile index */
+    public static final int NO_HIT = -1;
+    public static final int OFF_MAP = -2;
+    /* Collision levels are stored in bytes, negative ones are taken for off-map tiles */
+    public static final int MAX_COLLISION_LEVEL = Byte.MAX_VALUE;
+            
+    public CollisionMap(BattleMap l, int nodeSize) {
+        this.map = l;
+        this.nodeSize = nodeSize; //size of nodes in map pixels - usually same as tilesize
+        Simulation.logger.info("Generating collisionmap for "+l.getName());
+        double startTime = System.currentTimeMillis();
+        //First we'll convert map to tiles, even if it's BGMap
+        Simulation.logger.info("Map width: "+l.getWidth()+" Map height: "+l.getHeight());
+        this.mapTileWidth = (int)(l.getWidth() / nodeSize)+1;
+        this.mapTileHeight = (int)(l.getHeight() / nodeSize)+1;
+        Simulation.logger.info("NodeMap: "+mapTileWidth+"x"+mapTileHeight);
+        //visited = new Boolean[mapTileWidth][mapTileHeight];
+        //A fresh array is all empty (=collisionLevel 0) tiles
+        this.collisionLevels = new byte[mapTileWidth*mapTileHeight];
+        this.fullRebuildNeeded = true; //Structures get rasterised on the first update
+        Simulation.logger.info("Collisionmap generated in "+(System.currentTimeMillis()-startTime)+"ms");
+    }
+    
+    /**
+     * Copy the current state of the given map. The copy shares
+     * nothing mutable with the original, so it's safe to read
+     * from other threads while the original keeps changing.
+     * The source should be up to date (not dirty) when copied.
+     */
+    private CollisionMap(CollisionMap source) {
+        this.map = source.map;
+        this.nodeSize = source.nodeSize;
+        this.mapTileWidth = source.mapTileWidth;
+        this.mapTileHeight = source.mapTileHeight;
+        this.structuresOnly = source.structuresOnly;
+        this.collisionLevels = source.collisionLevels.clone();
+        for (int type = 0; type < MOVEMENT_TYPES; type++) {
+            if (source.movementCosts[type] != null) this.movementCosts[type] = source.movementCosts[type].clone();
+        }
+        this.version = source.version;
+        this.fullRebuildNeeded = false;
+        this.changedRegionCount = source.changedRegionCount;
+        if (source.changedRegionCount > 0) this.changedRegions = Arrays.copyOf(source.changedRegions, source.changedRegionCount * 4);
+    }
+    
+    /**
+     * Take a read only copy of this map for pathfinding on a worker thread.
+     * Pending dirty regions are patched in first.
+     * The copy keeps the version of the map at the time of copying,
+     * and must not be marked dirty or updated itself.
+     * It also keeps the regions changed since the previous snapshot,
+     * see getChangedRegionCount().
+     * @return copy of the collision levels and movement costs
+     */
+    public CollisionMap snapshot() {
+        if (this.isDirty()) this.updateCollisionLevels();
+        CollisionMap copy = new CollisionMap(this);
+        this.changedRegionCount = 0;
+        return copy;
+    }
+    
+    /**
+     * Copy of this map as it is, nothing patched or reset.
+     * Meant for taking a private copy of a snapshot, to be kept
+     * up to date with copyFrom().
+     * @return copy of the collision levels and movement costs
+     */
+    public CollisionMap copy() {
+        return new CollisionMap(this);
+    }
+    
+    /**
+     * Overwrite the collision levels, movement costs and version of
+     * this map with those of another one of the same size, in place.
+     * @param source map to copy, usually a newer snapshot
+     */
+    public void copyFrom(CollisionMap source) {
+        if (source.mapTileWidth != this.mapTileWidth || source.mapTileHeight != this.mapTileHeight) {
+            throw new IllegalArgumentException("Can't copy a "+source.mapTileWidth+"x"+source.mapTileHeight+" map over a "+this.mapTileWidth+"x"+this.mapTileHeight+" one");
+        }
+        System.arraycopy(source.collisionLevels, 0, this.collisionLevels, 0, this.collisionLevels.length);
+        for (int type = 0; type < MOVEMENT_TYPES; type++) {
+            if (source.movementCosts[type] == null) this.movementCosts[type] = null;
+            else if (this.movementCosts[type] == null) this.movementCosts[type] = source.movementCosts[type].clone();
+            else System.arraycopy(source.movementCosts[type], 0, this.movementCosts[type], 0, this.movementCosts[type].length);
+        }
+        this.version = source.version;
+    }
+    
+    /**
+     * For snapshots: the number of tile regions that changed between
+     * the previous snapshot and this one. Get them with getChangedRegions().
+     * @return number of changed regions, -1 if the whole map may have changed
+     */
+    public int getChangedRegionCount() {
+        return this.changedRegionCount;
+    }
+    
+    /**
+     * @return changed regions as [xStart, yStart, xEnd, yEnd] one after another, see getChangedRegionCount()
+     */
+    public int[] getChangedRegions() {
+        return this.changedRegions;
+    }
+    
+    /**
+     * UpdateCollisionLevels brings the collisionmap up to date.
+     * Only the tile regions marked dirty (with markDirty) since the
+     * last update are patched, in place. If too many regions piled
+     * up, or a full rebuild was requested, the whole map is redone.
+     * 
+     * TODO: Add in the movement cost from cost inducing mobs (swampland, whatever).
+     * It goes into setMovementCost() and Pathfinder is ready for it.
+     */
+    public void updateCollisionLevels() {
+        if (this.fullRebuildNeeded) {
+            this.fullRebuild();
+            return;
+        }
+        for (int i = 0; i < this.dirtyRegionCount; i++) {
+            int r = i * 4;
+            this.patchRegion(this.dirtyRegions[r], this.dirtyRegions[r+1], this.dirtyRegions[r+2], this.dirtyRegions[r+3]);
+        }
+        this.dirtyRegionCount = 0;
+    }
+    
+    /**
+     * Clear the whole collisionmap and re-rasterise every structure on it.
+     * This is the fallback for when dirty regions can't be trusted
+     * (new map, mass changes). The arrays are reused, not reallocated.
+     */
+    public void fullRebuild() {
+        //Simulation.logger.info("Full collisionmap rebuild for "+this.map.getName());
+        this.patchRegion(0, 0, this.mapTileWidth-1, this.mapTileHeight-1);
+        this.dirtyRegionCount = 0;
+        this.fullRebuildNeeded = false;
+    }
+    
+    /**
+     * Request a full rebuild on the next updateCollisionLevels()
+     */
+    public void markAllDirty() {
+        this.fullRebuildNeeded = true;
+        this.changedRegionCount = -1;
+        this.version++;
+    }
+    
+    /**
+     * Mark the tiles covered by the given MapObject as dirty,
+     * so they get patched on the next updateCollisionLevels()
+     * @param mob MapObject that was added, removed or moved
+     */
+    public void markDirty(MapObject mob) {
+        this.markDirty(mob.getXPos(), mob.getYPos(), mob.getWidth(), mob.getHeight());
+    }
+    
+    /**
+     * Mark the tiles covered by the given map area as dirty.
+     * Used for example with the old position of a moved structure.
+     * @param xPos xCoordinate of the area (top left corner, map pixels)
+     * @param yPos yCoordinate of the area (top left corner, map pixels)
+     * @param width width of the area in map pixels
+     * @param height height of the area in map pixels
+     */
+    public void markDirty(double xPos, double yPos, double width, double height) {
+        int xStart = ((int)xPos / nodeSize);
+        int yStart = ((int)yPos / nodeSize);
+        int xEnd = ((int)(xPos+width-1) / nodeSize);
+        int yEnd = ((int)(yPos+height-1) / nodeSize);
+        this.markDirty(xStart, yStart, xEnd, yEnd);
+    }
+    
+    /**
+     * Mark a rectangle of tiles dirty. Coordinates are inclusive
+     * and clamped to the map.
+     * @param xStart first column of the region
+     * @param yStart first row of the region
+     * @param xEnd last column of the region
+     * @param yEnd last row of the region
+     */
+    public void markDirty(int xStart, int yStart, int xEnd, int yEnd) {
+        this.version++;
+        xStart = Math.max(xStart, 0);
+        yStart = Math.max(yStart, 0);
+        xEnd = Math.min(xEnd, this.mapTileWidth-1);
+        yEnd = Math.min(yEnd, this.mapTileHeight-1);
+        if (xStart > xEnd || yStart > yEnd) return; //Nothing on the map
+        this.addChangedRegion(xStart, yStart, xEnd, yEnd);
+        if (this.fullRebuildNeeded) return;
+        if (this.dirtyRegionCount == MAX_DIRTY_REGIONS) {
+            //Too many small patches, cheaper to just redo everything
+            this.fullRebuildNeeded = true;
+            return;
+        }
+        int r = this.dirtyRegionCount * 4;
+        this.dirtyRegions[r] = xStart;
+        this.dirtyRegions[r+1] = yStart;
+        this.dirtyRegions[r+2] = xEnd;
+        this.dirtyRegions[r+3] = yEnd;
+        this.dirtyRegionCount++;
+    }
+    
+    /**
+     * Remember a changed region for the next snapshot.
+     * Too many of them and the whole map counts as changed.
+     */
+    private void addChangedRegion(int xStart, int yStart, int xEnd, int yEnd) {
+        if (this.changedRegionCount < 0) return;
+        if (this.changedRegionCount == MAX_DIRTY_REGIONS) {
+            this.changedRegionCount = -1;
+            return;
+        }
+        int r = this.changedRegionCount * 4;
+        this.changedRegions[r] = xStart;
+        this.changedRegions[r+1] = yStart;
+        this.changedRegions[r+2] = xEnd;
+        this.changedRegions[r+3] = yEnd;
+        this.changedRegionCount++;
+    }
+    
+    /**
+     * Version of the map contents. Goes up every time
+     * a part of the map is marked dirty, never down.
+     * @return current version of the map
+     */
+    public long getVersion() {
+        return this.version;
+    }
+    
+    public boolean isDirty() {
+        return this.fullRebuildNeeded || this.dirtyRegionCount > 0;
+    }
+    
+    /**
+     * Reset the given region to empty (CL 0) tiles and
+     * re-rasterise the structures overlapping it.
+     * Only the part of the structures inside the region is touched.
+     */
+    private void patchRegion(int xStart, int yStart, int xEnd, int yEnd) {
+        for (int row = yStart; row <= yEnd; row++) {
+            int rowOffset = row * this.mapTileWidth;
+            Arrays.fill(this.collisionLevels, rowOffset + xStart, rowOffset + xEnd + 1, (byte)0);
+        }
+        this.updateMobsOnNodeMap(xStart, yStart, xEnd, yEnd);
+    }
+    
+    /**
+     * Scan this.location for MOBs overlapping the given region and
+     * populate the nodemap with them. Only the structures the map
+     * has indexed around the region are looked at.
+     * Note: This should be called AFTER the region is cleared,
+     * otherwise old MOBs linger on the collisionmap.
+     * 
+     */
+    private void updateMobsOnNodeMap(int xStart, int yStart, int xEnd, int yEnd) {
+        ArrayList<Structure> mobs = this.regionStructures;
+        this.map.getStructuresInArea(xStart * nodeSize, yStart * nodeSize, (xEnd+1) * nodeSize - 1, (yEnd+1) * nodeSize - 1, mobs);
+        //Simulation.logger.info("Moblist has " +mobs.size()+" objects");
+        for (int i = 0; i < mobs.size(); i++) {
+            MapObject mob = mobs.get(i);
+            int mobCL = mob.getCollisionLevel();          
+            if (mobCL == 0) continue; //CL 0 means anything can pass through
+            checkCollisionLevel(mob); //Level may have been changed after the mob was added
+            byte level = (byte)mobCL;
+            //Mob blocks nodes from its top left corner...
+            int mobXNodeStart = ((int)mob.getMinX() / nodeSize);
+            int mobYNodeStart = ((int)mob.getMinY() / nodeSize);
+            //... to its bottom right corner
+            int mobXNodeEnd = ((int)(mob.getMaxX()-1)/ nodeSize); 
+            int mobYNodeEnd = ((int)(mob.getMaxY()-1)/ nodeSize); 
+            //Only the overlap with the region is of interest
+            int rowStart = Math.max(mobYNodeStart, yStart);
+            int rowEnd = Math.min(mobYNodeEnd, yEnd);
+            int columnStart = Math.max(mobXNodeStart, xStart);
+            int columnEnd = Math.min(mobXNodeEnd, xEnd);
+            //Structures mark all blocked nodes with collisionLevel
+            for (int row = rowStart; row <= rowEnd; row++ ) {
+                int rowOffset = row * this.mapTileWidth;
+                for (int column = columnStart; column <= columnEnd; column++) {
+                    this.collisionLevels[rowOffset + column] = level;
+                }
+            }
+            //Creatures are not on the collisionmap (structuresOnly)
+            //If creatures are wanted on collisionmap, they need to be
+            //called in via location.getCreatures();
+        }
+        //Simulation.logger.info("Collisionmap updated in "+(System.currentTimeMillis()-startTime)+"ms");
+    }
+    
+    /**
+     * Make sure the collision level of the mob fits on the collisionmap.
+     * A level that doesn't fit would wrap into some other terrain.
+     * @param mob MapObject going on the collisionmap
+     * @throws IllegalArgumentException if the level is outside 0 - MAX_COLLISION_LEVEL
+     */
+    public static void checkCollisionLevel(MapObject mob) {
+        int level = mob.getCollisionLevel();
+        if (level < 0 || level > MAX_COLLISION_LEVEL) {
+            throw new IllegalArgumentException("Collision level "+level+" of "+mob.getName()
+                    +" is outside 0-"+MAX_COLLISION_LEVEL);
+        }
+    }
+    
+    /** isBlocked checks if the given unit can pass through the given node 
+     * returns False if tile is blocked, true if not. Every creature should be able to cross CL 0
+     * @param crossableTerrain List of terrains the mover can cross
+     * @param x xCoordinate of the checked node
+     * @param y yCoordinate of the checked node
+     * @return True if the unit cannot pass to this terrain with given crossableTerrainList
+    */
+    public boolean isBlocked(List<Integer> crossableTerrain ,int x, int y) {
+        if (x>this.mapTileWidth-1 || y>this.mapTileHeight-1) return true;
+        if (x<0 || y<0) return true;
+        //Collision levels are small, so the boxing here hits the Integer cache
+        return (!crossableTerrain.contains((int)this.collisionLevels[y*this.mapTileWidth + x]));
+    }
+    
+    /**
+     * Pack a list of crossable terrains (collision levels 0-62) into
+     * a bitmask, usable as a key for caches per terrain set.
+     * @param crossableTerrain List of terrains the mover can cross
+     * @return bitmask with a bit set for each terrain, -1 if a terrain doesn't fit
+     */
+    public static long getTerrainMask(List<Integer> crossableTerrain) {
+        long mask = 0;
+        for (int i = 0; i < crossableTerrain.size(); i++) {
+            int terrain = crossableTerrain.get(i);
+            if (terrain < 0 || terrain > 62) return -1;
+            mask |= (1L << terrain);
+        }
+        return mask;
+    }
+    
+    public boolean isBlocked(int crossableTerrain, int x, int y) {
+        if (x>this.mapTileWidth-1 || y>this.mapTileHeight-1 || x < 0 || y < 0) return true;
+	return (crossableTerrain != this.collisionLevels[y*this.mapTileWidth + x]);
+    }
+    
+    /**
+     * Return the collision level of the given tile straight from the
+     * backing array. Tiles outside the map count as blocked (-1).
+     * @param x xCoordinate of the tile
+     * @param y yCoordinate of the tile
+     * @return collision level of the tile
+     */
+    public int getCollisionLevel(int x, int y) {
+        if (x>this.mapTileWidth-1 || y>this.mapTileHeight-1 || x < 0 || y < 0) return -1;
+        return this.collisionLevels[y*this.mapTileWidth + x];
+    }
+
+    /**
+     * Follow a straight line over the map tile by tile (DDA) and
+     * return the first tile that blocks it. The start and end tiles
+     * are checked too. A line going exactly through a tile corner
+     * is blocked if either of the tiles beside the corner blocks it,
+     * same as diagonal moves in pathfinding.
+     * @param crossableTerrain List of terrains the line can cross
+     * @param xStart x Coordinate of the starting point (map pixels)
+     * @param yStart y Coordinate of the starting point (map pixels)
+     * @param xEnd x Coordinate of the end point (map pixels)
+     * @param yEnd y Coordinate of the end point (map pixels)
+     * @return index (y*mapTileWidth + x) of the first blocking tile, NO_HIT if nothing blocks, OFF_MAP if the line leaves the map
+     */
+    public int raycast(List<Integer> crossableTerrain, double xStart, double yStart, double xEnd, double yEnd) {
+        return this.raycast(getRaycastMask(crossableTerrain), xStart, yStart, xEnd, yEnd);
+    }
+    
+    /**
+     * Raycast with the crossable terrains given as a bitmask
+     * (bit n set = collision level n can be crossed).
+     * Masks can be made with getRaycastMask() once and reused.
+     * @see #raycast(List, double, double, double, double)
+     */
+    public int raycast(long terrainMask, double xStart, double yStart, double xEnd, double yEnd) {
+        double startX = xStart / this.nodeSize;
+        double startY = yStart / this.nodeSize;
+        double dx = (xEnd / this.nodeSize) - startX;
+        double dy = (yEnd / this.nodeSize) - startY;
+        int x = (int)Math.floor(startX);
+        int y = (int)Math.floor(startY);
+        int steps = Math.abs((int)Math.floor(xEnd / this.nodeSize) - x) + Math.abs((int)Math.floor(yEnd / this.nodeSize) - y);
+        int stepX = (dx > 0) ? 1 : (dx < 0) ? -1 : 0;
+        int stepY = (dy > 0) ? 1 : (dy < 0) ? -1 : 0;
+        //Distance along the line (0 to 1) to the next tile border, and between borders
+        double tDeltaX = (stepX != 0) ? Math.abs(1 / dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = (stepY != 0) ? Math.abs(1 / dy) : Double.POSITIVE_INFINITY;
+        double tMaxX = (stepX > 0) ? (x + 1 - startX) * tDeltaX : (stepX < 0) ? (startX - x) * tDeltaX : Double.POSITIVE_INFINITY;
+        double tMaxY = (stepY > 0) ? (y + 1 - startY) * tDeltaY : (stepY < 0) ? (startY - y) * tDeltaY : Double.POSITIVE_INFINITY;
+        
+        int hit = this.blockingTile(terrainMask, x, y);
+        int step = 0;
+        while (hit == NO_HIT && step < steps) {
+            if (tMaxX < tMaxY) {
+                x += stepX;
+                tMaxX += tDeltaX;
+                step++;
+            } else if (tMaxY < tMaxX) {
+                y += stepY;
+                tMaxY += tDeltaY;
+                step++;
+            } else {
+                //Right through a corner, don't squeeze between two blocking tiles
+                hit = this.blockingTile(terrainMask, x + stepX, y);
+                if (hit == NO_HIT) hit = this.blockingTile(terrainMask, x, y + stepY);
+                if (hit != NO_HIT) break;
+                x += stepX;
+                y += stepY;
+                tMaxX += tDeltaX;
+                tMaxY += tDeltaY;
+                step += 2;
+            }
+            hit = this.blockingTile(terrainMask, x, y);
+        }
+        return hit;
+    }
+    
+    /**
+     * Check if a straight line between two points is clear of tiles
+     * that aren't crossable with the given terrains.
+     * @return True if nothing on the collision map blocks the line
+     */
+    public boolean hasLineOfSight(List<Integer> crossableTerrain, double xStart, double yStart, double xEnd, double yEnd) {
+        return this.raycast(crossableTerrain, xStart, yStart, xEnd, yEnd) == NO_HIT;
+    }
+    
+    public boolean hasLineOfSight(long terrainMask, double xStart, double yStart, double xEnd, double yEnd) {
+        return this.raycast(terrainMask, xStart, yStart, xEnd, yEnd) == NO_HIT;
+    }
+    
+    /**
+     * Terrain bitmask for raycasts. Unlike getTerrainMask(), terrains
+     * that don't fit in the mask (above 62) are left out instead of
+     * failing, so tiles of those levels always block rays.
+     * @param crossableTerrain List of terrains the ray can cross
+     * @return bitmask with a bit set for each terrain
+     */
+    public static long getRaycastMask(List<Integer> crossableTerrain) {
+        long mask = 0;
+        for (int i = 0; i < crossableTerrain.size(); i++) {
+            int terrain = crossableTerrain.get(i);
+            if (terrain >= 0 && terrain <= 62) mask |= (1L << terrain);
+        }
+        return mask;
+    }
+    
+    /**
+     * Check a single tile the way raycasts do
+     * @param terrainMask Bitmask of terrains that don't block, see getRaycastMask()
+     * @param x xCoordinate of the tile
+     * @param y yCoordinate of the tile
+     * @return True if the tile stops rays (tiles outside the map do)
+     */
+    public boolean blocksRay(long terrainMask, int x, int y) {
+        return this.blockingTile(terrainMask, x, y) != NO_HIT;
+    }
+    
+    /**
+     * @return index of the tile if it blocks, NO_HIT if not, OFF_MAP if it's outside the map
+     */
+    private int blockingTile(long terrainMask, int x, int y) {
+        if (!isOnMap(x, y)) return OFF_MAP;
+        int tile = y*this.mapTileWidth + x;
+        int level = this.collisionLevels[tile];
+        if (level < 0 || level > 62 || ((terrainMask >>> level) & 1) == 0) return tile;
+        return NO_HIT;
+    }
+    
+    //The Visited -thing is not currently in use by pathfinding.
+    //This because it's essentially done by pathfinder-classes themselves,
+    //and does not belong in the collisionmap.
+    /*
+    public void pfVisit(int xCoor, int yCoor) {
+        this.visited[xCoor][yCoor] = true;
+    }
+    
+    public boolean isVisited (int xCoor, int yCoor) {
+        return this.visited[xCoor][yCoor];
+    }
+    */
+    public void setStructuresOnly (boolean onlyStructures) {
+        this.structuresOnly = onlyStructures;
+    }
+    
+    public boolean isStructuresOnly() {
+        return this.structuresOnly;
+    }
+    
+    private boolean isOnMap (int xCoor, int yCoor) {
+        return ((xCoor >= 0) && (xCoor < this.mapTileWidth) && (yCoor >= 0) && (yCoor < this.mapTileHeight));
+    }
+    
+    public int getMapTileWidth() {
+        return this.mapTileWidth;
+    }
+    
+    public int getMapTileHeight() {
+        return this.mapTileHeight;
+    }
+    
+    public BattleMap getBattleMap() {
+        return this.map;
+    }
+    
+    public int getNodeSize() {
+        return this.nodeSize;
+    }
+    
+    /**
+     * Return a Node describing the given tile.
+     * CollisionMap no longer keeps Node objects around, so this
+     * builds a fresh copy of the tile state on each call.
+     * Fine for debugging and tools, hot paths should use
+     * getCollisionLevel() and getMovementCost() instead.
+     * @param x xCoordinate of the tile
+     * @param y yCoordinate of the tile
+     * @return Node with the collision level and movement costs of the tile
+     */
+    public Node getNode( int x, int y) {
+        Node n = new Node(x, y, this.nodeSize, this.getCollisionLevel(x, y));
+        for (int type = 0; type < MOVEMENT_TYPES; type++) {
+            if (this.movementCosts[type] != null && isOnMap(x, y)) {
+                short cost = this.movementCosts[type][y*this.mapTileWidth + x];
+                if (cost != 0) n.setMovementCost(type, (double)cost / COST_SCALE);
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Return the cost of crossing the given tile with given movement type.
+     * Tiles without a set cost take the normal unit of speed (1).
+     * @param movementType type of movement (0 to MOVEMENT_TYPES-1)
+     * @param x xCoordinate of the tile
+     * @param y yCoordinate of the tile
+     * @return movement cost of the tile, 99 for unknown movement types
+     */
+    public double getMovementCost(int movementType, int x, int y) {
+        if (movementType < 0 || movementType >= MOVEMENT_TYPES) return 99;
+        short[] costs = this.movementCosts[movementType];
+        if (costs == null || !isOnMap(x, y)) return 1;
+        short cost = costs[y*this.mapTileWidth + x];
+        if (cost == 0) return 1;
+        return (double)cost / COST_SCALE;
+    }
+    
+    /**
+     * @param movementType type of movement (0 to MOVEMENT_TYPES-1)
+     * @return true if any tile has had a cost set for the movement type
+     */
+    public boolean hasMovementCosts(int movementType) {
+        if (movementType < 0 || movementType >= MOVEMENT_TYPES) return false;
+        return this.movementCosts[movementType] != null;
+    }
+    
+    /**
+     * Set the cost of crossing the given tile with given movement type.
+     * Cost array for the movement type is allocated on first use.
+     * Costs are stored with two decimals of precision.
+     * @param movementType type of movement (0 to MOVEMENT_TYPES-1)
+     * @param x xCoordinate of the tile
+     * @param y yCoordinate of the tile
+     * @param cost new movement cost, 0 resets it to default (1)
+     */
+    public void setMovementCost(int movementType, int x, int y, double cost) {
+        if (movementType < 0 || movementType >= MOVEMENT_TYPES || !isOnMap(x, y)) return;
+        if (this.movementCosts[movementType] == null) {
+            if (cost == 0) return; //Default anyway
+            this.movementCosts[movementType] = new short[this.mapTileWidth*this.mapTileHeight];
+        }
+        int fixed = (int)Math.round(cost * COST_SCALE);
+        this.movementCosts[movementType][y*this.mapTileWidth + x] = (short)Math.min(fixed, Short.MAX_VALUE);
+    }
+    
+    /**
+     * Return the cost of moving to the target tile with the cheapest
+     * of the given movement modifiers.
+     * @param movementModifiers movement types the mover has
+     * @param startX xCoordinate the move starts from
+     * @param startY yCoordinate the move starts from
+     * @param targetX xCoordinate of the tile moved into
+     * @param targetY yCoordinate of the tile moved into
+     * @return cost of the move, 1 if no costs are set
+     */
+    public float getMovementCost(List<Integer> movementModifiers, int startX, int startY, int targetX, int targetY) {
+        double cost = 99;
+        for (int i = 0; i < movementModifiers.size(); i++) {
+            double c = this.getMovementCost(movementModifiers.get(i), targetX, targetY);
+            if (c < cost) cost = c;
+        }
+        if (cost == 99) return 1; //No usable movement types, keep the old flat cost
+        return (float)cost;
+    }
+    
+    public void printMapToConsole() {
+        System.out.print(this.toMapString());
+    }
+
+    /**
+     * The map as text, a line per row of tiles:
+     * X for tiles with something on them, . for free ones
+     * @return map as text
+     */
+    public String toMapString() {
+        StringBuilder sb = new StringBuilder((this.mapTileWidth + 1) * this.mapTileHeight);
+        for (int row = 0; row < this.mapTileHeight; row++) {
+            for (int column = 0; column < this.mapTileWidth; column++) {
+                sb.append(this.collisionLevels[row*this.mapTileWidth + column] > 0 ? 'X' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+    
+}
@@ -0,0 +1,220 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ContactManager remembers which pairs of bodies are touching from
+ * tick to tick. With that, a pair where neither body has moved
+ * doesn't need to be tested again: it's still touching if it was.
+ * Changes are told to the listeners as events:
+ *  - contactEntered when a pair starts touching
+ *  - contactStayed on every tick a pair keeps touching
+ *  - contactExited when a pair stops touching (or a body goes away)
+ * Bodies are told apart by an id unique to each (like the MapObject ID).
+ * Each tick goes: beginTick(), touching() for every touching pair, endTick().
+ * Contacts are kept in flat arrays with a hash index on the pair,
+ * so nothing is allocated once the arrays are big enough.
+ * @author nikok
+ * @param <T> Type of the bodies
+ */
+public class ContactManager<T> {
+
+    /**
+     * Gets told about contacts starting, going on and ending.
+     * Called on the thread running the ticks, in the middle of the
+     * collision phase, so listeners shouldn't move or remove bodies.
+     */
+    public interface ContactListener<T> {
+        public void contactEntered(T a, T b);
+        public void contactStayed(T a, T b);
+        public void contactExited(T a, T b);
+    }
+
+    private static final long EMPTY = Long.MIN_VALUE; //No pair of non-negative ids makes this key
+
+    //Current contacts, in no particular order
+    private long[] keys = new long[64];
+    private Object[] bodies = new Object[128]; //Two per contact
+    private boolean[] seen = new boolean[64]; //Touching on this tick
+    private int count;
+
+    //Open addressing index from pair key to contact number
+    private long[] indexKeys;
+    private int[] indexContacts;
+    private int indexMask;
+
+    private final List<ContactListener<T>> listeners = new ArrayList<>();
+
+    public ContactManager() {
+        this.buildIndex(128);
+    }
+
+    public void addListener(ContactListener<T> listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(ContactListener<T> listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Start a tick. Every contact is forgotten at endTick()
+     * unless it's reported again with touching().
+     */
+    public void beginTick() {
+        Arrays.fill(this.seen, 0, this.count, false);
+    }
+
+    /**
+     * @return true if the pair was touching on the last tick
+     * (or has already been reported touching on this one)
+     */
+    public boolean isTouching(int idA, int idB) {
+        return this.find(pairKey(idA, idB)) >= 0;
+    }
+
+    /**
+     * Report a pair touching on this tick
+     * @param idA id of the first body
+     * @param a the first body
+     * @param idB id of the second body
+     * @param b the second body
+     */
+    @SuppressWarnings("unchecked")
+    public void touching(int idA, T a, int idB, T b) {
+        long key = pairKey(idA, idB);
+        int contact = this.find(key);
+        if (contact >= 0) {
+            if (this.seen[contact]) return;
+            this.seen[contact] = true;
+            for (int i = 0; i < this.listeners.size(); i++) {
+                this.listeners.get(i).contactStayed((T)this.bodies[contact*2], (T)this.bodies[contact*2+1]);
+            }
+            return;
+        }
+        if (this.count == this.keys.length) {
+            int capacity = this.count * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.bodies = Arrays.copyOf(this.bodies, capacity * 2);
+            this.seen = Arrays.copyOf(this.seen, capacity);
+        }
+        contact = this.count++;
+        this.keys[contact] = key;
+        this.bodies[contact*2] = a;
+        this.bodies[contact*2+1] = b;
+        this.seen[contact] = true;
+        if (this.count * 2 > this.indexKeys.length) this.buildIndex(this.indexKeys.length * 2);
+        else this.insert(key, contact);
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).contactEntered(a, b);
+        }
+    }
+
+    /**
+     * End the tick: pairs that weren't reported touching are
+     * dropped, and their listeners told the contact is over.
+     */
+    @SuppressWarnings("unchecked")
+    public void endTick() {
+        int kept = 0;
+        for (int contact = 0; contact < this.count; contact++) {
+            if (this.seen[contact]) {
+                this.keys[kept] = this.keys[contact];
+                this.bodies[kept*2] = this.bodies[contact*2];
+                this.bodies[kept*2+1] = this.bodies[contact*2+1];
+                this.seen[kept] = true;
+                kept++;
+            } else {
+                for (int i = 0; i < this.listeners.size(); i++) {
+                    this.listeners.get(i).contactExited((T)this.bodies[contact*2], (T)this.bodies[contact*2+1]);
+                }
+            }
+        }
+        if (kept == this.count) return;
+        Arrays.fill(this.bodies, kept*2, this.count*2, null);
+        this.count = kept;
+        this.buildIndex(this.indexKeys.length);
+    }
+
+    /**
+     * @return number of pairs touching
+     */
+    public int getContactCount() {
+        return this.count;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getContactA(int contact) {
+        return (T)this.bodies[contact*2];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getContactB(int contact) {
+        return (T)this.bodies[contact*2+1];
+    }
+
+    /**
+     * Forget all contacts without telling the listeners
+     */
+    public void clear() {
+        Arrays.fill(this.bodies, 0, this.count*2, null);
+        this.count = 0;
+        this.buildIndex(this.indexKeys.length);
+    }
+
+    private static long pairKey(int idA, int idB) {
+        //Same key whichever way round the pair is given
+        int low = Math.min(idA, idB);
+        int high = Math.max(idA, idB);
+        return ((long)low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & this.indexMask;
+        while (this.indexKeys[slot] != EMPTY) {
+            if (this.indexKeys[slot] == key) return this.indexContacts[slot];
+            slot = (slot + 1) & this.indexMask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, int contact) {
+        int slot = hash(key) & this.indexMask;
+        while (this.indexKeys[slot] != EMPTY) slot = (slot + 1) & this.indexMask;
+        this.indexKeys[slot] = key;
+        this.indexContacts[slot] = contact;
+    }
+
+    /**
+     * Rebuild the index from the contact list. Simpler than removing
+     * single keys from the open addressing table, and done at most
+     * once per tick.
+     * @param capacity table size, a power of two
+     */
+    private void buildIndex(int capacity) {
+        if (this.indexKeys == null || this.indexKeys.length != capacity) {
+            this.indexKeys = new long[capacity];
+            this.indexContacts = new int[capacity];
+            this.indexMask = capacity - 1;
+        }
+        Arrays.fill(this.indexKeys, EMPTY);
+        for (int contact = 0; contact < this.count; contact++) {
+            this.insert(this.keys[contact], contact);
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+}
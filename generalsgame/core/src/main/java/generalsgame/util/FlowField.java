@@ -0,0 +1,204 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import generalsgame.Direction;
+
+/**
+ * FlowField (or Dijkstra map) tells for every tile of the CollisionMap
+ * which way to go to get to a single goal tile.
+ * It's made with one Dijkstra sweep outwards from the goal, so any number
+ * of units heading to the same goal can share it instead of each
+ * running their own A* search.
+ * A field is made for one clearance need and terrain set, and is only
+ * valid for the CollisionMap version it was made on.
+ * @author nikok
+ */
+public class FlowField {
+
+    private static final byte NO_DIRECTION = -1;
+    private static final byte AT_GOAL = 8;
+    //Neighbour offsets, cardinals first (N, E, S, W), then diagonals (NE, NW, SE, SW)
+    private static final int[] DX = {0, 1, 0, -1, 1, -1, 1, -1};
+    private static final int[] DY = {-1, 0, 1, 0, -1, -1, 1, 1};
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT,
+        Direction.UPRIGHT, Direction.UPLEFT, Direction.DOWNRIGHT, Direction.DOWNLEFT, Direction.STAY};
+
+    private final int width;
+    private final int height;
+    private final int goalX;
+    private final int goalY;
+    private final int clearanceNeed;
+    private final long mapVersion;
+    private final byte[] directions; //Index to DX/DY towards the goal, per tile
+    private final float[] distances; //Cost to goal, per tile. Infinite if goal can't be reached
+
+    private FlowField(CollisionMap map, int clearanceNeed, int goalX, int goalY) {
+        this.width = map.getMapTileWidth();
+        this.height = map.getMapTileHeight();
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.clearanceNeed = clearanceNeed;
+        this.mapVersion = map.getVersion();
+        this.directions = new byte[width * height];
+        this.distances = new float[width * height];
+        Arrays.fill(this.directions, NO_DIRECTION);
+        Arrays.fill(this.distances, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Generate a flow field towards the given goal tile.
+     * Movement rules are the same as in the A* pathfinders: diagonals
+     * only when both neighbouring cardinals are open, and every tile on
+     * the way needs to fit the mover with at least one of its terrains.
+     * @param map CollisionMap to generate the field on
+     * @param clearanceMaps clearance maps for each of the crossable terrains (same order)
+     * @param clearanceNeed Size of the mover in tiles
+     * @param crossableTerrain terrains the mover can path through
+     * @param goalX goal tile X
+     * @param goalY goal tile Y
+     * @param allowDiagonalMovement true if the field may lead diagonally
+     * @return generated flow field
+     */
+    public static FlowField generate(CollisionMap map, int[][][] clearanceMaps, int clearanceNeed, List<Integer> crossableTerrain, int goalX, int goalY, boolean allowDiagonalMovement) {
+        FlowField field = new FlowField(map, clearanceNeed, goalX, goalY);
+        if (!isPassable(map, clearanceMaps, clearanceNeed, crossableTerrain, goalX, goalY)) return field; //Nothing leads into a blocked goal
+        int width = field.width;
+        int goal = goalY * width + goalX;
+        IndexedMinHeap open = new IndexedMinHeap(width * field.height);
+        boolean[] done = new boolean[width * field.height];
+        field.distances[goal] = 0;
+        field.directions[goal] = AT_GOAL;
+        open.add(goal, 0);
+        int directions = allowDiagonalMovement ? 8 : 4;
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            done[current] = true;
+            int x = current % width;
+            int y = current / width;
+            //Step cost is paid for the tile that's entered, here the current one
+            float stepCost = (float)map.getMovementCost(0, x, y);
+            int cardinalsOpen = 0;
+            for (int d = 0; d < directions; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (d < 4) {
+                    if (!isPassable(map, clearanceMaps, clearanceNeed, crossableTerrain, nx, ny)) continue;
+                    cardinalsOpen |= (1 << d);
+                } else {
+                    int vertical = DY[d] < 0 ? 0 : 2;
+                    int horizontal = DX[d] > 0 ? 1 : 3;
+                    if ((cardinalsOpen & (1 << vertical)) == 0 || (cardinalsOpen & (1 << horizontal)) == 0) continue;
+                    if (!isPassable(map, clearanceMaps, clearanceNeed, crossableTerrain, nx, ny)) continue;
+                }
+                int n = ny * width + nx;
+                if (done[n]) continue;
+                float distance = field.distances[current] + stepCost;
+                if (distance >= field.distances[n]) continue;
+                field.distances[n] = distance;
+                field.directions[n] = (byte)opposite(d); //The neighbour goes the other way, towards current
+                open.add(n, distance);
+            }
+        }
+        return field;
+    }
+
+    private static boolean isPassable(CollisionMap map, int[][][] clearanceMaps, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        if (map.isBlocked(crossableTerrain, x, y)) return false;
+        for (int i = 0; i < clearanceMaps.length; i++) {
+            if (clearanceMaps[i][x][y] >= clearanceNeed) return true;
+        }
+        return false;
+    }
+
+    private static int opposite(int d) {
+        switch (d) {
+            case 0: return 2;
+            case 1: return 3;
+            case 2: return 0;
+            case 3: return 1;
+            case 4: return 7; //NE -> SW
+            case 5: return 6; //NW -> SE
+            case 6: return 5; //SE -> NW
+            case 7: return 4; //SW -> NE
+            default: return NO_DIRECTION;
+        }
+    }
+
+    /**
+     * Direction to go from the given tile towards the goal
+     * @param x tile X
+     * @param y tile Y
+     * @return Direction towards goal, STAY at the goal, null if the goal can't be reached from here
+     */
+    public Direction getDirection(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return null;
+        byte d = this.directions[y * this.width + x];
+        if (d == NO_DIRECTION) return null;
+        return DIRECTIONS[d];
+    }
+
+    /**
+     * X offset (-1, 0 or 1) of the next tile towards the goal.
+     * Zero at the goal and on tiles the goal can't be reached from.
+     */
+    public int getNextXOffset(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return 0;
+        byte d = this.directions[y * this.width + x];
+        if (d < 0 || d >= 8) return 0;
+        return DX[d];
+    }
+
+    /**
+     * Y offset (-1, 0 or 1) of the next tile towards the goal.
+     * Zero at the goal and on tiles the goal can't be reached from.
+     */
+    public int getNextYOffset(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return 0;
+        byte d = this.directions[y * this.width + x];
+        if (d < 0 || d >= 8) return 0;
+        return DY[d];
+    }
+
+    /**
+     * Cost of getting from the given tile to the goal
+     * @return cost to goal, infinite if the goal can't be reached
+     */
+    public float getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return Float.POSITIVE_INFINITY;
+        return this.distances[y * this.width + x];
+    }
+
+    public boolean isReachable(int x, int y) {
+        return this.getDistance(x, y) != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param map the CollisionMap this field was made on
+     * @return true if the map has changed since the field was made
+     */
+    public boolean isOutOfDate(CollisionMap map) {
+        return map.getVersion() != this.mapVersion;
+    }
+
+    public int getGoalX() {
+        return this.goalX;
+    }
+
+    public int getGoalY() {
+        return this.goalY;
+    }
+
+    public int getClearanceNeed() {
+        return this.clearanceNeed;
+    }
+
+}
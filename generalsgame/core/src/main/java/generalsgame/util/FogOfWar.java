@@ -0,0 +1,288 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import generalsgame.gameobjects.MapObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * FogOfWar tracks what one player can see on the CollisionMap tiles.
+ * Every unit of the player is a viewer: the tiles it sees are found with
+ * recursive shadowcasting, stopped by tiles that block rays (see
+ * CollisionMap.blocksRay()). Each tile keeps a count of the viewers
+ * seeing it, so a viewer that moves only takes away its old tiles and
+ * adds its new ones. Viewers that stay on the same tile with the same
+ * sight radius cost nothing, unless the map changed around them.
+ * Visible and explored (seen at least once) tiles are kept as bitsets.
+ * Each tick goes: beginUpdate(), update() for every viewer, endUpdate().
+ * Viewers are told apart by handles given out by update(), like the
+ * handles of the SpatialGrid.
+ * @author nikok
+ */
+public class FogOfWar {
+
+    //Octant transforms for the shadowcasting: xx, xy, yx, yy
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, 1}, {0, 1, 1, 0}, {0, -1, 1, 0}, {-1, 0, 0, 1},
+        {-1, 0, 0, -1}, {0, -1, -1, 0}, {0, 1, -1, 0}, {1, 0, 0, -1}
+    };
+
+    private final CollisionMap collisionMap;
+    private final long sightMask; //Terrains that don't block sight
+    private final int width;
+    private final int height;
+
+    private final int[] viewCounts; //Viewers seeing each tile
+    private final long[] visible; //Bit per tile, set if viewCount > 0
+    private final long[] explored; //Bit per tile, set once ever seen
+    private final int[] stamps; //Tiles already added on the current cast
+    private int stamp;
+
+    private final ArrayList<Viewer> viewers = new ArrayList<>();
+    private final ArrayList<Integer> freeHandles = new ArrayList<>();
+    private Viewer casting; //Viewer the current cast adds tiles to
+
+    /**
+     * @param collisionMap Map to see over
+     * @param sightMask Bitmask of terrains sight goes through, see CollisionMap.getRaycastMask()
+     */
+    public FogOfWar(CollisionMap collisionMap, long sightMask) {
+        this.collisionMap = collisionMap;
+        this.sightMask = sightMask;
+        this.width = collisionMap.getMapTileWidth();
+        this.height = collisionMap.getMapTileHeight();
+        int tiles = this.width * this.height;
+        this.viewCounts = new int[tiles];
+        this.visible = new long[(tiles + 63) / 64];
+        this.explored = new long[(tiles + 63) / 64];
+        this.stamps = new int[tiles];
+    }
+
+    /**
+     * Start a tick. Viewers not given to update() before
+     * endUpdate() are dropped.
+     */
+    public void beginUpdate() {
+        for (int i = 0; i < this.viewers.size(); i++) {
+            Viewer v = this.viewers.get(i);
+            if (v != null) v.seen = false;
+        }
+    }
+
+    /**
+     * Update the sight of a viewer. Sight is only cast again if the
+     * viewer changed tiles, its radius changed or the map changed
+     * within its sight.
+     * @param handle Handle given by the last update() of the viewer, -1 if none
+     * @param mob The viewer
+     * @param xPos xCoordinate the viewer sees from (map pixels)
+     * @param yPos yCoordinate the viewer sees from (map pixels)
+     * @param radius Sight radius in tiles
+     * @return handle of the viewer, to give to the next update()
+     */
+    public int update(int handle, MapObject mob, double xPos, double yPos, int radius) {
+        Viewer v = this.get(handle) == mob ? this.viewers.get(handle) : null;
+        if (v == null) {
+            handle = this.freeHandles.isEmpty() ? this.viewers.size() : this.freeHandles.remove(this.freeHandles.size()-1);
+            v = new Viewer(mob);
+            if (handle == this.viewers.size()) this.viewers.add(v);
+            else this.viewers.set(handle, v);
+        }
+        v.seen = true;
+        int tileX = (int)Math.floor(xPos / this.collisionMap.getNodeSize());
+        int tileY = (int)Math.floor(yPos / this.collisionMap.getNodeSize());
+        if (!v.stale && v.tileX == tileX && v.tileY == tileY && v.radius == radius) return handle;
+        this.forget(v);
+        v.tileX = tileX;
+        v.tileY = tileY;
+        v.radius = radius;
+        v.stale = false;
+        this.cast(v);
+        return handle;
+    }
+
+    /**
+     * End the tick: viewers that weren't updated are
+     * removed, along with what they saw.
+     */
+    public void endUpdate() {
+        for (int i = 0; i < this.viewers.size(); i++) {
+            Viewer v = this.viewers.get(i);
+            if (v != null && !v.seen) this.remove(i);
+        }
+    }
+
+    /**
+     * Remove a viewer right away
+     * @param handle Handle of the viewer
+     */
+    public void remove(int handle) {
+        Viewer v = this.viewers.get(handle);
+        if (v == null) return;
+        this.forget(v);
+        this.viewers.set(handle, null);
+        this.freeHandles.add(handle);
+    }
+
+    /**
+     * @param handle Handle given by update()
+     * @return the viewer with the handle, null if there's none
+     */
+    public MapObject get(int handle) {
+        if (handle < 0 || handle >= this.viewers.size()) return null;
+        Viewer v = this.viewers.get(handle);
+        return v == null ? null : v.mob;
+    }
+
+    /**
+     * Tell that the tiles in the area changed (a structure was added,
+     * removed or moved). Viewers that could see into the area cast
+     * their sight again on their next update().
+     * Coordinates are tiles and inclusive.
+     */
+    public void markDirty(int xStart, int yStart, int xEnd, int yEnd) {
+        for (int i = 0; i < this.viewers.size(); i++) {
+            Viewer v = this.viewers.get(i);
+            if (v == null || v.stale) continue;
+            if (v.tileX + v.radius < xStart || v.tileX - v.radius > xEnd) continue;
+            if (v.tileY + v.radius < yStart || v.tileY - v.radius > yEnd) continue;
+            v.stale = true;
+        }
+    }
+
+    public boolean isVisible(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return false;
+        int tile = y * this.width + x;
+        return (this.visible[tile >>> 6] & (1L << tile)) != 0;
+    }
+
+    public boolean isExplored(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return false;
+        int tile = y * this.width + x;
+        return (this.explored[tile >>> 6] & (1L << tile)) != 0;
+    }
+
+    /**
+     * Check if any tile under the given area is visible.
+     * Used to skip rendering and sending hidden objects.
+     * @return True if some part of the area can be seen
+     */
+    public boolean isVisible(double minX, double minY, double maxX, double maxY) {
+        int nodeSize = this.collisionMap.getNodeSize();
+        int xStart = Math.max(0, (int)Math.floor(minX / nodeSize));
+        int yStart = Math.max(0, (int)Math.floor(minY / nodeSize));
+        int xEnd = Math.min(this.width-1, (int)Math.floor(maxX / nodeSize));
+        int yEnd = Math.min(this.height-1, (int)Math.floor(maxY / nodeSize));
+        for (int y = yStart; y <= yEnd; y++) {
+            for (int x = xStart; x <= xEnd; x++) {
+                if (this.isVisible(x, y)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take away the tiles the viewer saw
+     */
+    private void forget(Viewer v) {
+        for (int i = 0; i < v.tileCount; i++) {
+            int tile = v.tiles[i];
+            if (--this.viewCounts[tile] == 0) this.visible[tile >>> 6] &= ~(1L << tile);
+        }
+        v.tileCount = 0;
+    }
+
+    /**
+     * Find the tiles the viewer sees, one octant at a time
+     */
+    private void cast(Viewer v) {
+        this.casting = v;
+        this.stamp++;
+        if (this.stamp == 0) {
+            //Wrapped around, old stamps could match again
+            Arrays.fill(this.stamps, 0);
+            this.stamp = 1;
+        }
+        this.see(v.tileX, v.tileY);
+        for (int[] o : OCTANTS) {
+            this.castLight(v.tileX, v.tileY, 1, 1.0, 0.0, v.radius, o[0], o[1], o[2], o[3]);
+        }
+        this.casting = null;
+    }
+
+    /**
+     * Recursive shadowcasting over one octant. Rows go outwards from
+     * the viewer, and a blocking tile starts a new scan of the rows
+     * behind it with the slopes narrowed to what the blocker leaves open.
+     * @param row Distance of the first row from the viewer
+     * @param startSlope Slope of the upper edge of the visible part
+     * @param endSlope Slope of the lower edge of the visible part
+     */
+    private void castLight(int centerX, int centerY, int row, double startSlope, double endSlope,
+            int radius, int xx, int xy, int yx, int yy) {
+        if (startSlope < endSlope) return;
+        int radiusSquared = radius * radius;
+        double nextStart = startSlope;
+        for (int distance = row; distance <= radius; distance++) {
+            boolean blocked = false;
+            int dy = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (startSlope < rightSlope) continue;
+                if (endSlope > leftSlope) break;
+                int x = centerX + dx * xx + dy * xy;
+                int y = centerY + dx * yx + dy * yy;
+                if (dx * dx + dy * dy <= radiusSquared) this.see(x, y);
+                boolean opaque = this.collisionMap.blocksRay(this.sightMask, x, y);
+                if (blocked) {
+                    if (opaque) {
+                        nextStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        startSlope = nextStart;
+                    }
+                } else if (opaque && distance < radius) {
+                    blocked = true;
+                    this.castLight(centerX, centerY, distance + 1, startSlope, leftSlope, radius, xx, xy, yx, yy);
+                    nextStart = rightSlope;
+                }
+            }
+            if (blocked) break;
+        }
+    }
+
+    private void see(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return;
+        int tile = y * this.width + x;
+        if (this.stamps[tile] == this.stamp) return; //Octants share their edges
+        this.stamps[tile] = this.stamp;
+        Viewer v = this.casting;
+        if (v.tileCount == v.tiles.length) v.tiles = Arrays.copyOf(v.tiles, v.tiles.length * 2);
+        v.tiles[v.tileCount++] = tile;
+        if (this.viewCounts[tile]++ == 0) this.visible[tile >>> 6] |= (1L << tile);
+        this.explored[tile >>> 6] |= (1L << tile);
+    }
+
+    private static class Viewer {
+        private final MapObject mob;
+        private int tileX;
+        private int tileY;
+        private int radius;
+        private boolean stale = true;
+        private boolean seen;
+        private int[] tiles = new int[64]; //Tiles this viewer sees
+        private int tileCount;
+
+        private Viewer(MapObject mob) {
+            this.mob = mob;
+        }
+    }
+
+}
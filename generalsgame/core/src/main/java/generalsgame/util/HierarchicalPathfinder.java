@@ -0,0 +1,556 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * HierarchicalPathfinder is an HPA* style layer on top of the
+ * CollisionMap. The map is cut into square clusters, and the
+ * open crossings (entrances) between neighbouring clusters become
+ * the nodes of a small abstract graph. Nodes in the same cluster are
+ * linked with their precomputed walking distance inside the cluster.
+ * Long queries are answered on the abstract graph first, and only the
+ * route to the next cluster is refined into actual tiles. The rest is
+ * refined when the mover asks again.
+ * Abstract graphs are built lazily per clearance need and terrain set.
+ * Map changes only mark the touched clusters dirty, and those are
+ * rebuilt on the next query.
+ * @author nikok
+ */
+public class HierarchicalPathfinder {
+
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+    //Entrances at least this wide get a transition at both ends instead of one in the middle
+    private static final int WIDE_ENTRANCE = 6;
+    //Virtual node ids for the start and goal of the current query
+    private static final int START = 0;
+    private static final int GOAL = 1;
+    private static final int[] DX = {0, 1, 0, -1, 1, -1, 1, -1};
+    private static final int[] DY = {-1, 0, 1, 0, -1, -1, 1, 1};
+
+    private PathFinder pathfinder;
+    private CollisionMap map;
+    private PathfinderAlgorithm algo; //Used to refine the abstract path into tiles
+    private int clusterSize;
+    private int clustersWide;
+    private int clustersHigh;
+    private boolean allowDiagonalMovement;
+
+    private HashMap<Long, AbstractGraph> graphs;
+
+    //Dijkstra state for searches inside a single cluster
+    private int[] localStamps;
+    private int localStamp;
+    private double[] localCosts;
+    private IndexedMinHeap localOpen;
+    private double[] startDistances;
+    private double[] goalDistances;
+
+    //Abstract search state
+    private double[] abstractCosts;
+    private int[] abstractPrevious;
+    private int[] abstractStamps;
+    private int abstractStamp;
+    private IndexedMinHeap abstractOpen = new IndexedMinHeap(0);
+    private int[] waypoints = new int[32];
+    private int waypointCount;
+
+    public HierarchicalPathfinder(PathFinder pathfinder, CollisionMap map, PathfinderAlgorithm algo, int clusterSize, boolean allowDiagonalMovement) {
+        this.pathfinder = pathfinder;
+        this.map = map;
+        this.algo = algo;
+        this.clusterSize = clusterSize;
+        this.allowDiagonalMovement = allowDiagonalMovement;
+        this.clustersWide = (map.getMapTileWidth() + clusterSize - 1) / clusterSize;
+        this.clustersHigh = (map.getMapTileHeight() + clusterSize - 1) / clusterSize;
+        this.graphs = new HashMap<>();
+        int clusterTiles = clusterSize * clusterSize;
+        this.localStamps = new int[clusterTiles];
+        this.localCosts = new double[clusterTiles];
+        this.localOpen = new IndexedMinHeap(clusterTiles);
+        this.startDistances = new double[clusterTiles];
+        this.goalDistances = new double[clusterTiles];
+    }
+
+    /**
+     * Long queries are the ones where start and goal are
+     * further apart than neighbouring clusters. Anything shorter
+     * is cheaper to search directly on the tiles.
+     * @return true if the query should go through the hierarchy
+     */
+    public boolean isLongQuery(int startX, int startY, int goalX, int goalY) {
+        return Math.abs(startX / clusterSize - goalX / clusterSize) > 1
+                || Math.abs(startY / clusterSize - goalY / clusterSize) > 1;
+    }
+
+    /**
+     * Find a path through the abstract graph and refine it
+     * up to the first entrance of the next cluster.
+     * The returned path is marked incomplete if it stops short of the goal.
+     * @param clearanceNeed Size of the mover in tiles
+     * @param crossableTerrain terrains the mover can path through
+     * @return refined start of the path, empty path if there's no route,
+     * or null if the query can't be handled on the hierarchy
+     */
+    public Path findPath(int clearanceNeed, List<Integer> crossableTerrain, int startX, int startY, int goalX, int goalY) {
+        if (map.isBlocked(crossableTerrain, goalX, goalY)) return new Path();
+        long key = graphKey(clearanceNeed, crossableTerrain);
+        if (key < 0) return null;
+        AbstractGraph graph = this.graphs.get(key);
+        if (graph == null) {
+            graph = new AbstractGraph(clearanceNeed, crossableTerrain);
+            this.graphs.put(key, graph);
+        }
+        graph.update();
+        if (!graph.passable(startX, startY) || !graph.passable(goalX, goalY)) return null;
+        if (!this.findAbstractPath(graph, startX, startY, goalX, goalY)) return new Path();
+        //Refine legs until we've made it into the next cluster
+        int startCluster = this.clusterOf(startX, startY);
+        Path path = new Path();
+        int fromX = startX;
+        int fromY = startY;
+        for (int i = 1; i < this.waypointCount; i++) {
+            int wx = this.waypoints[i] % map.getMapTileWidth();
+            int wy = this.waypoints[i] / map.getMapTileWidth();
+            if (wx == fromX && wy == fromY) continue;
+            Path leg = this.algo.findPath(map, clearanceNeed, crossableTerrain, fromX, fromY, wx, wy);
+            if (leg.getLength() == 0) return null; //Refinement failed, let the caller search the tiles
+            for (int n = 0; n < leg.getLength(); n++) path.addStep(leg.getNode(n));
+            fromX = wx;
+            fromY = wy;
+            if (this.clusterOf(wx, wy) != startCluster) break;
+        }
+        path.setComplete(fromX == goalX && fromY == goalY);
+        return path;
+    }
+
+    /**
+     * Mark the clusters overlapping the given tile region dirty.
+     * Clearance of a tile depends on the tiles below and right of it,
+     * so the region is grown up and left by the largest clearance in use.
+     * @param xStart first column of the changed region
+     * @param yStart first row of the changed region
+     * @param xEnd last column of the changed region
+     * @param yEnd last row of the changed region
+     */
+    public void invalidateRegion(int xStart, int yStart, int xEnd, int yEnd) {
+        for (AbstractGraph graph : this.graphs.values()) {
+            int grow = graph.clearanceNeed;
+            int cxStart = Math.max(0, (xStart - grow) / clusterSize);
+            int cyStart = Math.max(0, (yStart - grow) / clusterSize);
+            int cxEnd = Math.min(clustersWide - 1, xEnd / clusterSize);
+            int cyEnd = Math.min(clustersHigh - 1, yEnd / clusterSize);
+            for (int cy = cyStart; cy <= cyEnd; cy++) {
+                for (int cx = cxStart; cx <= cxEnd; cx++) {
+                    graph.dirtyClusters[cy * clustersWide + cx] = true;
+                    graph.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Throw away all the abstract graphs. They get rebuilt on demand.
+     */
+    public void invalidateAll() {
+        this.graphs.clear();
+    }
+
+    /**
+     * Build a key for the clearance need and terrain set
+     * @return key, or -1 if the terrain set can't be packed into one
+     */
+    private static long graphKey(int clearanceNeed, List<Integer> crossableTerrain) {
+        long mask = CollisionMap.getTerrainMask(crossableTerrain);
+        if (mask < 0 || clearanceNeed < 0 || clearanceNeed > 255) return -1;
+        return (mask << 8) | clearanceNeed;
+    }
+
+    private int clusterOf(int x, int y) {
+        return (y / clusterSize) * clustersWide + (x / clusterSize);
+    }
+
+    /**
+     * A* over the abstract graph, with the start and goal tiles
+     * connected to the entrances of their own clusters.
+     * Leaves the route in waypoints (tile indexes, start first).
+     * @return true if a route was found
+     */
+    private boolean findAbstractPath(AbstractGraph graph, int startX, int startY, int goalX, int goalY) {
+        int width = map.getMapTileWidth();
+        int startCluster = this.clusterOf(startX, startY);
+        int goalCluster = this.clusterOf(goalX, goalY);
+        this.clusterDistances(graph, startCluster, startX, startY, this.startDistances);
+        this.clusterDistances(graph, goalCluster, goalX, goalY, this.goalDistances);
+
+        int capacity = graph.nodeCapacity();
+        if (this.abstractCosts == null || this.abstractCosts.length < capacity) {
+            this.abstractCosts = new double[capacity];
+            this.abstractPrevious = new int[capacity];
+            this.abstractStamps = new int[capacity];
+            this.abstractOpen = new IndexedMinHeap(capacity);
+        }
+        this.abstractStamp++;
+        this.abstractOpen.clear();
+        this.abstractStamps[START] = this.abstractStamp;
+        this.abstractCosts[START] = 0;
+        this.abstractPrevious[START] = -1;
+        this.abstractOpen.add(START, this.estimate(startX, startY, goalX, goalY));
+
+        boolean found = false;
+        while (!this.abstractOpen.isEmpty()) {
+            int current = this.abstractOpen.pop();
+            if (current == GOAL) {
+                found = true;
+                break;
+            }
+            double cost = this.abstractCosts[current];
+            if (current == START) {
+                if (startCluster == goalCluster) {
+                    this.relax(graph, current, GOAL, this.startDistances[graph.localIndex(goalY * width + goalX)], goalX, goalY);
+                }
+                int[] nodes = graph.clusterNodes(startCluster);
+                for (int i = 0; i < nodes.length; i++) {
+                    int n = nodes[i];
+                    this.relax(graph, current, n, cost + this.startDistances[graph.localIndex(graph.nodeTile[n])], goalX, goalY);
+                }
+                continue;
+            }
+            int[] to = graph.intraTo[current];
+            double[] costs = graph.intraCost[current];
+            for (int i = 0; i < to.length; i++) {
+                this.relax(graph, current, to[i], cost + costs[i], goalX, goalY);
+            }
+            int partner = graph.nodePartner[current];
+            this.relax(graph, current, partner, cost + map.getMovementCost(0, graph.nodeTile[partner] % width, graph.nodeTile[partner] / width), goalX, goalY);
+            if (graph.nodeCluster[current] == goalCluster) {
+                this.relax(graph, current, GOAL, cost + this.goalDistances[graph.localIndex(graph.nodeTile[current])], goalX, goalY);
+            }
+        }
+        if (!found) return false;
+        //Build back the waypoints
+        this.waypointCount = 0;
+        for (int n = GOAL; n != -1; n = this.abstractPrevious[n]) {
+            if (this.waypointCount == this.waypoints.length) this.waypoints = Arrays.copyOf(this.waypoints, this.waypointCount * 2);
+            if (n == GOAL) this.waypoints[this.waypointCount++] = goalY * width + goalX;
+            else if (n == START) this.waypoints[this.waypointCount++] = startY * width + startX;
+            else this.waypoints[this.waypointCount++] = graph.nodeTile[n];
+        }
+        for (int i = 0, j = this.waypointCount - 1; i < j; i++, j--) {
+            int w = this.waypoints[i];
+            this.waypoints[i] = this.waypoints[j];
+            this.waypoints[j] = w;
+        }
+        return true;
+    }
+
+    private void relax(AbstractGraph graph, int from, int to, double cost, int goalX, int goalY) {
+        if (cost == Double.POSITIVE_INFINITY) return;
+        if (this.abstractStamps[to] == this.abstractStamp) {
+            if (this.abstractCosts[to] <= cost) return;
+        } else {
+            this.abstractStamps[to] = this.abstractStamp;
+        }
+        this.abstractCosts[to] = cost;
+        this.abstractPrevious[to] = from;
+        double h = 0;
+        if (to != GOAL) {
+            int tile = graph.nodeTile[to];
+            h = this.estimate(tile % map.getMapTileWidth(), tile / map.getMapTileWidth(), goalX, goalY);
+        }
+        this.abstractOpen.add(to, cost + h);
+    }
+
+    /**
+     * Heuristic for the abstract search. Diagonal steps cost the same
+     * as straight ones on the tile level, so this never overestimates.
+     */
+    private double estimate(int x, int y, int goalX, int goalY) {
+        int dx = Math.abs(x - goalX);
+        int dy = Math.abs(y - goalY);
+        return this.allowDiagonalMovement ? Math.max(dx, dy) : dx + dy;
+    }
+
+    /**
+     * Dijkstra inside a single cluster from the given tile.
+     * @param distances filled with the walking cost to each tile of the
+     * cluster (local index), infinity for the unreachable ones
+     */
+    private void clusterDistances(AbstractGraph graph, int cluster, int fromX, int fromY, double[] distances) {
+        int cx0 = (cluster % clustersWide) * clusterSize;
+        int cy0 = (cluster / clustersWide) * clusterSize;
+        int cx1 = Math.min(cx0 + clusterSize, map.getMapTileWidth()) - 1;
+        int cy1 = Math.min(cy0 + clusterSize, map.getMapTileHeight()) - 1;
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        this.localStamp++;
+        this.localOpen.clear();
+        int first = (fromY - cy0) * clusterSize + (fromX - cx0);
+        this.localStamps[first] = this.localStamp;
+        this.localCosts[first] = 0;
+        this.localOpen.add(first, 0);
+        int directions = this.allowDiagonalMovement ? 8 : 4;
+        while (!this.localOpen.isEmpty()) {
+            int current = this.localOpen.pop();
+            double cost = this.localCosts[current];
+            distances[current] = cost;
+            int x = cx0 + current % clusterSize;
+            int y = cy0 + current / clusterSize;
+            int cardinalsOpen = 0;
+            for (int d = 0; d < directions; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (nx < cx0 || ny < cy0 || nx > cx1 || ny > cy1) continue;
+                if (d < 4) {
+                    if (!graph.passable(nx, ny)) continue;
+                    cardinalsOpen |= (1 << d);
+                } else {
+                    int vertical = DY[d] < 0 ? 0 : 2;
+                    int horizontal = DX[d] > 0 ? 1 : 3;
+                    if ((cardinalsOpen & (1 << vertical)) == 0 || (cardinalsOpen & (1 << horizontal)) == 0) continue;
+                    if (!graph.passable(nx, ny)) continue;
+                }
+                int n = (ny - cy0) * clusterSize + (nx - cx0);
+                double nCost = cost + map.getMovementCost(0, nx, ny);
+                if (this.localStamps[n] == this.localStamp) {
+                    if (this.localCosts[n] <= nCost) continue;
+                } else {
+                    this.localStamps[n] = this.localStamp;
+                }
+                this.localCosts[n] = nCost;
+                this.localOpen.add(n, nCost);
+            }
+        }
+    }
+
+    /**
+     * Abstract graph for one clearance need and terrain set.
+     * Nodes come in pairs, one on each side of a cluster border.
+     * Each border owns its node pairs, so rebuilding a border never
+     * touches the nodes of the other borders.
+     * Node ids 0 and 1 are reserved for the start and goal of a query.
+     */
+    private class AbstractGraph {
+        private final int clearanceNeed;
+        private final List<Integer> crossableTerrain;
+        private final int[][][] clearance;
+        private final boolean[] dirtyClusters;
+        private boolean dirty;
+        //Borders: first the vertical ones (cluster and the one right of it), then the horizontal ones (cluster and the one below)
+        private final int[][] borderNodes;
+        //Node data by id
+        private int[] nodeTile = new int[64];
+        private int[] nodeCluster = new int[64];
+        private int[] nodePartner = new int[64];
+        private int[][] intraTo = new int[64][];
+        private double[][] intraCost = new double[64][];
+        private int nextNode = 2;
+        private int[] freeNodes = new int[16];
+        private int freeCount;
+
+        private AbstractGraph(int clearanceNeed, List<Integer> crossableTerrain) {
+            this.clearanceNeed = clearanceNeed;
+            this.crossableTerrain = new ArrayList<>(crossableTerrain);
+            this.clearance = new int[crossableTerrain.size()][][];
+            this.dirtyClusters = new boolean[clustersWide * clustersHigh];
+            Arrays.fill(this.dirtyClusters, true);
+            this.dirty = true;
+            this.borderNodes = new int[clustersWide * clustersHigh * 2][];
+        }
+
+        private int nodeCapacity() {
+            return this.nodeTile.length;
+        }
+
+        private int localIndex(int tile) {
+            int x = tile % map.getMapTileWidth();
+            int y = tile / map.getMapTileWidth();
+            return (y % clusterSize) * clusterSize + (x % clusterSize);
+        }
+
+        private boolean passable(int x, int y) {
+            if (map.isBlocked(this.crossableTerrain, x, y)) return false;
+            for (int i = 0; i < this.clearance.length; i++) {
+                if (this.clearance[i][x][y] >= this.clearanceNeed) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Rebuild the borders of the dirty clusters, and the
+         * intra-cluster edges of every cluster that lost or gained nodes.
+         */
+        private void update() {
+            if (!this.dirty) return;
+            for (int i = 0; i < this.clearance.length; i++) {
+                this.clearance[i] = pathfinder.getClearance(this.crossableTerrain.get(i));
+            }
+            boolean[] rebuildIntra = new boolean[this.dirtyClusters.length];
+            for (int c = 0; c < this.dirtyClusters.length; c++) {
+                if (!this.dirtyClusters[c]) continue;
+                int cx = c % clustersWide;
+                int cy = c / clustersWide;
+                rebuildIntra[c] = true;
+                //Right and down borders belong to this cluster, left and up to the neighbours
+                if (cx < clustersWide - 1) { this.rebuildBorder(c, c + 1, true); rebuildIntra[c + 1] = true; }
+                if (cy < clustersHigh - 1) { this.rebuildBorder(c, c + clustersWide, false); rebuildIntra[c + clustersWide] = true; }
+                if (cx > 0) { this.rebuildBorder(c - 1, c, true); rebuildIntra[c - 1] = true; }
+                if (cy > 0) { this.rebuildBorder(c - clustersWide, c, false); rebuildIntra[c - clustersWide] = true; }
+                this.dirtyClusters[c] = false;
+            }
+            for (int c = 0; c < rebuildIntra.length; c++) {
+                if (rebuildIntra[c]) this.rebuildIntraEdges(c);
+            }
+            this.dirty = false;
+        }
+
+        /**
+         * Find the entrances on the border between two neighbouring
+         * clusters and replace the old node pairs of the border with them.
+         * @param first cluster on the left or top
+         * @param second cluster on the right or below
+         * @param vertical true if the border runs vertically (clusters side by side)
+         */
+        private void rebuildBorder(int first, int second, boolean vertical) {
+            int border = vertical ? first : clustersWide * clustersHigh + first;
+            int[] old = this.borderNodes[border];
+            if (old != null) {
+                for (int i = 0; i < old.length; i++) this.freeNode(old[i]);
+            }
+            int cx0 = (first % clustersWide) * clusterSize;
+            int cy0 = (first / clustersWide) * clusterSize;
+            int length;
+            if (vertical) length = Math.min(clusterSize, map.getMapTileHeight() - cy0);
+            else length = Math.min(clusterSize, map.getMapTileWidth() - cx0);
+            int[] nodes = new int[8];
+            int nodeCount = 0;
+            int runStart = -1;
+            for (int i = 0; i <= length; i++) {
+                boolean open = false;
+                if (i < length) {
+                    if (vertical) open = this.passable(cx0 + clusterSize - 1, cy0 + i) && this.passable(cx0 + clusterSize, cy0 + i);
+                    else open = this.passable(cx0 + i, cy0 + clusterSize - 1) && this.passable(cx0 + i, cy0 + clusterSize);
+                }
+                if (open && runStart < 0) runStart = i;
+                if (!open && runStart >= 0) {
+                    int runEnd = i - 1;
+                    if (nodeCount + 4 > nodes.length) nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    if (runEnd - runStart + 1 >= WIDE_ENTRANCE) {
+                        nodeCount = this.addTransition(nodes, nodeCount, first, second, vertical, cx0, cy0, runStart);
+                        nodeCount = this.addTransition(nodes, nodeCount, first, second, vertical, cx0, cy0, runEnd);
+                    } else {
+                        nodeCount = this.addTransition(nodes, nodeCount, first, second, vertical, cx0, cy0, (runStart + runEnd) / 2);
+                    }
+                    runStart = -1;
+                }
+            }
+            this.borderNodes[border] = Arrays.copyOf(nodes, nodeCount);
+        }
+
+        private int addTransition(int[] nodes, int nodeCount, int first, int second, boolean vertical, int cx0, int cy0, int offset) {
+            int width = map.getMapTileWidth();
+            int a = this.newNode();
+            int b = this.newNode();
+            if (vertical) {
+                this.nodeTile[a] = (cy0 + offset) * width + cx0 + clusterSize - 1;
+                this.nodeTile[b] = (cy0 + offset) * width + cx0 + clusterSize;
+            } else {
+                this.nodeTile[a] = (cy0 + clusterSize - 1) * width + cx0 + offset;
+                this.nodeTile[b] = (cy0 + clusterSize) * width + cx0 + offset;
+            }
+            this.nodeCluster[a] = first;
+            this.nodeCluster[b] = second;
+            this.nodePartner[a] = b;
+            this.nodePartner[b] = a;
+            nodes[nodeCount++] = a;
+            nodes[nodeCount++] = b;
+            return nodeCount;
+        }
+
+        /**
+         * Nodes inside the given cluster, gathered from its four borders
+         */
+        private int[] clusterNodes(int cluster) {
+            int cx = cluster % clustersWide;
+            int cy = cluster / clustersWide;
+            int count = 0;
+            int[][] borders = {
+                cx < clustersWide - 1 ? this.borderNodes[cluster] : null,
+                cy < clustersHigh - 1 ? this.borderNodes[clustersWide * clustersHigh + cluster] : null,
+                cx > 0 ? this.borderNodes[cluster - 1] : null,
+                cy > 0 ? this.borderNodes[clustersWide * clustersHigh + cluster - clustersWide] : null
+            };
+            for (int[] border : borders) {
+                if (border == null) continue;
+                for (int n : border) if (this.nodeCluster[n] == cluster) count++;
+            }
+            int[] result = new int[count];
+            count = 0;
+            for (int[] border : borders) {
+                if (border == null) continue;
+                for (int n : border) if (this.nodeCluster[n] == cluster) result[count++] = n;
+            }
+            return result;
+        }
+
+        /**
+         * Link every node of the cluster to the other nodes of the
+         * cluster it can walk to without leaving the cluster.
+         */
+        private void rebuildIntraEdges(int cluster) {
+            int[] nodes = this.clusterNodes(cluster);
+            double[] distances = startDistances; //Borrowed, queries don't run during a rebuild
+            for (int i = 0; i < nodes.length; i++) {
+                int n = nodes[i];
+                int tile = this.nodeTile[n];
+                clusterDistances(this, cluster, tile % map.getMapTileWidth(), tile / map.getMapTileWidth(), distances);
+                int reachable = 0;
+                for (int j = 0; j < nodes.length; j++) {
+                    if (j != i && distances[this.localIndex(this.nodeTile[nodes[j]])] != Double.POSITIVE_INFINITY) reachable++;
+                }
+                int[] to = new int[reachable];
+                double[] costs = new double[reachable];
+                reachable = 0;
+                for (int j = 0; j < nodes.length; j++) {
+                    if (j == i) continue;
+                    double d = distances[this.localIndex(this.nodeTile[nodes[j]])];
+                    if (d == Double.POSITIVE_INFINITY) continue;
+                    to[reachable] = nodes[j];
+                    costs[reachable++] = d;
+                }
+                this.intraTo[n] = to;
+                this.intraCost[n] = costs;
+            }
+        }
+
+        private int newNode() {
+            if (this.freeCount > 0) return this.freeNodes[--this.freeCount];
+            if (this.nextNode == this.nodeTile.length) {
+                int size = this.nodeTile.length * 2;
+                this.nodeTile = Arrays.copyOf(this.nodeTile, size);
+                this.nodeCluster = Arrays.copyOf(this.nodeCluster, size);
+                this.nodePartner = Arrays.copyOf(this.nodePartner, size);
+                this.intraTo = Arrays.copyOf(this.intraTo, size);
+                this.intraCost = Arrays.copyOf(this.intraCost, size);
+            }
+            return this.nextNode++;
+        }
+
+        private void freeNode(int node) {
+            this.intraTo[node] = null;
+            this.intraCost[node] = null;
+            this.nodeCluster[node] = -1;
+            if (this.freeCount == this.freeNodes.length) this.freeNodes = Arrays.copyOf(this.freeNodes, this.freeCount * 2);
+            this.freeNodes[this.freeCount++] = node;
+        }
+    }
+
+}
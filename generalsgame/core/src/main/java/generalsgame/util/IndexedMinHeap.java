@@ -0,0 +1,183 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+
+/**
+ * IndexedMinHeap is a priority queue of int indexes (for pathfinding:
+ * tile numbers y*mapWidth+x) ordered by a double key.
+ * Unlike MinHeap it knows where every index sits in the heap,
+ * so contains() is O(1) and decreaseKey() is O(log n) instead
+ * of a linear search through the data.
+ * Indexes must be between 0 and capacity-1.
+ * @author nikok
+ */
+public class IndexedMinHeap {
+    private int[] heap; //Indexes in heap order, heap[0] is the smallest
+    private double[] keys; //Key of each index, by index
+    private int[] positions; //Position+1 of each index in the heap, 0 if not in the heap
+    private int currentSize;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        this.currentSize = 0;
+    }
+
+    /**
+     * Make sure indexes up to capacity-1 fit in the heap.
+     * Existing contents are kept.
+     * @param capacity number of indexes needed
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= this.positions.length) return;
+        this.heap = Arrays.copyOf(this.heap, capacity);
+        this.keys = Arrays.copyOf(this.keys, capacity);
+        this.positions = Arrays.copyOf(this.positions, capacity);
+    }
+
+    /**
+     * Add an index to the heap. If it's already in,
+     * the key is updated instead.
+     * @param index the index to add
+     * @param key the priority (smaller comes first)
+     */
+    public void add(int index, double key) {
+        if (this.contains(index)) {
+            this.changeKey(index, key);
+            return;
+        }
+        this.keys[index] = key;
+        this.heap[this.currentSize] = index;
+        this.positions[index] = this.currentSize + 1;
+        this.currentSize++;
+        this.swim(this.currentSize - 1);
+    }
+
+    /**
+     * Lower the key of an index already in the heap.
+     * Larger keys are ignored.
+     * @param index the index to update
+     * @param key new, smaller key
+     */
+    public void decreaseKey(int index, double key) {
+        if (!this.contains(index) || key >= this.keys[index]) return;
+        this.keys[index] = key;
+        this.swim(this.positions[index] - 1);
+    }
+
+    /**
+     * Set a new key for an index in the heap, up or down
+     * @param index the index to update
+     * @param key the new key
+     */
+    public void changeKey(int index, double key) {
+        if (!this.contains(index)) return;
+        double old = this.keys[index];
+        this.keys[index] = key;
+        if (key < old) this.swim(this.positions[index] - 1);
+        else this.sink(this.positions[index] - 1);
+    }
+
+    public boolean contains(int index) {
+        return index >= 0 && index < this.positions.length && this.positions[index] != 0;
+    }
+
+    /**
+     * @return the index with the smallest key, -1 if heap is empty
+     */
+    public int peek() {
+        if (this.currentSize == 0) return -1;
+        return this.heap[0];
+    }
+
+    /**
+     * Remove and return the index with the smallest key
+     * @return the index with the smallest key, -1 if heap is empty
+     */
+    public int pop() {
+        if (this.currentSize == 0) return -1;
+        int first = this.heap[0];
+        this.positions[first] = 0;
+        this.currentSize--;
+        if (this.currentSize > 0) {
+            this.heap[0] = this.heap[this.currentSize];
+            this.positions[this.heap[0]] = 1;
+            this.sink(0);
+        }
+        return first;
+    }
+
+    public double getKey(int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * Empty the heap. Only the indexes still in the heap
+     * are touched, so this is cheap for big capacities.
+     */
+    public void clear() {
+        for (int i = 0; i < this.currentSize; i++) {
+            this.positions[this.heap[i]] = 0;
+        }
+        this.currentSize = 0;
+    }
+
+    public int size() {
+        return this.currentSize;
+    }
+
+    public boolean isEmpty() {
+        return (this.currentSize == 0);
+    }
+
+    /**
+     * Heapify from heap position i upwards, to the top
+     */
+    private void swim(int i) {
+        int index = this.heap[i];
+        double key = this.keys[index];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            int parentIndex = this.heap[parent];
+            if (this.keys[parentIndex] <= key) break; //We're at right height
+            this.heap[i] = parentIndex;
+            this.positions[parentIndex] = i + 1;
+            i = parent;
+        }
+        this.heap[i] = index;
+        this.positions[index] = i + 1;
+    }
+
+    /**
+     * Heapify from heap position i downwards, to the bottom
+     */
+    private void sink(int i) {
+        int index = this.heap[i];
+        double key = this.keys[index];
+        int half = this.currentSize >> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            if (child + 1 < this.currentSize && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) child++;
+            int childIndex = this.heap[child];
+            if (key <= this.keys[childIndex]) break;
+            this.heap[i] = childIndex;
+            this.positions[childIndex] = i + 1;
+            i = child;
+        }
+        this.heap[i] = index;
+        this.positions[index] = i + 1;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(this.heap, this.currentSize));
+    }
+}
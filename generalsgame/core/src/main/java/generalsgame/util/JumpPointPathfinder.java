@@ -0,0 +1,349 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * JumpPointPathfinder is A* with Jump Point Search (Harabor and Grastien).
+ * On a uniform cost grid most tiles have a symmetric alternative route,
+ * so instead of putting every neighbour on the open list the search
+ * scans ahead in straight lines and only stops at "jump points"
+ * where something forces a turn. On open fields that's a handful of
+ * nodes instead of thousands.
+ * Movement rules are the same as in the A* pathfinders: diagonals
+ * need both neighbouring cardinals open, and tiles need clearance for
+ * the mover. Every step costs 1. When the map has movement costs set,
+ * the shortcuts don't hold, and the search is left to ArrayAStarPathfinder.
+ * @author nikok
+ */
+public class JumpPointPathfinder implements PathfinderAlgorithm {
+
+    private PathFinder pathfinder; //Pathfinder keeps the collisionmap up to date, we just refer to it.
+    private ArrayAStarPathfinder fallback; //For maps with movement costs
+
+    private static final double TIE_BREAKER = 0.001;
+
+    private int maxSearchDistance;
+    private boolean allowDiagonalMovement;
+
+    //Per tile search state, reused between searches like in ArrayAStarPathfinder
+    private int mapWidth;
+    private int mapHeight;
+    private int[] generations;
+    private int generation;
+    private boolean[] closed;
+    private int[] costs;
+    private int[] previous;
+    private IndexedMinHeap openNodes = new IndexedMinHeap(0);
+    //State of the current search
+    private CollisionMap map;
+    private List<Integer> crossableTerrain;
+    private int clearanceNeed;
+    private int goalX;
+    private int goalY;
+    private int[][][] searchClearance = new int[4][][];
+    private int searchTerrainCount;
+    private int[] pathBuffer = new int[64];
+
+    public JumpPointPathfinder(PathFinder pathfinder, int maxSearchDistance, boolean allowDiagonalMovement) {
+        this.pathfinder = pathfinder;
+        this.maxSearchDistance = maxSearchDistance;
+        this.allowDiagonalMovement = allowDiagonalMovement;
+        this.fallback = new ArrayAStarPathfinder(pathfinder, maxSearchDistance, allowDiagonalMovement);
+    }
+
+    /**
+     * Find the path from start to goal.
+     * Works like the other PathfinderAlgorithms: the returned path doesn't include
+     * the start, does include the goal (every tile in between, not just the
+     * jump points), and is empty if the goal is blocked, unreachable or
+     * further than maxSearchDistance steps.
+     * @param map The map we're moving on
+     * @param tileSize Size of the object we're finding a path for (in tiles)
+     * @param crossableTerrain terrains this object can path through
+     * @param startX starting position of the object
+     * @param startY starting position of the object
+     * @param goalX pathfinding goal of the object
+     * @param goalY pathfinding goal of the object
+     * @return Path to goal
+     */
+    @Override
+    public Path findPath(CollisionMap map, int tileSize, List<Integer> crossableTerrain, int startX, int startY, int goalX, int goalY) {
+        if (map.hasMovementCosts(0)) {
+            //Jumping over tiles assumes they all cost the same
+            return this.fallback.findPath(map, tileSize, crossableTerrain, startX, startY, goalX, goalY);
+        }
+        //If the goal is blocked, return empty path - it's the AI:s problem to deal with that.
+        if (map.isBlocked(crossableTerrain, goalX, goalY)) return new Path();
+        if (startX < 0 || startY < 0 || startX >= map.getMapTileWidth() || startY >= map.getMapTileHeight()) return new Path();
+        this.initializePathfinding(map, tileSize, crossableTerrain, goalX, goalY);
+        if (!this.isPassable(goalX, goalY)) return new Path();
+        int width = this.mapWidth;
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        this.visit(start, 0, -1);
+
+        boolean found = false;
+        while (!this.openNodes.isEmpty()) {
+            int current = this.openNodes.pop();
+            if (this.costs[current] > this.maxSearchDistance) {
+                //Ran to max search distance, stop searching and return empty path
+                return new Path();
+            }
+            this.closed[current] = true;
+            if (current == goal) {
+                found = true;
+                break;
+            }
+            this.expand(current);
+        }
+        if (!found) {
+            //We ran out of open nodes and didn't find our goal. Return empty path
+            return new Path();
+        }
+        return this.buildPath(start, goal);
+    }
+
+    /**
+     * Start a new search generation and remember what we're searching for
+     */
+    private void initializePathfinding(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int goalX, int goalY) {
+        int tiles = map.getMapTileWidth() * map.getMapTileHeight();
+        if (this.generations == null || this.generations.length != tiles || this.mapWidth != map.getMapTileWidth()) {
+            this.mapWidth = map.getMapTileWidth();
+            this.generations = new int[tiles];
+            this.closed = new boolean[tiles];
+            this.costs = new int[tiles];
+            this.previous = new int[tiles];
+            this.openNodes = new IndexedMinHeap(tiles);
+            this.generation = 0;
+        }
+        this.mapHeight = map.getMapTileHeight();
+        this.generation++;
+        if (this.generation == Integer.MAX_VALUE) {
+            //Wrapped around, old stamps could be mistaken for new ones
+            Arrays.fill(this.generations, 0);
+            this.generation = 1;
+        }
+        this.openNodes.clear();
+        this.map = map;
+        this.crossableTerrain = crossableTerrain;
+        this.clearanceNeed = clearanceNeed;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        if (this.searchClearance.length < crossableTerrain.size()) {
+            this.searchClearance = new int[crossableTerrain.size()][][];
+        }
+        for (int i = 0; i < crossableTerrain.size(); i++) {
+            this.searchClearance[i] = this.pathfinder.getClearance(crossableTerrain.get(i));
+        }
+        this.searchTerrainCount = crossableTerrain.size();
+    }
+
+    /**
+     * Put the tile on the open list with the given cost,
+     * unless it's already been reached cheaper.
+     */
+    private void visit(int index, int cost, int from) {
+        if (this.generations[index] == this.generation) {
+            if (this.closed[index] || this.costs[index] <= cost) return;
+        } else {
+            this.generations[index] = this.generation;
+            this.closed[index] = false;
+        }
+        this.costs[index] = cost;
+        this.previous[index] = from;
+        //With every step costing one there are lots of equally good nodes. Prefer the ones closer to goal
+        int estimate = this.estimate(index % this.mapWidth, index / this.mapWidth);
+        this.openNodes.add(index, cost + estimate + (estimate * TIE_BREAKER));
+    }
+
+    /**
+     * Steps left to the goal if there was nothing in the way.
+     * Diagonal steps cost the same as straight ones, so with them
+     * it's the longer of the distances.
+     */
+    private int estimate(int x, int y) {
+        int dx = Math.abs(x - this.goalX);
+        int dy = Math.abs(y - this.goalY);
+        return this.allowDiagonalMovement ? Math.max(dx, dy) : dx + dy;
+    }
+
+    /**
+     * Jump from the given node towards each of its pruned neighbours,
+     * and add the jump points found to the open list
+     */
+    private void expand(int current) {
+        int x = current % this.mapWidth;
+        int y = current / this.mapWidth;
+        int from = this.previous[current];
+        if (from == -1) {
+            //Start has no direction yet, so all neighbours count
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == 0 && dy == 0) continue;
+                    if (dx != 0 && dy != 0 && (!this.allowDiagonalMovement || !this.isPassable(x + dx, y) || !this.isPassable(x, y + dy))) continue;
+                    this.jumpTowards(current, x, y, dx, dy);
+                }
+            }
+            return;
+        }
+        int dx = Integer.signum(x - (from % this.mapWidth));
+        int dy = Integer.signum(y - (from / this.mapWidth));
+        if (dx != 0 && dy != 0) {
+            //Diagonal: keep going, or turn to either of its cardinals
+            boolean horizontal = this.isPassable(x + dx, y);
+            boolean vertical = this.isPassable(x, y + dy);
+            if (vertical) this.jumpTowards(current, x, y, 0, dy);
+            if (horizontal) this.jumpTowards(current, x, y, dx, 0);
+            if (horizontal && vertical) this.jumpTowards(current, x, y, dx, dy);
+        } else if (this.allowDiagonalMovement) {
+            //Straight: keep going, and check the sides for turns the obstacles forced
+            int sideX = dy; //Perpendicular to the direction of travel
+            int sideY = dx;
+            boolean next = this.isPassable(x + dx, y + dy);
+            boolean sideA = this.isPassable(x + sideX, y + sideY);
+            boolean sideB = this.isPassable(x - sideX, y - sideY);
+            if (next) {
+                this.jumpTowards(current, x, y, dx, dy);
+                if (sideA) this.jumpTowards(current, x, y, dx + sideX, dy + sideY);
+                if (sideB) this.jumpTowards(current, x, y, dx - sideX, dy - sideY);
+            }
+            if (sideA) this.jumpTowards(current, x, y, sideX, sideY);
+            if (sideB) this.jumpTowards(current, x, y, -sideX, -sideY);
+        } else {
+            //Straight without diagonals: forward and both sides
+            this.jumpTowards(current, x, y, dx, dy);
+            this.jumpTowards(current, x, y, dy, dx);
+            this.jumpTowards(current, x, y, -dy, -dx);
+        }
+    }
+
+    private void jumpTowards(int current, int x, int y, int dx, int dy) {
+        int jumpPoint = this.jump(x + dx, y + dy, dx, dy);
+        if (jumpPoint == -1) return;
+        int jx = jumpPoint % this.mapWidth;
+        int jy = jumpPoint / this.mapWidth;
+        //Every step costs one, diagonal or not
+        int steps = Math.max(Math.abs(jx - x), Math.abs(jy - y));
+        this.visit(jumpPoint, this.costs[current] + steps, current);
+    }
+
+    /**
+     * Scan from the given tile in the given direction until a jump point
+     * (the goal, or a tile where an obstacle forces a turn) is found.
+     * Diagonal scans stop where a straight scan from them finds something.
+     * @return index of the jump point, -1 if the scan ran into a wall
+     */
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            if (!this.isPassable(x, y)) return -1;
+            if (x == this.goalX && y == this.goalY) return y * this.mapWidth + x;
+            if (dx != 0 && dy != 0) {
+                if (this.jump(x + dx, y, dx, 0) != -1 || this.jump(x, y + dy, 0, dy) != -1) return y * this.mapWidth + x;
+                //No squeezing diagonally past corners
+                if (!this.isPassable(x + dx, y) || !this.isPassable(x, y + dy)) return -1;
+            } else {
+                if (this.hasForcedNeighbour(x, y, dx, dy)) return y * this.mapWidth + x;
+                if (!this.allowDiagonalMovement && dy != 0) {
+                    //Without diagonals the vertical scans look for turns sideways
+                    if (this.jump(x + 1, y, 1, 0) != -1 || this.jump(x - 1, y, -1, 0) != -1) return y * this.mapWidth + x;
+                }
+            }
+            x += dx;
+            y += dy;
+        }
+    }
+
+    /**
+     * A straight move has a forced neighbour when a side tile is open
+     * but the one behind it is blocked: the only short way to that
+     * side tile goes through here.
+     */
+    private boolean hasForcedNeighbour(int x, int y, int dx, int dy) {
+        if (dx != 0) {
+            return (this.isPassable(x, y - 1) && !this.isPassable(x - dx, y - 1))
+                || (this.isPassable(x, y + 1) && !this.isPassable(x - dx, y + 1));
+        }
+        return (this.isPassable(x - 1, y) && !this.isPassable(x - 1, y - dy))
+            || (this.isPassable(x + 1, y) && !this.isPassable(x + 1, y - dy));
+    }
+
+    /**
+     * Check if the given tile is on the map, not blocked and large
+     * enough for the mover, using the clearance maps of the current search.
+     */
+    private boolean isPassable(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.mapWidth || y >= this.mapHeight) return false;
+        //Clearance of 1 or more already means the tile is of a crossable terrain
+        if (this.clearanceNeed < 1 && this.map.isBlocked(this.crossableTerrain, x, y)) return false;
+        for (int i = 0; i < this.searchTerrainCount; i++) {
+            if (this.searchClearance[i][x][y] >= this.clearanceNeed) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Build back the path from goal to start through the jump points,
+     * filling in the tiles between them. Jump points are always in a
+     * straight or a diagonal line from each other.
+     * Start is left out, goal is included.
+     */
+    private Path buildPath(int start, int goal) {
+        int length = 0;
+        for (int n = goal; n != start; n = this.previous[n]) {
+            int x = n % this.mapWidth;
+            int y = n / this.mapWidth;
+            int px = this.previous[n] % this.mapWidth;
+            int py = this.previous[n] / this.mapWidth;
+            int dx = Integer.signum(px - x);
+            int dy = Integer.signum(py - y);
+            while (x != px || y != py) {
+                if (length == this.pathBuffer.length) this.pathBuffer = Arrays.copyOf(this.pathBuffer, length * 2);
+                this.pathBuffer[length++] = y * this.mapWidth + x;
+                x += dx;
+                y += dy;
+            }
+        }
+        Path path = new Path();
+        for (int i = length - 1; i >= 0; i--) {
+            int n = this.pathBuffer[i];
+            path.addStep(n % this.mapWidth, n / this.mapWidth);
+        }
+        return path;
+    }
+
+    @Override
+    public List<Node> neighbours(CollisionMap map, List<Integer> crossableTerrain, int x, int y) {
+        return this.fallback.neighbours(map, crossableTerrain, x, y);
+    }
+
+    @Override
+    public List<Node> neighbours(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        return this.fallback.neighbours(map, clearanceNeed, crossableTerrain, x, y);
+    }
+
+    @Override
+    public List<Node> diagonalNeighbours(CollisionMap map, List<Integer> crossableTerrain, int x, int y) {
+        return this.fallback.diagonalNeighbours(map, crossableTerrain, x, y);
+    }
+
+    @Override
+    public List<Node> diagonalNeighbours(CollisionMap map, int clearanceNeed, List<Integer> crossableTerrain, int x, int y) {
+        return this.fallback.diagonalNeighbours(map, clearanceNeed, crossableTerrain, x, y);
+    }
+
+    @Override
+    public HashMap<Integer, int[][]> getClearanceMaps() {
+        return this.pathfinder.getClearanceMaps();
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+
+/**
+ * LooseQuadTree answers area queries (what's in this box, within this
+ * radius, what are the K nearest) without going through every object.
+ * It's "loose": each node reaches half its size over its edges, so
+ * every item fits in exactly one node - the one at the depth matching
+ * its size, under its center point. Inserting and moving is then
+ * just arithmetic, no splitting or item shuffling.
+ * The tree is complete and fixed in depth, so nodes are array
+ * slots instead of objects: depth d has 4^d nodes in row major order,
+ * after the nodes of the shallower depths.
+ * Queries don't allocate. The results are kept in the tree until
+ * the next query, so the tree isn't thread safe.
+ * Items are expected to stay on the area the tree covers (the root
+ * takes anything too big for the rest).
+ * @author nikok
+ * @param <T> Type of the items in the tree
+ */
+public class LooseQuadTree<T> {
+
+    private static final int NONE = -1;
+    public static final int MAX_DEPTH = 8;
+
+    private final double originX;
+    private final double originY;
+    private final double size; //Width and height of the root
+    private final int depth; //Deepest level, the root is 0
+    private final int[] levelOffsets; //Index of the first node on each level
+    private final int[] nodeHeads; //First item in each node
+    private final int[] subtreeCounts; //Items in each node and below, to skip empty branches
+
+    //Items by handle
+    private Object[] items;
+    private double[] itemBounds; //minX, minY, maxX, maxY of each item
+    private int[] itemNode;
+    private int[] itemNext;
+    private int[] itemPrevious;
+    private int freeItem = NONE; //Removed handles are reused, chained through itemNext
+    private int itemsUsed;
+    private int itemCount;
+
+    //Traversal stack: level, column and row of the nodes to visit
+    private final int[] stack;
+    //Query results, and the squared distances for nearestK
+    private int[] results = new int[64];
+    private double[] resultDistances = new double[64];
+    private int resultCount;
+
+    /**
+     * @param width Width of the area covered (map pixels)
+     * @param height Height of the area covered (map pixels)
+     * @param smallestItem Size of the smallest items. The tree is made deep enough to give them nodes of their own size
+     */
+    public LooseQuadTree(double width, double height, double smallestItem) {
+        this.originX = 0;
+        this.originY = 0;
+        this.size = Math.max(1, Math.max(width, height));
+        int d = 0;
+        while (d < MAX_DEPTH && (this.size / (1 << (d + 1))) >= smallestItem) d++;
+        this.depth = d;
+        this.levelOffsets = new int[d + 2];
+        for (int level = 1; level <= d + 1; level++) {
+            this.levelOffsets[level] = this.levelOffsets[level - 1] + (1 << (2 * (level - 1)));
+        }
+        this.nodeHeads = new int[this.levelOffsets[d + 1]];
+        Arrays.fill(this.nodeHeads, NONE);
+        this.subtreeCounts = new int[this.nodeHeads.length];
+        this.stack = new int[3 * (3 * d + 2)];
+        int capacity = 64;
+        this.items = new Object[capacity];
+        this.itemBounds = new double[capacity * 4];
+        this.itemNode = new int[capacity];
+        this.itemNext = new int[capacity];
+        this.itemPrevious = new int[capacity];
+    }
+
+    /**
+     * Add an item with the given bounding box to the tree
+     * @return handle for moving and removing the item later
+     */
+    public int add(T item, double minX, double minY, double maxX, double maxY) {
+        int handle;
+        if (this.freeItem != NONE) {
+            handle = this.freeItem;
+            this.freeItem = this.itemNext[handle];
+        } else {
+            if (this.itemsUsed == this.items.length) this.growItems();
+            handle = this.itemsUsed++;
+        }
+        this.items[handle] = item;
+        this.setBounds(handle, minX, minY, maxX, maxY);
+        this.link(handle, this.nodeFor(minX, minY, maxX, maxY));
+        this.itemCount++;
+        return handle;
+    }
+
+    /**
+     * Update the bounding box of an item. The item only changes
+     * nodes if its center or size moved it out of the old one.
+     * @param handle Handle given by add()
+     * @return true if the item changed nodes
+     */
+    public boolean move(int handle, double minX, double minY, double maxX, double maxY) {
+        this.setBounds(handle, minX, minY, maxX, maxY);
+        int node = this.nodeFor(minX, minY, maxX, maxY);
+        if (node == this.itemNode[handle]) return false;
+        this.unlink(handle);
+        this.link(handle, node);
+        return true;
+    }
+
+    /**
+     * Remove an item from the tree. The handle may be given to a later item.
+     * @param handle Handle given by add()
+     */
+    public void remove(int handle) {
+        if (handle < 0 || handle >= this.itemsUsed || this.items[handle] == null) return;
+        this.unlink(handle);
+        this.items[handle] = null;
+        this.itemNext[handle] = this.freeItem;
+        this.freeItem = handle;
+        this.itemCount--;
+    }
+
+    /**
+     * Find the items whose bounding boxes overlap the given box
+     * @return number of items found, get them with getResult()
+     */
+    public int queryRect(double minX, double minY, double maxX, double maxY) {
+        this.resultCount = 0;
+        int top = this.pushRoot();
+        while (top > 0) {
+            top -= 3;
+            int level = this.stack[top];
+            int column = this.stack[top+1];
+            int row = this.stack[top+2];
+            int node = this.levelOffsets[level] + (row << level) + column;
+            if (this.subtreeCounts[node] == 0) continue;
+            double nodeSize = this.size / (1 << level);
+            double loose = nodeSize / 2;
+            double nodeMinX = this.originX + (column * nodeSize) - loose;
+            double nodeMinY = this.originY + (row * nodeSize) - loose;
+            if (level > 0 && (nodeMinX > maxX || nodeMinY > maxY || nodeMinX + nodeSize + (2 * loose) < minX || nodeMinY + nodeSize + (2 * loose) < minY)) continue;
+            for (int h = this.nodeHeads[node]; h != NONE; h = this.itemNext[h]) {
+                int b = h * 4;
+                if (this.itemBounds[b] <= maxX && this.itemBounds[b+1] <= maxY && this.itemBounds[b+2] >= minX && this.itemBounds[b+3] >= minY) {
+                    this.addResult(h, 0);
+                }
+            }
+            top = this.pushChildren(top, level, column, row);
+        }
+        return this.resultCount;
+    }
+
+    /**
+     * Find the items whose bounding boxes are (at least partly)
+     * within the given distance of the given point
+     * @return number of items found, get them with getResult()
+     */
+    public int queryRadius(double x, double y, double radius) {
+        this.resultCount = 0;
+        double radiusSquared = radius * radius;
+        int top = this.pushRoot();
+        while (top > 0) {
+            top -= 3;
+            int level = this.stack[top];
+            int column = this.stack[top+1];
+            int row = this.stack[top+2];
+            int node = this.levelOffsets[level] + (row << level) + column;
+            if (this.subtreeCounts[node] == 0) continue;
+            double nodeSize = this.size / (1 << level);
+            double loose = nodeSize / 2;
+            double nodeMinX = this.originX + (column * nodeSize) - loose;
+            double nodeMinY = this.originY + (row * nodeSize) - loose;
+            if (level > 0 && distanceSquared(x, y, nodeMinX, nodeMinY, nodeMinX + nodeSize + (2 * loose), nodeMinY + nodeSize + (2 * loose)) > radiusSquared) continue;
+            for (int h = this.nodeHeads[node]; h != NONE; h = this.itemNext[h]) {
+                int b = h * 4;
+                double d = distanceSquared(x, y, this.itemBounds[b], this.itemBounds[b+1], this.itemBounds[b+2], this.itemBounds[b+3]);
+                if (d <= radiusSquared) this.addResult(h, d);
+            }
+            top = this.pushChildren(top, level, column, row);
+        }
+        return this.resultCount;
+    }
+
+    /**
+     * Find the K items with their centers nearest to the given point.
+     * Results are sorted, nearest first.
+     * @param k Number of items wanted
+     * @return number of items found (less than k if the tree has less), get them with getResult()
+     */
+    public int nearestK(double x, double y, int k) {
+        this.resultCount = 0;
+        if (k <= 0) return 0;
+        if (this.results.length < k + 1) {
+            this.results = Arrays.copyOf(this.results, k + 1);
+            this.resultDistances = Arrays.copyOf(this.resultDistances, k + 1);
+        }
+        int top = this.pushRoot();
+        while (top > 0) {
+            top -= 3;
+            int level = this.stack[top];
+            int column = this.stack[top+1];
+            int row = this.stack[top+2];
+            int node = this.levelOffsets[level] + (row << level) + column;
+            if (this.subtreeCounts[node] == 0) continue;
+            //Centers of the items below are within the tight bounds of the node
+            double nodeSize = this.size / (1 << level);
+            double nodeMinX = this.originX + (column * nodeSize);
+            double nodeMinY = this.originY + (row * nodeSize);
+            if (this.resultCount == k && distanceSquared(x, y, nodeMinX, nodeMinY, nodeMinX + nodeSize, nodeMinY + nodeSize) >= this.resultDistances[k - 1]) continue;
+            for (int h = this.nodeHeads[node]; h != NONE; h = this.itemNext[h]) {
+                int b = h * 4;
+                double dx = ((this.itemBounds[b] + this.itemBounds[b+2]) / 2) - x;
+                double dy = ((this.itemBounds[b+1] + this.itemBounds[b+3]) / 2) - y;
+                double d = (dx * dx) + (dy * dy);
+                if (this.resultCount == k && d >= this.resultDistances[k - 1]) continue;
+                //Insertion into the sorted results, dropping the furthest if full
+                int i = (this.resultCount < k) ? this.resultCount++ : k - 1;
+                while (i > 0 && this.resultDistances[i - 1] > d) {
+                    this.results[i] = this.results[i - 1];
+                    this.resultDistances[i] = this.resultDistances[i - 1];
+                    i--;
+                }
+                this.results[i] = h;
+                this.resultDistances[i] = d;
+            }
+            top = this.pushChildren(top, level, column, row);
+        }
+        return this.resultCount;
+    }
+
+    /**
+     * @param i Number of the result, from 0 to the count the last query returned
+     * @return item found by the last query
+     */
+    @SuppressWarnings("unchecked")
+    public T getResult(int i) {
+        return (T)this.items[this.results[i]];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        if (handle < 0 || handle >= this.itemsUsed) return null;
+        return (T)this.items[handle];
+    }
+
+    public int size() {
+        return this.itemCount;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Squared distance from a point to a box, 0 if the point is inside
+     */
+    private static double distanceSquared(double x, double y, double minX, double minY, double maxX, double maxY) {
+        double dx = (x < minX) ? minX - x : (x > maxX) ? x - maxX : 0;
+        double dy = (y < minY) ? minY - y : (y > maxY) ? y - maxY : 0;
+        return (dx * dx) + (dy * dy);
+    }
+
+    private int pushRoot() {
+        this.stack[0] = 0;
+        this.stack[1] = 0;
+        this.stack[2] = 0;
+        return 3;
+    }
+
+    private int pushChildren(int top, int level, int column, int row) {
+        if (level == this.depth) return top;
+        for (int i = 0; i < 4; i++) {
+            this.stack[top++] = level + 1;
+            this.stack[top++] = (column << 1) + (i & 1);
+            this.stack[top++] = (row << 1) + (i >> 1);
+        }
+        return top;
+    }
+
+    private void addResult(int handle, double distance) {
+        if (this.resultCount == this.results.length) {
+            this.results = Arrays.copyOf(this.results, this.resultCount * 2);
+            this.resultDistances = Arrays.copyOf(this.resultDistances, this.resultCount * 2);
+        }
+        this.resultDistances[this.resultCount] = distance;
+        this.results[this.resultCount++] = handle;
+    }
+
+    /**
+     * The node for an item is on the deepest level whose nodes are
+     * at least as big as the item, under the center of the item.
+     */
+    private int nodeFor(double minX, double minY, double maxX, double maxY) {
+        double extent = Math.max(maxX - minX, maxY - minY);
+        int level = 0;
+        while (level < this.depth && (this.size / (1 << (level + 1))) >= extent) level++;
+        int cells = 1 << level;
+        double nodeSize = this.size / cells;
+        int column = (int)((((minX + maxX) / 2) - this.originX) / nodeSize);
+        int row = (int)((((minY + maxY) / 2) - this.originY) / nodeSize);
+        column = Math.max(0, Math.min(cells - 1, column));
+        row = Math.max(0, Math.min(cells - 1, row));
+        return this.levelOffsets[level] + (row << level) + column;
+    }
+
+    private void setBounds(int handle, double minX, double minY, double maxX, double maxY) {
+        int b = handle * 4;
+        this.itemBounds[b] = minX;
+        this.itemBounds[b+1] = minY;
+        this.itemBounds[b+2] = maxX;
+        this.itemBounds[b+3] = maxY;
+    }
+
+    private void link(int handle, int node) {
+        this.itemNode[handle] = node;
+        this.itemPrevious[handle] = NONE;
+        this.itemNext[handle] = this.nodeHeads[node];
+        if (this.nodeHeads[node] != NONE) this.itemPrevious[this.nodeHeads[node]] = handle;
+        this.nodeHeads[node] = handle;
+        this.countUp(node, 1);
+    }
+
+    private void unlink(int handle) {
+        int node = this.itemNode[handle];
+        if (this.itemPrevious[handle] != NONE) this.itemNext[this.itemPrevious[handle]] = this.itemNext[handle];
+        else this.nodeHeads[node] = this.itemNext[handle];
+        if (this.itemNext[handle] != NONE) this.itemPrevious[this.itemNext[handle]] = this.itemPrevious[handle];
+        this.countUp(node, -1);
+    }
+
+    /**
+     * Add to the subtree counts of the node and all its parents
+     */
+    private void countUp(int node, int change) {
+        int level = 0;
+        while (level < this.depth && this.levelOffsets[level + 1] <= node) level++;
+        int local = node - this.levelOffsets[level];
+        int column = local & ((1 << level) - 1);
+        int row = local >> level;
+        while (level >= 0) {
+            this.subtreeCounts[this.levelOffsets[level] + (row << level) + column] += change;
+            column >>= 1;
+            row >>= 1;
+            level--;
+        }
+    }
+
+    private void growItems() {
+        int capacity = this.items.length * 2;
+        this.items = Arrays.copyOf(this.items, capacity);
+        this.itemBounds = Arrays.copyOf(this.itemBounds, capacity * 4);
+        this.itemNode = Arrays.copyOf(this.itemNode, capacity);
+        this.itemNext = Arrays.copyOf(this.itemNext, capacity);
+        this.itemPrevious = Arrays.copyOf(this.itemPrevious, capacity);
+    }
+
+}
@@ -117,15 +117,12 @@ public class MinHeap<E extends Comparable> {
     }
 
     /**
-     * Grow up by doubling current size
+     * Grow up by doubling current size.
+     * Data is 1-based, so the whole array is copied as is.
      */
     private void grow () {
-        int newSize = (currentSize) *2;
-            E[] newElementArray = (E[]) new Comparable[newSize];
-            for (int i = 0; i < currentSize; i++) {
-                newElementArray[i] = data[i];
-            }
-            data = newElementArray;
+        int newSize = data.length *2;
+            data = Arrays.copyOf(data, newSize);
             maxSize = data.length -1;
     }
     
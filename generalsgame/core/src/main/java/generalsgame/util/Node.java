@@ -14,10 +14,11 @@ package generalsgame.util;
  * @author nikok
  */
 	public class Node implements Comparable {
+                private static final int MOVEMENT_TYPES = CollisionMap.MOVEMENT_TYPES;
 		private int xCoor;
 		private int yCoor;
                 private int collisionLevel; //this tells us if there's something blocking the node
-                private double[] movementCosts; //how "fast" is it to move in this node. if 0, it takes normal unit of speed (1) to pass this node
+                private double[] movementCosts; //how "fast" is it to move in this node. if 0 (or null), it takes normal unit of speed (1) to pass this node
                 private int size; //Node size is the size of tiles. TODO: Not really relevant for node nor needed. Remove?
                 private double estimatedCost; //Node cost for when used by PathFinder (from here to goal)
                 private double cumulativeCost; //Cost to get from start to this node
@@ -31,7 +32,7 @@ package generalsgame.util;
                         this.collisionLevel = 0;
                         this.cumulativeCost = 0;
                         this.estimatedCost = 0;
-                        this.movementCosts = new double[10];
+                        //movementCosts are allocated only when a cost is set
 		}
                 
                 public Node(int x, int y, int size, int collisionLevel) {
@@ -94,7 +95,7 @@ package generalsgame.util;
                 * Return the movementCost for the default movement type (type 0)
                 */
                 public double getMovementCost() {
-                    if (this.movementCosts[0] == 0) return 1;
+                    if (this.movementCosts == null || this.movementCosts[0] == 0) return 1;
                     return this.movementCosts[0];
                 }
                 
@@ -107,7 +108,8 @@ package generalsgame.util;
                  */
                 
                 public double getMovementCost(int movementType) {
-                    if (movementType >= 0 && movementType < this.movementCosts.length) {
+                    if (movementType >= 0 && movementType < MOVEMENT_TYPES) {
+                        if (this.movementCosts == null) return 1;
                         if (this.movementCosts[movementType] != 0) return this.movementCosts[movementType];
                         else return 1;
                     }
@@ -123,7 +125,7 @@ package generalsgame.util;
                  */
                 public double getMovementCost(boolean[] movementTypes) {
                     double cost = 99;
-                    for (int i = 0; i < this.movementCosts.length; i++) {
+                    for (int i = 0; i < MOVEMENT_TYPES && i < movementTypes.length; i++) {
                         if (movementTypes[i] && getMovementCost(i) < cost) cost = getMovementCost(i);
                     }
                     return cost;
@@ -131,14 +133,18 @@ package generalsgame.util;
                 
                              
                 public void setMovementCost(int costType, double cost) {
-                    if (costType >=0 && costType < this.movementCosts.length)
+                    if (costType >=0 && costType < MOVEMENT_TYPES) {
+                        if (this.movementCosts == null) this.movementCosts = new double[MOVEMENT_TYPES];
                         this.movementCosts[costType] = cost;
+                    }
                 }
                 
                 
                 public void setMovementCosts(double[] costs) {
-                    if (costs.length == 10)
+                    if (costs.length == MOVEMENT_TYPES) {
+                        if (this.movementCosts == null) this.movementCosts = new double[MOVEMENT_TYPES];
                         System.arraycopy(costs, 0, this.movementCosts, 0, costs.length);
+                    }
                 }
                 
                 
@@ -9,9 +9,6 @@ package generalsgame.util;
 
 import java.util.ArrayList;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * Path is a supporting class for PathFinder.
  * It has a beginning and an end, and
@@ -28,9 +25,12 @@ import javafx.scene.paint.Color;
  */
 public class Path {
 	private ArrayList<Node> nodes;
+        private boolean complete; //False if the path stops short of the goal and needs to be asked again later
+        private long mapVersion = -1; //Version of the CollisionMap the path was searched on, -1 if unknown
 	
 	public Path() {
             this.nodes  = new ArrayList<>();
+            this.complete = true;
 	}
 
 	public int getLength() {
@@ -63,56 +63,38 @@ public class Path {
             this.nodes.add(0, new Node(xCoor, yCoor));
 	}
 	
-	public boolean containsNode(int xCoor, int yCoor) {
-            return this.nodes.contains(new Node(xCoor,yCoor));
-	}
+        /**
+         * Long paths from the HierarchicalPathfinder are only
+         * refined up to the next cluster. Those paths are not complete,
+         * and the rest of the route is found when the mover asks again.
+         * @return true if the path runs all the way to the goal
+         */
+        public boolean isComplete() {
+            return this.complete;
+        }
+        
+        public void setComplete(boolean complete) {
+            this.complete = complete;
+        }
         
         /**
-         * Draw the path on a given graphics context
-         * Mainly used for testing and evaluating the pathfinder
-         * algorithm in use
-         * @param gc GraphicContext from the game
-         * @param tilesize Size of tiles the game is rendered on, to position the path
-         * @param xOffset Offset for displayed screen position on the map
-         * @param yOffset Offset for displayed screen position on the map
+         * Paths searched in the background can be handed out even if
+         * the map changed during the search (see PathRequestService).
+         * Compare this with the live CollisionMap.getVersion() to tell.
+         * @return version of the CollisionMap the path was searched on, -1 if unknown
          */
-        public void drawPath (GraphicsContext gc, int tilesize, double xOffset, double yOffset) {
-            //Mists.logger.info("Trying to draw a path!");
-            gc.save();
-            //First tile to go to
-            if (!this.nodes.isEmpty()) {
-                Node startNode = this.nodes.get(0);
-                double xTile = ((startNode.getX()*tilesize)+tilesize/4) - xOffset;
-                double yTile = ((startNode.getY()*tilesize)+tilesize/4) - yOffset;
-                
-                gc.setStroke(Color.ORANGERED);
-                gc.strokeOval(xTile, yTile, tilesize/4, tilesize/4);
-                
-            }
-            //Lines to sequencal tiles
-            if (this.nodes.size()>1) {
-                for (int i = 1; i < this.nodes.size()-1; i++) {
-                    Node node = this.nodes.get(i);
-                    double xTile = ((node.getX()*tilesize)+tilesize/4) - xOffset;
-                    double yTile = ((node.getY()*tilesize)+tilesize/4) - yOffset;
-                    gc.setStroke(Color.ORANGERED);
-                    gc.strokeOval(xTile, yTile, tilesize/4, tilesize/4);
-                }
-                
-            }
-            
-            //Goaltile
-            if (this.nodes.size()>1) {
-                Node endNode = this.nodes.get(this.nodes.size()-1);
-                double xTile = ((endNode.getX()*tilesize)+tilesize/4) - xOffset;
-                double yTile = ((endNode.getY()*tilesize)+tilesize/4) - yOffset;
-                gc.setStroke(Color.TEAL);
-                gc.strokeOval(xTile, yTile, tilesize/4, tilesize/4);
-                
-            }
-            gc.restore();
+        public long getMapVersion() {
+            return this.mapVersion;
+        }
+        
+        public void setMapVersion(long mapVersion) {
+            this.mapVersion = mapVersion;
         }
         
+	public boolean containsNode(int xCoor, int yCoor) {
+            return this.nodes.contains(new Node(xCoor,yCoor));
+	}
+        
         @Override
         public String toString() {
             String pathString = "";
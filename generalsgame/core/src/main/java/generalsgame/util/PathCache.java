@@ -0,0 +1,170 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PathCache remembers recently found paths, so that units of the
+ * same army asking for the same route get it without a new search.
+ * Paths are keyed on start tile, goal tile, clearance need and terrain set,
+ * and the least recently used one is dropped when the cache is full.
+ * The whole cache is emptied when the CollisionMap version changes,
+ * so a cached path is never older than the map it was found on.
+ * Cached paths are shared, and must not be modified by the users,
+ * so they come already stamped with the map version they were found on.
+ * Paths starting or ending off the map aren't cached, since their
+ * tiles can't be told apart by index.
+ * @author nikok
+ */
+public class PathCache {
+    
+    private final int capacity;
+    private final LinkedHashMap<Key, Path> paths;
+    private final Key probe = new Key(); //Reused for lookups, so misses don't allocate keys
+    private long mapVersion = -1;
+    //Monitoring
+    private long hits;
+    private long misses;
+    private long invalidations;
+    
+    public PathCache(int capacity) {
+        this.capacity = capacity;
+        //Access ordered, so the eldest entry is the least recently used
+        this.paths = new LinkedHashMap<Key, Path>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Path> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+    
+    /**
+     * Get a cached path
+     * @param map CollisionMap the path would be found on
+     * @param clearanceNeed Size of the mover in tiles
+     * @param terrainMask crossable terrains as a bitmask (CollisionMap.getTerrainMask)
+     * @return cached path, or null if there wasn't one (or the start or goal is off the map)
+     */
+    public Path get(CollisionMap map, int clearanceNeed, long terrainMask, int startX, int startY, int goalX, int goalY) {
+        this.checkVersion(map);
+        if (!isOnMap(map, startX, startY) || !isOnMap(map, goalX, goalY)) {
+            this.misses++;
+            return null;
+        }
+        this.probe.set(clearanceNeed, terrainMask, startY * map.getMapTileWidth() + startX, goalY * map.getMapTileWidth() + goalX);
+        Path path = this.paths.get(this.probe);
+        if (path == null) this.misses++;
+        else this.hits++;
+        return path;
+    }
+    
+    /**
+     * Store a path found on the current version of the map.
+     * Paths with the start or goal off the map are not stored.
+     * @param map CollisionMap the path was found on
+     * @param clearanceNeed Size of the mover in tiles
+     * @param terrainMask crossable terrains as a bitmask (CollisionMap.getTerrainMask)
+     * @param path Path to store
+     */
+    public void put(CollisionMap map, int clearanceNeed, long terrainMask, int startX, int startY, int goalX, int goalY, Path path) {
+        this.checkVersion(map);
+        if (!isOnMap(map, startX, startY) || !isOnMap(map, goalX, goalY)) return;
+        Key key = new Key();
+        key.set(clearanceNeed, terrainMask, startY * map.getMapTileWidth() + startX, goalY * map.getMapTileWidth() + goalX);
+        this.paths.put(key, path);
+    }
+    
+    /**
+     * Tiles are keyed by index, which only tells apart tiles on the map
+     */
+    private static boolean isOnMap(CollisionMap map, int x, int y) {
+        return x >= 0 && y >= 0 && x < map.getMapTileWidth() && y < map.getMapTileHeight();
+    }
+    
+    /**
+     * Empty the cache if the map has changed since the paths were stored
+     */
+    private void checkVersion(CollisionMap map) {
+        if (map.getVersion() == this.mapVersion) return;
+        if (!this.paths.isEmpty()) this.invalidations++;
+        this.paths.clear();
+        this.mapVersion = map.getVersion();
+    }
+    
+    public void clear() {
+        this.paths.clear();
+    }
+    
+    public int size() {
+        return this.paths.size();
+    }
+    
+    public int getCapacity() {
+        return this.capacity;
+    }
+    
+    public long getHits() {
+        return this.hits;
+    }
+    
+    public long getMisses() {
+        return this.misses;
+    }
+    
+    /**
+     * @return how many times the cache was emptied because of a map change
+     */
+    public long getInvalidations() {
+        return this.invalidations;
+    }
+    
+    public void resetCounters() {
+        this.hits = 0;
+        this.misses = 0;
+        this.invalidations = 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "PathCache: "+this.paths.size()+"/"+this.capacity+" paths, "+this.hits+" hits, "+this.misses+" misses, "+this.invalidations+" invalidations";
+    }
+    
+    private static final class Key {
+        private int clearanceNeed;
+        private long terrainMask;
+        private int start;
+        private int goal;
+        
+        private void set(int clearanceNeed, long terrainMask, int start, int goal) {
+            this.clearanceNeed = clearanceNeed;
+            this.terrainMask = terrainMask;
+            this.start = start;
+            this.goal = goal;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + this.start;
+            hash = 31 * hash + this.goal;
+            hash = 31 * hash + this.clearanceNeed;
+            hash = 31 * hash + (int)(this.terrainMask ^ (this.terrainMask >>> 32));
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key o = (Key) other;
+            return o.start == this.start && o.goal == this.goal
+                    && o.clearanceNeed == this.clearanceNeed && o.terrainMask == this.terrainMask;
+        }
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import generalsgame.Direction;
+import generalsgame.Simulation;
+
+/**
+ * PathFinder uses A* principles in finding the shortest working route between point A and pointB
+ * Many of the supporting functions are used to give Creatures ability to figure their next course of action.
+ * The original pathfinder was based on http://www.cokeandcode.com/main/tutorials/path-finding/ (Kevin Glass)
+ * After that it was rewritten with the help of the book "Artificial Intelligence for Games" (2e) by Millington and Funge
+ * Modified to use different heuristics for cost. Restructured to use same Nodes for map and Path.
+ * Modified to use collision levels for movement. Created clearance metrics for large objects.
+ * Added separate methods for checking neighbours.
+ * @author nikok
+ */
+public class PathFinder {
+	
+    private PathfinderAlgorithm algo;
+    private HierarchicalPathfinder hierarchy; //For the long queries maxSearchDistance can't reach
+    private PathCache pathCache; //Recently found paths, emptied when the map changes
+    public static final int DEFAULT_PATH_CACHE_SIZE = 256;
+    /* Search algorithms to choose from when constructing */
+    public static final int ASTAR = 0;
+    public static final int JUMP_POINT_SEARCH = 1;
+    /* Flow fields for group moves, per goal tile, clearance and terrain set. Least recently used is dropped first */
+    private static final int FLOW_FIELD_CACHE_SIZE = 16;
+    private LinkedHashMap<FlowFieldKey, FlowField> flowFields;
+    private boolean allowDiagonalMovement;
+    //private Node[][] nodes; //Nodemap used for pathfinding, filled with costs as we calculate them
+    private CollisionMap map; //The collision map derived from the Locations MOBs
+    private boolean mapOutOfDate;
+    /* Clearance maps per terrain type, and the tile regions [xStart, yStart, xEnd, yEnd] waiting to be repaired in them */
+    private HashMap<Integer, int[][]> clearanceMaps;
+    private static final int MAX_CHANGED_REGIONS = 64;
+    private final int[] changedRegions = new int[MAX_CHANGED_REGIONS * 4];
+    private int changedRegionCount;
+    /** The the calculator we're applying to determine which nodes to search first */
+    private MoveCostCalculator calc;
+
+    public PathFinder(CollisionMap map, int maxSearchDistance, boolean allowDiagonalMovement) {
+        this(map, maxSearchDistance, allowDiagonalMovement, ASTAR);
+    }
+
+    /**
+     * @param map CollisionMap to search paths on
+     * @param maxSearchDistance Maximum length of a path (in steps) before giving up
+     * @param allowDiagonalMovement true if paths may go diagonally
+     * @param algorithm ASTAR, or JUMP_POINT_SEARCH for uniform cost maps with lots of open space
+     */
+    public PathFinder(CollisionMap map, int maxSearchDistance, boolean allowDiagonalMovement, int algorithm) {
+        this.map = map;
+        this.clearanceMaps = new HashMap<>();
+        if (algorithm == JUMP_POINT_SEARCH) {
+            this.algo = new JumpPointPathfinder(this, maxSearchDistance, allowDiagonalMovement);
+        } else {
+            //ArrayAStarPathfinder reuses its search arrays between queries. AStarPathfinder is the older Node based version
+            this.algo = new ArrayAStarPathfinder(this, maxSearchDistance, allowDiagonalMovement);
+        }
+        this.hierarchy = new HierarchicalPathfinder(this, map, this.algo, HierarchicalPathfinder.DEFAULT_CLUSTER_SIZE, allowDiagonalMovement);
+        this.pathCache = new PathCache(DEFAULT_PATH_CACHE_SIZE);
+        this.allowDiagonalMovement = allowDiagonalMovement;
+        this.flowFields = new LinkedHashMap<FlowFieldKey, FlowField>(FLOW_FIELD_CACHE_SIZE * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FlowFieldKey, FlowField> eldest) {
+                return size() > FLOW_FIELD_CACHE_SIZE;
+            }
+        };
+        //double startTime = System.currentTimeMillis();
+        /* TODO: Consider how often/when the clearance maps should be updated
+        *  TODO: Should Creatures be on clearance maps, or just structures?
+        */
+        this.calc = new MoveCostCalculator(0); //Defaults to Manhattan, 0 for Manhattan, 1 for Diagonal, 2 for Euclidean
+    }
+
+    /**
+    * PathTowards gives the direction of the next node on the Path
+    * This method is the one units usually ask when they want to start heading towards a point on the map
+    * @param unitSize Size of the unit for collisions
+    * @param crossableTerrain List of terrain the unit can cross
+    * @param startX X coordinate of the starting position
+    * @param startY Y coordinate of the starting position
+    * @param goalX X coordinate of the goal
+    * @param goalY Y coordinate of the goal
+    * @return Direction to go to get towards goal
+    */
+    public Direction directionTowards (double unitSize, List<Integer> crossableTerrain,double startX, double startY, double goalX, double goalY) {
+        Node targetNode = nextTileOnPath(unitSize, crossableTerrain, startX, startY, goalX, goalY);
+        //Get the direction towards the center of the next tile on the path
+        double xChange = (targetNode.getX() * this.getTileSize())+(this.getTileSize()/2) - startX;
+        double yChange = (targetNode.getY() * this.getTileSize())+(this.getTileSize()/2) - startY;
+        //Simulation.logger.log(Level.INFO, "Path from {0},{1} ({2},{3}) to {4},{5}({6},{7})", new Object[]{startX, startY, (int)startX/this.getTileSize(), (int)startY/this.getTileSize(),targetNode.getX(),targetNode.getY(), (targetNode.getX() * this.getTileSize())+(this.getTileSize()/2), (targetNode.getY() * this.getTileSize())+(this.getTileSize()/2)});
+        return getDirection(xChange, yChange);
+     }
+
+    public double[] coordinatesTowards (double unitSize, List<Integer> crossableTerrain,double startX, double startY, double goalX, double goalY) {
+        Node targetNode = nextTileOnPath(unitSize, crossableTerrain, startX, startY, goalX, goalY);
+        //Return the (center) coordinates of the next tile on path
+        double xCoord = (targetNode.getX()*this.getTileSize()) + (this.getTileSize()/2);
+        double yCoord = (targetNode.getX()*this.getTileSize()) + (this.getTileSize()/2);
+        //Simulation.logger.log(Level.INFO, "Path from {0},{1} ({2},{3}) to {4},{5}", new Object[]{startX, startY, (int)startX/this.getTileSize(), (int)startY/this.getTileSize(), xCoord, yCoord});
+        return new double[]{xCoord, yCoord};
+    }
+    
+    //If trying to find a path for an object of given size
+    public Path findPath (double size, List<Integer> crossableTerrain, double startX, double startY, double goalX, double goalY) {
+        int clearanceNeed = (int)(size/this.map.getNodeSize());
+        if (size%this.map.getNodeSize() > 0) clearanceNeed++;
+        //if (size%this.getTileSize() > 0) ts++;
+        
+        int sX = ((int) startX / this.map.getNodeSize());
+        int sY = ((int) startY / this.map.getNodeSize());
+        int gX = ((int) goalX / this.map.getNodeSize());
+        int gY = ((int) goalY / this.map.getNodeSize());
+        Path pathToGoal = this.searchPath(clearanceNeed,crossableTerrain, sX, sY, gX, gY);
+        
+        return pathToGoal;
+        /*
+        if (pathToGoal == null || pathToGoal.getLength()==0) {
+            //Got an empty path. Probably means no route was found.
+            //Just head in the general direction of the target.
+            //Simulation.logger.info("No path found, giving the Node of the target");
+            pathToGoal.addStep(new Node(gX, gY));
+            return pathToGoal;
+        } else {
+            return pathToGoal;
+        }
+        */
+        
+    }        
+    
+
+    private Node nextTileOnPath(double unitSize, List<Integer> crossableTerrain,double startX, double startY, double goalX, double goalY) {
+        int clearanceNeed = (int)(unitSize/this.map.getNodeSize());
+        //if (unitSize%this.map.getNodeSize() > 0) clearanceNeed++;
+        //Simulation.logger.info("Clearance needed: "+clearanceNeed+" (unit size"+unitSize+", nodesize "+this.map.getNodeSize());
+
+        /*
+        * The units are in freely moving double -type coordinates on the game map
+        * First we need to convert these to rigid int -types that the PathFinder uses
+        */
+        int sX = ((int) startX / this.map.getNodeSize());
+        int sY = ((int) startY / this.map.getNodeSize());
+        int gX = ((int) goalX / this.map.getNodeSize());
+        int gY = ((int) goalY / this.map.getNodeSize());
+
+        Path pathToGoal = this.searchPath(clearanceNeed, crossableTerrain, sX, sY, gX, gY);
+
+        if (pathToGoal == null || pathToGoal.getLength()==0) {
+            //Got an empty path. Probably means no route was found.
+            //Just head in the general direction of the target.
+            //Simulation.logger.info("No path found, giving the Node of the target");
+            return new Node(gX, gY);
+        }
+        //Simulation.logger.info("Goal was at ["+gX+","+gY+"] got the path:" + pathToGoal.toString());
+        if (pathToGoal.getLength() < 2) {
+            //Simulation.logger.info("Next to goal, returning node the goal is at ");
+            return pathToGoal.getNode(pathToGoal.getLength()-1);
+        } else {
+            //Check if there's corners we might get stuck into:
+            List<Node> corners = algo.diagonalNeighbours(map, clearanceNeed, crossableTerrain, pathToGoal.getNode(0).getX(), pathToGoal.getNode(0).getY());
+            if (corners.size() == 4) {
+                //All corners clear, move on
+                return pathToGoal.getNode(1);
+            } else {
+                //Something might be obstructing movement
+                //We need to be at least past our current node center before we head towards new node.
+                double xCoord = (pathToGoal.getNode(1).getX()*this.getTileSize()) + (this.getTileSize()/2);
+                double yCoord = (pathToGoal.getNode(1).getX()*this.getTileSize()) + (this.getTileSize()/2);
+                Direction currentDirection = getDirection(startX-xCoord, startY-yCoord);
+                switch(currentDirection) {
+                //Cardinal directions are fine
+                case UP: return pathToGoal.getNode(1);
+                case DOWN: return pathToGoal.getNode(1);
+                case LEFT: return pathToGoal.getNode(1);
+                case RIGHT: return pathToGoal.getNode(1);
+                //Problems arise if we're moving diagonally without pathfinder knowing it
+                case UPRIGHT: return pathToGoal.getNode(0);
+                case UPLEFT: return pathToGoal.getNode(0);
+                case DOWNRIGHT: return pathToGoal.getNode(0);
+                case DOWNLEFT: return pathToGoal.getNode(0);
+                default: return pathToGoal.getNode(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Search a path on tile coordinates. Recently found paths come
+     * from the cache. Long queries go through the hierarchy first,
+     * and only fall back on a full tile search if the hierarchy can't handle them.
+     * New paths are stamped with the map version before they're cached,
+     * since cached paths are shared and nobody may change them afterwards.
+     * @param clearanceNeed Size of the mover in tiles
+     * @param crossableTerrain List of terrain the unit can cross
+     * @return Path towards the goal (possibly incomplete for long queries)
+     */
+    private Path searchPath(int clearanceNeed, List<Integer> crossableTerrain, int sX, int sY, int gX, int gY) {
+        this.refreshMap();
+        long terrainMask = CollisionMap.getTerrainMask(crossableTerrain);
+        if (terrainMask >= 0) {
+            Path cached = this.pathCache.get(map, clearanceNeed, terrainMask, sX, sY, gX, gY);
+            if (cached != null) return cached;
+        }
+        Path pathToGoal = null;
+        if (this.hierarchy.isLongQuery(sX, sY, gX, gY)) {
+            pathToGoal = this.hierarchy.findPath(clearanceNeed, crossableTerrain, sX, sY, gX, gY);
+        }
+        if (pathToGoal == null) pathToGoal = this.algo.findPath(map, clearanceNeed, crossableTerrain, sX, sY, gX, gY);
+        pathToGoal.setMapVersion(this.map.getVersion());
+        if (terrainMask >= 0) this.pathCache.put(map, clearanceNeed, terrainMask, sX, sY, gX, gY, pathToGoal);
+        return pathToGoal;
+    }
+    
+    /**
+     * Get a flow field leading to the given goal, for units of the given size.
+     * Fields are cached, so every unit sent to the same goal shares
+     * one field and the map is swept only once. A field is
+     * regenerated when the map has changed since it was made.
+     * Synchronized, since creatures updating in parallel ask for their
+     * fields at the same time: the first one regenerates, the rest share it.
+     * @param unitSize Size of the unit for collisions
+     * @param crossableTerrain List of terrain the unit can cross
+     * @param goalX X coordinate of the goal (map pixels)
+     * @param goalY Y coordinate of the goal (map pixels)
+     * @return flow field towards the goal
+     */
+    public synchronized FlowField getFlowField (double unitSize, List<Integer> crossableTerrain, double goalX, double goalY) {
+        int clearanceNeed = (int)(unitSize/this.map.getNodeSize());
+        if (unitSize%this.map.getNodeSize() > 0) clearanceNeed++;
+        int gX = ((int) goalX / this.map.getNodeSize());
+        int gY = ((int) goalY / this.map.getNodeSize());
+        this.refreshMap();
+        FlowFieldKey key = new FlowFieldKey(gY * this.map.getMapTileWidth() + gX, clearanceNeed, CollisionMap.getTerrainMask(crossableTerrain));
+        FlowField field = (key.terrainMask >= 0) ? this.flowFields.get(key) : null;
+        if (field == null || field.isOutOfDate(this.map)) {
+            int[][][] clearance = new int[crossableTerrain.size()][][];
+            for (int i = 0; i < clearance.length; i++) {
+                clearance[i] = this.getClearance(crossableTerrain.get(i));
+            }
+            field = FlowField.generate(this.map, clearance, clearanceNeed, crossableTerrain, gX, gY, this.allowDiagonalMovement);
+            if (key.terrainMask >= 0) this.flowFields.put(key, field);
+        }
+        return field;
+    }
+    
+    /**
+     * Cache for the paths found by this PathFinder.
+     * Hit and miss counts are available for monitoring.
+     * @return the path cache
+     */
+    public PathCache getPathCache() {
+        return this.pathCache;
+    }
+    
+    /**
+     * Make sure the collisionmap has the latest structure changes
+     * patched in before searching on it.
+     */
+    private void refreshMap() {
+        if (this.map.isDirty()) this.map.updateCollisionLevels();
+    }
+    
+    /**
+     * findNearesOpenNode tries to find an open node adjacent to the target node.
+     * This is useful when trying to move as close to as possible on a blocked
+     * target (a structure etc)
+     * @param crossableTerrain Terrainwalking ability of the mover
+     * @param goalX Node to search around
+     * @param goalY Node to search around
+     * @return 
+     */
+    private int[] findNearestOpenNode (List<Integer> crossableTerrain, int goalX, int goalY)  {
+        int[] openNode = new int[2];
+        if (!map.isBlocked(crossableTerrain, goalX, goalY)) {
+            openNode[1] = goalX;
+            openNode[2] = goalY;
+            return openNode;
+        } else {
+            List<Node> openNeighbours = algo.neighbours(map, crossableTerrain, goalY, goalY);
+            if (openNeighbours.size() > 0) { //Just try to go to whichever open block
+                openNode[0] = openNeighbours.get(0).getX();
+                openNode[1] = openNeighbours.get(0).getY();
+                return openNode;
+            } else {
+                return null; //There's not even open neighbours
+            }
+        }
+    }
+
+    
+    public static Direction getDirection(double xChange, double yChange) {
+        if (xChange==0) { //Not moving left or right
+            if (yChange==0) return Direction.STAY;
+            if (yChange<0) return Direction.UP;
+            if (yChange>0) return Direction.DOWN;
+        }
+        if (xChange>0) { //Moving right
+            if (yChange==0) return Direction.RIGHT;
+            if (yChange<0) return Direction.UPRIGHT;
+            if (yChange>0) return Direction.DOWNRIGHT;
+        }
+        if (xChange<0) { // Moving left
+            if (yChange==0) return Direction.LEFT;
+            if (yChange<0) return Direction.UPLEFT;
+            if (yChange>0) return Direction.DOWNLEFT;
+        }
+        return Direction.STAY; //last resort
+    }
+        
+    /** When moving in tight spaces, it's imperative for
+        *  the mover to be fully inside the tile Pathfinder thinks its in.
+        *  Otherwise the mover might get stuck on corners
+        *  This method returns the center of the given tile in "real coordinates"
+        */
+    protected double[] getTileCoordinates(int tileXCoor, int tileYCoor, int tileSize){    
+        double[] realCoordinates = new double[2];
+        realCoordinates[0] = (tileXCoor * tileSize)+(tileSize/2);
+        realCoordinates[1] = (tileYCoor * tileSize)+(tileSize/2);
+        return realCoordinates;
+    }
+
+    public void printCollisionMapIntoConsole() { // for testing
+        System.out.println("-------");
+        for (int row = 0; row < this.map.getMapTileHeight();row++) {
+            System.out.println("");
+            for (int column = 0; column < this.map.getMapTileWidth(); column++) {
+                System.out.print("["+this.map.getCollisionLevel(column, row)+"]");
+            }
+        }
+         //System.out.println("-------");
+     }
+           
+
+    protected boolean isValidLocation(List<Integer> crossableTerrain, int currentX, int currentY, int goalX, int goalY) {
+            boolean invalid = (goalX < 0) || (goalY < 0) || (goalX >= map.getMapTileWidth()) || (goalY >= map.getMapTileWidth());
+
+            if ((!invalid) && ((currentX != goalX) || (currentY != goalX))) {
+                    invalid = map.isBlocked(crossableTerrain, goalX, goalY);
+            }
+
+            return !invalid;
+    }
+
+    public double getMovementCost(List<Integer> movementAbilities, int currentX, int currentY, int goalX, int goalY) {
+            return this.calc.getCost(this.map, movementAbilities, currentX, currentY, goalX, goalY);
+    }
+    
+    /**
+     * Generate a clearance map with the map this pathfinder is tied to
+     * @param crossableTerrain the type of terrain we're crossing
+     * @return clearance map
+     */
+    public int[][] getClearanceMap (int crossableTerrain) {
+        return getClearanceMap(crossableTerrain, this.map);
+    }
+    /**
+    * ClearanceMap tells how large objects can fit in the given tile
+    * For example 2 means that a 2x2 tile sized object could fit here
+    * (with the given tile as its top left corner).
+    * ClearanceMaps are generated per CrossableTerrain.
+    * A tile fits an N sized object if the tiles right, below and
+    * diagonally below-right of it all fit N-1, so the whole map is
+    * done in a single sweep from the bottom right corner.
+    * @param crossableTerrain terrainwalking ability to generate the clearance map with
+    * @param collisionMap the collision map containing blocking objects
+    * @return generated clearance map
+    */ 
+    public static int[][] getClearanceMap (int crossableTerrain, CollisionMap collisionMap) {
+        int[][] clearanceMap = new int[collisionMap.getMapTileWidth()][collisionMap.getMapTileHeight()];        
+        for (int y = collisionMap.getMapTileHeight()-1; y >= 0; y--) {
+            for (int x = collisionMap.getMapTileWidth()-1; x >= 0; x--) {
+                clearanceMap[x][y] = clearanceAt(clearanceMap, crossableTerrain, collisionMap, x, y);
+            }
+        }
+        return clearanceMap;
+    }
+    
+    /**
+     * Clearance of a single tile, from the already calculated
+     * tiles right and below of it. Tiles outside the map count as blocked.
+     */
+    private static int clearanceAt(int[][] clearanceMap, int crossableTerrain, CollisionMap collisionMap, int x, int y) {
+        if (collisionMap.isBlocked(crossableTerrain, x, y)) return 0; // Blocked tiles are given value of 0. Only sizeless things can past through.
+        int width = clearanceMap.length;
+        int height = clearanceMap[0].length;
+        int right = (x+1 < width) ? clearanceMap[x+1][y] : 0;
+        int down = (y+1 < height) ? clearanceMap[x][y+1] : 0;
+        int diagonal = (x+1 < width && y+1 < height) ? clearanceMap[x+1][y+1] : 0;
+        return 1 + Math.min(right, Math.min(down, diagonal));
+    }
+    
+    /**
+     * Repair a clearance map after the tiles in the given region changed.
+     * Changes only spread up and left from the region, row by row,
+     * and a row stops spreading left as soon as a tile keeps its old value.
+     * @param clearanceMap the clearance map to repair in place
+     * @param crossableTerrain terrainwalking ability the map was generated with
+     * @param collisionMap the (up to date) collision map
+     * @param xStart first column of the changed region
+     * @param yStart first row of the changed region
+     * @param xEnd last column of the changed region
+     * @param yEnd last row of the changed region
+     */
+    public static void repairClearanceMap (int[][] clearanceMap, int crossableTerrain, CollisionMap collisionMap, int xStart, int yStart, int xEnd, int yEnd) {
+        xStart = Math.max(xStart, 0);
+        yStart = Math.max(yStart, 0);
+        xEnd = Math.min(xEnd, clearanceMap.length-1);
+        yEnd = Math.min(yEnd, clearanceMap[0].length-1);
+        if (xStart > xEnd || yStart > yEnd) return;
+        //Columns that changed on the row below
+        int changedStart = Integer.MAX_VALUE;
+        int changedEnd = -1;
+        for (int y = yEnd; y >= 0; y--) {
+            //Tiles that have to be recalculated on this row:
+            //the changed region itself, and the ones resting on changed tiles below
+            int from = Integer.MAX_VALUE;
+            int to = -1;
+            if (y >= yStart) {
+                from = xStart;
+                to = xEnd;
+            }
+            if (changedEnd >= 0) {
+                from = Math.min(from, Math.max(changedStart-1, 0));
+                to = Math.max(to, changedEnd);
+            }
+            if (to < 0) break; //Nothing changed below, so nothing changes above either
+            changedStart = Integer.MAX_VALUE;
+            changedEnd = -1;
+            for (int x = to; x >= 0; x--) {
+                int clearance = clearanceAt(clearanceMap, crossableTerrain, collisionMap, x, y);
+                if (clearance != clearanceMap[x][y]) {
+                    clearanceMap[x][y] = clearance;
+                    changedStart = x;
+                    if (changedEnd < 0) changedEnd = x;
+                } else if (x <= from) {
+                    break; //Past the recalculated span and no longer changing
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the clearance map for the given terrain, with all the
+     * map changes since the last call repaired in.
+     * The maps are cached, and shared by all the algorithms of this PathFinder.
+     * @param crossableTerrain the type of terrain we're crossing
+     * @return up to date clearance map
+     */
+    public int[][] getClearance (int crossableTerrain) {
+        this.refreshMap();
+        if (this.changedRegionCount > 0) {
+            for (Integer terrain : this.clearanceMaps.keySet()) {
+                int[][] clearanceMap = this.clearanceMaps.get(terrain);
+                for (int i = 0; i < this.changedRegionCount; i++) {
+                    int r = i * 4;
+                    repairClearanceMap(clearanceMap, terrain, this.map, this.changedRegions[r], this.changedRegions[r+1], this.changedRegions[r+2], this.changedRegions[r+3]);
+                }
+            }
+            this.changedRegionCount = 0;
+        }
+        int[][] clearanceMap = this.clearanceMaps.get(crossableTerrain);
+        if (clearanceMap == null) {
+            clearanceMap = this.getClearanceMap(crossableTerrain);
+            this.clearanceMaps.put(crossableTerrain, clearanceMap);
+        }
+        this.mapOutOfDate = false;
+        return clearanceMap;
+    }
+    
+    public HashMap<Integer, int[][]> getClearanceMaps() {
+        return this.clearanceMaps;
+    }
+    
+    public void setMapOutOfDate(boolean ood) {
+        Simulation.logger.info("Map toggled out of date");
+        this.mapOutOfDate = ood;
+        if (ood) { //No idea what changed, so everything did
+            this.clearanceMaps.clear();
+            this.changedRegionCount = 0;
+            this.hierarchy.invalidateAll();
+        }
+    }
+    
+    /**
+     * Mark the map out of date after a change in the given tile region.
+     * The hierarchy only rebuilds the clusters the region touches.
+     * @param xStart first column of the changed region
+     * @param yStart first row of the changed region
+     * @param xEnd last column of the changed region
+     * @param yEnd last row of the changed region
+     */
+    public void setMapOutOfDate(int xStart, int yStart, int xEnd, int yEnd) {
+        this.mapOutOfDate = true;
+        if (this.changedRegionCount == MAX_CHANGED_REGIONS) {
+            //Too many to repair one by one, regenerate the maps instead
+            this.clearanceMaps.clear();
+            this.changedRegionCount = 0;
+        } else if (!this.clearanceMaps.isEmpty()) {
+            int r = this.changedRegionCount * 4;
+            this.changedRegions[r] = xStart;
+            this.changedRegions[r+1] = yStart;
+            this.changedRegions[r+2] = xEnd;
+            this.changedRegions[r+3] = yEnd;
+            this.changedRegionCount++;
+        }
+        this.hierarchy.invalidateRegion(xStart, yStart, xEnd, yEnd);
+    }
+
+    public boolean mapIsOutOfDate() {
+        return this.mapOutOfDate;
+    }
+    
+    public int getTileSize() {
+        return this.map.getNodeSize();
+    }
+    
+    public CollisionMap getCollisionMap() {
+        return this.map;
+    }
+    
+    private void printArrayMap (int[][] arrayMap) {
+        System.out.println("-------");
+            for (int row = 0; row < this.map.getMapTileHeight();row++) {
+                System.out.println("");
+                for (int column = 0; column < this.map.getMapTileWidth(); column++) {
+                    System.out.print("["+arrayMap[column][row]+"]");
+                }
+            }
+    }
+    
+    //TODO: For testing purposes
+    public void printClearanceMapIntoConsole (int crossableTerrain) { 
+        System.out.println("Getting a new clearance map for crossing ["+crossableTerrain+"]");
+        //int[][] clearanceMap = this.getClearanceMap(crossableTerrain, this.map);
+        int[][] clearanceMap = this.getClearance(crossableTerrain);
+        this.printArrayMap(clearanceMap);
+             //System.out.println("-------");
+    }
+
+    private static final class FlowFieldKey {
+        private final int goal;
+        private final int clearanceNeed;
+        private final long terrainMask;
+        
+        private FlowFieldKey(int goal, int clearanceNeed, long terrainMask) {
+            this.goal = goal;
+            this.clearanceNeed = clearanceNeed;
+            this.terrainMask = terrainMask;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 31 * hash + this.goal;
+            hash = 31 * hash + this.clearanceNeed;
+            hash = 31 * hash + (int)(this.terrainMask ^ (this.terrainMask >>> 32));
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FlowFieldKey)) return false;
+            FlowFieldKey o = (FlowFieldKey) other;
+            return o.goal == this.goal && o.clearanceNeed == this.clearanceNeed && o.terrainMask == this.terrainMask;
+        }
+    }
+
+}
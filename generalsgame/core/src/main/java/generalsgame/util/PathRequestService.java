@@ -0,0 +1,359 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import generalsgame.Simulation;
+
+/**
+ * PathRequestService runs path searches on a pool of worker threads,
+ * so a slow search doesn't stall the game loop (and with it rendering).
+ * Workers search on a snapshot of the CollisionMap, never the live one:
+ * each request is searched on the snapshot of the moment it was made.
+ * Each worker keeps its own PathFinder on a private copy of the map,
+ * since PathFinders and their caches are not thread safe. When a
+ * request comes on another snapshot, the copy is brought over to it
+ * and the PathFinder only repairs around the regions that changed
+ * in between, like the PathFinder of the live map does.
+ * Results are handed back on the game thread in update(), and never
+ * depend on how fast the workers happen to be: a request is handed out
+ * on the update() after the one following it (so the workers get a
+ * whole tick for it), in the order the requests were made, at most
+ * a fixed number per update. If a search isn't done by then, update()
+ * waits for it. A result searched on an older map version than the live
+ * one is searched again instead of delivered, up to MAX_RETRIES times.
+ * Every Path handed out carries the map version it was searched on,
+ * so a stale one can be asked again later.
+ * update() should only be called from the game thread. Requests can also
+ * come from creatures updating in parallel during the tick, their order
+ * comes from the requester number they give.
+ * @author nikok
+ */
+public class PathRequestService {
+
+    public static final int DEFAULT_RESULTS_PER_TICK = 256; //Results handed out per update, the rest wait for the next
+    public static final int NO_REQUESTER = Integer.MAX_VALUE; //Requester number for requests made outside the creature updates
+    private static final int MAX_RETRIES = 2; //Stale results are delivered anyway after this many searches
+    //Requests made during the same tick are handed out by requester, and in the order they came per requester
+    private static final Comparator<PathRequest> REQUEST_ORDER = (a, b) -> (a.requester != b.requester)
+            ? Integer.compare(a.requester, b.requester) : Long.compare(a.sequence, b.sequence);
+
+    //The live map. Changed only on the game thread, but read by refreshSnapshot() on whatever
+    //thread asks for a path, pool threads too during a parallel creature update (the map
+    //isn't changed while creatures update, so the reads and the snapshot copy are safe then)
+    private final CollisionMap map;
+    private volatile Snapshot snapshot; //Copy of the map the workers search on
+    private final int maxSearchDistance;
+    private final boolean allowDiagonalMovement;
+    private final ExecutorService workers;
+    private final ThreadLocal<Worker> workerStates = new ThreadLocal<>();
+    private final ConcurrentLinkedQueue<PathRequest> requested = new ConcurrentLinkedQueue<>(); //Made since the last update()
+    private final ArrayList<PathRequest> arrived = new ArrayList<>(); //Sorted into the waiting line on update()
+    private final ArrayDeque<PathRequest> waiting = new ArrayDeque<>(); //To be handed out, in order
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private long round; //Number of the update() calls so far
+    private int resultsPerTick;
+
+    public PathRequestService(CollisionMap map, int maxSearchDistance, boolean allowDiagonalMovement) {
+        this(map, maxSearchDistance, allowDiagonalMovement, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    public PathRequestService(CollisionMap map, int maxSearchDistance, boolean allowDiagonalMovement, int workerCount) {
+        this.map = map;
+        this.maxSearchDistance = maxSearchDistance;
+        this.allowDiagonalMovement = allowDiagonalMovement;
+        this.resultsPerTick = DEFAULT_RESULTS_PER_TICK;
+        this.snapshot = new Snapshot(map.snapshot(), 0);
+        this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+            private int threadNumber = 0;
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "PathWorker-" + (threadNumber++));
+                t.setDaemon(true); //Don't keep the game running after the window closes
+                return t;
+            }
+        });
+        Simulation.logger.log(Level.INFO, "PathRequestService started with {0} workers", workerCount);
+    }
+
+    /**
+     * Ask for a path to be searched in the background, from the game thread.
+     * Requests made this way are handed out after the ones of the creatures,
+     * in the order they were made.
+     * @see #requestPath(int, double, List, double, double, double, double)
+     */
+    public CompletableFuture<Path> requestPath(double size, List<Integer> crossableTerrain, double startX, double startY, double goalX, double goalY) {
+        return this.requestPath(NO_REQUESTER, size, crossableTerrain, startX, startY, goalX, goalY);
+    }
+
+    /**
+     * Ask for a path to be searched in the background.
+     * Works like PathFinder.findPath, only the Path comes later:
+     * the future completes on the game thread during an update().
+     * Requests made during the same tick are handed out in the order of
+     * the requester numbers, so the results don't depend on which thread
+     * got to ask first. The slot of the asking creature does fine.
+     * @param requester Number of the asker, orders the requests of a tick
+     * @param size Size of the unit for collisions
+     * @param crossableTerrain List of terrain the unit can cross
+     * @param startX X coordinate of the starting position
+     * @param startY Y coordinate of the starting position
+     * @param goalX X coordinate of the goal
+     * @param goalY Y coordinate of the goal
+     * @return Future Path towards the goal
+     */
+    public CompletableFuture<Path> requestPath(int requester, double size, List<Integer> crossableTerrain, double startX, double startY, double goalX, double goalY) {
+        PathRequest request = new PathRequest(requester, this.sequence.getAndIncrement(), size, new ArrayList<>(crossableTerrain), startX, startY, goalX, goalY);
+        this.pending.incrementAndGet();
+        this.submit(request, this.refreshSnapshot());
+        this.requested.add(request);
+        return request.future;
+    }
+
+    /**
+     * Hand out the results of the searches to whoever asked for them.
+     * Requests made since the last update() get in line, ordered by
+     * requester, and are handed out from the next update() on.
+     * At most the results per tick are handed out, oldest first,
+     * the rest wait for the next update(). A search that isn't done
+     * yet when its turn comes is waited for, so what gets handed out
+     * and when only depends on the requests, never on the workers.
+     * Should be called once per tick from the game thread, after the
+     * collision map has been updated.
+     */
+    public void update() {
+        if (this.workers.isShutdown()) return;
+        this.refreshSnapshot();
+        int handedOut = 0;
+        while (handedOut < this.resultsPerTick && !this.waiting.isEmpty() && this.waiting.peek().round < this.round) {
+            PathRequest request = this.waiting.poll();
+            if (request.future.isDone()) {
+                //Cancelled by the asker, nobody wants this anymore
+                this.pending.decrementAndGet();
+                continue;
+            }
+            handedOut++;
+            if (!this.awaitSearch(request)) return; //Interrupted, the request stays in line
+            if (request.error != null) {
+                this.pending.decrementAndGet();
+                request.future.completeExceptionally(request.error);
+            } else if (request.snapshot.map.getVersion() != this.map.getVersion() && request.searches <= MAX_RETRIES) {
+                //Map changed while we were searching, do it again on the fresh snapshot
+                this.submit(request, this.snapshot);
+                this.requested.add(request);
+            } else {
+                //Out of retries the result goes out stale, the path tells the version it was searched on
+                this.pending.decrementAndGet();
+                request.future.complete(request.result);
+            }
+        }
+        //This tick's requests get in line, in an order that doesn't depend on the threads that made them
+        PathRequest request;
+        while ((request = this.requested.poll()) != null) {
+            request.round = this.round;
+            this.arrived.add(request);
+        }
+        this.arrived.sort(REQUEST_ORDER);
+        this.waiting.addAll(this.arrived);
+        this.arrived.clear();
+        this.round++;
+    }
+
+    /**
+     * Wait for the worker to finish the search of the request
+     * @return false if interrupted while waiting
+     */
+    private boolean awaitSearch(PathRequest request) {
+        try {
+            request.search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.waiting.addFirst(request);
+            return false;
+        } catch (ExecutionException e) {
+            request.error = e.getCause();
+        }
+        return true;
+    }
+
+    /**
+     * Take a new snapshot for the workers if the map has changed.
+     * Synchronized so parallel requests don't all copy the map.
+     * @return the up to date snapshot
+     */
+    private synchronized Snapshot refreshSnapshot() {
+        Snapshot latest = this.snapshot;
+        if (this.map.isDirty() || latest.map.getVersion() != this.map.getVersion()) {
+            latest.next = new Snapshot(this.map.snapshot(), latest.number + 1);
+            this.snapshot = latest.next;
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Search the request on the given snapshot
+     */
+    private void submit(PathRequest request, Snapshot snap) {
+        request.snapshot = snap;
+        request.searches++;
+        request.search = this.workers.submit(() -> this.search(request));
+    }
+
+    /**
+     * Run on a worker thread. Searches on the snapshot of the request,
+     * the result is handed out on the game thread.
+     */
+    private void search(PathRequest request) {
+        try {
+            Worker worker = this.workerStates.get();
+            if (worker == null) {
+                worker = new Worker(request.snapshot, this.maxSearchDistance, this.allowDiagonalMovement);
+                this.workerStates.set(worker);
+            }
+            worker.moveTo(request.snapshot);
+            request.result = worker.pathFinder.findPath(request.size, request.crossableTerrain, request.startX, request.startY, request.goalX, request.goalY);
+        } catch (RuntimeException e) {
+            Simulation.logger.log(Level.WARNING, "Path search failed", e);
+            request.error = e;
+        }
+    }
+
+    /**
+     * @return number of requests not yet handed out
+     */
+    public int getPendingCount() {
+        return this.pending.get();
+    }
+
+    public int getResultsPerTick() {
+        return this.resultsPerTick;
+    }
+
+    /**
+     * @param results Most results to hand out on one update(), at least 1
+     */
+    public void setResultsPerTick(int results) {
+        this.resultsPerTick = Math.max(1, results);
+    }
+
+    /**
+     * Stop the workers. Searches in progress are left unfinished.
+     */
+    public void shutdown() {
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * A snapshot of the map, linked to the one taken after it.
+     * The links let a worker find the regions changed between
+     * the snapshot it's on and the one it needs.
+     */
+    private static final class Snapshot {
+        private final CollisionMap map;
+        private final long number; //Goes up by one per snapshot
+        private volatile Snapshot next;
+
+        private Snapshot(CollisionMap map, long number) {
+            this.map = map;
+            this.number = number;
+        }
+    }
+
+    /**
+     * State of one worker thread: a private copy of the map
+     * and the PathFinder searching on it.
+     */
+    private static final class Worker {
+        private final CollisionMap map;
+        private final PathFinder pathFinder;
+        private Snapshot at; //Snapshot the copy matches
+
+        private Worker(Snapshot snapshot, int maxSearchDistance, boolean allowDiagonalMovement) {
+            this.map = snapshot.map.copy();
+            this.pathFinder = new PathFinder(this.map, maxSearchDistance, allowDiagonalMovement);
+            this.at = snapshot;
+        }
+
+        /**
+         * Bring the copy over to the given snapshot, newer or older,
+         * and tell the PathFinder the regions that differ between them.
+         */
+        private void moveTo(Snapshot target) {
+            if (target == this.at) return;
+            Snapshot from = (target.number > this.at.number) ? this.at : target;
+            Snapshot to = (from == this.at) ? target : this.at;
+            boolean everything = false;
+            for (Snapshot s = from.next; s != null; s = s.next) {
+                int count = s.map.getChangedRegionCount();
+                if (count < 0) {
+                    everything = true;
+                    break;
+                }
+                int[] regions = s.map.getChangedRegions();
+                for (int i = 0; i < count; i++) {
+                    int r = i * 4;
+                    this.pathFinder.setMapOutOfDate(regions[r], regions[r+1], regions[r+2], regions[r+3]);
+                }
+                if (s == to) break;
+            }
+            this.map.copyFrom(target.map);
+            if (everything) this.pathFinder.setMapOutOfDate(true);
+            this.at = target;
+        }
+    }
+
+    /**
+     * A single path search, passed between the game thread and a worker.
+     * Fields written by the worker are read on the game thread only
+     * after its search future is done.
+     */
+    private static final class PathRequest {
+        private final int requester;
+        private final long sequence;
+        private final double size;
+        private final List<Integer> crossableTerrain;
+        private final double startX;
+        private final double startY;
+        private final double goalX;
+        private final double goalY;
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+        private long round; //update() the request got in line on
+        private int searches;
+        private Snapshot snapshot; //Searched on this
+        private Future<?> search;
+        private Path result;
+        private Throwable error;
+
+        private PathRequest(int requester, long sequence, double size, List<Integer> crossableTerrain, double startX, double startY, double goalX, double goalY) {
+            this.requester = requester;
+            this.sequence = sequence;
+            this.size = size;
+            this.crossableTerrain = crossableTerrain;
+            this.startX = startX;
+            this.startY = startY;
+            this.goalX = goalX;
+            this.goalY = goalY;
+        }
+    }
+
+}
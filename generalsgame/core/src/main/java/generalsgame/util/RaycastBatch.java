@@ -0,0 +1,123 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * RaycastBatch collects line of sight checks (visibility, ranged attacks)
+ * during a tick and casts them all at once on the CollisionMap.
+ * Rays are kept in flat arrays that are reused from tick to tick, so
+ * adding rays doesn't allocate once the arrays are big enough.
+ * Large batches are cast in parallel: the CollisionMap is only read,
+ * so cast() must not run while the map is being updated.
+ * Usage: clear(), add() the rays, cast(), then read the results by
+ * the numbers add() gave.
+ * @author nikok
+ */
+public class RaycastBatch {
+
+    private static final int PARALLEL_THRESHOLD = 512; //Smaller batches aren't worth the thread handoff
+
+    private double[] rays; //xStart, yStart, xEnd, yEnd per ray
+    private long[] terrainMasks;
+    private int[] hits;
+    private int rayCount;
+
+    public RaycastBatch() {
+        this(64);
+    }
+
+    public RaycastBatch(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.rays = new double[capacity * 4];
+        this.terrainMasks = new long[capacity];
+        this.hits = new int[capacity];
+    }
+
+    /**
+     * Add a ray to be cast
+     * @param crossableTerrain List of terrains the ray can cross
+     * @return number of the ray, for getting the result after cast()
+     */
+    public int add(List<Integer> crossableTerrain, double xStart, double yStart, double xEnd, double yEnd) {
+        return this.add(CollisionMap.getRaycastMask(crossableTerrain), xStart, yStart, xEnd, yEnd);
+    }
+
+    /**
+     * Add a ray to be cast
+     * @param terrainMask Bitmask of terrains the ray can cross, see CollisionMap.getRaycastMask()
+     * @return number of the ray, for getting the result after cast()
+     */
+    public int add(long terrainMask, double xStart, double yStart, double xEnd, double yEnd) {
+        if (this.rayCount == this.terrainMasks.length) {
+            int capacity = this.rayCount * 2;
+            this.rays = Arrays.copyOf(this.rays, capacity * 4);
+            this.terrainMasks = Arrays.copyOf(this.terrainMasks, capacity);
+            this.hits = Arrays.copyOf(this.hits, capacity);
+        }
+        int ray = this.rayCount++;
+        int i = ray * 4;
+        this.rays[i] = xStart;
+        this.rays[i+1] = yStart;
+        this.rays[i+2] = xEnd;
+        this.rays[i+3] = yEnd;
+        this.terrainMasks[ray] = terrainMask;
+        this.hits[ray] = CollisionMap.NO_HIT;
+        return ray;
+    }
+
+    /**
+     * Cast all the added rays on the map
+     * @param map CollisionMap to cast on
+     */
+    public void cast(CollisionMap map) {
+        if (this.rayCount >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, this.rayCount).parallel().forEach(ray -> this.castRay(map, ray));
+        } else {
+            for (int ray = 0; ray < this.rayCount; ray++) {
+                this.castRay(map, ray);
+            }
+        }
+    }
+
+    private void castRay(CollisionMap map, int ray) {
+        int i = ray * 4;
+        this.hits[ray] = map.raycast(this.terrainMasks[ray], this.rays[i], this.rays[i+1], this.rays[i+2], this.rays[i+3]);
+    }
+
+    /**
+     * @param ray Number of the ray, given by add()
+     * @return first blocking tile index, CollisionMap.NO_HIT or CollisionMap.OFF_MAP
+     */
+    public int getHit(int ray) {
+        return this.hits[ray];
+    }
+
+    /**
+     * @param ray Number of the ray, given by add()
+     * @return True if nothing blocked the ray
+     */
+    public boolean isVisible(int ray) {
+        return this.hits[ray] == CollisionMap.NO_HIT;
+    }
+
+    public int size() {
+        return this.rayCount;
+    }
+
+    /**
+     * Forget the rays, keeping the arrays for the next batch
+     */
+    public void clear() {
+        this.rayCount = 0;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+/**
+ * SimulationClock splits the time between rendered frames into
+ * simulation ticks of a fixed length. Frame time goes into an
+ * accumulator with addTime(), and nextTick() hands out whole ticks
+ * from it until there's less than a tick left. What's left over is
+ * how far the display is between the last two ticks (getAlpha()),
+ * for interpolating positions when rendering.
+ * Usage per frame: addTime(frameSeconds), while (nextTick()) tick, render with getAlpha().
+ * If frames come too slowly, the catch-up is capped so that a long
+ * stall doesn't turn into an ever growing pile of ticks to run.
+ * @author nikok
+ */
+public class SimulationClock {
+
+    private final int ticksPerSecond;
+    private final double tickLength; //Seconds
+    private final int maxCatchUpTicks; //Most ticks run for one frame
+    private double accumulator;
+    private long tick;
+    private long droppedTicks;
+
+    /**
+     * @param ticksPerSecond Simulation rate, independent of the frame rate
+     * @param maxCatchUpTicks Most ticks to run for one frame, time beyond that is dropped
+     */
+    public SimulationClock(int ticksPerSecond, int maxCatchUpTicks) {
+        this.ticksPerSecond = ticksPerSecond;
+        this.tickLength = 1.0 / ticksPerSecond;
+        this.maxCatchUpTicks = Math.max(1, maxCatchUpTicks);
+    }
+
+    /**
+     * Add the time passed since the last frame
+     * @param seconds Frame time in seconds
+     */
+    public void addTime(double seconds) {
+        if (seconds > 0) this.accumulator += seconds;
+        double max = this.maxCatchUpTicks * this.tickLength;
+        if (this.accumulator > max) {
+            //Fell too far behind, the simulation slows down instead of stalling the display
+            this.droppedTicks += (long)((this.accumulator - max) / this.tickLength);
+            this.accumulator = max;
+        }
+    }
+
+    /**
+     * Take one tick out of the accumulated time
+     * @return True if there was a whole tick to run, the tick counter is then advanced
+     */
+    public boolean nextTick() {
+        if (this.accumulator < this.tickLength) return false;
+        this.accumulator -= this.tickLength;
+        this.tick++;
+        return true;
+    }
+
+    /**
+     * Advance the tick counter right away, without waiting for the
+     * time to build up. Headless runs step as fast as they can.
+     * @return Number of the new tick
+     */
+    public long step() {
+        this.tick++;
+        return this.tick;
+    }
+
+    /**
+     * @return Number of the latest tick, counted from 1
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * @return Length of a tick in seconds
+     */
+    public double getTickLength() {
+        return this.tickLength;
+    }
+
+    public int getTicksPerSecond() {
+        return this.ticksPerSecond;
+    }
+
+    /**
+     * @return Simulated time in seconds
+     */
+    public double getTime() {
+        return this.tick * this.tickLength;
+    }
+
+    /**
+     * How far the display is between the last tick and the next one.
+     * Rendering draws previous + (current - previous) * alpha.
+     * @return fraction of a tick, 0 to 1
+     */
+    public double getAlpha() {
+        return Math.min(1, this.accumulator / this.tickLength);
+    }
+
+    /**
+     * @param seconds Duration in seconds
+     * @return Number of ticks that covers the duration
+     */
+    public long secondsToTicks(double seconds) {
+        return (long)Math.ceil(seconds * this.ticksPerSecond);
+    }
+
+    /**
+     * @return Ticks skipped because frames came too slowly to catch up with
+     */
+    public long getDroppedTicks() {
+        return this.droppedTicks;
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+
+/**
+ * SpatialGrid is a uniform grid over the map for finding what's near a spot.
+ * Each item is put in every cell its bounding box touches.
+ * Cells are row major (index = row*columns + column):
+ *  [ 0][ 1][ 2][ 3][ 4]
+ *  [ 5][ 6][ 7][ 8][ 9]
+ *  [10][11][12][13][14]
+ * Cell contents are linked lists kept in int arrays, so adding, moving
+ * and removing items doesn't allocate once the arrays are big enough.
+ * Items are referred to by the handle add() gives. Moving an item
+ * only touches the lists if its box crossed a cell boundary.
+ * Queries aren't thread safe: the results are kept in the grid
+ * until the next query.
+ * @author nikok
+ * @param <T> Type of the items in the grid
+ */
+public class SpatialGrid<T> {
+
+    private static final int NONE = -1;
+    public static final int DEFAULT_ITEMS_PER_CELL = 4;
+
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHeads; //First entry in each cell, NONE if empty
+
+    //Entries link an item to a single cell. An item has one entry per cell it touches
+    private int[] entryItem;
+    private int[] entryNext; //Next entry in the same cell
+    private int[] entryPrevious; //Previous entry in the same cell, NONE if first
+    private int[] entrySibling; //Next entry of the same item
+    private int freeEntry = NONE;
+    private int entriesUsed;
+
+    //Items by handle
+    private Object[] items;
+    private int[] itemCells; //Cell range of each item: first column, first row, last column, last row
+    private int[] itemFirstEntry;
+    private int freeItem = NONE; //Removed handles are reused, chained through itemFirstEntry
+    private int itemsUsed;
+    private int itemCount;
+
+    //Query results, with stamps to not report multi-cell items twice
+    private int[] queryStamps;
+    private int queryStamp;
+    private int[] results = new int[64];
+    private int resultCount;
+
+    /**
+     * @param width Width of the area covered (map pixels)
+     * @param height Height of the area covered (map pixels)
+     * @param cellSize Width and height of a cell
+     */
+    public SpatialGrid(double width, double height, double cellSize) {
+        this.cellWidth = cellSize;
+        this.cellHeight = cellSize;
+        this.columns = Math.max(1, (int)Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int)Math.ceil(height / cellSize));
+        this.cellHeads = new int[this.columns * this.rows];
+        Arrays.fill(this.cellHeads, NONE);
+        int capacity = 64;
+        this.entryItem = new int[capacity];
+        this.entryNext = new int[capacity];
+        this.entryPrevious = new int[capacity];
+        this.entrySibling = new int[capacity];
+        this.items = new Object[capacity];
+        this.itemCells = new int[capacity * 4];
+        this.itemFirstEntry = new int[capacity];
+        this.queryStamps = new int[capacity];
+    }
+
+    /**
+     * Make a grid with cells sized so that the expected number of items
+     * spreads to a few per cell. Cells are never smaller than minCellSize,
+     * which should be about the size of the largest item, so that items
+     * mostly stay within four cells.
+     * @param width Width of the area covered (map pixels)
+     * @param height Height of the area covered (map pixels)
+     * @param expectedItems Number of items expected in the grid
+     * @param minCellSize Smallest allowed cell size
+     * @return new grid sized for the density
+     */
+    public static <T> SpatialGrid<T> forDensity(double width, double height, int expectedItems, double minCellSize) {
+        double areaPerItem = (width * height) / Math.max(1, expectedItems);
+        double cellSize = Math.max(minCellSize, Math.sqrt(areaPerItem * DEFAULT_ITEMS_PER_CELL));
+        return new SpatialGrid<>(width, height, cellSize);
+    }
+
+    /**
+     * Add an item with the given bounding box to the grid
+     * @param item Item to add
+     * @param minX Left edge of the item
+     * @param minY Top edge of the item
+     * @param maxX Right edge of the item
+     * @param maxY Bottom edge of the item
+     * @return handle for moving and removing the item later
+     */
+    public int add(T item, double minX, double minY, double maxX, double maxY) {
+        int handle;
+        if (this.freeItem != NONE) {
+            handle = this.freeItem;
+            this.freeItem = this.itemFirstEntry[handle];
+        } else {
+            if (this.itemsUsed == this.items.length) this.growItems();
+            handle = this.itemsUsed++;
+        }
+        this.items[handle] = item;
+        this.itemFirstEntry[handle] = NONE;
+        this.link(handle, this.column(minX), this.row(minY), this.column(maxX), this.row(maxY));
+        this.itemCount++;
+        return handle;
+    }
+
+    /**
+     * Update the bounding box of an item. Cell lists are only touched
+     * if the box moved to a different set of cells.
+     * @param handle Handle given by add()
+     * @return true if the item changed cells
+     */
+    public boolean move(int handle, double minX, double minY, double maxX, double maxY) {
+        int c0 = this.column(minX);
+        int r0 = this.row(minY);
+        int c1 = this.column(maxX);
+        int r1 = this.row(maxY);
+        int i = handle * 4;
+        if (this.itemCells[i] == c0 && this.itemCells[i+1] == r0 && this.itemCells[i+2] == c1 && this.itemCells[i+3] == r1) return false;
+        this.unlink(handle);
+        this.link(handle, c0, r0, c1, r1);
+        return true;
+    }
+
+    /**
+     * Remove an item from the grid. The handle may be given to a later item.
+     * @param handle Handle given by add()
+     */
+    public void remove(int handle) {
+        if (handle < 0 || handle >= this.itemsUsed || this.items[handle] == null) return;
+        this.unlink(handle);
+        this.items[handle] = null;
+        this.itemFirstEntry[handle] = this.freeItem;
+        this.freeItem = handle;
+        this.itemCount--;
+    }
+
+    /**
+     * Empty the grid. All handles become invalid.
+     */
+    public void clear() {
+        Arrays.fill(this.cellHeads, NONE);
+        Arrays.fill(this.items, 0, this.itemsUsed, null);
+        this.freeEntry = NONE;
+        this.entriesUsed = 0;
+        this.freeItem = NONE;
+        this.itemsUsed = 0;
+        this.itemCount = 0;
+    }
+
+    /**
+     * Find the items whose cells overlap the given area.
+     * Items are reported once each, but they may be anywhere in the
+     * cells they share with the area: check the actual boxes if needed.
+     * @return number of items found, get them with getResult()
+     */
+    public int query(double minX, double minY, double maxX, double maxY) {
+        this.resultCount = 0;
+        this.queryStamp++;
+        if (this.queryStamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.queryStamps, 0);
+            this.queryStamp = 1;
+        }
+        int c0 = this.column(minX);
+        int r0 = this.row(minY);
+        int c1 = this.column(maxX);
+        int r1 = this.row(maxY);
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                for (int e = this.cellHeads[row * this.columns + column]; e != NONE; e = this.entryNext[e]) {
+                    int handle = this.entryItem[e];
+                    if (this.queryStamps[handle] == this.queryStamp) continue;
+                    this.queryStamps[handle] = this.queryStamp;
+                    if (this.resultCount == this.results.length) this.results = Arrays.copyOf(this.results, this.resultCount * 2);
+                    this.results[this.resultCount++] = handle;
+                }
+            }
+        }
+        return this.resultCount;
+    }
+
+    /**
+     * Find the items in the cell of the given point
+     * @return number of items found, get them with getResult()
+     */
+    public int query(double x, double y) {
+        return this.query(x, y, x, y);
+    }
+
+    /**
+     * @param i Number of the result, from 0 to the count the last query returned
+     * @return item found by the last query
+     */
+    @SuppressWarnings("unchecked")
+    public T getResult(int i) {
+        return (T)this.items[this.results[i]];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        if (handle < 0 || handle >= this.itemsUsed) return null;
+        return (T)this.items[handle];
+    }
+
+    public int size() {
+        return this.itemCount;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public double getCellWidth() {
+        return this.cellWidth;
+    }
+
+    public double getCellHeight() {
+        return this.cellHeight;
+    }
+
+    private int column(double x) {
+        int c = (int)(x / this.cellWidth);
+        if (c < 0) return 0;
+        return (c >= this.columns) ? this.columns - 1 : c;
+    }
+
+    private int row(double y) {
+        int r = (int)(y / this.cellHeight);
+        if (r < 0) return 0;
+        return (r >= this.rows) ? this.rows - 1 : r;
+    }
+
+    /**
+     * Put the item in every cell of the given range
+     */
+    private void link(int handle, int c0, int r0, int c1, int r1) {
+        int i = handle * 4;
+        this.itemCells[i] = c0;
+        this.itemCells[i+1] = r0;
+        this.itemCells[i+2] = c1;
+        this.itemCells[i+3] = r1;
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                int cell = row * this.columns + column;
+                int e = this.newEntry();
+                this.entryItem[e] = handle;
+                this.entryPrevious[e] = NONE;
+                this.entryNext[e] = this.cellHeads[cell];
+                if (this.cellHeads[cell] != NONE) this.entryPrevious[this.cellHeads[cell]] = e;
+                this.cellHeads[cell] = e;
+                this.entrySibling[e] = this.itemFirstEntry[handle];
+                this.itemFirstEntry[handle] = e;
+            }
+        }
+    }
+
+    /**
+     * Take the item out of all its cells
+     */
+    private void unlink(int handle) {
+        int i = handle * 4;
+        int columnStart = this.itemCells[i];
+        int rowStart = this.itemCells[i+1];
+        int columnsWide = this.itemCells[i+2] - columnStart + 1;
+        //Entries were linked row by row, so the last linked is the first in the sibling chain
+        int column = this.itemCells[i+2];
+        int row = this.itemCells[i+3];
+        int e = this.itemFirstEntry[handle];
+        while (e != NONE) {
+            int next = this.entrySibling[e];
+            if (this.entryPrevious[e] != NONE) this.entryNext[this.entryPrevious[e]] = this.entryNext[e];
+            else this.cellHeads[row * this.columns + column] = this.entryNext[e];
+            if (this.entryNext[e] != NONE) this.entryPrevious[this.entryNext[e]] = this.entryPrevious[e];
+            this.entryNext[e] = this.freeEntry;
+            this.freeEntry = e;
+            column--;
+            if (column < columnStart) {
+                column += columnsWide;
+                row--;
+            }
+            e = next;
+        }
+        this.itemFirstEntry[handle] = NONE;
+    }
+
+    private int newEntry() {
+        if (this.freeEntry != NONE) {
+            int e = this.freeEntry;
+            this.freeEntry = this.entryNext[e];
+            return e;
+        }
+        if (this.entriesUsed == this.entryItem.length) {
+            int capacity = this.entriesUsed * 2;
+            this.entryItem = Arrays.copyOf(this.entryItem, capacity);
+            this.entryNext = Arrays.copyOf(this.entryNext, capacity);
+            this.entryPrevious = Arrays.copyOf(this.entryPrevious, capacity);
+            this.entrySibling = Arrays.copyOf(this.entrySibling, capacity);
+        }
+        return this.entriesUsed++;
+    }
+
+    private void growItems() {
+        int capacity = this.items.length * 2;
+        this.items = Arrays.copyOf(this.items, capacity);
+        this.itemCells = Arrays.copyOf(this.itemCells, capacity * 4);
+        this.itemFirstEntry = Arrays.copyOf(this.itemFirstEntry, capacity);
+        this.queryStamps = Arrays.copyOf(this.queryStamps, capacity);
+    }
+
+}
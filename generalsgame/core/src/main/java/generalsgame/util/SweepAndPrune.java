@@ -0,0 +1,131 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import java.util.Arrays;
+
+/**
+ * SweepAndPrune finds the pairs of boxes that overlap, every pair once.
+ * Boxes are sorted by their left edge, and each box is only compared
+ * with the boxes that start before it ends on the x axis.
+ * The sort order is kept between calls: bodies move little per tick,
+ * so insertion sort on the old order is close to linear.
+ * Bodies are numbered 0 to count-1 by the caller (for example their
+ * index in a list), and the arrays are reused from call to call.
+ * @author nikok
+ */
+public class SweepAndPrune {
+
+    private double[] minX = new double[16];
+    private double[] minY = new double[16];
+    private double[] maxX = new double[16];
+    private double[] maxY = new double[16];
+    private int[] order = new int[16]; //Body numbers sorted by minX
+    private int count;
+    private int[] pairs = new int[32]; //Two body numbers per pair, smaller first
+    private int pairCount;
+
+    /**
+     * Start a new round with the given number of bodies.
+     * If the number changed, the old sort order is thrown away.
+     * @param bodyCount number of bodies, set each with setBounds()
+     */
+    public void begin(int bodyCount) {
+        if (bodyCount > this.minX.length) {
+            int capacity = Math.max(bodyCount, this.minX.length * 2);
+            this.minX = Arrays.copyOf(this.minX, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.maxX = Arrays.copyOf(this.maxX, capacity);
+            this.maxY = Arrays.copyOf(this.maxY, capacity);
+            this.order = new int[capacity];
+        }
+        if (bodyCount != this.count) {
+            for (int i = 0; i < bodyCount; i++) this.order[i] = i;
+        }
+        this.count = bodyCount;
+        this.pairCount = 0;
+    }
+
+    public void setBounds(int body, double minX, double minY, double maxX, double maxY) {
+        this.minX[body] = minX;
+        this.minY[body] = minY;
+        this.maxX[body] = maxX;
+        this.maxY[body] = maxY;
+    }
+
+    /**
+     * Sort the bodies and find the overlapping pairs
+     * @return number of pairs found, get them with getPairA() and getPairB()
+     */
+    public int findPairs() {
+        this.sort();
+        this.pairCount = 0;
+        for (int i = 0; i < this.count; i++) {
+            int a = this.order[i];
+            double right = this.maxX[a];
+            for (int j = i + 1; j < this.count; j++) {
+                int b = this.order[j];
+                if (this.minX[b] > right) break; //Everything after this starts further right too
+                if (this.maxY[a] < this.minY[b] || this.minY[a] > this.maxY[b]) continue;
+                this.addPair(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        return this.pairCount;
+    }
+
+    private void sort() {
+        for (int i = 1; i < this.count; i++) {
+            int body = this.order[i];
+            double key = this.minX[body];
+            int j = i - 1;
+            while (j >= 0 && this.minX[this.order[j]] > key) {
+                this.order[j + 1] = this.order[j];
+                j--;
+            }
+            this.order[j + 1] = body;
+        }
+    }
+
+    private void addPair(int a, int b) {
+        if (this.pairCount * 2 == this.pairs.length) this.pairs = Arrays.copyOf(this.pairs, this.pairs.length * 2);
+        this.pairs[this.pairCount * 2] = a;
+        this.pairs[this.pairCount * 2 + 1] = b;
+        this.pairCount++;
+    }
+
+    /**
+     * @param pair Number of the pair, from 0 to the count findPairs() returned
+     * @return the smaller body number of the pair
+     */
+    public int getPairA(int pair) {
+        return this.pairs[pair * 2];
+    }
+
+    /**
+     * @param pair Number of the pair, from 0 to the count findPairs() returned
+     * @return the larger body number of the pair
+     */
+    public int getPairB(int pair) {
+        return this.pairs[pair * 2 + 1];
+    }
+
+    public int getPairCount() {
+        return this.pairCount;
+    }
+
+    /**
+     * Bodies in the order of their left edges, as sorted by the last findPairs().
+     * Runs of this order are strips of the map, handy for splitting work by area.
+     * @param place Place in the order, from 0 to the body count
+     * @return body number at that place
+     */
+    public int getSorted(int place) {
+        return this.order[place];
+    }
+
+}
@@ -9,13 +9,6 @@ package generalsgame.util;
 
 import generalsgame.Direction;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 
 /**
  * Toolkit (TODO: poor name, rename) contains
@@ -276,52 +269,5 @@ public abstract class Toolkit {
         }
         return output.toString();
     }
- 
-    /**
-     * Scale a font to fit text within given width
-     * @param text Text to use
-     * @param maxwidth Maximum width for the text
-     * @param pFont Font to do the scaling with
-     * @return Given font, scaled to max size that fits inside "maxwidth"
-     */
-    public static Font scaleFont(String text, double maxwidth, Font pFont) {
-        Text t = new Text(text);
-        float fontSize = 20.0f;
-        t.setFont(Font.font(pFont.getName(), fontSize));
-        int width = (int)t.getLayoutBounds().getWidth();
-        fontSize = (int)(maxwidth / width ) * fontSize;
-        return Font.font(pFont.getName(), fontSize);
-    }
-    
-    /**
-     * Make an image composed of several images, layered
-     * atop another with PixelWriter
-     * @param centerImages set True if (smaller than the first one) images should be centred 
-     * @param images List of images to merge
-     * @return 
-     */
-    public static Image mergeImage(boolean centerImages, Image... images) {
-        WritableImage compose = new WritableImage((int)images[0].getWidth(), (int)images[0].getHeight());
-        PixelWriter pw = compose.getPixelWriter();
-        
-        for (Image image : images) {
-            if (image != null) {
-                int xOffset =0;
-                int yOffset =0;
-                if (centerImages) {
-                    if (image.getWidth() < images[0].getWidth()) xOffset = (int)((images[0].getWidth() - image.getWidth())/2);
-                    if (image.getHeight() < images[0].getHeight()) yOffset = (int)((images[0].getHeight() - image.getHeight())/2);
-                }
-                PixelReader pr = image.getPixelReader();
-                for(int y=0; y<Math.min(image.getHeight(), images[0].getHeight()); y++){
-                    for(int x=0; x<Math.min(image.getWidth(), images[0].getWidth()); x++){
-                        Color color = pr.getColor(x, y);
-                        if (pr.getArgb(x, y) >> 28 != 0) pw.setColor((x+xOffset), (int)(y+yOffset), color);
-                    }
-                }
-            }
-        }
-        return compose;
-    }
     
 }
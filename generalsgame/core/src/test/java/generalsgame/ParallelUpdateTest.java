@@ -0,0 +1,135 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.commands.MoveCommand;
+import generalsgame.gameobjects.Creature;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+import generalsgame.util.FlowField;
+
+/**
+ * The same seeded battle is run with the creatures updating one by one
+ * and on a ForkJoinPool of 4, and the results must be exactly the same:
+ * creatures only read the state of the last tick while they update,
+ * so the order they're updated in can't matter.
+ * Orders use flow fields, made on the spot, or paths searched in the
+ * background, which must come on the same tick however fast the
+ * workers are. With paths, walls go up halfway through, so some
+ * searches are stale and the workers repair their maps.
+ * @author nikok
+ */
+public class ParallelUpdateTest {
+
+    private static final int UNITS = 600;
+    private static final int TICKS = 300;
+    private static final int ORDER_TICKS = 100; //New orders every this many ticks
+    private static final int WALL_TICK = 150; //Walls go up on this tick in the runs with paths
+
+    @Test
+    public void parallelUpdateMatchesSerial() {
+        this.checkRuns(false, true);
+    }
+
+    @Test
+    public void pathMovesMatchSerial() {
+        this.checkRuns(true, true);
+    }
+
+    @Test
+    public void pathMovesRepeat() {
+        this.checkRuns(true, false);
+    }
+
+    /**
+     * Run the same battle twice and compare the creatures at the end
+     * @param paths true to order moves along background searched paths, false for flow fields
+     * @param parallel true to update the second run on a pool, false to run both one by one
+     */
+    private void checkRuns(boolean paths, boolean parallel) {
+        Simulation.logger.setLevel(Level.WARNING);
+        Simulation serial = Simulation.createTestBattle(UNITS, 14416884);
+        Simulation other = Simulation.createTestBattle(UNITS, 14416884);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        if (parallel) other.getMap().setUpdatePool(pool);
+        try {
+            for (int t = 0; t < TICKS; t++) {
+                if (t % ORDER_TICKS == 0) {
+                    orderCrossing(serial, t / ORDER_TICKS, paths);
+                    orderCrossing(other, t / ORDER_TICKS, paths);
+                }
+                if (paths && t == WALL_TICK) {
+                    buildWalls(serial.getMap());
+                    buildWalls(other.getMap());
+                }
+                serial.step();
+                other.step();
+            }
+            ArrayList<Creature> expected = serial.getMap().getCreatures();
+            ArrayList<Creature> actual = other.getMap().getCreatures();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Creature e = expected.get(i);
+                Creature a = actual.get(i);
+                assertEquals(e.getName(), a.getName());
+                assertEquals(e.getName()+" x", e.getXPos(), a.getXPos(), 0);
+                assertEquals(e.getName()+" y", e.getYPos(), a.getYPos(), 0);
+                assertEquals(e.getName()+" contacts", e.getContactCount(), a.getContactCount());
+            }
+            assertEquals(serial.getMap().getContactCount(), other.getMap().getContactCount());
+        } finally {
+            serial.shutdown();
+            other.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Send the creatures towards the corners, crossing each others paths
+     */
+    private static void orderCrossing(Simulation simulation, int round, boolean paths) {
+        BattleMap map = simulation.getMap();
+        ArrayList<Creature> creatures = map.getCreatures();
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature c = creatures.get(i);
+            double goalX = ((i + round) % 3 == 0) ? 100 : map.getWidth() - 200;
+            double goalY = ((i + round) % 2 == 0) ? 300 : map.getHeight() - 300;
+            long endTime = simulation.getTick() + ORDER_TICKS;
+            if (paths) {
+                c.setCommand(new MoveCommand(c, goalX, goalY, simulation.getTick(), endTime));
+            } else {
+                FlowField field = map.getPathFinder().getFlowField(c.getWidth(), c.getCrossableTerrain(), goalX, goalY);
+                c.setCommand(new MoveCommand(c, field, goalX, goalY, simulation.getTick(), endTime));
+            }
+        }
+    }
+
+    /**
+     * A few walls across the middle of the map, with gaps
+     */
+    private static void buildWalls(BattleMap map) {
+        int tiles = (int)(map.getHeight() / Simulation.TILESIZE);
+        for (int wall = 1; wall <= 3; wall++) {
+            int x = (int)(map.getWidth() / Simulation.TILESIZE) * wall / 4;
+            for (int y = 4; y < tiles - 4; y++) {
+                if (y % 16 < 3) continue;
+                Structure s = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+                map.addStructure(s, x * Simulation.TILESIZE, y * Simulation.TILESIZE);
+            }
+        }
+    }
+
+}
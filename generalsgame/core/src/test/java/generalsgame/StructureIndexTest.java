@@ -0,0 +1,105 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for the structure index of the map: random adds, moves,
+ * removes and cleanups are mirrored in a plain list, and after each one
+ * point and area lookups are checked against going through the list.
+ * A point lookup must find a structure under the point whenever there
+ * is one, and an area lookup must find every structure in the area.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class StructureIndexTest {
+
+    private static final int CASES = 3000;
+    private static final int LOOKUPS = 20; //Per case
+    private static final double MAP_SIZE = 1600;
+
+    private final Random random = new Random(14416884);
+
+    public StructureIndexTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void lookupsMatchStructureList() {
+        BattleMap map = new BattleMap("Index", MAP_SIZE, MAP_SIZE);
+        List<Structure> expected = new ArrayList<>();
+        List<Structure> found = new ArrayList<>();
+        for (int i = 0; i < CASES; i++) {
+            String c = "case "+i;
+            int operation = random.nextInt(10);
+            if (operation < 4 || expected.isEmpty()) {
+                Structure s = new Structure("Wall", new MovingGraphics(8 + random.nextInt(100), 8 + random.nextInt(100)), 1);
+                map.addStructure(s, this.randomPosition(), this.randomPosition());
+                expected.add(s);
+            } else if (operation < 6) {
+                expected.get(random.nextInt(expected.size())).setPosition(this.randomPosition(), this.randomPosition());
+            } else if (operation < 8) {
+                Structure s = expected.remove(random.nextInt(expected.size()));
+                map.removeMapObject(s.getID());
+            } else {
+                for (int j = expected.size() - 1; j >= 0; j--) {
+                    if (random.nextInt(5) != 0) continue;
+                    expected.get(j).setRemovable(true);
+                    expected.remove(j);
+                }
+                map.fullCleanup(false, true, false);
+            }
+            for (int j = 0; j < LOOKUPS; j++) {
+                double x = random.nextDouble() * MAP_SIZE;
+                double y = random.nextDouble() * MAP_SIZE;
+                Structure s = map.getStructureAtLocation(x, y);
+                boolean any = false;
+                for (Structure e : expected) any |= this.contains(e, x, y);
+                if (any) assertTrue(c+" found nothing at "+x+","+y, s != null && expected.contains(s) && this.contains(s, x, y));
+                else assertTrue(c+" found "+s+" at the empty spot "+x+","+y, s == null);
+            }
+            double minX = random.nextDouble() * MAP_SIZE;
+            double minY = random.nextDouble() * MAP_SIZE;
+            double maxX = minX + random.nextDouble() * 200;
+            double maxY = minY + random.nextDouble() * 200;
+            map.getStructuresInArea(minX, minY, maxX, maxY, found);
+            IdentityHashMap<Structure, Boolean> inArea = new IdentityHashMap<>();
+            for (int j = 0; j < found.size(); j++) {
+                Structure s = found.get(j);
+                assertTrue(c+" area has a structure that isn't on the map", expected.contains(s));
+                assertTrue(c+" area has "+s.getName()+" twice", inArea.put(s, true) == null);
+                if (j > 0) assertTrue(c+" area isn't ordered by ID", found.get(j-1).getID() < s.getID());
+            }
+            for (Structure e : expected) {
+                boolean overlaps = e.getMinX() <= maxX && e.getMaxX() >= minX && e.getMinY() <= maxY && e.getMaxY() >= minY;
+                if (overlaps) assertTrue(c+" area is missing "+e.getID(), inArea.containsKey(e));
+            }
+        }
+    }
+
+    private boolean contains(Structure s, double x, double y) {
+        return x >= s.getMinX() && x <= s.getMaxX() && y >= s.getMinY() && y <= s.getMaxY();
+    }
+
+    private double randomPosition() {
+        return random.nextDouble() * (MAP_SIZE - 120);
+    }
+
+}
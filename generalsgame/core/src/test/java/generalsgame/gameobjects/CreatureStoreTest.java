@@ -0,0 +1,133 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.gameobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for the creature store of the map: random adds,
+ * removes, graphics replacements and cleanups are mirrored in a plain
+ * list, and after each one the creature list and the store must agree
+ * slot by slot. Creatures that leave the map keep their stats and
+ * position in a store of their own.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class CreatureStoreTest {
+
+    private static final int CASES = 3000;
+    private static final double MAP_SIZE = 2000;
+
+    private final Random random = new Random(14416884);
+
+    public CreatureStoreTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void slotsFollowTheCreatureList() {
+        BattleMap map = new BattleMap("Store", MAP_SIZE, MAP_SIZE);
+        List<Creature> expected = new ArrayList<>();
+        IdentityHashMap<Creature, double[]> state = new IdentityHashMap<>(); //x, y and health by creature
+        int nextID = 1;
+        for (int i = 0; i < CASES; i++) {
+            String c = "case "+i;
+            int operation = random.nextInt(10);
+            if (operation < 4 || expected.isEmpty()) {
+                Creature mob = new Creature("Mob"+nextID, new MovingGraphics(8 + random.nextInt(24), 8 + random.nextInt(24)));
+                mob.setAttribute("Health", random.nextInt(200));
+                map.addMapObject(mob, nextID++);
+                this.place(mob, state);
+                expected.add(mob);
+            } else if (operation < 6) {
+                Creature mob = expected.remove(random.nextInt(expected.size()));
+                map.removeMapObject(mob.getID());
+                this.checkLeftMap(c, map, mob, state);
+            } else if (operation < 8) {
+                Creature mob = expected.get(random.nextInt(expected.size()));
+                int slot = mob.getSlot();
+                MovingGraphics graphics = new MovingGraphics(8 + random.nextInt(24), 8 + random.nextInt(24));
+                mob.setGraphics(graphics);
+                this.place(mob, state);
+                assertEquals(c+" replaced graphics moved the slot", slot, mob.getSlot());
+                assertTrue(c+" replaced graphics aren't in the store", map.getCreatureStore().getGraphics(slot) == graphics);
+            } else {
+                List<Creature> removed = new ArrayList<>();
+                for (int j = 0; j < expected.size(); j++) {
+                    if (random.nextInt(4) == 0) {
+                        expected.get(j).setRemovable(true);
+                        removed.add(expected.get(j));
+                    }
+                }
+                map.fullCleanup(true, false, false);
+                expected.removeAll(removed);
+                for (Creature mob : removed) {
+                    this.checkLeftMap(c, map, mob, state);
+                }
+            }
+            this.checkSlots(c, map, expected, state);
+        }
+    }
+
+    /**
+     * Every creature on the map sits in the slot of its index,
+     * in the store of the map, with the stats it was given
+     */
+    private void checkSlots(String c, BattleMap map, List<Creature> expected, IdentityHashMap<Creature, double[]> state) {
+        ArrayList<Creature> creatures = map.getCreatures();
+        CreatureStore store = map.getCreatureStore();
+        assertEquals(c, expected.size(), creatures.size());
+        assertEquals(c, expected.size(), store.getCount());
+        for (int i = 0; i < creatures.size(); i++) {
+            Creature mob = creatures.get(i);
+            assertTrue(c+" "+mob.getName()+" is out of order", mob == expected.get(i));
+            assertEquals(c+" "+mob.getName()+" slot", i, mob.getSlot());
+            assertTrue(c+" "+mob.getName()+" isn't in the store of the map", mob.getStore() == store);
+            assertTrue(c+" slot "+i+" has another creature", store.getCreature(i) == mob);
+            assertTrue(c+" slot "+i+" has other graphics", store.getGraphics(i) == mob.getGraphics());
+            this.checkState(c, mob, state);
+        }
+    }
+
+    private void checkLeftMap(String c, BattleMap map, Creature mob, IdentityHashMap<Creature, double[]> state) {
+        assertTrue(c+" "+mob.getName()+" is still in the store of the map", mob.getStore() != map.getCreatureStore());
+        assertTrue(c+" "+mob.getName()+" isn't in its own store", mob.getStore().getCreature(mob.getSlot()) == mob);
+        this.checkState(c, mob, state);
+        state.remove(mob);
+    }
+
+    private void checkState(String c, Creature mob, IdentityHashMap<Creature, double[]> state) {
+        double[] s = state.get(mob);
+        assertEquals(c+" "+mob.getName()+" x", s[0], mob.getXPos(), 0);
+        assertEquals(c+" "+mob.getName()+" y", s[1], mob.getYPos(), 0);
+        assertEquals(c+" "+mob.getName()+" health", (int)s[2], mob.getHealth());
+    }
+
+    private void place(Creature mob, IdentityHashMap<Creature, double[]> state) {
+        double x = random.nextDouble() * (MAP_SIZE - 40);
+        double y = random.nextDouble() * (MAP_SIZE - 40);
+        mob.setPosition(x, y);
+        //Health as it was first given, replacing the graphics mustn't change it
+        double health = state.containsKey(mob) ? state.get(mob)[2] : mob.getHealth();
+        state.put(mob, new double[]{x, y, health});
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for AlphaMask: random images, some of them wider than
+ * one long and with widths that don't split evenly into longs, are
+ * placed at random (also fractional and negative) positions, and the
+ * mask overlap is checked against going through the ARGB pixels of
+ * both images one by one, the way pixel collisions used to read them.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class AlphaMaskTest {
+
+    private static final int CASES = 20000;
+    private static final int MAX_SIZE = 150;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void opaquePixelsMatchImage() {
+        for (int i = 0; i < CASES / 100; i++) {
+            int width = 1 + random.nextInt(MAX_SIZE), height = 1 + random.nextInt(MAX_SIZE);
+            int[] argb = this.randomImage(width, height);
+            AlphaMask mask = AlphaMask.fromArgb(width, height, argb);
+            assertEquals("case "+i+" width", width, mask.getWidth());
+            assertEquals("case "+i+" height", height, mask.getHeight());
+            for (int y = -1; y <= height; y++) {
+                for (int x = -1; x <= width; x++) {
+                    assertEquals("case "+i+" pixel "+x+","+y, this.isOpaque(argb, width, height, x, y), mask.isOpaque(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void overlapsMatchPixels() {
+        for (int i = 0; i < CASES; i++) {
+            int width1 = 1 + random.nextInt(MAX_SIZE), height1 = 1 + random.nextInt(MAX_SIZE / 3);
+            int width2 = 1 + random.nextInt(MAX_SIZE), height2 = 1 + random.nextInt(MAX_SIZE / 3);
+            int[] argb1 = this.randomImage(width1, height1);
+            int[] argb2 = this.randomImage(width2, height2);
+            double x1 = random.nextDouble() * 200 - 100, y1 = random.nextDouble() * 100 - 50;
+            //Second image mostly touching the first, sometimes just past its edges
+            double x2 = x1 + random.nextInt(width1 + width2 + 2) - width2 - 1 + random.nextDouble();
+            double y2 = y1 + random.nextInt(height1 + height2 + 2) - height2 - 1 + random.nextDouble();
+            AlphaMask mask1 = AlphaMask.fromArgb(width1, height1, argb1);
+            AlphaMask mask2 = AlphaMask.fromArgb(width2, height2, argb2);
+            boolean expected = this.pixelsOverlap(x1, y1, argb1, width1, height1, x2, y2, argb2, width2, height2);
+            String c = "case "+i+" "+width1+"x"+height1+" at "+x1+","+y1+" and "+width2+"x"+height2+" at "+x2+","+y2;
+            assertEquals(c, expected, AlphaMask.overlaps(x1, y1, mask1, x2, y2, mask2));
+            assertEquals(c+" swapped", expected, AlphaMask.overlaps(x2, y2, mask2, x1, y1, mask1));
+        }
+    }
+
+    /**
+     * Image with pixels from fully see-through to almost entirely solid,
+     * with the alpha at random values (a pixel is opaque if it's above zero)
+     */
+    private int[] randomImage(int width, int height) {
+        int[] argb = new int[width * height];
+        double opaque = random.nextDouble() * random.nextDouble();
+        for (int p = 0; p < argb.length; p++) {
+            int alpha = random.nextDouble() < opaque ? 1 + random.nextInt(255) : 0;
+            argb[p] = (alpha << 24) | random.nextInt(0x1000000);
+        }
+        return argb;
+    }
+
+    private boolean isOpaque(int[] argb, int width, int height, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (argb[y * width + x] & 0xFF000000) != 0;
+    }
+
+    private boolean pixelsOverlap(double x1, double y1, int[] argb1, int width1, int height1, double x2, double y2, int[] argb2, int width2, int height2) {
+        int dx = (int)Math.floor(x2) - (int)Math.floor(x1);
+        int dy = (int)Math.floor(y2) - (int)Math.floor(y1);
+        for (int y = 0; y < height1; y++) {
+            for (int x = 0; x < width1; x++) {
+                if (this.isOpaque(argb1, width1, height1, x, y) && this.isOpaque(argb2, width2, height2, x - dx, y - dy)) return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for Intersection: random shapes are checked against
+ * the java.awt.geom versions of the same shapes, which do the same
+ * math as the JavaFX shapes collisions used before (without needing
+ * the toolkit running).
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class IntersectionTest {
+
+    private static final int CASES = 20000;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void boxesMatchRectangles() {
+        for (int i = 0; i < CASES; i++) {
+            double[] a = randomBox();
+            double[] b = randomBox();
+            boolean expected = new Rectangle2D.Double(a[0], a[1], a[2]-a[0], a[3]-a[1]).intersects(b[0], b[1], b[2]-b[0], b[3]-b[1]);
+            assertEquals("case "+i, expected, Intersection.boxes(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    @Test
+    public void ellipseBoxMatchesEllipse() {
+        for (int i = 0; i < CASES; i++) {
+            double[] e = randomBox();
+            double[] b = randomBox();
+            boolean expected = new Ellipse2D.Double(e[0], e[1], e[2]-e[0], e[3]-e[1]).intersects(b[0], b[1], b[2]-b[0], b[3]-b[1]);
+            boolean actual = Intersection.ellipseBox((e[0]+e[2])/2, (e[1]+e[3])/2, (e[2]-e[0])/2, (e[3]-e[1])/2, b[0], b[1], b[2], b[3]);
+            assertEquals("case "+i, expected, actual);
+        }
+    }
+
+    @Test
+    public void rotatedBoxMatchesPath() {
+        double[] xs = new double[4];
+        double[] ys = new double[4];
+        for (int i = 0; i < CASES; i++) {
+            randomRotatedBox(xs, ys);
+            double[] b = randomBox();
+            boolean expected = toPath(xs, ys).intersects(b[0], b[1], b[2]-b[0], b[3]-b[1]);
+            assertEquals("case "+i, expected, Intersection.polygonBox(xs, ys, 4, b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    @Test
+    public void rotatedBoxesMatchArea() {
+        double[] xs1 = new double[4];
+        double[] ys1 = new double[4];
+        double[] xs2 = new double[4];
+        double[] ys2 = new double[4];
+        for (int i = 0; i < CASES; i++) {
+            randomRotatedBox(xs1, ys1);
+            randomRotatedBox(xs2, ys2);
+            Area area = new Area(toPath(xs1, ys1));
+            area.intersect(new Area(toPath(xs2, ys2)));
+            assertEquals("case "+i, !area.isEmpty(), Intersection.polygons(xs1, ys1, 4, xs2, ys2, 4));
+        }
+    }
+
+    @Test
+    public void segmentBoxMatchesLine() {
+        for (int i = 0; i < CASES; i++) {
+            double[] s = randomSegment();
+            double[] b = randomBox();
+            boolean expected = new Line2D.Double(s[0], s[1], s[2], s[3]).intersects(b[0], b[1], b[2]-b[0], b[3]-b[1]);
+            assertEquals("case "+i, expected, Intersection.segmentBox(s[0], s[1], s[2], s[3], b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    @Test
+    public void segmentRotatedBoxMatchesPath() {
+        double[] xs = new double[4];
+        double[] ys = new double[4];
+        for (int i = 0; i < CASES; i++) {
+            double[] s = randomSegment();
+            randomRotatedBox(xs, ys);
+            Path2D path = toPath(xs, ys);
+            //The segment hits if it starts inside or crosses an edge
+            boolean expected = path.contains(s[0], s[1]);
+            for (int c = 0; c < 4 && !expected; c++) {
+                int n = (c + 1) % 4;
+                expected = Line2D.linesIntersect(s[0], s[1], s[2], s[3], xs[c], ys[c], xs[n], ys[n]);
+            }
+            assertEquals("case "+i, expected, Intersection.segmentPolygon(s[0], s[1], s[2], s[3], xs, ys, 4));
+        }
+    }
+
+    @Test
+    public void segmentEllipseMatchesQuadratic() {
+        for (int i = 0; i < CASES; i++) {
+            double[] s = randomSegment();
+            double[] e = randomBox();
+            double cx = (e[0]+e[2])/2, cy = (e[1]+e[3])/2, rx = (e[2]-e[0])/2, ry = (e[3]-e[1])/2;
+            boolean expected = new Ellipse2D.Double(e[0], e[1], e[2]-e[0], e[3]-e[1]).contains(s[0], s[1]);
+            if (!expected) {
+                //Solve where the line crosses the ellipse edge, and see if it's on the segment
+                double ax = (s[0]-cx)/rx, ay = (s[1]-cy)/ry;
+                double dx = (s[2]-s[0])/rx, dy = (s[3]-s[1])/ry;
+                double qa = dx*dx + dy*dy, qb = 2*(ax*dx + ay*dy), qc = ax*ax + ay*ay - 1;
+                double discriminant = qb*qb - 4*qa*qc;
+                if (qa > 0 && discriminant >= 0) {
+                    double t1 = (-qb - Math.sqrt(discriminant)) / (2*qa);
+                    double t2 = (-qb + Math.sqrt(discriminant)) / (2*qa);
+                    expected = (t1 >= 0 && t1 <= 1) || (t2 >= 0 && t2 <= 1);
+                }
+            }
+            assertEquals("case "+i, expected, Intersection.segmentEllipse(s[0], s[1], s[2], s[3], cx, cy, rx, ry));
+        }
+    }
+
+    @Test
+    public void segmentsMatchLines() {
+        for (int i = 0; i < CASES; i++) {
+            double[] a = randomSegment();
+            double[] b = randomSegment();
+            boolean expected = Line2D.linesIntersect(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]);
+            assertEquals("case "+i, expected, Intersection.segments(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    /**
+     * @return box as minX, minY, maxX, maxY, somewhere in a 200x200 area
+     */
+    private double[] randomBox() {
+        double x = random.nextDouble() * 200;
+        double y = random.nextDouble() * 200;
+        return new double[]{x, y, x + 1 + random.nextDouble() * 60, y + 1 + random.nextDouble() * 60};
+    }
+
+    private double[] randomSegment() {
+        double x = random.nextDouble() * 240 - 20;
+        double y = random.nextDouble() * 240 - 20;
+        return new double[]{x, y, x + random.nextDouble() * 160 - 80, y + random.nextDouble() * 160 - 80};
+    }
+
+    /**
+     * Corners of a randomly placed, sized and turned rectangle, in order around it
+     */
+    private void randomRotatedBox(double[] xs, double[] ys) {
+        double cx = random.nextDouble() * 200;
+        double cy = random.nextDouble() * 200;
+        double halfWidth = 1 + random.nextDouble() * 30;
+        double halfHeight = 1 + random.nextDouble() * 30;
+        double angle = random.nextDouble() * Math.PI * 2;
+        double cos = Math.cos(angle), sin = Math.sin(angle);
+        double[] localX = {-halfWidth, halfWidth, halfWidth, -halfWidth};
+        double[] localY = {-halfHeight, -halfHeight, halfHeight, halfHeight};
+        for (int c = 0; c < 4; c++) {
+            xs[c] = cx + localX[c]*cos - localY[c]*sin;
+            ys[c] = cy + localX[c]*sin + localY[c]*cos;
+        }
+    }
+
+    private static Path2D toPath(double[] xs, double[] ys) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(xs[0], ys[0]);
+        for (int c = 1; c < xs.length; c++) path.lineTo(xs[c], ys[c]);
+        path.closePath();
+        return path;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for ArrayAStarPathfinder: on random maps with walls,
+ * and rough tiles on some, it must find exactly the same paths as the
+ * Node based AStarPathfinder it replaced, tile by tile, including the
+ * empty ones for blocked, unreachable and too distant goals.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class ArrayAStarPathfinderTest {
+
+    private static final int MAPS = 10;
+    private static final int QUERIES = 100; //Per map
+    private static final int TILES = 40; //Map width and height in tiles
+
+    private final Random random = new Random(14416884);
+    private final List<Integer> crossableTerrain = new ArrayList<>();
+
+    public ArrayAStarPathfinderTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.crossableTerrain.add(0);
+    }
+
+    @Test
+    public void cardinalPathsMatchNodeSearch() {
+        this.checkRandomMaps(false, 1, TILES * TILES);
+    }
+
+    @Test
+    public void diagonalPathsMatchNodeSearch() {
+        this.checkRandomMaps(true, 1, TILES * TILES);
+    }
+
+    @Test
+    public void largeMoverPathsMatchNodeSearch() {
+        this.checkRandomMaps(true, 2, TILES * TILES);
+    }
+
+    @Test
+    public void shortSearchesGiveUpTogether() {
+        this.checkRandomMaps(true, 1, TILES / 2);
+    }
+
+    @Test
+    public void costlyTilesAreAvoidedAlike() {
+        this.checkRandomMaps(true, 1, TILES * TILES, true);
+    }
+
+    private void checkRandomMaps(boolean diagonal, int clearanceNeed, int maxSearchDistance) {
+        this.checkRandomMaps(diagonal, clearanceNeed, maxSearchDistance, false);
+    }
+
+    private void checkRandomMaps(boolean diagonal, int clearanceNeed, int maxSearchDistance, boolean costs) {
+        for (int m = 0; m < MAPS; m++) {
+            CollisionMap collisionMap = this.randomMap().getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            if (costs) {
+                //Rough ground on about a third of the tiles
+                for (int i = 0; i < TILES * TILES / 3; i++) {
+                    collisionMap.setMovementCost(0, random.nextInt(TILES), random.nextInt(TILES), 1 + random.nextInt(4) * 0.5);
+                }
+            }
+            PathFinder pathFinder = new PathFinder(collisionMap, maxSearchDistance, diagonal);
+            ArrayAStarPathfinder arrays = new ArrayAStarPathfinder(pathFinder, maxSearchDistance, diagonal);
+            AStarPathfinder nodes = new AStarPathfinder(pathFinder, maxSearchDistance, diagonal);
+            for (int q = 0; q < QUERIES; q++) {
+                //Any tiles, blocked ones included
+                int sx = random.nextInt(TILES), sy = random.nextInt(TILES);
+                int gx = random.nextInt(TILES), gy = random.nextInt(TILES);
+                String c = "map "+m+" case "+q+" from "+sx+","+sy+" to "+gx+","+gy;
+                Path expected = nodes.findPath(collisionMap, clearanceNeed, this.crossableTerrain, sx, sy, gx, gy);
+                Path path = arrays.findPath(collisionMap, clearanceNeed, this.crossableTerrain, sx, sy, gx, gy);
+                assertEquals(c+" length", expected.getLength(), path.getLength());
+                for (int i = 0; i < expected.getLength(); i++) {
+                    assertEquals(c+" step "+i+" x", expected.getX(i), path.getX(i));
+                    assertEquals(c+" step "+i+" y", expected.getY(i), path.getY(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Map with walls on about a fifth of the tiles, in short runs
+     */
+    private BattleMap randomMap() {
+        double mapSize = TILES * Simulation.TILESIZE;
+        BattleMap map = new BattleMap("Pathfinding", mapSize, mapSize);
+        for (int i = 0; i < TILES * TILES / 20; i++) {
+            int x = random.nextInt(TILES);
+            int y = random.nextInt(TILES);
+            boolean across = random.nextBoolean();
+            for (int j = 0; j < 4; j++) {
+                Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+                map.addStructure(wall, (across ? x + j : x) * Simulation.TILESIZE, (across ? y : y + j) * Simulation.TILESIZE);
+            }
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for clearance maps: walls are added and removed in
+ * random regions of a map, and after each change the clearance maps
+ * repaired around the region must match ones generated from scratch.
+ * Generated maps are checked against the largest open square found
+ * by looking at every tile of it.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class ClearanceMapTest {
+
+    private static final int CASES = 1500;
+    private static final int TILES = 24; //Map width and height in tiles
+    private static final int MAX_REGION = 6; //Widest changed region in tiles
+    private static final int TERRAINS = 3;
+
+    private final Random random = new Random(14416884);
+
+    public ClearanceMapTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void repairedMapsMatchGenerated() {
+        BattleMap map = new BattleMap("Clearance", TILES * Simulation.TILESIZE, TILES * Simulation.TILESIZE);
+        CollisionMap collisionMap = map.getCollisionMap();
+        collisionMap.updateCollisionLevels();
+        int width = collisionMap.getMapTileWidth();
+        int height = collisionMap.getMapTileHeight();
+        Structure[] walls = new Structure[width * height];
+        int[][][] repaired = new int[TERRAINS][][];
+        for (int t = 0; t < TERRAINS; t++) {
+            repaired[t] = PathFinder.getClearanceMap(t, collisionMap);
+        }
+        for (int i = 0; i < CASES; i++) {
+            int xStart = random.nextInt(width);
+            int yStart = random.nextInt(height);
+            int xEnd = Math.min(xStart + random.nextInt(MAX_REGION), width - 1);
+            int yEnd = Math.min(yStart + random.nextInt(MAX_REGION), height - 1);
+            for (int y = yStart; y <= yEnd; y++) {
+                for (int x = xStart; x <= xEnd; x++) {
+                    if (random.nextInt(3) != 0) continue;
+                    int tile = y * width + x;
+                    if (walls[tile] != null) {
+                        map.removeMapObject(walls[tile].getID());
+                        walls[tile] = null;
+                    } else {
+                        walls[tile] = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1 + random.nextInt(TERRAINS - 1));
+                        map.addStructure(walls[tile], x * Simulation.TILESIZE, y * Simulation.TILESIZE);
+                    }
+                }
+            }
+            collisionMap.updateCollisionLevels();
+            for (int t = 0; t < TERRAINS; t++) {
+                String c = "case "+i+" terrain "+t+" region "+xStart+","+yStart+"-"+xEnd+","+yEnd;
+                PathFinder.repairClearanceMap(repaired[t], t, collisionMap, xStart, yStart, xEnd, yEnd);
+                int[][] generated = PathFinder.getClearanceMap(t, collisionMap);
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        assertEquals(c+" tile "+x+","+y, generated[x][y], repaired[t][x][y]);
+                        if (i % 100 == 0) assertEquals(c+" open square at "+x+","+y, this.openSquare(collisionMap, t, x, y), generated[x][y]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Size of the largest square with its top left corner on the tile
+     * that only has tiles of the given terrain in it
+     */
+    private int openSquare(CollisionMap collisionMap, int terrain, int x, int y) {
+        int size = 0;
+        while (true) {
+            for (int i = 0; i <= size; i++) {
+                if (collisionMap.getCollisionLevel(x + size, y + i) != terrain) return size;
+                if (collisionMap.getCollisionLevel(x + i, y + size) != terrain) return size;
+            }
+            size++;
+        }
+    }
+
+}
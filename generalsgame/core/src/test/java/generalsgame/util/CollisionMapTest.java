@@ -0,0 +1,248 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for the collisionmap: random structures are added,
+ * moved and removed on a map, and after every update the patched
+ * collisionmap must match one drawn from scratch out of all the
+ * structures on the map, later IDs over earlier ones.
+ * Raycasts on random maps are checked against the tiles the line
+ * touches, found by clipping it against every tile square: along the
+ * axes, diagonally through tile corners and from any point to any
+ * other, on and off the map.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class CollisionMapTest {
+
+    private static final int CASES = 2000;
+    private static final double MAP_WIDTH = 1280;
+    private static final double MAP_HEIGHT = 960;
+    private static final int RAYS = 20000;
+    private static final double EPSILON = 1e-9;
+
+    private final Random random = new Random(14416884);
+
+    public CollisionMapTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void patchedRegionsMatchFullDraw() {
+        BattleMap map = new BattleMap("Collisions", MAP_WIDTH, MAP_HEIGHT);
+        CollisionMap collisionMap = map.getCollisionMap();
+        List<Structure> structures = new ArrayList<>();
+        for (int i = 0; i < CASES; i++) {
+            int operations = 1 + random.nextInt(4);
+            for (int o = 0; o < operations; o++) {
+                int operation = random.nextInt(10);
+                if (operation < 4 || structures.isEmpty()) {
+                    Structure s = new Structure("Wall", new MovingGraphics(8 + random.nextInt(120), 8 + random.nextInt(120)), 1 + random.nextInt(4));
+                    map.addStructure(s, this.randomX(), this.randomY());
+                    structures.add(s);
+                } else if (operation < 7) {
+                    structures.get(random.nextInt(structures.size())).setPosition(this.randomX(), this.randomY());
+                } else {
+                    Structure s = structures.remove(random.nextInt(structures.size()));
+                    map.removeMapObject(s.getID());
+                }
+            }
+            collisionMap.updateCollisionLevels();
+            this.checkLevels("case "+i, collisionMap, this.draw(map, collisionMap));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void levelsOutsideByteAreRefused() {
+        BattleMap map = new BattleMap("Levels", MAP_WIDTH, MAP_HEIGHT);
+        map.addStructure(new Structure("Wall", new MovingGraphics(32, 32), CollisionMap.MAX_COLLISION_LEVEL + 1), 64, 64);
+    }
+
+    @Test
+    public void axisRaysMatchClipping() {
+        this.checkRays(0);
+    }
+
+    @Test
+    public void diagonalRaysThroughCornersMatchClipping() {
+        this.checkRays(1);
+    }
+
+    @Test
+    public void anyRaysMatchClipping() {
+        this.checkRays(2);
+    }
+
+    /**
+     * Cast rays of the given kind (0 along an axis, 1 diagonally from
+     * tile centre to tile centre, 2 anywhere) and compare the tile they
+     * stop on with the first blocking tile the line touches
+     */
+    private void checkRays(int kind) {
+        BattleMap map = new BattleMap("Rays", MAP_WIDTH, MAP_HEIGHT);
+        CollisionMap collisionMap = map.getCollisionMap();
+        int width = collisionMap.getMapTileWidth();
+        int height = collisionMap.getMapTileHeight();
+        for (int i = 0; i < width * height / 5; i++) {
+            Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1 + random.nextInt(2));
+            map.addStructure(wall, random.nextInt(width) * Simulation.TILESIZE, random.nextInt(height) * Simulation.TILESIZE);
+        }
+        collisionMap.updateCollisionLevels();
+        List<Integer> crossable = new ArrayList<>();
+        crossable.add(0);
+        crossable.add(1);
+        long mask = CollisionMap.getRaycastMask(crossable);
+        int size = collisionMap.getNodeSize();
+        for (int i = 0; i < RAYS; i++) {
+            //Ray in tiles, starting up to two tiles off the map
+            double[] ray = new double[4];
+            if (kind < 2) {
+                ray[0] = random.nextInt(width + 4) - 2 + 0.5;
+                ray[1] = random.nextInt(height + 4) - 2 + 0.5;
+                int length = random.nextInt(16);
+                int dx = random.nextBoolean() ? 1 : -1;
+                int dy = random.nextBoolean() ? 1 : -1;
+                if (kind == 0) {
+                    if (random.nextBoolean()) dx = 0;
+                    else dy = 0;
+                }
+                ray[2] = ray[0] + dx * length;
+                ray[3] = ray[1] + dy * length;
+            } else {
+                ray[0] = random.nextDouble() * (width + 4) - 2;
+                ray[1] = random.nextDouble() * (height + 4) - 2;
+                ray[2] = random.nextDouble() * (width + 4) - 2;
+                ray[3] = random.nextDouble() * (height + 4) - 2;
+            }
+            String c = "ray "+i+" from "+ray[0]+","+ray[1]+" to "+ray[2]+","+ray[3];
+            int hit = collisionMap.raycast(crossable, ray[0] * size, ray[1] * size, ray[2] * size, ray[3] * size);
+            assertEquals(c+" mask", hit, collisionMap.raycast(mask, ray[0] * size, ray[1] * size, ray[2] * size, ray[3] * size));
+            this.checkHit(c, collisionMap, mask, ray, hit);
+        }
+    }
+
+    private void checkHit(String c, CollisionMap collisionMap, long mask, double[] ray, int hit) {
+        int width = collisionMap.getMapTileWidth();
+        int height = collisionMap.getMapTileHeight();
+        //First blocking tile the line touches, corners included
+        double firstBlock = Double.POSITIVE_INFINITY;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!collisionMap.blocksRay(mask, x, y)) continue;
+                firstBlock = Math.min(firstBlock, this.entry(ray, x, y));
+            }
+        }
+        double offMap = this.exit(ray, width, height);
+        if (firstBlock == Double.POSITIVE_INFINITY && offMap == Double.POSITIVE_INFINITY) {
+            assertEquals(c, CollisionMap.NO_HIT, hit);
+        } else if (hit == CollisionMap.OFF_MAP) {
+            assertTrue(c+" left the map past a blocking tile", offMap <= firstBlock + EPSILON);
+        } else {
+            assertTrue(c+" went through a blocking tile", hit >= 0 && firstBlock <= offMap + EPSILON);
+            assertTrue(c+" stopped on an open tile", collisionMap.blocksRay(mask, hit % width, hit / width));
+            assertEquals(c+" stopped on a later tile", firstBlock, this.entry(ray, hit % width, hit / width), EPSILON);
+        }
+    }
+
+    /**
+     * Where (0 to 1) the line first touches the tile square, edges and
+     * corners included
+     * @return infinity if it doesn't
+     */
+    private double entry(double[] ray, int x, int y) {
+        double from = 0;
+        double to = 1;
+        for (int axis = 0; axis < 2; axis++) {
+            double start = ray[axis];
+            double change = ray[axis + 2] - start;
+            double low = (axis == 0) ? x : y;
+            if (change == 0) {
+                if (start < low || start > low + 1) return Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double t1 = (low - start) / change;
+            double t2 = (low + 1 - start) / change;
+            from = Math.max(from, Math.min(t1, t2));
+            to = Math.min(to, Math.max(t1, t2));
+        }
+        return (from <= to) ? from : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Where (0 to 1) the line gets off the map: tiles are on it from
+     * 0 up to, but not including, the width and height
+     * @return infinity if it stays on the map
+     */
+    private double exit(double[] ray, int width, int height) {
+        double exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 2; axis++) {
+            double start = ray[axis];
+            double end = ray[axis + 2];
+            int size = (axis == 0) ? width : height;
+            if (start < 0 || start >= size) return 0;
+            if (end >= size) exit = Math.min(exit, (size - start) / (end - start));
+            if (end < 0) exit = Math.min(exit, start / (start - end));
+        }
+        return exit;
+    }
+
+    /**
+     * Draw every structure on the map tile by tile, in ID order
+     */
+    private int[] draw(BattleMap map, CollisionMap collisionMap) {
+        int width = collisionMap.getMapTileWidth();
+        int height = collisionMap.getMapTileHeight();
+        int size = collisionMap.getNodeSize();
+        List<Structure> byID = new ArrayList<>(map.getStructures());
+        byID.sort((a, b) -> Integer.compare(a.getID(), b.getID()));
+        int[] levels = new int[width * height];
+        for (Structure s : byID) {
+            if (s.getCollisionLevel() == 0) continue;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean overX = s.getMinX() < (x+1) * size && s.getMaxX() > x * size;
+                    boolean overY = s.getMinY() < (y+1) * size && s.getMaxY() > y * size;
+                    if (overX && overY) levels[y * width + x] = s.getCollisionLevel();
+                }
+            }
+        }
+        return levels;
+    }
+
+    private void checkLevels(String c, CollisionMap collisionMap, int[] expected) {
+        int width = collisionMap.getMapTileWidth();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(c+" tile "+(i % width)+","+(i / width), expected[i], collisionMap.getCollisionLevel(i % width, i / width));
+        }
+    }
+
+    private double randomX() {
+        return random.nextInt((int)MAP_WIDTH - 128);
+    }
+
+    private double randomY() {
+        return random.nextInt((int)MAP_HEIGHT - 128);
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for ContactManager: random pairs of bodies touch over
+ * a run of ticks, some for one tick and some for many, reported either
+ * way round and sometimes twice. The events are checked against a map
+ * of the pairs touching on the last tick: a new pair is entered once,
+ * a pair already touching stays once per tick, with its bodies the way
+ * round they were first reported, and a pair not reported exits.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class ContactManagerTest {
+
+    private static final int TICKS = 2000;
+    private static final int BODIES = 60;
+
+    private final Random random = new Random(14416884);
+
+    private final List<String> events = new ArrayList<>();
+    private final ContactManager.ContactListener<String> recorder = new ContactManager.ContactListener<String>() {
+        @Override
+        public void contactEntered(String a, String b) {
+            events.add("entered "+a+" "+b);
+        }
+
+        @Override
+        public void contactStayed(String a, String b) {
+            events.add("stayed "+a+" "+b);
+        }
+
+        @Override
+        public void contactExited(String a, String b) {
+            events.add("exited "+a+" "+b);
+        }
+    };
+
+    @Test
+    public void eventsMatchTouchingPairs() {
+        ContactManager<String> contacts = new ContactManager<>();
+        contacts.addListener(this.recorder);
+        String[] bodies = new String[BODIES];
+        for (int i = 0; i < BODIES; i++) bodies[i] = "body"+i;
+        //Pairs touching on the last tick, bodies the way round they were first reported
+        HashMap<Long, String> touching = new HashMap<>();
+        for (int t = 0; t < TICKS; t++) {
+            String c = "tick "+t;
+            //Now and then a crowd, to get past the starting array sizes
+            int pairs = random.nextInt(10) == 0 ? random.nextInt(300) : random.nextInt(40);
+            List<int[]> reports = new ArrayList<>();
+            for (long key : touching.keySet()) {
+                if (random.nextInt(4) != 0) reports.add(new int[]{(int)(key >>> 32), (int)key});
+            }
+            for (int i = 0; i < pairs; i++) {
+                int a = random.nextInt(BODIES), b = random.nextInt(BODIES);
+                if (a != b) reports.add(new int[]{a, b});
+            }
+            HashMap<Long, String> nowTouching = new HashMap<>();
+            contacts.beginTick();
+            for (int[] report : reports) {
+                int a = report[0], b = report[1];
+                if (random.nextBoolean()) {
+                    a = report[1];
+                    b = report[0];
+                }
+                long key = ((long)Math.min(a, b) << 32) | Math.max(a, b);
+                String pair = bodies[a]+" "+bodies[b];
+                String expected;
+                if (nowTouching.containsKey(key)) expected = null;
+                else if (touching.containsKey(key)) expected = "stayed "+touching.get(key);
+                else expected = "entered "+pair;
+                this.events.clear();
+                contacts.touching(a, bodies[a], b, bodies[b]);
+                if (expected == null) {
+                    assertEquals(c+" second report of "+pair, 0, this.events.size());
+                } else {
+                    assertEquals(c+" events for "+pair, 1, this.events.size());
+                    assertEquals(c, expected, this.events.get(0));
+                    nowTouching.put(key, touching.containsKey(key) ? touching.get(key) : pair);
+                }
+                assertTrue(c+" "+pair+" isn't touching", contacts.isTouching(b, a));
+            }
+            HashSet<String> expectedExits = new HashSet<>();
+            for (long key : touching.keySet()) {
+                if (!nowTouching.containsKey(key)) expectedExits.add("exited "+touching.get(key));
+            }
+            this.events.clear();
+            contacts.endTick();
+            assertEquals(c+" exits", expectedExits.size(), this.events.size());
+            assertEquals(c+" exits", expectedExits, new HashSet<>(this.events));
+            touching = nowTouching;
+            this.checkContacts(c, contacts, touching);
+            if (random.nextInt(100) == 0) {
+                //Forgotten without events, so everything enters again
+                this.events.clear();
+                contacts.clear();
+                assertEquals(c+" events on clear", 0, this.events.size());
+                touching.clear();
+                this.checkContacts(c+" cleared", contacts, touching);
+            }
+        }
+    }
+
+    @Test
+    public void removedListenersHearNothing() {
+        ContactManager<String> contacts = new ContactManager<>();
+        contacts.addListener(this.recorder);
+        contacts.removeListener(this.recorder);
+        contacts.beginTick();
+        contacts.touching(1, "a", 2, "b");
+        contacts.endTick();
+        contacts.beginTick();
+        contacts.endTick();
+        assertEquals(0, this.events.size());
+        assertTrue(!contacts.isTouching(1, 2));
+    }
+
+    private void checkContacts(String c, ContactManager<String> contacts, HashMap<Long, String> touching) {
+        assertEquals(c+" contact count", touching.size(), contacts.getContactCount());
+        HashSet<String> listed = new HashSet<>();
+        for (int i = 0; i < contacts.getContactCount(); i++) {
+            listed.add(contacts.getContactA(i)+" "+contacts.getContactB(i));
+        }
+        assertEquals(c+" contacts", new HashSet<>(touching.values()), listed);
+        for (int i = 0; i < 20; i++) {
+            int a = random.nextInt(BODIES), b = random.nextInt(BODIES);
+            long key = ((long)Math.min(a, b) << 32) | Math.max(a, b);
+            assertEquals(c+" touching "+a+","+b, touching.containsKey(key), contacts.isTouching(a, b));
+        }
+    }
+
+}
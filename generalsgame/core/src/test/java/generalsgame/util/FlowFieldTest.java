@@ -0,0 +1,245 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Direction;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for FlowField: on random maps with walls, the field is
+ * followed from every tile. Each step must go to a neighbour the mover
+ * fits on without cutting corners, the distance must drop by the cost
+ * of the tile entered, and the walk must end at the goal in as many
+ * steps as a breadth first search takes. Tiles the search can't get
+ * from to the goal must have no direction. With rough tiles the
+ * distances must match the cost of the A* path, moving along the axes.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class FlowFieldTest {
+
+    private static final int MAPS = 10;
+    private static final int GOALS = 10; //Per map
+    private static final int TILES = 32; //Map width and height in tiles
+    private static final double EPSILON = 1e-3;
+
+    private final Random random = new Random(14416884);
+    private final List<Integer> crossableTerrain = new ArrayList<>();
+
+    public FlowFieldTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.crossableTerrain.add(0);
+    }
+
+    @Test
+    public void cardinalFieldsLeadAroundWalls() {
+        this.checkRandomMaps(false, 1);
+    }
+
+    @Test
+    public void diagonalFieldsLeadAroundWalls() {
+        this.checkRandomMaps(true, 1);
+    }
+
+    @Test
+    public void largeMoverFieldsLeadAroundWalls() {
+        this.checkRandomMaps(true, 2);
+    }
+
+    @Test
+    public void fieldLeadsThroughTheGap() {
+        //Wall down the middle of the map, with a gap at the bottom
+        BattleMap map = new BattleMap("Flow", TILES * Simulation.TILESIZE, TILES * Simulation.TILESIZE);
+        for (int y = 0; y < TILES - 2; y++) {
+            this.addWall(map, TILES / 2, y);
+        }
+        CollisionMap collisionMap = map.getCollisionMap();
+        collisionMap.updateCollisionLevels();
+        PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, true);
+        int[][][] clearance = {pathFinder.getClearance(0)};
+        FlowField field = FlowField.generate(collisionMap, clearance, 1, this.crossableTerrain, TILES - 4, 2, true);
+        int x = 3, y = 2;
+        boolean throughGap = false;
+        for (int i = 0; i < TILES * TILES && field.getDirection(x, y) != Direction.STAY; i++) {
+            int dx = field.getNextXOffset(x, y);
+            int dy = field.getNextYOffset(x, y);
+            x += dx;
+            y += dy;
+            if (x == TILES / 2) throughGap |= y >= TILES - 2;
+        }
+        assertTrue("didn't go through the gap", throughGap);
+        assertEquals(TILES - 4, x);
+        assertEquals(2, y);
+    }
+
+    @Test
+    public void distancesMatchAStarCosts() {
+        for (int m = 0; m < MAPS; m++) {
+            CollisionMap collisionMap = this.randomMap().getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            //Rough ground on about a third of the tiles
+            for (int i = 0; i < TILES * TILES / 3; i++) {
+                collisionMap.setMovementCost(0, random.nextInt(TILES), random.nextInt(TILES), 1 + random.nextInt(4) * 0.5);
+            }
+            //Cardinal moves only: the default A* estimate (Manhattan) overestimates diagonal
+            //moves, and A* is only sure to find the cheapest path when it doesn't
+            PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, false);
+            ArrayAStarPathfinder aStar = new ArrayAStarPathfinder(pathFinder, TILES * TILES, false);
+            int[][][] clearance = {pathFinder.getClearance(0)};
+            for (int g = 0; g < GOALS; g++) {
+                int[] goal = this.randomOpenTile(collisionMap, clearance[0], 1);
+                FlowField field = FlowField.generate(collisionMap, clearance, 1, this.crossableTerrain, goal[0], goal[1], false);
+                for (int q = 0; q < TILES; q++) {
+                    int[] start = this.randomOpenTile(collisionMap, clearance[0], 1);
+                    String c = "map "+m+" goal "+goal[0]+","+goal[1]+" from "+start[0]+","+start[1];
+                    Path path = aStar.findPath(collisionMap, 1, this.crossableTerrain, start[0], start[1], goal[0], goal[1]);
+                    if (path.getLength() == 0) {
+                        assertTrue(c+" can't be reached, but has a distance", !field.isReachable(start[0], start[1]) || (start[0] == goal[0] && start[1] == goal[1]));
+                        continue;
+                    }
+                    double cost = 0;
+                    for (int i = 0; i < path.getLength(); i++) {
+                        cost += collisionMap.getMovementCost(0, path.getX(i), path.getY(i));
+                    }
+                    assertEquals(c, cost, field.getDistance(start[0], start[1]), EPSILON);
+                }
+            }
+        }
+    }
+
+    private void checkRandomMaps(boolean diagonal, int clearanceNeed) {
+        for (int m = 0; m < MAPS; m++) {
+            CollisionMap collisionMap = this.randomMap().getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, diagonal);
+            int[][] clearance = pathFinder.getClearance(0);
+            for (int g = 0; g < GOALS; g++) {
+                int[] goal = this.randomOpenTile(collisionMap, clearance, clearanceNeed);
+                FlowField field = FlowField.generate(collisionMap, new int[][][]{clearance}, clearanceNeed, this.crossableTerrain, goal[0], goal[1], diagonal);
+                int[] steps = this.searchSteps(collisionMap, clearance, clearanceNeed, diagonal, goal);
+                for (int y = 0; y < collisionMap.getMapTileHeight(); y++) {
+                    for (int x = 0; x < collisionMap.getMapTileWidth(); x++) {
+                        String c = "map "+m+" goal "+goal[0]+","+goal[1]+" from "+x+","+y;
+                        int expected = steps[y * collisionMap.getMapTileWidth() + x];
+                        if (expected < 0) {
+                            assertTrue(c+" has a direction, but can't get to the goal", field.getDirection(x, y) == null);
+                            assertTrue(c+" has a distance, but can't get to the goal", !field.isReachable(x, y));
+                            continue;
+                        }
+                        this.checkWalk(c, collisionMap, clearance, clearanceNeed, diagonal, field, x, y, expected);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkWalk(String c, CollisionMap map, int[][] clearance, int clearanceNeed, boolean diagonal, FlowField field, int x, int y, int expected) {
+        assertEquals(c+" distance", expected, field.getDistance(x, y), EPSILON);
+        for (int i = 0; i < expected; i++) {
+            int dx = field.getNextXOffset(x, y), dy = field.getNextYOffset(x, y);
+            assertTrue(c+" step "+i+" goes nowhere", dx != 0 || dy != 0);
+            assertTrue(c+" step "+i+" goes diagonally", diagonal || dx == 0 || dy == 0);
+            assertTrue(c+" step "+i+" doesn't fit", this.fits(map, clearance, clearanceNeed, x + dx, y + dy));
+            if (dx != 0 && dy != 0) {
+                assertTrue(c+" step "+i+" cuts a corner", this.fits(map, clearance, clearanceNeed, x + dx, y)
+                    && this.fits(map, clearance, clearanceNeed, x, y + dy));
+            }
+            float distance = field.getDistance(x, y);
+            x += dx;
+            y += dy;
+            assertEquals(c+" step "+i+" distance", distance - map.getMovementCost(0, x, y), field.getDistance(x, y), EPSILON);
+        }
+        assertTrue(c+" didn't end at the goal", field.getDirection(x, y) == Direction.STAY);
+    }
+
+    /**
+     * Steps from every tile to the goal by breadth first search, with
+     * the same movement rules as the pathfinders (moves are symmetric,
+     * so searching out from the goal gives the same counts)
+     * @return steps by tile index, -1 where the goal can't be reached
+     */
+    private int[] searchSteps(CollisionMap map, int[][] clearance, int clearanceNeed, boolean diagonal, int[] goal) {
+        int width = map.getMapTileWidth();
+        int[] steps = new int[width * map.getMapTileHeight()];
+        Arrays.fill(steps, -1);
+        ArrayDeque<Integer> open = new ArrayDeque<>();
+        steps[goal[1] * width + goal[0]] = 0;
+        open.add(goal[1] * width + goal[0]);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int x = current % width, y = current / width;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    if (dx != 0 && dy != 0) {
+                        if (!diagonal) continue;
+                        if (!this.fits(map, clearance, clearanceNeed, x + dx, y) || !this.fits(map, clearance, clearanceNeed, x, y + dy)) continue;
+                    }
+                    if (!this.fits(map, clearance, clearanceNeed, x + dx, y + dy)) continue;
+                    int n = (y + dy) * width + x + dx;
+                    if (steps[n] >= 0) continue;
+                    steps[n] = steps[current] + 1;
+                    open.add(n);
+                }
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Map with walls on about a fifth of the tiles, in short runs
+     */
+    private BattleMap randomMap() {
+        double mapSize = TILES * Simulation.TILESIZE;
+        BattleMap map = new BattleMap("Flow", mapSize, mapSize);
+        for (int i = 0; i < TILES * TILES / 20; i++) {
+            int x = random.nextInt(TILES);
+            int y = random.nextInt(TILES);
+            boolean across = random.nextBoolean();
+            for (int j = 0; j < 4; j++) {
+                this.addWall(map, across ? x + j : x, across ? y : y + j);
+            }
+        }
+        return map;
+    }
+
+    private void addWall(BattleMap map, int x, int y) {
+        Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+        map.addStructure(wall, x * Simulation.TILESIZE, y * Simulation.TILESIZE);
+    }
+
+    private int[] randomOpenTile(CollisionMap map, int[][] clearance, int clearanceNeed) {
+        int x, y;
+        do {
+            x = random.nextInt(TILES);
+            y = random.nextInt(TILES);
+        } while (!this.fits(map, clearance, clearanceNeed, x, y));
+        return new int[]{x, y};
+    }
+
+    private boolean fits(CollisionMap map, int[][] clearance, int clearanceNeed, int x, int y) {
+        if (x < 0 || y < 0 || x >= map.getMapTileWidth() || y >= map.getMapTileHeight()) return false;
+        return !map.isBlocked(this.crossableTerrain, x, y) && clearance[x][y] >= clearanceNeed;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for FogOfWar: viewers walk around, come and go and
+ * change their sight on a map where walls are put up and torn down.
+ * After every tick what the fog shows must match a fog made from
+ * scratch with the same viewers, and the explored tiles must be
+ * all the tiles such fogs have shown so far.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class FogOfWarTest {
+
+    private static final int TICKS = 1500;
+    private static final int TILES = 40; //Map width and height in tiles
+    private static final int VIEWERS = 12;
+    private static final long SIGHT_MASK = 1L; //Only open ground doesn't block sight
+
+    private final Random random = new Random(14416884);
+
+    public FogOfWarTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void updatedFogMatchesRecomputed() {
+        BattleMap map = new BattleMap("Fog", TILES * Simulation.TILESIZE, TILES * Simulation.TILESIZE);
+        CollisionMap collisionMap = map.getCollisionMap();
+        collisionMap.updateCollisionLevels();
+        int width = collisionMap.getMapTileWidth();
+        int height = collisionMap.getMapTileHeight();
+        Structure[] walls = new Structure[width * height];
+        FogOfWar fog = new FogOfWar(collisionMap, SIGHT_MASK);
+        boolean[] explored = new boolean[width * height];
+        List<Structure> viewers = new ArrayList<>();
+        List<double[]> views = new ArrayList<>(); //x, y, radius and handle by viewer
+        for (int tick = 0; tick < TICKS; tick++) {
+            //Walls change between ticks, and the fog is told which tiles
+            for (int i = random.nextInt(4); i > 0; i--) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                int tile = y * width + x;
+                if (walls[tile] != null) {
+                    map.removeMapObject(walls[tile].getID());
+                    walls[tile] = null;
+                } else {
+                    walls[tile] = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+                    map.addStructure(walls[tile], x * Simulation.TILESIZE, y * Simulation.TILESIZE);
+                }
+                fog.markDirty(x, y, x, y);
+            }
+            collisionMap.updateCollisionLevels();
+            //Viewers come, go, walk and change their sight
+            if (viewers.size() < VIEWERS && random.nextInt(3) == 0) {
+                viewers.add(new Structure("Viewer", new MovingGraphics(1, 1), 0));
+                views.add(new double[]{this.randomPosition(), this.randomPosition(), 1 + random.nextInt(10), -1});
+            }
+            if (!viewers.isEmpty() && random.nextInt(10) == 0) {
+                int gone = random.nextInt(viewers.size());
+                viewers.remove(gone);
+                views.remove(gone);
+            }
+            for (double[] view : views) {
+                int move = random.nextInt(8);
+                if (move < 3) {
+                    view[0] = this.clamp(view[0] + (random.nextDouble() - 0.5) * 2 * Simulation.TILESIZE);
+                    view[1] = this.clamp(view[1] + (random.nextDouble() - 0.5) * 2 * Simulation.TILESIZE);
+                } else if (move == 3) {
+                    view[2] = 1 + random.nextInt(10);
+                }
+            }
+            fog.beginUpdate();
+            for (int i = 0; i < viewers.size(); i++) {
+                double[] view = views.get(i);
+                view[3] = fog.update((int)view[3], viewers.get(i), view[0], view[1], (int)view[2]);
+            }
+            fog.endUpdate();
+            //Same viewers on a fresh fog
+            FogOfWar fresh = new FogOfWar(collisionMap, SIGHT_MASK);
+            fresh.beginUpdate();
+            for (int i = 0; i < viewers.size(); i++) {
+                double[] view = views.get(i);
+                fresh.update(-1, viewers.get(i), view[0], view[1], (int)view[2]);
+            }
+            fresh.endUpdate();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    String c = "tick "+tick+" tile "+x+","+y;
+                    assertEquals(c+" visible", fresh.isVisible(x, y), fog.isVisible(x, y));
+                    if (fresh.isVisible(x, y)) explored[y * width + x] = true;
+                    assertEquals(c+" explored", explored[y * width + x], fog.isExplored(x, y));
+                }
+            }
+        }
+    }
+
+    private double randomPosition() {
+        return random.nextDouble() * TILES * Simulation.TILESIZE;
+    }
+
+    private double clamp(double position) {
+        return Math.max(0, Math.min(position, TILES * Simulation.TILESIZE - 1));
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for HierarchicalPathfinder: on random maps with walls,
+ * long paths are followed through the hierarchy the way movers do,
+ * asking again at each cluster, and checked step by step (one tile at
+ * a time, no cutting corners, only tiles the mover fits on, ending at
+ * the goal). Their length must stay close to the A* path, one by one
+ * and on average, and goals A* can't reach must not be reached either.
+ * A hierarchy thrown away or repaired after map changes must give
+ * the same paths as a new one.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class HierarchicalPathfinderTest {
+
+    private static final int MAPS = 6;
+    private static final int QUERIES = 60; //Per map
+    private static final int CHANGES = 40; //Map changes per map
+    private static final int TILES = 64; //Map width and height in tiles
+    private static final int CLUSTER_SIZE = 8;
+    //Hierarchical paths go through entrances, so they may be a bit longer than the shortest
+    private static final double MAX_DETOUR = 1.5;
+    private static final double MAX_MEAN_DETOUR = 1.1;
+
+    private final Random random = new Random(14416884);
+    private final List<Integer> crossableTerrain = new ArrayList<>();
+
+    public HierarchicalPathfinderTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.crossableTerrain.add(0);
+    }
+
+    @Test
+    public void cardinalPathsAreValidAndShort() {
+        this.checkRandomMaps(false, 1);
+    }
+
+    @Test
+    public void diagonalPathsAreValidAndShort() {
+        this.checkRandomMaps(true, 1);
+    }
+
+    @Test
+    public void largeMoverPathsAreValidAndShort() {
+        this.checkRandomMaps(true, 2);
+    }
+
+    @Test
+    public void invalidatedHierarchyGivesSamePaths() {
+        for (int m = 0; m < MAPS; m++) {
+            BattleMap map = this.randomMap();
+            CollisionMap collisionMap = map.getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, true);
+            HierarchicalPathfinder hierarchy = this.hierarchy(pathFinder, true);
+            List<int[]> queries = new ArrayList<>();
+            List<Path> paths = new ArrayList<>();
+            for (int q = 0; q < QUERIES; q++) {
+                int[] query = this.randomLongQuery(collisionMap, pathFinder.getClearance(0), 1);
+                queries.add(query);
+                paths.add(hierarchy.findPath(1, this.crossableTerrain, query[0], query[1], query[2], query[3]));
+            }
+            hierarchy.invalidateAll();
+            for (int q = 0; q < QUERIES; q++) {
+                int[] query = queries.get(q);
+                Path path = hierarchy.findPath(1, this.crossableTerrain, query[0], query[1], query[2], query[3]);
+                this.checkSame("map "+m+" case "+q, paths.get(q), path);
+            }
+        }
+    }
+
+    @Test
+    public void repairedHierarchyGivesSamePaths() {
+        for (int m = 0; m < MAPS; m++) {
+            BattleMap map = this.randomMap();
+            CollisionMap collisionMap = map.getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, true);
+            HierarchicalPathfinder hierarchy = this.hierarchy(pathFinder, true);
+            for (int i = 0; i < CHANGES; i++) {
+                //Knock down and put up walls in a small region
+                int xStart = random.nextInt(TILES);
+                int yStart = random.nextInt(TILES);
+                int xEnd = Math.min(xStart + random.nextInt(6), TILES - 1);
+                int yEnd = Math.min(yStart + random.nextInt(6), TILES - 1);
+                for (Structure s : new ArrayList<>(map.getStructures())) {
+                    int x = (int)s.getXPos() / Simulation.TILESIZE;
+                    int y = (int)s.getYPos() / Simulation.TILESIZE;
+                    if (x >= xStart && x <= xEnd && y >= yStart && y <= yEnd && random.nextBoolean()) map.removeMapObject(s.getID());
+                }
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    int x = xStart + random.nextInt(xEnd - xStart + 1);
+                    int y = yStart + random.nextInt(yEnd - yStart + 1);
+                    this.addWall(map, x, y);
+                }
+                collisionMap.updateCollisionLevels();
+                pathFinder.setMapOutOfDate(xStart, yStart, xEnd, yEnd);
+                hierarchy.invalidateRegion(xStart, yStart, xEnd, yEnd);
+                PathFinder freshFinder = new PathFinder(collisionMap, TILES * TILES, true);
+                HierarchicalPathfinder fresh = this.hierarchy(freshFinder, true);
+                for (int q = 0; q < QUERIES / 2; q++) {
+                    int clearanceNeed = 1 + q % 2; //Big movers need the clearance repaired around the change too
+                    int[] query = this.randomLongQuery(collisionMap, freshFinder.getClearance(0), clearanceNeed);
+                    String c = "map "+m+" change "+i+" case "+q;
+                    Path expected = fresh.findPath(clearanceNeed, this.crossableTerrain, query[0], query[1], query[2], query[3]);
+                    this.checkSame(c, expected, hierarchy.findPath(clearanceNeed, this.crossableTerrain, query[0], query[1], query[2], query[3]));
+                }
+            }
+        }
+    }
+
+    private void checkRandomMaps(boolean diagonal, int clearanceNeed) {
+        int reached = 0;
+        double detours = 0;
+        for (int m = 0; m < MAPS; m++) {
+            BattleMap map = this.randomMap();
+            CollisionMap collisionMap = map.getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            PathFinder pathFinder = new PathFinder(collisionMap, TILES * TILES, diagonal);
+            HierarchicalPathfinder hierarchy = this.hierarchy(pathFinder, diagonal);
+            ArrayAStarPathfinder aStar = new ArrayAStarPathfinder(pathFinder, TILES * TILES, diagonal);
+            int[][] clearance = pathFinder.getClearance(0);
+            for (int q = 0; q < QUERIES; q++) {
+                int[] query = this.randomLongQuery(collisionMap, clearance, clearanceNeed);
+                String c = "map "+m+" case "+q+" from "+query[0]+","+query[1]+" to "+query[2]+","+query[3];
+                Path shortest = aStar.findPath(collisionMap, clearanceNeed, this.crossableTerrain, query[0], query[1], query[2], query[3]);
+                Path path = this.follow(hierarchy, aStar, collisionMap, clearanceNeed, query);
+                if (shortest.getLength() == 0) {
+                    assertTrue(c+" reached a goal A* can't", path == null);
+                    continue;
+                }
+                assertTrue(c+" didn't reach a goal A* can", path != null);
+                this.checkSteps(c, collisionMap, clearance, clearanceNeed, diagonal, query, path);
+                assertTrue(c+" is "+path.getLength()+" steps, A* "+shortest.getLength(), path.getLength() <= shortest.getLength() * MAX_DETOUR);
+                detours += path.getLength() / (double)shortest.getLength();
+                reached++;
+            }
+        }
+        assertTrue("only "+reached+" goals could be reached", reached > MAPS * QUERIES / 2);
+        assertTrue("paths are "+(detours / reached)+" times the A* length on average", detours / reached <= MAX_MEAN_DETOUR);
+    }
+
+    /**
+     * Walk from start to goal like a mover would: ask the hierarchy
+     * again at the end of each refined part, and search the tiles
+     * when the rest is short or the hierarchy can't handle it
+     * @return the whole walk, null if the goal can't be reached
+     */
+    private Path follow(HierarchicalPathfinder hierarchy, PathfinderAlgorithm algo, CollisionMap map, int clearanceNeed, int[] query) {
+        Path walk = new Path();
+        int x = query[0];
+        int y = query[1];
+        for (int i = 0; i < TILES * TILES; i++) {
+            Path part = null;
+            if (hierarchy.isLongQuery(x, y, query[2], query[3])) {
+                part = hierarchy.findPath(clearanceNeed, this.crossableTerrain, x, y, query[2], query[3]);
+            }
+            if (part == null) {
+                part = algo.findPath(map, clearanceNeed, this.crossableTerrain, x, y, query[2], query[3]);
+                part.setComplete(true);
+            }
+            if (part.getLength() == 0) return null;
+            for (int n = 0; n < part.getLength(); n++) walk.addStep(part.getX(n), part.getY(n));
+            x = part.getX(part.getLength() - 1);
+            y = part.getY(part.getLength() - 1);
+            if (part.isComplete()) return walk;
+        }
+        return null;
+    }
+
+    private void checkSteps(String c, CollisionMap map, int[][] clearance, int clearanceNeed, boolean diagonal, int[] query, Path path) {
+        int x = query[0], y = query[1];
+        for (int i = 0; i < path.getLength(); i++) {
+            int nx = path.getX(i), ny = path.getY(i);
+            int dx = nx - x, dy = ny - y;
+            assertTrue(c+" step "+i+" isn't to a neighbour", Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0));
+            assertTrue(c+" step "+i+" goes diagonally", diagonal || dx == 0 || dy == 0);
+            assertTrue(c+" step "+i+" doesn't fit", this.fits(map, clearance, clearanceNeed, nx, ny));
+            if (dx != 0 && dy != 0) {
+                assertTrue(c+" step "+i+" cuts a corner", this.fits(map, clearance, clearanceNeed, x + dx, y)
+                    && this.fits(map, clearance, clearanceNeed, x, y + dy));
+            }
+            x = nx;
+            y = ny;
+        }
+        assertTrue(c+" doesn't end at the goal", x == query[2] && y == query[3]);
+    }
+
+    private void checkSame(String c, Path expected, Path path) {
+        if (expected == null || path == null) {
+            assertTrue(c+" only one could be handled", expected == path);
+            return;
+        }
+        assertEquals(c+" length", expected.getLength(), path.getLength());
+        assertEquals(c+" complete", expected.isComplete(), path.isComplete());
+        for (int i = 0; i < expected.getLength(); i++) {
+            assertEquals(c+" step "+i+" x", expected.getX(i), path.getX(i));
+            assertEquals(c+" step "+i+" y", expected.getY(i), path.getY(i));
+        }
+    }
+
+    private HierarchicalPathfinder hierarchy(PathFinder pathFinder, boolean diagonal) {
+        ArrayAStarPathfinder refiner = new ArrayAStarPathfinder(pathFinder, TILES * TILES, diagonal);
+        return new HierarchicalPathfinder(pathFinder, pathFinder.getCollisionMap(), refiner, CLUSTER_SIZE, diagonal);
+    }
+
+    /**
+     * Map with walls on about a fifth of the tiles, in short runs
+     */
+    private BattleMap randomMap() {
+        double mapSize = TILES * Simulation.TILESIZE;
+        BattleMap map = new BattleMap("Hierarchy", mapSize, mapSize);
+        for (int i = 0; i < TILES * TILES / 20; i++) {
+            int x = random.nextInt(TILES);
+            int y = random.nextInt(TILES);
+            boolean across = random.nextBoolean();
+            for (int j = 0; j < 4; j++) {
+                this.addWall(map, across ? x + j : x, across ? y : y + j);
+            }
+        }
+        return map;
+    }
+
+    private void addWall(BattleMap map, int x, int y) {
+        Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+        map.addStructure(wall, x * Simulation.TILESIZE, y * Simulation.TILESIZE);
+    }
+
+    /**
+     * Start and goal the mover fits on, more than a cluster apart
+     */
+    private int[] randomLongQuery(CollisionMap map, int[][] clearance, int clearanceNeed) {
+        int[] query = new int[4];
+        do {
+            for (int i = 0; i < 4; i++) query[i] = random.nextInt(TILES);
+        } while (!this.fits(map, clearance, clearanceNeed, query[0], query[1])
+                || !this.fits(map, clearance, clearanceNeed, query[2], query[3])
+                || Math.max(Math.abs(query[0] - query[2]), Math.abs(query[1] - query[3])) < CLUSTER_SIZE * 2);
+        return query;
+    }
+
+    private boolean fits(CollisionMap map, int[][] clearance, int clearanceNeed, int x, int y) {
+        if (x < 0 || y < 0 || x >= map.getMapTileWidth() || y >= map.getMapTileHeight()) return false;
+        return !map.isBlocked(this.crossableTerrain, x, y) && clearance[x][y] >= clearanceNeed;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for IndexedMinHeap: random adds, key changes, pops and
+ * clears are mirrored in a plain array of keys, and every pop must give
+ * an index with the smallest key in the array. Keys are small whole
+ * numbers so that ties come up often.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class IndexedMinHeapTest {
+
+    private static final int CASES = 100000;
+    private static final int START_CAPACITY = 32;
+    private static final int MAX_CAPACITY = 512;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void popsComeInKeyOrder() {
+        IndexedMinHeap heap = new IndexedMinHeap(START_CAPACITY);
+        int capacity = START_CAPACITY;
+        double[] keys = new double[MAX_CAPACITY];
+        boolean[] in = new boolean[MAX_CAPACITY];
+        int size = 0;
+        for (int i = 0; i < CASES; i++) {
+            String c = "case "+i;
+            int operation = random.nextInt(100);
+            int index = random.nextInt(capacity);
+            double key = random.nextInt(50);
+            if (operation < 35) {
+                heap.add(index, key);
+                if (!in[index]) size++;
+                in[index] = true;
+                keys[index] = key;
+            } else if (operation < 50) {
+                heap.decreaseKey(index, key);
+                if (in[index] && key < keys[index]) keys[index] = key;
+            } else if (operation < 60) {
+                heap.changeKey(index, key);
+                if (in[index]) keys[index] = key;
+            } else if (operation < 95) {
+                int popped = heap.pop();
+                if (size == 0) {
+                    assertEquals(c+" popped an empty heap", -1, popped);
+                } else {
+                    assertTrue(c+" popped "+popped+" that wasn't in", popped >= 0 && in[popped]);
+                    assertEquals(c+" popped a larger key", this.smallest(keys, in, capacity), keys[popped], 0);
+                    in[popped] = false;
+                    size--;
+                }
+            } else if (operation < 98) {
+                heap.clear();
+                for (int j = 0; j < capacity; j++) in[j] = false;
+                size = 0;
+            } else if (capacity < MAX_CAPACITY) {
+                capacity *= 2;
+                heap.ensureCapacity(capacity);
+            }
+            assertEquals(c+" size", size, heap.size());
+            assertEquals(c+" empty", size == 0, heap.isEmpty());
+            if (size > 0) assertEquals(c+" peek", this.smallest(keys, in, capacity), heap.getKey(heap.peek()), 0);
+            for (int j = 0; j < capacity; j++) {
+                assertEquals(c+" contains "+j, in[j], heap.contains(j));
+                if (in[j]) assertEquals(c+" key of "+j, keys[j], heap.getKey(j), 0);
+            }
+        }
+    }
+
+    @Test
+    public void decreasedKeysComeFirst() {
+        IndexedMinHeap heap = new IndexedMinHeap(START_CAPACITY);
+        for (int i = 0; i < START_CAPACITY; i++) {
+            heap.add(i, 100 + i);
+        }
+        //Lowered from the back, so each one has to climb past all the others
+        for (int i = START_CAPACITY - 1; i >= 0; i--) {
+            heap.decreaseKey(i, START_CAPACITY - i);
+            heap.decreaseKey(i, 1000); //Larger keys don't count
+        }
+        for (int i = START_CAPACITY - 1; i >= 0; i--) {
+            assertEquals(i, heap.pop());
+        }
+        assertEquals(-1, heap.pop());
+        assertTrue(heap.isEmpty());
+    }
+
+    private double smallest(double[] keys, boolean[] in, int capacity) {
+        double smallest = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < capacity; j++) {
+            if (in[j]) smallest = Math.min(smallest, keys[j]);
+        }
+        return smallest;
+    }
+
+}
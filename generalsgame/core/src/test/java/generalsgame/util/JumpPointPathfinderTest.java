@@ -0,0 +1,168 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+import generalsgame.gameobjects.Structure;
+import generalsgame.graphics.MovingGraphics;
+
+/**
+ * Property test for JumpPointPathfinder: on random maps with walls,
+ * every path found is checked step by step (one tile at a time, no
+ * cutting corners, only tiles the mover fits on, ending at the goal),
+ * and its length against a plain breadth first search of the same map.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class JumpPointPathfinderTest {
+
+    private static final int MAPS = 20;
+    private static final int QUERIES = 100; //Per map
+    private static final int TILES = 32; //Map width and height in tiles
+
+    private final Random random = new Random(14416884);
+    private final List<Integer> crossableTerrain = new ArrayList<>();
+
+    public JumpPointPathfinderTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+        this.crossableTerrain.add(0);
+    }
+
+    @Test
+    public void cardinalPathsAreShortest() {
+        this.checkRandomMaps(false, 1);
+    }
+
+    @Test
+    public void diagonalPathsAreShortest() {
+        this.checkRandomMaps(true, 1);
+    }
+
+    @Test
+    public void largeMoverPathsAreShortest() {
+        this.checkRandomMaps(true, 2);
+    }
+
+    private void checkRandomMaps(boolean diagonal, int clearanceNeed) {
+        for (int m = 0; m < MAPS; m++) {
+            BattleMap map = this.randomMap();
+            CollisionMap collisionMap = map.getCollisionMap();
+            collisionMap.updateCollisionLevels();
+            PathFinder pathFinder = map.getPathFinder();
+            JumpPointPathfinder jps = new JumpPointPathfinder(pathFinder, TILES * TILES, diagonal);
+            int[][] clearance = pathFinder.getClearance(0);
+            for (int q = 0; q < QUERIES; q++) {
+                int[] start = this.randomOpenTile(collisionMap, clearance, clearanceNeed);
+                int[] goal = this.randomOpenTile(collisionMap, clearance, clearanceNeed);
+                String c = "map "+m+" case "+q+" from "+start[0]+","+start[1]+" to "+goal[0]+","+goal[1];
+                Path path = jps.findPath(collisionMap, clearanceNeed, this.crossableTerrain, start[0], start[1], goal[0], goal[1]);
+                int expected = this.searchDistance(collisionMap, clearance, clearanceNeed, diagonal, start, goal);
+                if (expected <= 0) {
+                    //Unreachable, or already there: nothing to walk
+                    assertEquals(c, 0, path.getLength());
+                    continue;
+                }
+                assertEquals(c, expected, path.getLength());
+                int x = start[0], y = start[1];
+                for (int i = 0; i < path.getLength(); i++) {
+                    int nx = path.getX(i), ny = path.getY(i);
+                    int dx = nx - x, dy = ny - y;
+                    assertTrue(c+" step "+i+" isn't to a neighbour", Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0));
+                    assertTrue(c+" step "+i+" goes diagonally", diagonal || dx == 0 || dy == 0);
+                    assertTrue(c+" step "+i+" doesn't fit", this.fits(collisionMap, clearance, clearanceNeed, nx, ny));
+                    if (dx != 0 && dy != 0) {
+                        assertTrue(c+" step "+i+" cuts a corner", this.fits(collisionMap, clearance, clearanceNeed, x + dx, y)
+                            && this.fits(collisionMap, clearance, clearanceNeed, x, y + dy));
+                    }
+                    x = nx;
+                    y = ny;
+                }
+                assertTrue(c+" doesn't end at the goal", x == goal[0] && y == goal[1]);
+            }
+        }
+    }
+
+    /**
+     * Map with walls on about a fifth of the tiles, in short runs
+     */
+    private BattleMap randomMap() {
+        double mapSize = TILES * Simulation.TILESIZE;
+        BattleMap map = new BattleMap("Pathfinding", mapSize, mapSize);
+        for (int i = 0; i < TILES * TILES / 20; i++) {
+            int x = random.nextInt(TILES);
+            int y = random.nextInt(TILES);
+            boolean across = random.nextBoolean();
+            for (int j = 0; j < 4; j++) {
+                Structure wall = new Structure("Wall", new MovingGraphics(Simulation.TILESIZE, Simulation.TILESIZE), 1);
+                map.addStructure(wall, (across ? x + j : x) * Simulation.TILESIZE, (across ? y : y + j) * Simulation.TILESIZE);
+            }
+        }
+        return map;
+    }
+
+    private int[] randomOpenTile(CollisionMap map, int[][] clearance, int clearanceNeed) {
+        int x, y;
+        do {
+            x = random.nextInt(TILES);
+            y = random.nextInt(TILES);
+        } while (!this.fits(map, clearance, clearanceNeed, x, y));
+        return new int[]{x, y};
+    }
+
+    private boolean fits(CollisionMap map, int[][] clearance, int clearanceNeed, int x, int y) {
+        if (x < 0 || y < 0 || x >= map.getMapTileWidth() || y >= map.getMapTileHeight()) return false;
+        return !map.isBlocked(this.crossableTerrain, x, y) && clearance[x][y] >= clearanceNeed;
+    }
+
+    /**
+     * Steps from start to goal by breadth first search, with the same
+     * movement rules as the pathfinders
+     * @return number of steps, -1 if the goal can't be reached
+     */
+    private int searchDistance(CollisionMap map, int[][] clearance, int clearanceNeed, boolean diagonal, int[] start, int[] goal) {
+        int width = map.getMapTileWidth();
+        int[] steps = new int[width * map.getMapTileHeight()];
+        Arrays.fill(steps, -1);
+        ArrayDeque<Integer> open = new ArrayDeque<>();
+        steps[start[1] * width + start[0]] = 0;
+        open.add(start[1] * width + start[0]);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int x = current % width, y = current / width;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    if (dx != 0 && dy != 0) {
+                        if (!diagonal) continue;
+                        if (!this.fits(map, clearance, clearanceNeed, x + dx, y) || !this.fits(map, clearance, clearanceNeed, x, y + dy)) continue;
+                    }
+                    if (!this.fits(map, clearance, clearanceNeed, x + dx, y + dy)) continue;
+                    int n = (y + dy) * width + x + dx;
+                    if (steps[n] >= 0) continue;
+                    steps[n] = steps[current] + 1;
+                    open.add(n);
+                }
+            }
+        }
+        return steps[goal[1] * width + goal[0]];
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for LooseQuadTree: random adds, moves and removes are
+ * mirrored in a plain map of boxes, and every box, radius and nearest
+ * K query is checked against going through all of the boxes.
+ * Nearest K results are compared by distance, since items at the
+ * same distance may come in either order.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class LooseQuadTreeTest {
+
+    private static final int CASES = 20000;
+    private static final double WIDTH = 1000;
+    private static final double HEIGHT = 700;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void queriesMatchBruteForce() {
+        LooseQuadTree<Integer> tree = new LooseQuadTree<>(WIDTH, HEIGHT, 8);
+        HashMap<Integer, double[]> boxes = new HashMap<>(); //By handle
+        List<Integer> handles = new ArrayList<>();
+        int nextItem = 0;
+        for (int i = 0; i < CASES; i++) {
+            int operation = random.nextInt(12);
+            if (operation < 3 || handles.isEmpty()) {
+                double[] box = this.randomBox();
+                int handle = tree.add(nextItem, box[0], box[1], box[2], box[3]);
+                assertTrue("case "+i+" gave out a handle in use", !boxes.containsKey(handle));
+                boxes.put(handle, new double[]{box[0], box[1], box[2], box[3], nextItem});
+                handles.add(handle);
+                nextItem++;
+            } else if (operation < 6) {
+                int handle = handles.get(random.nextInt(handles.size()));
+                double[] box = this.randomBox();
+                double[] old = boxes.get(handle);
+                tree.move(handle, box[0], box[1], box[2], box[3]);
+                boxes.put(handle, new double[]{box[0], box[1], box[2], box[3], old[4]});
+            } else if (operation < 8) {
+                int handle = handles.remove(random.nextInt(handles.size()));
+                tree.remove(handle);
+                boxes.remove(handle);
+            } else if (operation < 9) {
+                this.checkRect("case "+i, tree, boxes, this.randomBox());
+            } else if (operation < 10) {
+                this.checkRadius("case "+i, tree, boxes, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, random.nextDouble() * 150);
+            } else {
+                this.checkNearest("case "+i, tree, boxes, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, 1 + random.nextInt(12));
+            }
+            assertEquals("case "+i, boxes.size(), tree.size());
+        }
+        for (Integer handle : handles) {
+            assertEquals("handle "+handle, (int)boxes.get(handle)[4], (int)tree.get(handle));
+        }
+    }
+
+    private void checkRect(String c, LooseQuadTree<Integer> tree, HashMap<Integer, double[]> boxes, double[] area) {
+        int found = tree.queryRect(area[0], area[1], area[2], area[3]);
+        HashSet<Integer> expected = new HashSet<>();
+        for (double[] box : boxes.values()) {
+            if (box[0] <= area[2] && box[1] <= area[3] && box[2] >= area[0] && box[3] >= area[1]) expected.add((int)box[4]);
+        }
+        assertEquals(c, expected, results(tree, found));
+    }
+
+    private void checkRadius(String c, LooseQuadTree<Integer> tree, HashMap<Integer, double[]> boxes, double x, double y, double radius) {
+        int found = tree.queryRadius(x, y, radius);
+        HashSet<Integer> expected = new HashSet<>();
+        for (double[] box : boxes.values()) {
+            double dx = (x < box[0]) ? box[0] - x : (x > box[2]) ? x - box[2] : 0;
+            double dy = (y < box[1]) ? box[1] - y : (y > box[3]) ? y - box[3] : 0;
+            if ((dx * dx) + (dy * dy) <= radius * radius) expected.add((int)box[4]);
+        }
+        assertEquals(c, expected, results(tree, found));
+    }
+
+    private void checkNearest(String c, LooseQuadTree<Integer> tree, HashMap<Integer, double[]> boxes, double x, double y, int k) {
+        int found = tree.nearestK(x, y, k);
+        assertEquals(c, Math.min(k, boxes.size()), found);
+        HashMap<Integer, Double> distances = new HashMap<>(); //By item
+        double[] all = new double[boxes.size()];
+        int n = 0;
+        for (double[] box : boxes.values()) {
+            double dx = ((box[0] + box[2]) / 2) - x;
+            double dy = ((box[1] + box[3]) / 2) - y;
+            all[n++] = (dx * dx) + (dy * dy);
+            distances.put((int)box[4], all[n - 1]);
+        }
+        Arrays.sort(all);
+        HashSet<Integer> seen = new HashSet<>();
+        for (int r = 0; r < found; r++) {
+            Integer item = tree.getResult(r);
+            assertTrue(c+" found "+item+" twice", seen.add(item));
+            assertEquals(c+" result "+r, all[r], distances.get(item), 0);
+        }
+    }
+
+    private static HashSet<Integer> results(LooseQuadTree<Integer> tree, int found) {
+        HashSet<Integer> results = new HashSet<>();
+        for (int r = 0; r < found; r++) {
+            assertTrue("found "+tree.getResult(r)+" twice", results.add(tree.getResult(r)));
+        }
+        return results;
+    }
+
+    /**
+     * @return box as minX, minY, maxX, maxY on the tree area, mostly small, sometimes large
+     */
+    private double[] randomBox() {
+        double w = random.nextDouble() * (random.nextInt(10) == 0 ? 300 : 30);
+        double h = random.nextDouble() * (random.nextInt(10) == 0 ? 300 : 30);
+        double x = random.nextDouble() * (WIDTH - w);
+        double y = random.nextDouble() * (HEIGHT - h);
+        return new double[]{x, y, x + w, y + h};
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import generalsgame.BattleMap;
+import generalsgame.Simulation;
+
+/**
+ * Property test for PathCache: random lookups and stores, some of them
+ * off the map, are mirrored in a plain least recently used list, which
+ * is emptied whenever the map changes. Every lookup must give the same
+ * path as the list, and the counters must agree with it.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class PathCacheTest {
+
+    private static final int CASES = 20000;
+    private static final int CAPACITY = 16;
+    private static final int TILES_WIDE = 8;
+    private static final int TILES_HIGH = 6;
+
+    private final Random random = new Random(14416884);
+
+    public PathCacheTest() {
+        Simulation.logger.setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void cacheMatchesLeastRecentlyUsedList() {
+        CollisionMap map = this.makeMap();
+        PathCache cache = new PathCache(CAPACITY);
+        List<int[]> keys = new ArrayList<>(); //Least recently used first
+        List<Path> paths = new ArrayList<>();
+        long hits = 0;
+        long misses = 0;
+        long invalidations = 0;
+        for (int i = 0; i < CASES; i++) {
+            String c = "case "+i;
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                map.markDirty(random.nextInt(TILES_WIDE), random.nextInt(TILES_HIGH), 0, 0);
+                map.markDirty(0, 0, random.nextInt(TILES_WIDE), random.nextInt(TILES_HIGH));
+                if (!keys.isEmpty()) invalidations++;
+                keys.clear();
+                paths.clear();
+                continue;
+            }
+            int[] key = this.randomKey();
+            boolean onMap = this.isOnMap(key[2], key[3]) && this.isOnMap(key[4], key[5]);
+            int found = this.indexOf(keys, key);
+            if (operation < 10) {
+                Path path = cache.get(map, key[0], key[1], key[2], key[3], key[4], key[5]);
+                if (found >= 0 && onMap) {
+                    assertTrue(c+" gave another path", path == paths.get(found));
+                    keys.add(keys.remove(found));
+                    paths.add(paths.remove(found));
+                    hits++;
+                } else {
+                    assertTrue(c+" found a path that wasn't stored", path == null);
+                    misses++;
+                }
+            } else {
+                Path path = new Path();
+                cache.put(map, key[0], key[1], key[2], key[3], key[4], key[5], path);
+                if (!onMap) continue;
+                if (found >= 0) {
+                    keys.remove(found);
+                    paths.remove(found);
+                }
+                keys.add(key);
+                paths.add(path);
+                if (keys.size() > CAPACITY) {
+                    keys.remove(0);
+                    paths.remove(0);
+                }
+            }
+            assertEquals(c+" size", keys.size(), cache.size());
+            assertEquals(c+" hits", hits, cache.getHits());
+            assertEquals(c+" misses", misses, cache.getMisses());
+            assertEquals(c+" invalidations", invalidations, cache.getInvalidations());
+        }
+    }
+
+    @Test
+    public void offMapTilesDontShareKeys() {
+        CollisionMap map = this.makeMap();
+        PathCache cache = new PathCache(CAPACITY);
+        //One column past the right edge has the index of the first tile on the next row
+        cache.put(map, 1, 1, TILES_WIDE, 0, 2, 2, new Path());
+        cache.put(map, 1, 1, 2, 2, -1, 1, new Path());
+        assertEquals(0, cache.size());
+        assertTrue(cache.get(map, 1, 1, 0, 1, 2, 2) == null);
+        assertTrue(cache.get(map, 1, 1, 2, 2, TILES_WIDE - 1, 0) == null);
+    }
+
+    private CollisionMap makeMap() {
+        //Collisionmaps get an extra row and column of tiles past the map edges
+        CollisionMap map = new BattleMap("Cache", (TILES_WIDE - 1) * Simulation.TILESIZE, (TILES_HIGH - 1) * Simulation.TILESIZE).getCollisionMap();
+        assertEquals(TILES_WIDE, map.getMapTileWidth());
+        assertEquals(TILES_HIGH, map.getMapTileHeight());
+        return map;
+    }
+
+    /**
+     * Clearance, terrain mask, start and goal. Coordinates go a tile
+     * over the edges, and the key space is small so keys come up again.
+     */
+    private int[] randomKey() {
+        return new int[]{1 + random.nextInt(2), 1 + random.nextInt(2),
+            random.nextInt(TILES_WIDE + 2) - 1, random.nextInt(TILES_HIGH + 2) - 1,
+            random.nextInt(3), random.nextInt(3)};
+    }
+
+    private boolean isOnMap(int x, int y) {
+        return x >= 0 && y >= 0 && x < TILES_WIDE && y < TILES_HIGH;
+    }
+
+    private int indexOf(List<int[]> keys, int[] key) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (Arrays.equals(keys.get(i), key)) return i;
+        }
+        return -1;
+    }
+
+}
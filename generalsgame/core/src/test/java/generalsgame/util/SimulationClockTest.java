@@ -0,0 +1,108 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for SimulationClock: random frame times, from nothing
+ * to long stalls, are fed to clocks of different rates. Tick rates and
+ * frame times are whole fractions of a power of two, so they add up
+ * exactly in doubles and can be counted in whole units: the ticks run,
+ * the ticks dropped and the time left over must match counting the
+ * same frames in units. At 60 ticks a second, where the tick length
+ * can't be added up exactly, the tick count must stay within a tick of
+ * the time fed in.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class SimulationClockTest {
+
+    private static final int FRAMES = 20000;
+    private static final int UNITS_PER_SECOND = 1024;
+    private static final double EPSILON = 1e-9;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void ticksMatchCountedTime() {
+        for (int ticksPerSecond = 16; ticksPerSecond <= 128; ticksPerSecond *= 2) {
+            this.checkClock(ticksPerSecond, 1 + random.nextInt(10));
+        }
+    }
+
+    @Test
+    public void ticksKeepUpWithSixtyPerSecond() {
+        SimulationClock clock = new SimulationClock(60, 1000);
+        double time = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            double frame = random.nextDouble() / 20;
+            time += frame;
+            clock.addTime(frame);
+            while (clock.nextTick()) {
+                //Ticks aren't run here, only counted
+            }
+            assertTrue("frame "+f+" ticks fell behind the time", Math.abs(clock.getTick() - time * 60) < 1);
+            assertTrue("frame "+f+" alpha", clock.getAlpha() >= 0 && clock.getAlpha() < 1);
+        }
+        assertEquals(0, clock.getDroppedTicks());
+    }
+
+    @Test
+    public void stepsAdvanceWithoutTime() {
+        SimulationClock clock = new SimulationClock(30, 5);
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(i, clock.step());
+            assertEquals(i, clock.getTick());
+            assertEquals(i / 30.0, clock.getTime(), EPSILON);
+        }
+        assertTrue("no time was added", !clock.nextTick());
+        assertEquals(0, clock.getAlpha(), EPSILON);
+        assertEquals(30, clock.secondsToTicks(1));
+        assertEquals(31, clock.secondsToTicks(1.01));
+        assertEquals(0, clock.secondsToTicks(0));
+    }
+
+    private void checkClock(int ticksPerSecond, int maxCatchUpTicks) {
+        SimulationClock clock = new SimulationClock(ticksPerSecond, maxCatchUpTicks);
+        int tickUnits = UNITS_PER_SECOND / ticksPerSecond;
+        long accumulated = 0, ticks = 0, dropped = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            String c = ticksPerSecond+" per second, catching up "+maxCatchUpTicks+", frame "+f;
+            long frame;
+            int kind = random.nextInt(10);
+            if (kind == 0) frame = 0;
+            else if (kind == 1) frame = -random.nextInt(UNITS_PER_SECOND); //Clock went backwards
+            else if (kind == 2) frame = random.nextInt(UNITS_PER_SECOND * 10); //Stall
+            else frame = random.nextInt(tickUnits * 3);
+            clock.addTime((double)frame / UNITS_PER_SECOND);
+            if (frame > 0) accumulated += frame;
+            long max = (long)maxCatchUpTicks * tickUnits;
+            if (accumulated > max) {
+                dropped += (accumulated - max) / tickUnits;
+                accumulated = max;
+            }
+            int run = 0;
+            while (clock.nextTick()) run++;
+            assertTrue(c+" ran "+run+" ticks", run <= maxCatchUpTicks);
+            assertEquals(c+" ticks run", accumulated / tickUnits, run);
+            ticks += run;
+            accumulated -= run * tickUnits;
+            assertEquals(c+" tick", ticks, clock.getTick());
+            assertEquals(c+" dropped", dropped, clock.getDroppedTicks());
+            assertEquals(c+" alpha", (double)accumulated / tickUnits, clock.getAlpha(), EPSILON);
+            assertEquals(c+" time", (double)ticks / ticksPerSecond, clock.getTime(), EPSILON);
+        }
+    }
+
+}
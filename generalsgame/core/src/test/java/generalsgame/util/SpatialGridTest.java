@@ -0,0 +1,118 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Property test for SpatialGrid: random adds, moves and removes are
+ * mirrored in a plain list of boxes, and every query is checked against
+ * going through the whole list. Queries must find each item in the
+ * cells they cover exactly once, so every item whose box overlaps
+ * the area is always among the results.
+ * Seeds are fixed so a failure can be repeated.
+ * @author nikok
+ */
+public class SpatialGridTest {
+
+    private static final int CASES = 20000;
+    private static final double WIDTH = 1000;
+    private static final double HEIGHT = 700;
+
+    private final Random random = new Random(14416884);
+
+    @Test
+    public void queriesMatchBruteForce() {
+        this.checkRandomOperations(new SpatialGrid<Integer>(WIDTH, HEIGHT, 64));
+    }
+
+    @Test
+    public void queriesMatchBruteForceWithDensityCells() {
+        this.checkRandomOperations(SpatialGrid.<Integer>forDensity(WIDTH, HEIGHT, 300, 16));
+    }
+
+    private void checkRandomOperations(SpatialGrid<Integer> grid) {
+        HashMap<Integer, double[]> boxes = new HashMap<>(); //By handle
+        List<Integer> handles = new ArrayList<>();
+        int nextItem = 0;
+        for (int i = 0; i < CASES; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 3 || handles.isEmpty()) {
+                double[] box = this.randomBox();
+                int handle = grid.add(nextItem, box[0], box[1], box[2], box[3]);
+                assertTrue("case "+i+" gave out a handle in use", !boxes.containsKey(handle));
+                boxes.put(handle, new double[]{box[0], box[1], box[2], box[3], nextItem});
+                handles.add(handle);
+                nextItem++;
+            } else if (operation < 6) {
+                int handle = handles.get(random.nextInt(handles.size()));
+                double[] box = this.randomBox();
+                double[] old = boxes.get(handle);
+                grid.move(handle, box[0], box[1], box[2], box[3]);
+                boxes.put(handle, new double[]{box[0], box[1], box[2], box[3], old[4]});
+            } else if (operation < 8) {
+                int handle = handles.remove(random.nextInt(handles.size()));
+                grid.remove(handle);
+                boxes.remove(handle);
+            } else {
+                double[] area = this.randomBox();
+                this.checkQuery("case "+i, grid, boxes, area);
+            }
+            assertEquals("case "+i, boxes.size(), grid.size());
+        }
+        for (Integer handle : handles) {
+            assertEquals("handle "+handle, (int)boxes.get(handle)[4], (int)grid.get(handle));
+        }
+    }
+
+    private void checkQuery(String c, SpatialGrid<Integer> grid, HashMap<Integer, double[]> boxes, double[] area) {
+        int found = grid.query(area[0], area[1], area[2], area[3]);
+        HashSet<Integer> results = new HashSet<>();
+        for (int r = 0; r < found; r++) {
+            results.add(grid.getResult(r));
+        }
+        assertEquals(c+" found an item twice", found, results.size());
+        HashSet<Integer> expected = new HashSet<>();
+        for (double[] box : boxes.values()) {
+            boolean sharesCell = column(grid, box[0]) <= column(grid, area[2]) && column(grid, area[0]) <= column(grid, box[2])
+                && row(grid, box[1]) <= row(grid, area[3]) && row(grid, area[1]) <= row(grid, box[3]);
+            if (sharesCell) expected.add((int)box[4]);
+            boolean overlaps = box[0] <= area[2] && area[0] <= box[2] && box[1] <= area[3] && area[1] <= box[3];
+            assertTrue(c+" missed overlapping item "+(int)box[4], !overlaps || results.contains((int)box[4]));
+        }
+        assertEquals(c, expected, results);
+    }
+
+    private static int column(SpatialGrid<?> grid, double x) {
+        return Math.max(0, Math.min(grid.getColumns() - 1, (int)(x / grid.getCellWidth())));
+    }
+
+    private static int row(SpatialGrid<?> grid, double y) {
+        return Math.max(0, Math.min(grid.getRows() - 1, (int)(y / grid.getCellHeight())));
+    }
+
+    /**
+     * @return box as minX, minY, maxX, maxY, mostly small, sometimes reaching off the map
+     */
+    private double[] randomBox() {
+        double x = random.nextDouble() * (WIDTH + 100) - 50;
+        double y = random.nextDouble() * (HEIGHT + 100) - 50;
+        double size = random.nextInt(10) == 0 ? 300 : 40;
+        return new double[]{x, y, x + random.nextDouble() * size, y + random.nextDouble() * size};
+    }
+
+}
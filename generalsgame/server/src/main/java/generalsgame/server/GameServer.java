@@ -0,0 +1,118 @@
+/*
+ * This software (code) is free to use as it is, as long as it's not used for commercial purposes
+ * and as long as you credit the author accordingly. For commercial purposes please contact the author.
+ * The software is provided "as is" with absolutely no warranty of any kind.
+ * Using this software is entirely up to you, and the author is in no way responsible for anything you do with it.
+ * (c) nkoiv / Niko Koivumäki / #014416884
+ */
+package generalsgame.server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import generalsgame.Simulation;
+
+/**
+ * GameServer hosts battles without a display. Every battle is a
+ * Simulation advanced in real time on its own virtual thread: the
+ * thread sleeps until the next tick is due, so a server with many
+ * quiet battles doesn't tie up a platform thread for each.
+ * There's no networking yet, so main() hosts test battles and
+ * logs how they keep up with real time.
+ * @author nikok
+ */
+public class GameServer {
+
+    private final ArrayList<Battle> battles = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Start running a battle in real time
+     * @param name Name of the battle, for the thread and the log
+     * @param simulation Battle to run
+     * @param orders Called on the battle thread before each advance to give commands, can be null.
+     * An advance can run several ticks, so don't count on seeing every tick number
+     */
+    public void host(String name, Simulation simulation, Consumer<Simulation> orders) {
+        Battle battle = new Battle(name, simulation, orders);
+        battle.thread = Thread.ofVirtual().name(name).start(battle);
+        this.battles.add(battle);
+        Simulation.logger.info("Hosting " + name);
+    }
+
+    /**
+     * Stop all the battles and wait for their threads to finish
+     */
+    public void stop() throws InterruptedException {
+        this.running = false;
+        for (Battle battle : this.battles) {
+            battle.thread.join();
+            battle.simulation.shutdown();
+            Simulation.logger.info(battle.name + " stopped at tick " + battle.simulation.getTick()
+                + ", " + battle.simulation.getClock().getDroppedTicks() + " ticks dropped");
+        }
+        this.battles.clear();
+    }
+
+    /**
+     * Host test battles
+     * @param args [battles] [units per battle] [seconds to run, 0 runs until killed], defaults 4, 100 and 60
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int battleCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int units = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        Simulation.logger.setLevel(Level.INFO);
+
+        GameServer server = new GameServer();
+        for (int i = 0; i < battleCount; i++) {
+            Simulation simulation = Simulation.createTestBattle(units, i);
+            long commandLength = simulation.getClock().secondsToTicks(10);
+            long[] nextOrders = {0};
+            server.host("Battle " + i, simulation, s -> {
+                if (s.getTick() < nextOrders[0]) return;
+                s.orderMarchAcross(commandLength); //New orders for everyone
+                nextOrders[0] = s.getTick() + commandLength;
+            });
+        }
+        //Virtual threads (and the daemon path workers) don't keep the JVM up, main has to wait
+        if (seconds <= 0) Thread.sleep(Long.MAX_VALUE);
+        Thread.sleep(Duration.ofSeconds(seconds));
+        server.stop();
+    }
+
+    private class Battle implements Runnable {
+        private final String name;
+        private final Simulation simulation;
+        private final Consumer<Simulation> orders;
+        private Thread thread;
+
+        private Battle(String name, Simulation simulation, Consumer<Simulation> orders) {
+            this.name = name;
+            this.simulation = simulation;
+            this.orders = orders;
+        }
+
+        @Override
+        public void run() {
+            double tickLength = this.simulation.getClock().getTickLength();
+            long last = System.nanoTime();
+            while (running) {
+                if (this.orders != null) this.orders.accept(this.simulation);
+                long now = System.nanoTime();
+                this.simulation.advance((now - last) / 1000000000.0);
+                last = now;
+                //Sleep until the rest of the next tick has passed
+                double untilNextTick = (1 - this.simulation.getClock().getAlpha()) * tickLength;
+                try {
+                    Thread.sleep(Duration.ofNanos((long)(untilNextTick * 1000000000)));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+}